@@ -69,7 +69,13 @@ public class Interpreter implements Runnable {
         parser.parse();
 
         SEXP exp = parser.getResult();
-        EvalResult result = exp.evaluate(global.getGlobalEnvironment());
+        EvalResult result;
+        global.getBufferPool().open();
+        try {
+          result = exp.evaluate(global.getGlobalEnvironment());
+        } finally {
+          global.getBufferPool().close();
+        }
 
         if(result.isVisible()) {
           console.print(new PrintingVisitor(result.getExpression(),
@@ -31,6 +31,12 @@ import java.util.List;
 
 class PrintingVisitor extends SexpVisitor<String> {
 
+  /**
+   * The maximum number of elements printed, as R's default {@code max.print} option.
+   * Long vectors cannot be printed in full in any case.
+   */
+  static final int MAX_PRINT = 99999;
+
   private StringBuilder out;
   private int charactersPerLine;
 
@@ -54,22 +60,44 @@ class PrintingVisitor extends SexpVisitor<String> {
 
   @Override
   public void visit(IntExp intExp) {
-    printVector(intExp, Alignment.RIGHT, new ParseUtil.IntPrinter());
+    ParseUtil.IntPrinter printer = new ParseUtil.IntPrinter();
+    List<String> elements = Lists.newArrayListWithCapacity(printedLength(intExp));
+    IntIterator it = intExp.intIterator();
+    while(it.hasNext() && elements.size() < MAX_PRINT) {
+      elements.add(printer.apply(it.nextInt()));
+    }
+    printVector(elements, intExp.longLength(), Alignment.RIGHT);
   }
 
   @Override
   public void visit(LogicalExp logicalExp) {
-    printVector(logicalExp, Alignment.RIGHT, new ParseUtil.LogicalPrinter());
+    printVector(logicalExp, logicalExp.longLength(), Alignment.RIGHT, new ParseUtil.LogicalPrinter());
   }
 
   @Override
   public void visit(RealExp realExp) {
-    printVector(realExp, Alignment.RIGHT, new ParseUtil.RealPrinter());
+    ParseUtil.RealPrinter printer = new ParseUtil.RealPrinter();
+    List<String> elements = Lists.newArrayListWithCapacity(printedLength(realExp));
+    DoubleIterator it = realExp.doubleIterator();
+    while(it.hasNext() && elements.size() < MAX_PRINT) {
+      elements.add(printer.apply(it.nextDouble()));
+    }
+    printVector(elements, realExp.longLength(), Alignment.RIGHT);
+  }
+
+  @Override
+  public void visit(ComplexExp complexExp) {
+    ParseUtil.ComplexPrinter printer = new ParseUtil.ComplexPrinter();
+    List<String> elements = Lists.newArrayListWithCapacity(printedLength(complexExp));
+    for(int i=0; i < complexExp.length() && elements.size() < MAX_PRINT; ++i) {
+      elements.add(printer.apply(complexExp.getReal(i), complexExp.getImaginary(i)));
+    }
+    printVector(elements, complexExp.longLength(), Alignment.RIGHT);
   }
 
   @Override
   public void visit(StringExp stringExp) {
-    printVector(stringExp, Alignment.LEFT, new ParseUtil.StringPrinter());
+    printVector(stringExp, stringExp.longLength(), Alignment.LEFT, new ParseUtil.StringPrinter());
   }
 
   @Override
@@ -77,9 +105,21 @@ class PrintingVisitor extends SexpVisitor<String> {
     out.append("NULL");
   }
 
-  private <T> void printVector(Iterable<T> intExp, Alignment align, Function<T, String> printer) {
-    List<String> elements = Lists.newArrayList(Iterables.transform(intExp, printer));
+  private <T> void printVector(Iterable<T> vector, long length, Alignment align, Function<T, String> printer) {
+    List<String> elements = Lists.newArrayList(Iterables.transform(Iterables.limit(vector, MAX_PRINT), printer));
+    printVector(elements, length, align);
+  }
+
+  private int printedLength(SEXP vector) {
+    return (int) Math.min(vector.longLength(), MAX_PRINT);
+  }
+
+  private void printVector(List<String> elements, long length, Alignment align) {
     new VectorPrinter(elements, align);
+    if(length > MAX_PRINT) {
+      out.append(String.format(" [ reached getOption(\"max.print\") -- omitted %d entries ]\n",
+          length - MAX_PRINT));
+    }
   }
 
   private enum Alignment {
@@ -21,6 +21,8 @@
 
 package r.lang;
 
+import r.lang.exception.EvalException;
+
 import java.util.logging.Logger;
 
 /**
@@ -30,11 +32,125 @@ abstract class AbstractVector extends SEXP {
 
   private static Logger logger = Logger.getLogger("R");
 
+  private static final int NO_NA = 1;
+  private static final int SORTED = 2;
+
+  /**
+   * Facts about the elements of this vector, declared by whoever produced it, which
+   * allow kernels to skip per-element checks. A cleared bit means only that the
+   * property is not known, not that it does not hold.
+   */
+  private int properties;
+
+  /**
+   * True once this vector's memory has been counted by its context's {@link MemoryAccounting}
+   */
+  boolean accounted;
+
+  /**
+   * Checks, before a vector allocates an array of {@code bytes}, that the allocation is
+   * within the memory limits of the context evaluating on this thread
+   */
+  protected static void allocating(long bytes) {
+    MemoryAccounting.allocating(bytes);
+  }
+
+  /**
+   * Accounts for this vector's storage to the context evaluating on this thread.
+   * Constructors of vectors which allocate or take ownership of their storage call
+   * this once they hold it.
+   */
+  protected final void allocated() {
+    MemoryAccounting.allocated(this);
+  }
+
+  /**
+   * @return an estimate of the heap memory held by this vector's elements. Views and
+   * compact representations report what they hold themselves, rather than their length
+   * times the element size.
+   */
+  public abstract long getElementBytes();
+
+  /**
+   * @return true if this vector is known to contain no {@code NA} or {@code NaN}
+   * elements, in which case loops over it need not test each element
+   */
+  public final boolean isKnownNoNA() {
+    return (properties & NO_NA) != 0;
+  }
+
+  /**
+   * @return true if this vector is known to be sorted in non-decreasing order.
+   * Sorted vectors contain no {@code NA}s.
+   */
+  public final boolean isKnownSorted() {
+    return (properties & SORTED) != 0;
+  }
+
+  /**
+   * Declares that this vector contains no {@code NA} or {@code NaN} elements. Only
+   * the producer of a vector may do so, before it is handed out.
+   */
+  public final void declareNoNA() {
+    properties |= NO_NA;
+  }
+
+  /**
+   * Declares that this vector is sorted in non-decreasing order and contains no
+   * {@code NA} or {@code NaN} elements
+   */
+  public final void declareSorted() {
+    properties |= NO_NA | SORTED;
+  }
+
+  /**
+   * Copies the declared properties of {@code source}, for vectors which hold the
+   * same elements, such as duplicates, or a contiguous range of them, such as slices
+   */
+  public final void copyPropertiesFrom(AbstractVector source) {
+    properties = source.properties;
+  }
+
+  /**
+   * Withdraws the declared properties which may no longer hold after an element is
+   * modified; must be called by every mutator
+   *
+   * @param na true if the new element is {@code NA} or {@code NaN}
+   */
+  protected final void elementChanged(boolean na) {
+    properties = na ? 0 : properties & ~SORTED;
+  }
+
   @Override
   public EvalResult evaluate(EnvExp rho) {
     return super.evaluate(rho);
   }
 
+  /**
+   * Converts the length of a vector to an {@code int}, for vectors which can be
+   * long vectors. Code which has not been adapted to long vectors still calls
+   * {@link #length()}, and should fail loudly rather than see a truncated length.
+   *
+   * @throws EvalException if {@code length} exceeds {@code Integer.MAX_VALUE}
+   */
+  protected static int intLength(long length) {
+    if(length > Integer.MAX_VALUE) {
+      throw new EvalException("long vectors not supported yet");
+    }
+    return (int) length;
+  }
+
+  /**
+   * Converts a {@code long} index into one of a vector whose storage is
+   * indexed by {@code int}
+   */
+  protected static int intIndex(long index) {
+    if(index > Integer.MAX_VALUE) {
+      throw new IndexOutOfBoundsException(Long.toString(index));
+    }
+    return (int) index;
+  }
+
   @Override
   public SEXP subset(int from, int to) {
     if(from == to && length() == 1) {
@@ -43,4 +159,13 @@ abstract class AbstractVector extends SEXP {
       throw new UnsupportedOperationException("Real subsetting not yet implemented");
     }
   }
+
+  /**
+   * Checks the 1-based, inclusive range passed to {@link #subset(int, int)}
+   */
+  protected final void checkRange(int from, int to) {
+    if(from < 1 || to > length() || to < from - 1) {
+      throw new EvalException("subscript out of bounds");
+    }
+  }
 }
@@ -0,0 +1,297 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The attributes attached to an {@link SEXP}, keyed by attribute name.
+ *
+ * <p>The attributes consulted on nearly every operation ({@code names}, {@code dim},
+ * {@code dimnames}, {@code class} and {@code levels}) each have a dedicated slot, so
+ * looking them up is a field read. Any other attributes are kept in a pair of small
+ * arrays and found by a linear scan, which for the handful of attributes objects
+ * typically carry is faster than hashing.
+ *
+ * <p>Maps are immutable: {@link #with(String, SEXP)} and {@link #without(String)} return
+ * a modified copy. A vector derived from another can therefore share its attributes
+ * simply by sharing the map, and only pays for a copy when one of the two is modified.
+ *
+ * <p>Attribute names are interned through the {@link StringCache}, so keys can be compared
+ * by identity.
+ */
+public final class AttributeMap {
+
+  public static final String NAMES = StringCache.intern("names");
+  public static final String DIM = StringCache.intern("dim");
+  public static final String DIMNAMES = StringCache.intern("dimnames");
+  public static final String CLASS = StringCache.intern("class");
+  public static final String LEVELS = StringCache.intern("levels");
+
+  public static final AttributeMap EMPTY = new AttributeMap(null, null, null, null, null,
+      new String[0], new SEXP[0]);
+
+  private final SEXP names;
+  private final SEXP dim;
+  private final SEXP dimNames;
+  private final SEXP classes;
+  private final SEXP levels;
+
+  private final String[] otherNames;
+  private final SEXP[] otherValues;
+
+  private AttributeMap(SEXP names, SEXP dim, SEXP dimNames, SEXP classes, SEXP levels,
+                       String[] otherNames, SEXP[] otherValues) {
+    this.names = names;
+    this.dim = dim;
+    this.dimNames = dimNames;
+    this.classes = classes;
+    this.levels = levels;
+    this.otherNames = otherNames;
+    this.otherValues = otherValues;
+  }
+
+  /**
+   * @return the {@code names} attribute, or {@code null} if it is not set
+   */
+  public SEXP getNames() {
+    return names;
+  }
+
+  /**
+   * @return the {@code dim} attribute, or {@code null} if it is not set
+   */
+  public SEXP getDim() {
+    return dim;
+  }
+
+  /**
+   * @return the {@code dimnames} attribute, or {@code null} if it is not set
+   */
+  public SEXP getDimNames() {
+    return dimNames;
+  }
+
+  /**
+   * @return the {@code class} attribute, or {@code null} if it is not set
+   */
+  public SEXP getClassAttribute() {
+    return classes;
+  }
+
+  /**
+   * @return the {@code levels} attribute, or {@code null} if it is not set
+   */
+  public SEXP getLevels() {
+    return levels;
+  }
+
+  /**
+   * @return the value of the attribute {@code name}, or {@code null} if it is not set
+   */
+  public SEXP get(String name) {
+    switch(slotOf(name)) {
+      case NAMES_SLOT:
+        return names;
+      case DIM_SLOT:
+        return dim;
+      case DIMNAMES_SLOT:
+        return dimNames;
+      case CLASS_SLOT:
+        return classes;
+      case LEVELS_SLOT:
+        return levels;
+    }
+    int index = indexOf(name);
+    return index == -1 ? null : otherValues[index];
+  }
+
+  public boolean isEmpty() {
+    return this == EMPTY || size() == 0;
+  }
+
+  public int size() {
+    int size = otherNames.length;
+    if(names != null) { size++; }
+    if(dim != null) { size++; }
+    if(dimNames != null) { size++; }
+    if(classes != null) { size++; }
+    if(levels != null) { size++; }
+    return size;
+  }
+
+  /**
+   * @return the names of the attributes that are set; {@code names} always comes first,
+   * as in R.
+   */
+  public List<String> getAttributeNames() {
+    List<String> list = new ArrayList<String>(size());
+    if(names != null) { list.add(NAMES); }
+    if(dim != null) { list.add(DIM); }
+    if(dimNames != null) { list.add(DIMNAMES); }
+    if(classes != null) { list.add(CLASS); }
+    if(levels != null) { list.add(LEVELS); }
+    list.addAll(Arrays.asList(otherNames));
+    return list;
+  }
+
+  /**
+   * @return a map with the attribute {@code name} set to {@code value}, or with it
+   * removed if {@code value} is {@code NULL}. This map is left unchanged.
+   */
+  public AttributeMap with(String name, SEXP value) {
+    if(value == null || value == NilExp.INSTANCE) {
+      return without(name);
+    }
+    switch(slotOf(name)) {
+      case NAMES_SLOT:
+        return new AttributeMap(value, dim, dimNames, classes, levels, otherNames, otherValues);
+      case DIM_SLOT:
+        return new AttributeMap(names, value, dimNames, classes, levels, otherNames, otherValues);
+      case DIMNAMES_SLOT:
+        return new AttributeMap(names, dim, value, classes, levels, otherNames, otherValues);
+      case CLASS_SLOT:
+        return new AttributeMap(names, dim, dimNames, value, levels, otherNames, otherValues);
+      case LEVELS_SLOT:
+        return new AttributeMap(names, dim, dimNames, classes, value, otherNames, otherValues);
+    }
+    int index = indexOf(name);
+    SEXP[] newValues;
+    String[] newNames;
+    if(index == -1) {
+      int count = otherNames.length;
+      newNames = Arrays.copyOf(otherNames, count + 1);
+      newNames[count] = StringCache.intern(name);
+      newValues = Arrays.copyOf(otherValues, count + 1);
+      newValues[count] = value;
+    } else {
+      newNames = otherNames;
+      newValues = otherValues.clone();
+      newValues[index] = value;
+    }
+    return new AttributeMap(names, dim, dimNames, classes, levels, newNames, newValues);
+  }
+
+  /**
+   * @return a map without the attribute {@code name}. This map is left unchanged.
+   */
+  public AttributeMap without(String name) {
+    switch(slotOf(name)) {
+      case NAMES_SLOT:
+        return names == null ? this :
+            new AttributeMap(null, dim, dimNames, classes, levels, otherNames, otherValues);
+      case DIM_SLOT:
+        return dim == null ? this :
+            new AttributeMap(names, null, dimNames, classes, levels, otherNames, otherValues);
+      case DIMNAMES_SLOT:
+        return dimNames == null ? this :
+            new AttributeMap(names, dim, null, classes, levels, otherNames, otherValues);
+      case CLASS_SLOT:
+        return classes == null ? this :
+            new AttributeMap(names, dim, dimNames, null, levels, otherNames, otherValues);
+      case LEVELS_SLOT:
+        return levels == null ? this :
+            new AttributeMap(names, dim, dimNames, classes, null, otherNames, otherValues);
+    }
+    int index = indexOf(name);
+    if(index == -1) {
+      return this;
+    }
+    int count = otherNames.length - 1;
+    String[] newNames = new String[count];
+    SEXP[] newValues = new SEXP[count];
+    System.arraycopy(otherNames, 0, newNames, 0, index);
+    System.arraycopy(otherNames, index + 1, newNames, index, count - index);
+    System.arraycopy(otherValues, 0, newValues, 0, index);
+    System.arraycopy(otherValues, index + 1, newValues, index, count - index);
+    return new AttributeMap(names, dim, dimNames, classes, levels, newNames, newValues);
+  }
+
+  /**
+   * Converts these attributes to the pairlist form used by the C implementation,
+   * tagged with symbols from {@code symbolTable}.
+   *
+   * @return the pairlist, or {@code NULL} if there are no attributes
+   */
+  public SEXP toPairList(SymbolTable symbolTable) {
+    if(isEmpty()) {
+      return NilExp.INSTANCE;
+    }
+    ListExp.Builder builder = new ListExp.Builder();
+    for(String name : getAttributeNames()) {
+      builder.add(get(name)).withTag(symbolTable == null ?
+          new SymbolExp(name) : symbolTable.install(name));
+    }
+    return builder.list();
+  }
+
+  /**
+   * Builds a map from a pairlist of tagged attribute values.
+   */
+  public static AttributeMap fromPairList(SEXP list) {
+    AttributeMap map = EMPTY;
+    if(list instanceof ListExp) {
+      for(ListExp node : ListExp.listNodes((ListExp) list)) {
+        map = map.with(((SymbolExp) node.getTag()).getPrintName(), node.getValue());
+      }
+    }
+    return map;
+  }
+
+  private static final int OTHER_SLOT = 0;
+  private static final int NAMES_SLOT = 1;
+  private static final int DIM_SLOT = 2;
+  private static final int DIMNAMES_SLOT = 3;
+  private static final int CLASS_SLOT = 4;
+  private static final int LEVELS_SLOT = 5;
+
+  private static int slotOf(String name) {
+    // interned names hit the identity checks; anything else falls through to equals()
+    if(name == NAMES) { return NAMES_SLOT; }
+    if(name == DIM) { return DIM_SLOT; }
+    if(name == DIMNAMES) { return DIMNAMES_SLOT; }
+    if(name == CLASS) { return CLASS_SLOT; }
+    if(name == LEVELS) { return LEVELS_SLOT; }
+    if(name.equals(NAMES)) { return NAMES_SLOT; }
+    if(name.equals(DIM)) { return DIM_SLOT; }
+    if(name.equals(DIMNAMES)) { return DIMNAMES_SLOT; }
+    if(name.equals(CLASS)) { return CLASS_SLOT; }
+    if(name.equals(LEVELS)) { return LEVELS_SLOT; }
+    return OTHER_SLOT;
+  }
+
+  private int indexOf(String name) {
+    for(int i=0; i!=otherNames.length; ++i) {
+      if(otherNames[i] == name) {
+        return i;
+      }
+    }
+    for(int i=0; i!=otherNames.length; ++i) {
+      if(otherNames[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
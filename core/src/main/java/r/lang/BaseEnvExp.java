@@ -35,4 +35,9 @@ public class BaseEnvExp extends EnvExp {
   public SEXP findVariable(SymbolExp symbol) {
     return symbol.getValue();
   }
+
+  @Override
+  public SEXP findVariableInFrame(SymbolExp symbol) {
+    return symbol.getValue();
+  }
 }
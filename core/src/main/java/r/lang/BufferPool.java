@@ -0,0 +1,191 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recycles the storage of large temporary vectors for the duration of one
+ * top-level evaluation.
+ *
+ * <p>Kernels allocate their result arrays from the pool, and hand back scratch arrays
+ * which they allocated themselves once they are done with them, so that the next result
+ * of the same size need not be allocated. The storage of arguments is never handed back,
+ * even that of temporaries, as they may still be referenced. Arrays are pooled by
+ * exact length, since vectors are created with the length they will hold and the
+ * temporaries of one evaluation tend to share lengths.
+ *
+ * <p>The pool only holds arrays between {@link #open()} and {@link #close()}; outside of
+ * an evaluation, or for arrays shorter than {@link #MIN_POOLED_LENGTH}, allocation
+ * falls through to the heap and released arrays are left to the garbage collector.
+ */
+public class BufferPool {
+
+  /**
+   * Shorter arrays are cheap for the garbage collector, and are not pooled
+   */
+  public static final int MIN_POOLED_LENGTH = 1024;
+
+  /**
+   * The most memory the pool will retain, in bytes
+   */
+  static final long MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * A pool which never retains arrays, for kernels called outside of an evaluation
+   */
+  public static final BufferPool UNPOOLED = new BufferPool(false, null);
+
+  private final boolean poolable;
+
+  /**
+   * Checked before large arrays are allocated, or {@code null}
+   */
+  private final MemoryAccounting accounting;
+  private int depth;
+  private long pooledBytes;
+
+  private final Map<Integer, ArrayDeque<double[]>> doubles = new HashMap<Integer, ArrayDeque<double[]>>();
+  private final Map<Integer, ArrayDeque<int[]>> ints = new HashMap<Integer, ArrayDeque<int[]>>();
+
+  public BufferPool() {
+    this(true, null);
+  }
+
+  public BufferPool(MemoryAccounting accounting) {
+    this(true, accounting);
+  }
+
+  private BufferPool(boolean poolable, MemoryAccounting accounting) {
+    this.poolable = poolable;
+    this.accounting = accounting;
+  }
+
+  /**
+   * Begins an evaluation, during which released arrays are retained. Evaluations may nest;
+   * the pool is only emptied when the outermost one closes.
+   */
+  public void open() {
+    if(poolable) {
+      depth++;
+    }
+  }
+
+  /**
+   * Ends an evaluation, dropping the pooled arrays once the outermost evaluation ends
+   */
+  public void close() {
+    if(depth > 0 && --depth == 0) {
+      doubles.clear();
+      ints.clear();
+      pooledBytes = 0;
+    }
+  }
+
+  /**
+   * @return an array of exactly {@code length} elements whose contents are undefined:
+   * the caller must write every element before reading it
+   */
+  public double[] allocateDoubles(int length) {
+    if(depth > 0 && length >= MIN_POOLED_LENGTH) {
+      ArrayDeque<double[]> free = doubles.get(length);
+      if(free != null && !free.isEmpty()) {
+        pooledBytes -= length * 8L;
+        return free.pop();
+      }
+    }
+    reserve(length * 8L);
+    return new double[length];
+  }
+
+  /**
+   * @return an array of exactly {@code length} elements whose contents are undefined:
+   * the caller must write every element before reading it
+   */
+  public int[] allocateInts(int length) {
+    if(depth > 0 && length >= MIN_POOLED_LENGTH) {
+      ArrayDeque<int[]> free = ints.get(length);
+      if(free != null && !free.isEmpty()) {
+        pooledBytes -= length * 4L;
+        return free.pop();
+      }
+    }
+    reserve(length * 4L);
+    return new int[length];
+  }
+
+  /**
+   * Returns an array to the pool. The caller must hold the only reference to it,
+   * and must not use it afterwards.
+   */
+  public void release(double[] array) {
+    if(isRetained(array.length, array.length * 8L)) {
+      ArrayDeque<double[]> free = doubles.get(array.length);
+      if(free == null) {
+        free = new ArrayDeque<double[]>();
+        doubles.put(array.length, free);
+      }
+      free.push(array);
+    }
+  }
+
+  /**
+   * Returns an array to the pool. The caller must hold the only reference to it,
+   * and must not use it afterwards.
+   */
+  public void release(int[] array) {
+    if(isRetained(array.length, array.length * 4L)) {
+      ArrayDeque<int[]> free = ints.get(array.length);
+      if(free == null) {
+        free = new ArrayDeque<int[]>();
+        ints.put(array.length, free);
+      }
+      free.push(array);
+    }
+  }
+
+  /**
+   * Fails before, rather than after, allocating an array which would exceed the memory limit
+   */
+  private void reserve(long bytes) {
+    if(accounting != null && bytes >= MemoryAccounting.MIN_TRACKED_BYTES) {
+      accounting.reserve(bytes);
+    }
+  }
+
+  private boolean isRetained(int length, long bytes) {
+    if(depth == 0 || length < MIN_POOLED_LENGTH || pooledBytes + bytes > MAX_POOLED_BYTES) {
+      return false;
+    }
+    pooledBytes += bytes;
+    return true;
+  }
+
+  /**
+   * @return the number of bytes held by arrays waiting to be reused
+   */
+  public long getPooledBytes() {
+    return pooledBytes;
+  }
+}
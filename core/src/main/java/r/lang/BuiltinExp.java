@@ -52,8 +52,11 @@ public class BuiltinExp extends PrimitiveSexp {
       return args;
     }
     ListExp.Builder builder = new ListExp.Builder();
-    for (SEXP arg : args) {
-      builder.add(arg.evaluate(rho).getExpression());
+    for (ListExp node : ListExp.listNodes(args)) {
+      ListExp.Builder.Tail tail = builder.add(node.getValue().evaluate(rho).getExpression());
+      if (node.hasTag()) {
+        tail.withTag((SymbolExp) node.getTag());
+      }
     }
     return builder.list();
   }
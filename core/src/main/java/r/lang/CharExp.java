@@ -48,6 +48,11 @@ public class CharExp extends AbstractVector implements AtomicExp {
     return value.length();
   }
 
+  @Override
+  public long getElementBytes() {
+    return value.length() * 2L;
+  }
+
   public String getValue() {
     return value;
   }
@@ -57,6 +62,13 @@ public class CharExp extends AbstractVector implements AtomicExp {
     throw new EvalException("cannot have attributes on a CHARSXP");
   }
 
+  @Override
+  public void setAttributeMap(AttributeMap attributes) {
+    if(!attributes.isEmpty()) {
+      throw new EvalException("cannot set attribute on a CHARSXP");
+    }
+  }
+
   @Override
   public void accept(SexpVisitor visitor) {
     visitor.visit(this);
@@ -0,0 +1,96 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The environment of a closure call, which keeps the bindings of the symbols in the
+ * closure's {@link FrameLayout} in an array rather than a hash table. Compiled code
+ * addresses these bindings directly by their slot.
+ */
+public class ClosureEnvExp extends EnvExp {
+
+  private final FrameLayout layout;
+
+  /**
+   * The bindings of the layout's symbols, {@code null} where a symbol is not bound
+   */
+  private final SEXP[] slots;
+
+  public ClosureEnvExp(EnvExp enclosing, FrameLayout layout) {
+    super(enclosing);
+    this.layout = layout;
+    this.slots = new SEXP[layout.size()];
+  }
+
+  public FrameLayout getLayout() {
+    return layout;
+  }
+
+  /**
+   * @return the value bound in {@code slot}, or {@code null} if it is not bound
+   */
+  public SEXP getSlot(int slot) {
+    return slots[slot];
+  }
+
+  public void setSlot(int slot, SEXP value) {
+    SEXP previous = slots[slot];
+    slots[slot] = value;
+    bindingChanged(previous, value);
+  }
+
+  @Override
+  public void setVariable(SymbolExp symbol, SEXP value) {
+    int slot = layout.indexOf(symbol);
+    if (slot == -1) {
+      super.setVariable(symbol, value);
+    } else {
+      setSlot(slot, value);
+    }
+  }
+
+  @Override
+  public SEXP findVariableInFrame(SymbolExp symbol) {
+    int slot = layout.indexOf(symbol);
+    if (slot == -1) {
+      return super.findVariableInFrame(symbol);
+    }
+    return slots[slot] == null ? SymbolExp.UNBOUND_VALUE : slots[slot];
+  }
+
+  @Override
+  public Collection<String> getSymbolNames() {
+    List<String> names = Lists.newArrayList();
+    for (int i = 0; i != slots.length; ++i) {
+      if (slots[i] != null) {
+        names.add(layout.getName(i));
+      }
+    }
+    names.addAll(super.getSymbolNames());
+    return names;
+  }
+}
@@ -22,9 +22,14 @@
 package r.lang;
 
 import com.google.common.collect.Lists;
+import r.lang.compiler.Code;
+import r.lang.compiler.Compiler;
+import r.lang.compiler.JitBody;
+import r.lang.compiler.Machine;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import static com.google.common.collect.Iterators.filter;
 import static r.lang.ListExp.Predicates;
@@ -47,6 +52,17 @@ public class ClosureExp extends SEXP implements FunExp {
   private SEXP body;
   private NillOrListExp formals;
 
+  private FrameLayout layout;
+  private int callCount;
+  private Code code;
+  private JitBody jitBody;
+  private boolean jitFailed;
+
+  /**
+   * The compilation to a JVM class running in the background, or {@code null}
+   */
+  private Future<JitBody> pendingJitBody;
+
   public ClosureExp(EnvExp environment, NillOrListExp formals, SEXP body) {
     this.environment = environment;
     this.body = body;
@@ -71,23 +87,95 @@ public class ClosureExp extends SEXP implements FunExp {
   @Override
   public EvalResult apply(LangExp call, NillOrListExp args, EnvExp rho) {
 
-    EnvExp env = new EnvExp(environment);
+    ClosureEnvExp env = new ClosureEnvExp(environment, getFrameLayout());
 
-    Iterator<ListExp> formalIt = ListExp.listNodes(formals).iterator();
+    int formalCount = formals.length();
     Iterator<SEXP> actualIt = ListExp.iterator(args);
 
-    while(formalIt.hasNext()) {
-      SymbolExp formal = (SymbolExp)formalIt.next().getTag();
+    for(int i = 0; i != formalCount; ++i) {
       if(actualIt.hasNext()) {
-        env.setVariable(formal, actualIt.next());
+        env.setSlot(layout.getFormalSlot(i), actualIt.next());
       } else {
-        env.setVariable(formal, SymbolExp.MISSING_ARG);
+        env.setSlot(layout.getFormalSlot(i), SymbolExp.MISSING_ARG);
       }
     }
 
+    Compiler compiler = rho.getGlobalContext().getCompiler();
+    if (compiler.isEnabled()) {
+      if (callCount < Integer.MAX_VALUE) {
+        callCount++;
+      }
+      if (compiler.isJitEnabled()) {
+        if (pendingJitBody != null && pendingJitBody.isDone()) {
+          setJitBody(getQuietly(pendingJitBody));
+          pendingJitBody = null;
+        }
+        if (jitBody == null && !jitFailed && pendingJitBody == null &&
+            callCount >= compiler.getJitThreshold()) {
+          if (compiler.isJitInBackground()) {
+            pendingJitBody = compiler.compileToJvmInBackground(this);
+          } else {
+            setJitBody(compiler.compileToJvm(this));
+          }
+        }
+        if (jitBody != null) {
+          return jitBody.execute(env);
+        }
+      }
+      if (code == null && callCount >= compiler.getThreshold()) {
+        code = compiler.compile(this);
+      }
+      if (code != null) {
+        return Machine.execute(code, env);
+      }
+    }
     return body.evaluate(env);
   }
 
+  private void setJitBody(JitBody jitBody) {
+    this.jitBody = jitBody;
+    this.jitFailed = jitBody == null;
+  }
+
+  /**
+   * @return the result of a completed compilation, which handles its own failures,
+   * or {@code null} if it did not complete normally
+   */
+  private static JitBody getQuietly(Future<JitBody> compilation) {
+    try {
+      return compilation.get();
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the assignment of slots to the symbols of this closure's frames, computed
+   * when the closure is first called
+   */
+  public FrameLayout getFrameLayout() {
+    if (layout == null) {
+      layout = FrameLayout.of(formals, body);
+    }
+    return layout;
+  }
+
+  /**
+   * @return the compiled body of this closure, or {@code null} if it has not yet been
+   * called often enough to be compiled
+   */
+  public Code getCode() {
+    return code;
+  }
+
+  /**
+   * @return the body of this closure compiled to a JVM class, or {@code null} if it has
+   * not yet been called often enough, is still being compiled, or could not be compiled
+   */
+  public JitBody getJitBody() {
+    return jitBody;
+  }
+
   /**
    * A function's <strong> evaluation environment</strong> is the environment
    * that was active at the time that the
@@ -23,17 +23,90 @@ package r.lang;
 
 import org.apache.commons.math.complex.Complex;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
-public class ComplexExp extends AbstractVector implements AtomicExp{
+/**
+ * A vector of complex numbers, stored as a single array of interleaved
+ * (real, imaginary) pairs rather than as {@link Complex} objects, so that element-wise
+ * kernels can run over primitive storage.
+ *
+ * <p>An element is {@code NA} if either part is {@code NaN}.
+ */
+public class ComplexExp extends AbstractVector implements AtomicExp {
 
-  public ArrayList<Complex> values;
   public static final int TYPE_CODE = 15;
   public static final String TYPE_NAME = "complex";
 
+  /**
+   * The real part of element {@code i} is at {@code 2*i}, and the imaginary part at {@code 2*i+1}
+   */
+  private double[] values;
+
+  /**
+   * True if {@code values} may also be referenced by another vector,
+   * in which case it must be copied before it is written to.
+   */
+  private boolean shared;
+
   public ComplexExp(Complex... values) {
-    this.values = new ArrayList<Complex>(Arrays.asList(values));
+    this.values = new double[values.length * 2];
+    for(int i=0; i!=values.length; ++i) {
+      this.values[2 * i] = values[i].getReal();
+      this.values[2 * i + 1] = values[i].getImaginary();
+    }
+    allocated();
+  }
+
+  private ComplexExp(double[] values) {
+    this.values = values;
+    allocated();
+  }
+
+  /**
+   * Creates a vector sharing the storage of {@code other}, which is not
+   * accounted for again
+   */
+  private ComplexExp(ComplexExp other) {
+    this.values = other.values;
+  }
+
+  /**
+   * Creates a vector which takes ownership of {@code values}, an array of
+   * interleaved (real, imaginary) pairs, without copying it.
+   */
+  public static ComplexExp wrap(double[] values) {
+    if(values.length % 2 != 0) {
+      throw new IllegalArgumentException("values must hold (real, imaginary) pairs");
+    }
+    return new ComplexExp(values);
+  }
+
+  /**
+   * @return a vector holding the single element {@code real + imaginary i}
+   */
+  public static ComplexExp of(double real, double imaginary) {
+    return new ComplexExp(new double[] { real, imaginary });
+  }
+
+  public static ComplexExp ofLength(int length) {
+    allocating(length * 16L);
+    return new ComplexExp(new double[length * 2]);
+  }
+
+  /**
+   * Coerces a numeric vector to complex, with zero imaginary parts. Integer and
+   * logical {@code NA}s become complex {@code NA}s.
+   */
+  public static ComplexExp coerce(NumericExp x) {
+    int length = x.length();
+    double values[] = new double[length * 2];
+    boolean real = x instanceof RealExp;
+    for(int i=0; i!=length; ++i) {
+      double value = x.getDouble(i);
+      values[2 * i] = value;
+      values[2 * i + 1] = real || !Double.isNaN(value) ? 0 : RealExp.NA;
+    }
+    return new ComplexExp(values);
   }
 
   @Override
@@ -48,11 +121,71 @@ public class ComplexExp extends AbstractVector implements AtomicExp{
 
   @Override
   public int length() {
-    return values.size();
+    return values.length / 2;
   }
 
-  public static ComplexExp ofLength(int length) {
-    throw new UnsupportedOperationException("not yet implemented");
+  @Override
+  public long getElementBytes() {
+    return values.length * 8L;
+  }
+
+  public double getReal(int i) {
+    return values[2 * i];
+  }
+
+  public double getImaginary(int i) {
+    return values[2 * i + 1];
+  }
+
+  public Complex get(int i) {
+    return new Complex(values[2 * i], values[2 * i + 1]);
+  }
+
+  public boolean isNA(int i) {
+    return Double.isNaN(values[2 * i]) || Double.isNaN(values[2 * i + 1]);
+  }
+
+  public void set(int i, double real, double imaginary) {
+    if(shared) {
+      values = Arrays.copyOf(values, values.length);
+      shared = false;
+    }
+    values[2 * i] = real;
+    values[2 * i + 1] = imaginary;
+    elementChanged(Double.isNaN(real) || Double.isNaN(imaginary));
+  }
+
+  /**
+   * @return the interleaved (real, imaginary) pairs. The array is shared with this vector
+   * and must not be modified.
+   */
+  public double[] getInterleavedValues() {
+    shared = true;
+    return values;
+  }
+
+  /**
+   * Creates a duplicate of this vector that shares its storage: the underlying
+   * array is only copied once either vector is written to.
+   */
+  public ComplexExp duplicate() {
+    ComplexExp copy = new ComplexExp(this);
+    copy.shared = true;
+    shared = true;
+    return copy;
+  }
+
+  @Override
+  public Logical asLogical() {
+    if(length() == 0 || isNA(0)) {
+      return Logical.NA;
+    }
+    return values[0] != 0 || values[1] != 0 ? Logical.TRUE : Logical.FALSE;
+  }
+
+  @Override
+  public double asReal() {
+    return length() == 0 ? RealExp.NA : values[0];
   }
 
   @Override
@@ -60,5 +193,28 @@ public class ComplexExp extends AbstractVector implements AtomicExp{
     visitor.visit(this);
   }
 
-  
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ComplexExp)) return false;
+    return Arrays.equals(values, ((ComplexExp) o).values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for(int i=0; i!=length(); ++i) {
+      if(i > 0) {
+        sb.append(", ");
+      }
+      sb.append(values[2 * i]).append(values[2 * i + 1] < 0 ? "-" : "+")
+          .append(Math.abs(values[2 * i + 1])).append("i");
+    }
+    return length() == 1 ? sb.toString() : "[" + sb + "]";
+  }
 }
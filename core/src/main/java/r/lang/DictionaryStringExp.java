@@ -0,0 +1,220 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A character vector with few distinct values, stored as an array of integer
+ * codes into a small dictionary of distinct strings, much like a factor.
+ *
+ * <p>Operations which only depend on equality or order of the elements, such as
+ * matching and sorting, can work on the codes and consult the dictionary once
+ * per distinct value instead of once per element.
+ */
+public class DictionaryStringExp extends StringExp {
+
+  /**
+   * Vectors shorter than this are never worth encoding
+   */
+  public static final int MIN_ENCODED_LENGTH = 32;
+
+  /**
+   * Only vectors with at most one distinct value for each
+   * {@code ENCODING_RATIO} elements are encoded.
+   */
+  public static final int ENCODING_RATIO = 4;
+
+  /**
+   * The distinct values, as {@link StringCache} instances. This array is never
+   * modified once created, so it may be shared freely between vectors.
+   */
+  private String[] dictionary;
+
+  private int[] codes;
+
+  /**
+   * True if {@code codes} may also be referenced by another vector
+   */
+  private boolean shared;
+
+  /**
+   * @param dictionary the distinct values of the vector, which may include {@code NA}
+   * @param codes indices into {@code dictionary}. The vector takes ownership of this array.
+   */
+  public DictionaryStringExp(String[] dictionary, int[] codes) {
+    this.dictionary = StringCache.internAll(Arrays.copyOf(dictionary, dictionary.length));
+    this.codes = codes;
+    allocated();
+  }
+
+  /**
+   * Creates a vector containing {@code values}, dictionary-encoded if there are few enough
+   * distinct values to make it worthwhile. The caller must not modify {@code values} afterwards.
+   */
+  public static StringExp encode(String[] values) {
+    StringCache.internAll(values);
+    if(values.length < MIN_ENCODED_LENGTH) {
+      return StringExp.wrap(values);
+    }
+    int maxDistinct = values.length / ENCODING_RATIO;
+    Map<String, Integer> codeMap = new IdentityHashMap<String, Integer>();
+    int[] codes = new int[values.length];
+    for(int i=0; i!=values.length; ++i) {
+      Integer code = codeMap.get(values[i]);
+      if(code == null) {
+        if(codeMap.size() == maxDistinct) {
+          return StringExp.wrap(values);
+        }
+        code = codeMap.size();
+        codeMap.put(values[i], code);
+      }
+      codes[i] = code;
+    }
+    String[] dictionary = new String[codeMap.size()];
+    for(Map.Entry<String, Integer> entry : codeMap.entrySet()) {
+      dictionary[entry.getValue()] = entry.getKey();
+    }
+    return new DictionaryStringExp(dictionary, codes);
+  }
+
+  /**
+   * @return the concatenation of {@code vectors}, with a dictionary holding the
+   * union of their dictionaries
+   */
+  public static DictionaryStringExp concat(List<DictionaryStringExp> vectors) {
+    Map<String, Integer> codeMap = new IdentityHashMap<String, Integer>();
+    int length = 0;
+    for(DictionaryStringExp vector : vectors) {
+      length += vector.length();
+      for(String value : vector.dictionary) {
+        if(!codeMap.containsKey(value)) {
+          codeMap.put(value, codeMap.size());
+        }
+      }
+    }
+    String[] dictionary = new String[codeMap.size()];
+    for(Map.Entry<String, Integer> entry : codeMap.entrySet()) {
+      dictionary[entry.getValue()] = entry.getKey();
+    }
+    int[] codes = new int[length];
+    int offset = 0;
+    for(DictionaryStringExp vector : vectors) {
+      int[] recode = new int[vector.dictionary.length];
+      for(int code=0; code!=recode.length; ++code) {
+        recode[code] = codeMap.get(vector.dictionary[code]);
+      }
+      for(int i=0; i!=vector.codes.length; ++i) {
+        codes[offset++] = recode[vector.codes[i]];
+      }
+    }
+    DictionaryStringExp result = new DictionaryStringExp();
+    result.dictionary = dictionary;
+    result.codes = codes;
+    result.allocated();
+    return result;
+  }
+
+  private DictionaryStringExp() {
+  }
+
+  @Override
+  public int length() {
+    return codes.length;
+  }
+
+  @Override
+  public long getElementBytes() {
+    return codes.length * 4L + dictionary.length * 8L;
+  }
+
+  @Override
+  public String get(int i) {
+    return dictionary[codes[i]];
+  }
+
+  /**
+   * @return the index into the dictionary of the element at {@code i}
+   */
+  public int getCode(int i) {
+    return codes[i];
+  }
+
+  public int getDictionarySize() {
+    return dictionary.length;
+  }
+
+  /**
+   * @return the distinct value with the given {@code code}
+   */
+  public String getDictionaryEntry(int code) {
+    return dictionary[code];
+  }
+
+  @Override
+  public void set(int i, String value) {
+    value = StringCache.intern(value);
+    if(shared) {
+      codes = Arrays.copyOf(codes, codes.length);
+      shared = false;
+    }
+    codes[i] = codeOf(value);
+  }
+
+  /**
+   * @return the code of {@code value}, adding it to the dictionary if necessary
+   */
+  private int codeOf(String value) {
+    for(int code=0; code!=dictionary.length; ++code) {
+      if(dictionary[code] == value) {
+        return code;
+      }
+    }
+    dictionary = Arrays.copyOf(dictionary, dictionary.length + 1);
+    dictionary[dictionary.length - 1] = value;
+    return dictionary.length - 1;
+  }
+
+  /**
+   * Slices share the dictionary, which is never modified in place, and copy the codes.
+   */
+  @Override
+  public StringExp slice(int from, int to) {
+    DictionaryStringExp slice = new DictionaryStringExp();
+    slice.dictionary = dictionary;
+    slice.codes = Arrays.copyOfRange(codes, from, to);
+    return slice;
+  }
+
+  @Override
+  public DictionaryStringExp duplicate() {
+    DictionaryStringExp copy = new DictionaryStringExp();
+    copy.dictionary = dictionary;
+    copy.codes = codes;
+    copy.shared = true;
+    shared = true;
+    return copy;
+  }
+}
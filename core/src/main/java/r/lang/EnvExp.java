@@ -26,6 +26,7 @@ import com.google.common.collect.UnmodifiableIterator;
 import r.lang.exception.EvalException;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -60,7 +61,15 @@ public class EnvExp extends SEXP implements RecursiveExp {
 
   private GlobalContext globalContext;
   private EnvExp enclosing;
-  private Map<String, SEXP> frame = new HashMap<String, SEXP>();
+  /**
+   * The bindings of this environment, allocated with the first binding
+   */
+  private Map<String, SEXP> frame;
+
+  /**
+   * Incremented whenever a symbol is newly bound in the frame
+   */
+  private int modificationStamp;
 
 
 
@@ -90,20 +99,81 @@ public class EnvExp extends SEXP implements RecursiveExp {
   }
 
   public Collection<String> getSymbolNames() {
+    if (frame == null) {
+      return Collections.emptySet();
+    }
     return frame.keySet();
   }
 
   public void setVariable(SymbolExp symbol, SEXP value) {
-    frame.put(symbol.getPrintName(), value);
+    if (frame == null) {
+      frame = new HashMap<String, SEXP>();
+    }
+    SEXP previous = frame.put(symbol.getPrintName(), value);
+    if (previous == null) {
+      modificationStamp++;
+      globalContext.bindingAdded();
+    }
+    bindingChanged(previous, value);
   }
 
-  public SEXP findFun(SEXP sexp) {
-    return null;
+  /**
+   * @return a stamp which changes whenever a symbol is newly bound in this environment's
+   * frame, but not when the value of an existing binding is replaced
+   */
+  public int getModificationStamp() {
+    return modificationStamp;
+  }
+
+  public EnvExp getEnclosingEnvironment() {
+    return enclosing;
+  }
+
+  /**
+   * Notifies the context of a binding which is replacing {@code previous} with {@code value},
+   * if either is a function
+   */
+  protected final void bindingChanged(SEXP previous, SEXP value) {
+    if (value instanceof FunExp || previous instanceof FunExp) {
+      globalContext.functionBindingsChanged();
+    }
+  }
+
+  /**
+   * Finds the function bound to {@code symbol}, searching this environment and its
+   * parents as {@link #findVariable(SymbolExp)} does, but skipping over bindings to
+   * values which are not functions, so that {@code c <- 1; c(c, 2)} still calls the
+   * builtin.
+   *
+   * @throws EvalException if {@code symbol} is bound to a missing argument, or no
+   * function is bound to it
+   */
+  public SEXP findFun(SymbolExp symbol) {
+    for (EnvExp env = this; env != null; env = env.enclosing) {
+      SEXP value = env.findVariableInFrame(symbol);
+      if (value instanceof FunExp) {
+        return value;
+      }
+      if (value == SymbolExp.MISSING_ARG) {
+        throw new EvalException("argument \"%s\" is missing, with no default", symbol.getPrintName());
+      }
+    }
+    throw new EvalException("could not find function \"%s\"", symbol.getPrintName());
+  }
+
+  /**
+   * @return the value bound to {@code symbol} in this environment's own frame, or
+   * {@code R_UnboundValue} if there is none
+   */
+  public SEXP findVariableInFrame(SymbolExp symbol) {
+    SEXP value = frame == null ? null : frame.get(symbol.getPrintName());
+    return value == null ? R_UnboundValue : value;
   }
 
   public SEXP findVariable(SymbolExp symbol) {
-    if (frame.containsKey(symbol.getPrintName())) {
-      return frame.get(symbol.getPrintName());
+    SEXP value = findVariableInFrame(symbol);
+    if (value != R_UnboundValue) {
+      return value;
     } else if (enclosing != null) {
       return enclosing.findVariable(symbol);
     } else {
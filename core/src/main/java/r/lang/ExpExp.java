@@ -68,6 +68,11 @@ public class ExpExp extends AbstractVector implements RecursiveExp {
     return list.size();
   }
 
+  @Override
+  public long getElementBytes() {
+    return list.size() * 8L;
+  }
+
   public void add(SEXP result) {
     list.add(result);
   }
@@ -0,0 +1,150 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns slots in the frames of a closure to the symbols which can be resolved
+ * lexically: its formals, followed by the symbols assigned with {@code <-} or {@code =},
+ * or used as the variable of a {@code for} loop, anywhere in its body other than in the
+ * bodies of nested functions.
+ *
+ * <p>Symbols bound by other means, such as {@code assign()} or {@code eval()}, go to
+ * the hashed overflow of the {@link ClosureEnvExp}. Since a symbol with a slot is always
+ * bound in its slot, however it is assigned, a layout which has too many or too few
+ * slots is never wrong, only slower.
+ *
+ * <p>Compiled code resolves slots when it is compiled. Lookups at run time, which the
+ * interpreter makes by symbol, remember the slot on the symbol itself, so that lookups
+ * repeated in frames of the same layout do not hash the symbol's name.
+ */
+public class FrameLayout {
+
+  private final String[] names;
+  private final Map<String, Integer> indices;
+  private final int[] formalSlots;
+
+  private FrameLayout(List<String> names, Map<String, Integer> indices, int[] formalSlots) {
+    this.names = names.toArray(new String[names.size()]);
+    this.indices = indices;
+    this.formalSlots = formalSlots;
+  }
+
+  public static FrameLayout of(NillOrListExp formals, SEXP body) {
+    Builder builder = new Builder();
+    int[] formalSlots = new int[formals.length()];
+    int i = 0;
+    for (ListExp formal : ListExp.listNodes(formals)) {
+      formalSlots[i++] = builder.add((SymbolExp) formal.getTag());
+    }
+    builder.addAssigned(body);
+    return new FrameLayout(builder.names, builder.indices, formalSlots);
+  }
+
+  /**
+   * @return the number of slots
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * The result of looking up a symbol in a layout. It is immutable, so that it
+   * can be shared between threads without synchronization.
+   */
+  static final class SlotHint {
+    private final FrameLayout layout;
+    private final int index;
+
+    private SlotHint(FrameLayout layout, int index) {
+      this.layout = layout;
+      this.index = index;
+    }
+  }
+
+  /**
+   * @return the slot of {@code symbol}, or -1 if it has none
+   */
+  public int indexOf(SymbolExp symbol) {
+    SlotHint hint = symbol.slotHint;
+    if (hint != null && hint.layout == this) {
+      return hint.index;
+    }
+    Integer index = indices.get(symbol.getPrintName());
+    int slot = index == null ? -1 : index;
+    symbol.slotHint = new SlotHint(this, slot);
+    return slot;
+  }
+
+  public String getName(int index) {
+    return names[index];
+  }
+
+  /**
+   * @return the slot of the formal at {@code position} in the closure's formal argument list
+   */
+  public int getFormalSlot(int position) {
+    return formalSlots[position];
+  }
+
+  private static class Builder {
+    private final List<String> names = Lists.newArrayList();
+    private final Map<String, Integer> indices = Maps.newHashMap();
+
+    private int add(SymbolExp symbol) {
+      Integer index = indices.get(symbol.getPrintName());
+      if (index == null) {
+        index = names.size();
+        indices.put(symbol.getPrintName(), index);
+        names.add(symbol.getPrintName());
+      }
+      return index;
+    }
+
+    private void addAssigned(SEXP exp) {
+      if (!(exp instanceof LangExp)) {
+        return;
+      }
+      LangExp call = (LangExp) exp;
+      if (call.getFunction() instanceof SymbolExp) {
+        String name = ((SymbolExp) call.getFunction()).getPrintName();
+        if (name.equals("function")) {
+          return;
+        }
+        if ((name.equals("<-") || name.equals("=") || name.equals("for")) &&
+            call.getArguments().length() > 0 &&
+            ((ListExp) call.getArguments()).getFirst() instanceof SymbolExp) {
+          add((SymbolExp) ((ListExp) call.getArguments()).getFirst());
+        }
+      }
+      addAssigned(call.getFunction());
+      for (ListExp arg : ListExp.listNodes(call.getArguments())) {
+        addAssigned(arg.getValue());
+      }
+    }
+  }
+}
@@ -21,6 +21,8 @@
 
 package r.lang;
 
+import r.lang.compiler.Compiler;
+
 import java.util.logging.Logger;
 
 /**
@@ -35,6 +37,11 @@ public class GlobalContext {
   private SymbolTable symbolTable = new SymbolTable();
   private BaseEnvExp baseEnvironment;
   private EnvExp globalEnvironment;
+  private final MemoryAccounting memoryAccounting = new MemoryAccounting();
+  private final BufferPool bufferPool = new BufferPool(memoryAccounting);
+  private final Compiler compiler = new Compiler();
+  private int functionVersion;
+  private int bindingVersion;
 
   public SEXP R_CurrentExpr;
 
@@ -71,6 +78,53 @@ public class GlobalContext {
     return globalEnvironment;
   }
 
+  /**
+   * @return the pool recycling temporary vector storage during an evaluation
+   */
+  public BufferPool getBufferPool() {
+    return bufferPool;
+  }
+
+  /**
+   * @return the accounting of the memory held by this context's vectors
+   */
+  public MemoryAccounting getMemoryAccounting() {
+    return memoryAccounting;
+  }
+
+  /**
+   * @return the compiler which compiles frequently called closures
+   */
+  public Compiler getCompiler() {
+    return compiler;
+  }
+
+  /**
+   * @return a version number which changes whenever a function is bound, or a function
+   * binding is replaced, in any environment of this context, against which call sites
+   * validate their cached function lookups
+   */
+  public int getFunctionVersion() {
+    return functionVersion;
+  }
+
+  public void functionBindingsChanged() {
+    functionVersion++;
+  }
+
+  /**
+   * @return a version number which changes whenever a symbol is newly bound in the
+   * frame of any environment of this context, against which the {@link VariableCache}s
+   * validate their lookups
+   */
+  public int getBindingVersion() {
+    return bindingVersion;
+  }
+
+  public void bindingAdded() {
+    bindingVersion++;
+  }
+
   public Iterable<EnvExp> environments() {
     return globalEnvironment.selfAndParents();
   }
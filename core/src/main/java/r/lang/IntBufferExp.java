@@ -0,0 +1,140 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An integer vector whose elements are stored outside of the Java heap, either in
+ * a direct {@code IntBuffer} or in a file mapped into memory.
+ *
+ * @see RealBufferExp
+ */
+public class IntBufferExp extends IntExp {
+
+  private static final int SEGMENT_SHIFT = RealBufferExp.SEGMENT_SHIFT;
+  private static final int SEGMENT_SIZE = RealBufferExp.SEGMENT_SIZE;
+  private static final int SEGMENT_MASK = RealBufferExp.SEGMENT_MASK;
+
+  private final IntBuffer segments[];
+  private final int length;
+
+  public IntBufferExp(IntBuffer buffer) {
+    this.segments = new IntBuffer[] { buffer };
+    this.length = buffer.limit();
+  }
+
+  private IntBufferExp(IntBuffer segments[], int length) {
+    this.segments = segments;
+    this.length = length;
+  }
+
+  /**
+   * Allocates a zero-filled vector of the given length outside of the Java heap.
+   */
+  public static IntBufferExp allocateDirect(int length) {
+    IntBuffer segments[] = new IntBuffer[RealBufferExp.segmentCount(length)];
+    for(int i=0; i!=segments.length; ++i) {
+      segments[i] = ByteBuffer.allocateDirect(RealBufferExp.segmentLength(length, i) * 4)
+          .order(ByteOrder.nativeOrder())
+          .asIntBuffer();
+    }
+    return new IntBufferExp(segments, length);
+  }
+
+  /**
+   * Maps a file of raw, 4-byte signed integers into memory, read-only.
+   *
+   * @param file the file to map
+   * @param order the byte order in which the integers were written
+   */
+  public static IntBufferExp map(File file, ByteOrder order) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      long count = channel.size() / 4;
+      if(count > Integer.MAX_VALUE) {
+        throw new IOException(String.format("file '%s' has too many elements to map (%d)", file, count));
+      }
+      int length = (int) count;
+      IntBuffer segments[] = new IntBuffer[RealBufferExp.segmentCount(length)];
+      for(int i=0; i!=segments.length; ++i) {
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, ((long) i) * SEGMENT_SIZE * 4,
+            RealBufferExp.segmentLength(length, i) * 4L)
+            .order(order)
+            .asIntBuffer();
+      }
+      return new IntBufferExp(segments, length);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  /**
+   * The elements are held in a memory-mapped file rather than on the heap
+   */
+  @Override
+  public long getElementBytes() {
+    return 0;
+  }
+
+  @Override
+  public int get(int i) {
+    return segments[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+  }
+
+  /**
+   * @throws java.nio.ReadOnlyBufferException if the vector is backed by a
+   * read-only mapping
+   */
+  @Override
+  public void set(int i, int value) {
+    segments[i >>> SEGMENT_SHIFT].put(i & SEGMENT_MASK, value);
+    elementChanged(value == NA);
+  }
+
+  /**
+   * Copies the elements onto the heap, as duplicates are created in order to be
+   * modified and the backing file must not be.
+   */
+  @Override
+  public IntExp duplicate() {
+    int array[] = new int[length];
+    for(int i=0; i!=segments.length; ++i) {
+      IntBuffer segment = segments[i].duplicate();
+      segment.rewind();
+      segment.get(array, i * SEGMENT_SIZE, segment.limit());
+    }
+    return IntExp.wrap(array);
+  }
+}
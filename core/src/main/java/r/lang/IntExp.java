@@ -22,7 +22,6 @@
 package r.lang;
 
 import com.google.common.collect.UnmodifiableIterator;
-import r.util.collect.PrimitiveArrays;
 
 import java.util.Arrays;
 import java.util.Iterator;
@@ -39,11 +38,49 @@ public class IntExp extends AbstractVector implements AtomicExp, NumericExp, Ite
 
   private int[] values;
 
-  private IntExp() {
+  /**
+   * True if {@code values} may also be referenced by another vector
+   * or by a caller, in which case it must be copied before it is written to.
+   */
+  private boolean shared;
+
+  /**
+   * Constructor for subclasses which provide their own storage
+   * by overriding {@link #get(int)} and {@link #length()}
+   */
+  protected IntExp() {
   }
 
   public IntExp(int... values) {
     this.values = Arrays.copyOf(values, values.length);
+    allocated();
+  }
+
+  /**
+   * Creates a vector which takes ownership of {@code values} without copying
+   * it. The caller must not modify the array afterwards.
+   */
+  public static IntExp wrap(int[] values) {
+    IntExp vector = new IntExp();
+    vector.values = values;
+    vector.allocated();
+    return vector;
+  }
+
+  /**
+   * Creates a vector containing {@code values}, run-length, sparse or frame-of-reference
+   * encoded if any of these representations is substantially smaller than the array
+   * itself. The caller must not modify {@code values} afterwards.
+   */
+  public static IntExp compress(int[] values) {
+    IntExp compressed = RunLengthIntExp.encode(values);
+    if(compressed == null) {
+      compressed = SparseIntExp.encode(values);
+    }
+    if(compressed == null) {
+      compressed = PackedIntExp.encode(values);
+    }
+    return compressed == null ? wrap(values) : compressed;
   }
 
   public static SEXP parseInt(String s) {
@@ -69,16 +106,179 @@ public class IntExp extends AbstractVector implements AtomicExp, NumericExp, Ite
     return values.length;
   }
 
+  @Override
+  public long getElementBytes() {
+    return length() * 4L;
+  }
+
+  /**
+   * @return the elements from {@code from} (inclusive) to {@code to} (exclusive). Array-backed
+   * vectors return a view which shares this vector's storage until either is modified;
+   * other representations copy the elements out.
+   */
+  public IntExp slice(int from, int to) {
+    if(values == null) {
+      int copy[] = new int[to - from];
+      for(int i=0; i!=copy.length; ++i) {
+        copy[i] = get(from + i);
+      }
+      IntExp slice = wrap(copy);
+      slice.copyPropertiesFrom(this);
+      return slice;
+    }
+    shared = true;
+    IntExp slice = new IntSliceExp(values, from, to - from);
+    slice.copyPropertiesFrom(this);
+    return slice;
+  }
+
   public int get(int i) {
     return values[i];
   }
 
   public void set(int i, int value) {
+    if(shared) {
+      values = Arrays.copyOf(values, values.length);
+      shared = false;
+    }
     values[i] = value;
+    elementChanged(value == NA);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    int value = get(index);
+    return value == NA ? RealExp.NA : value;
+  }
+
+  @Override
+  public double getDouble(long index) {
+    return getDouble(intIndex(index));
+  }
+
+  @Override
+  public int getInt(int index) {
+    return get(index);
+  }
+
+  @Override
+  public boolean isNA(int index) {
+    return get(index) == NA;
+  }
+
+  @Override
+  public void copyTo(double[] array, int offset) {
+    if(isKnownNoNA()) {
+      for(int i=0; i!=length(); ++i) {
+        array[offset + i] = get(i);
+      }
+      return;
+    }
+    for(int i=0; i!=length(); ++i) {
+      array[offset + i] = getDouble(i);
+    }
+  }
+
+  /**
+   * Creates a duplicate of this vector that shares its storage: the underlying
+   * array is only copied once either vector is written to. Callers about
+   * to modify a vector with {@code NAMED == 2} should modify a duplicate instead.
+   */
+  public IntExp duplicate() {
+    IntExp copy = new IntExp();
+    copy.values = values;
+    copy.copyPropertiesFrom(this);
+    copy.shared = true;
+    shared = true;
+    return copy;
   }
 
   public static SEXP ofLength(int length) {
-    return new IntExp(new int[length]);
+    allocating(length * 4L);
+    return wrap(new int[length]);
+  }
+
+  /**
+   * @return the sum of this vector's elements, or {@code NA} if any
+   * element is {@code NA}. The sum is returned as a {@code double} so that
+   * the caller can decide how to handle integer overflow.
+   */
+  public double sum() {
+    double sum = 0;
+    if(isKnownNoNA()) {
+      for(int i=0; i!=length(); ++i) {
+        sum += get(i);
+      }
+      return sum;
+    }
+    for(int i=0; i!=length(); ++i) {
+      int value = get(i);
+      if(value == NA) {
+        return RealExp.NA;
+      }
+      sum += value;
+    }
+    return sum;
+  }
+
+  /**
+   * @return the smallest element of this vector, or {@code NA} if the vector
+   * is empty or contains {@code NA}
+   */
+  public int min() {
+    if(length() == 0) {
+      return NA;
+    }
+    if(isKnownSorted()) {
+      return get(0);
+    }
+    int min = Integer.MAX_VALUE;
+    if(isKnownNoNA()) {
+      for(int i=0; i!=length(); ++i) {
+        min = Math.min(min, get(i));
+      }
+      return min;
+    }
+    for(int i=0; i!=length(); ++i) {
+      int value = get(i);
+      if(value == NA) {
+        return NA;
+      }
+      if(value < min) {
+        min = value;
+      }
+    }
+    return min;
+  }
+
+  /**
+   * @return the largest element of this vector, or {@code NA} if the vector
+   * is empty or contains {@code NA}
+   */
+  public int max() {
+    if(length() == 0) {
+      return NA;
+    }
+    if(isKnownSorted()) {
+      return get(length() - 1);
+    }
+    int max = Integer.MIN_VALUE;
+    if(isKnownNoNA()) {
+      for(int i=0; i!=length(); ++i) {
+        max = Math.max(max, get(i));
+      }
+      return max;
+    }
+    for(int i=0; i!=length(); ++i) {
+      int value = get(i);
+      if(value == NA) {
+        return NA;
+      }
+      if(value > max) {
+        max = value;
+      }
+    }
+    return max;
   }
 
   @Override
@@ -87,23 +287,74 @@ public class IntExp extends AbstractVector implements AtomicExp, NumericExp, Ite
   }
 
   public double[] asDoubleArray() {
-    return PrimitiveArrays.asDoubleArray(values);
+    double array[] = new double[length()];
+    copyTo(array, 0);
+    return array;
   }
 
   @Override
   public double asReal() {
-    if(length() == 0 || values[0] == NA) {
+    if(length() == 0 || get(0) == NA) {
       return RealExp.NA;
     } else {
-      return values[0];
+      return get(0);
     }
   }
 
+  @Override
+  public SEXP subset(int from, int to) {
+    if(from == 1 && to == length()) {
+      return this;
+    }
+    checkRange(from, to);
+    if(from == to) {
+      return new IntExp(get(from - 1));
+    }
+    return slice(from - 1, to);
+  }
+
   @Override
   public void accept(SexpVisitor visitor) {
     visitor.visit(this);
   }
 
+  @Override
+  public DoubleIterator doubleIterator() {
+    return new DoubleIterator() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < length();
+      }
+
+      @Override
+      public double nextDouble() {
+        return getDouble(i++);
+      }
+    };
+  }
+
+  /**
+   * @return an iterator over the elements as unboxed ints, with missing
+   * elements as {@link IntExp#NA}
+   */
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < length();
+      }
+
+      @Override
+      public int nextInt() {
+        return get(i++);
+      }
+    };
+  }
+
   @Override
   public Iterator<Integer> iterator() {
     return new ValueIterator();
@@ -112,26 +363,40 @@ public class IntExp extends AbstractVector implements AtomicExp, NumericExp, Ite
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
-    if (o == null || getClass() != o.getClass()) return false;
+    if (!(o instanceof IntExp)) return false;
 
     IntExp intExp = (IntExp) o;
 
-    if (!Arrays.equals(values, intExp.values)) return false;
+    if (length() != intExp.length()) return false;
+    for (int i = 0; i != length(); ++i) {
+      if (get(i) != intExp.get(i)) return false;
+    }
 
     return true;
   }
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(values);
+    int hash = 1;
+    for (int i = 0; i != length(); ++i) {
+      hash = 31 * hash + get(i);
+    }
+    return hash;
   }
 
   @Override
   public String toString() {
-    if (values.length == 1) {
-      return Integer.toString(values[0]);
+    if (length() == 1) {
+      return Integer.toString(get(0));
     } else {
-      return Arrays.toString(values);
+      StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i != length(); ++i) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(get(i));
+      }
+      return sb.append("]").toString();
     }
   }
 
@@ -140,12 +405,12 @@ public class IntExp extends AbstractVector implements AtomicExp, NumericExp, Ite
 
     @Override
     public boolean hasNext() {
-      return i < values.length;
+      return i < length();
     }
 
     @Override
     public Integer next() {
-      return values[i++];
+      return get(i++);
     }
   }
 }
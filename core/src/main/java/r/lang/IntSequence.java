@@ -0,0 +1,127 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+/**
+ * An integer vector holding an arithmetic sequence, such as the result of
+ * {@code 1:1e8}. Only the start, step and length are stored, so
+ * elements are computed on demand and the vector occupies constant memory
+ * regardless of its length.
+ */
+public class IntSequence extends IntExp {
+
+  private final int from;
+  private final int by;
+  private final int length;
+
+  public IntSequence(int from, int by, int length) {
+    this.from = from;
+    this.by = by;
+    this.length = length;
+    if(by >= 0) {
+      declareSorted();
+    } else {
+      declareNoNA();
+    }
+  }
+
+  public int getFrom() {
+    return from;
+  }
+
+  public int getBy() {
+    return by;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public long getElementBytes() {
+    return 0;
+  }
+
+  @Override
+  public int get(int i) {
+    return from + i * by;
+  }
+
+  @Override
+  public void set(int i, int value) {
+    throw new UnsupportedOperationException("sequences are immutable");
+  }
+
+  /**
+   * Materializes the sequence, as duplicates are created in order to be modified
+   */
+  @Override
+  public IntExp duplicate() {
+    int values[] = new int[length];
+    for(int i=0; i!=length; ++i) {
+      values[i] = from + i * by;
+    }
+    IntExp copy = IntExp.wrap(values);
+    copy.copyPropertiesFrom(this);
+    return copy;
+  }
+
+  @Override
+  public IntExp slice(int from, int to) {
+    return new IntSequence(get(from), by, to - from);
+  }
+
+  @Override
+  public double sum() {
+    if(length == 0) {
+      return 0;
+    }
+    // computed in floating point to avoid overflowing the int range
+    return ((double) length) * ((double) from + (double) get(length - 1)) / 2d;
+  }
+
+  @Override
+  public int min() {
+    if(length == 0) {
+      return NA;
+    }
+    return by < 0 ? get(length - 1) : from;
+  }
+
+  @Override
+  public int max() {
+    if(length == 0) {
+      return NA;
+    }
+    return by < 0 ? from : get(length - 1);
+  }
+
+  @Override
+  public double[] asDoubleArray() {
+    double values[] = new double[length];
+    for(int i=0; i!=length; ++i) {
+      values[i] = from + i * by;
+    }
+    return values;
+  }
+}
@@ -21,6 +21,9 @@
 
 package r.lang;
 
+import r.lang.node.CallNode;
+import r.lang.node.InlineCache;
+
 /**
  * A specialized {@code ListExp} used for storing 
  */
@@ -28,6 +31,9 @@ public class LangExp extends ListExp {
   public static final int TYPE_CODE = 6;
   public static final String TYPE_NAME = "language";
 
+  private CallNode node = CallNode.UNINITIALIZED;
+  private InlineCache functionCache;
+
   public LangExp(SEXP value, ListExp nextNode) {
     super(value, nextNode);
   }
@@ -45,9 +51,7 @@ public class LangExp extends ListExp {
   @Override
   public EvalResult evaluate(EnvExp rho) {
 
-    FunExp functionExpr = (FunExp) getFunction().evalToExp(rho);
-
-    return functionExpr.apply(this, getArguments(), rho);
+    return node.execute(this, rho);
 
 //    SEXP op;
 //    if (TYPEOF(CAR(this)) == Type.SYMSXP)
@@ -107,6 +111,32 @@ public class LangExp extends ListExp {
     return nextNode == null ? NilExp.INSTANCE : nextNode;
   }
 
+  /**
+   * Finds the function to be called: a symbol is looked up with
+   * {@link EnvExp#findFun(SymbolExp)}, through this call site's inline cache, and any
+   * other expression is evaluated.
+   */
+  public SEXP findFunction(EnvExp rho) {
+    if (value instanceof SymbolExp) {
+      if (functionCache == null) {
+        functionCache = new InlineCache();
+      }
+      return functionCache.findFun((SymbolExp) value, rho);
+    }
+    return value.evalToExp(rho);
+  }
+
+  /**
+   * @return the node executing this call, specialized by its previous evaluations
+   */
+  public CallNode getNode() {
+    return node;
+  }
+
+  public void setNode(CallNode node) {
+    this.node = node;
+  }
+
   @Override
   public void accept(SexpVisitor visitor) {
     visitor.visit(this);
@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.UnmodifiableIterator;
+import r.lang.exception.EvalException;
 import r.util.ArgChecker;
 
 import java.util.Arrays;
@@ -120,13 +121,6 @@ public class ListExp extends SEXP implements RecursiveExp, Iterable<SEXP>, NillO
     this.value = value;
   }
 
-  @Override
-  public SEXP getAttribute(String name) {
-    /* pre-test to avoid expensive operations if clearly not needed -- LT */
-
-    return NilExp.INSTANCE;
-  }
-
   public void setNextNode(ListExp nextNode) {
     ArgChecker.notNull(nextNode);
     this.nextNode = nextNode;
@@ -169,7 +163,25 @@ public class ListExp extends SEXP implements RecursiveExp, Iterable<SEXP>, NillO
 
   @Override
   public SEXP subset(int from, int to) {
-    throw new UnsupportedOperationException("not yet implemented");
+    int length = length();
+    if(from < 1 || to > length || to < from - 1) {
+      throw new EvalException("subscript out of bounds");
+    }
+    if(to < from) {
+      return NilExp.INSTANCE;
+    }
+    Builder builder = new Builder();
+    int index = 1;
+    for(ListExp node : listNodes()) {
+      if(index >= from && index <= to) {
+        Builder.Tail tail = builder.add(node.getValue());
+        if(node.hasTag()) {
+          tail.withTag((SymbolExp) node.getTag());
+        }
+      }
+      index++;
+    }
+    return builder.list();
   }
 
   public static SEXP ofLength(int length) {
@@ -396,4 +408,4 @@ public class ListExp extends SEXP implements RecursiveExp, Iterable<SEXP>, NillO
 
   }
 
-}
\ No newline at end of file
+}
@@ -21,39 +21,99 @@
 
 package r.lang;
 
-import r.util.collect.PrimitiveArrays;
 
 import java.util.Arrays;
 import java.util.Iterator;
 
+/**
+ * A vector of TRUE, FALSE and NA values.
+ *
+ * <p>Elements are bit-packed into two planes of 64-bit words: {@code values} holds
+ * a set bit for each TRUE element, and {@code na} a set bit for each NA element.
+ * The value bit of an NA element is always clear, and bits beyond the end of
+ * the vector are always clear in both planes, so that reductions and the logical
+ * operators can work a word at a time.
+ */
 public class LogicalExp extends AbstractVector implements AtomicExp, NumericExp, Iterable<Logical> {
   public static final String TYPE_NAME = "logical";
   public static final int TYPE_CODE = 10;
 
-  private int[] values;
+  private static final int WORD_SHIFT = 6;
+  private static final int WORD_SIZE = 1 << WORD_SHIFT;
+
+  private long[] values;
+  private long[] na;
+  private int length;
+
+  /**
+   * True if {@code values} and {@code na} may also be referenced by another vector,
+   * in which case they must be copied before they are written to.
+   */
+  private boolean shared;
+
+  private LogicalExp(long[] values, long[] na, int length) {
+    this.values = values;
+    this.na = na;
+    this.length = length;
+    allocated();
+  }
 
+  /**
+   * Creates a vector sharing the bit planes of {@code other}, which is not
+   * accounted for again
+   */
+  private LogicalExp(LogicalExp other) {
+    this.values = other.values;
+    this.na = other.na;
+    this.length = other.length;
+  }
 
   /**
    * Constructs a Logical vector from a list of boolean values
    */
   public LogicalExp(boolean... values) {
-    this.values = new int[values.length];
+    this(new long[wordCount(values.length)], new long[wordCount(values.length)], values.length);
     for (int i = 0; i != values.length; ++i) {
-      this.values[i] = values[i] ? 1 : 0;
+      if(values[i]) {
+        this.values[i >>> WORD_SHIFT] |= 1L << i;
+      }
     }
   }
 
   public LogicalExp(int... values) {
-    this.values = Arrays.copyOf(values, values.length);
+    this(new long[wordCount(values.length)], new long[wordCount(values.length)], values.length);
+    for (int i = 0; i != values.length; ++i) {
+      setBits(i, values[i]);
+    }
   }
 
   public LogicalExp(Logical... values) {
-    this.values = new int[values.length];
+    this(new long[wordCount(values.length)], new long[wordCount(values.length)], values.length);
     for (int i = 0; i != values.length; ++i) {
-      this.values[i] = values[i].getInternalValue();
+      setBits(i, values[i].getInternalValue());
     }
   }
 
+  /**
+   * Creates a vector which takes ownership of the given bit planes without
+   * copying them. The value bit of NA elements and all bits beyond {@code length}
+   * must be clear.
+   *
+   * @param values a set bit for each TRUE element
+   * @param na a set bit for each NA element
+   * @param length the number of elements
+   */
+  public static LogicalExp fromBits(long[] values, long[] na, int length) {
+    return new LogicalExp(values, na, length);
+  }
+
+  /**
+   * @return the number of 64-bit words needed to store {@code length} elements
+   */
+  public static int wordCount(int length) {
+    return (length + WORD_SIZE - 1) >>> WORD_SHIFT;
+  }
+
   @Override
   public int getTypeCode() {
     return TYPE_CODE;
@@ -66,11 +126,260 @@ public class LogicalExp extends AbstractVector implements AtomicExp, NumericExp,
 
   @Override
   public int length() {
-    return values.length;
+    return length;
+  }
+
+  @Override
+  public long getElementBytes() {
+    return (values.length + na.length) * 8L;
   }
 
   public int get(int index) {
-    return values[index];
+    long bit = 1L << index;
+    if((na[index >>> WORD_SHIFT] & bit) != 0) {
+      return IntExp.NA;
+    }
+    return (values[index >>> WORD_SHIFT] & bit) != 0 ? 1 : 0;
+  }
+
+  public void set(int index, int value) {
+    if(shared) {
+      values = Arrays.copyOf(values, values.length);
+      na = Arrays.copyOf(na, na.length);
+      shared = false;
+    }
+    setBits(index, value);
+    elementChanged(value == IntExp.NA);
+  }
+
+  private void setBits(int index, int value) {
+    int word = index >>> WORD_SHIFT;
+    long bit = 1L << index;
+    if(value == IntExp.NA) {
+      values[word] &= ~bit;
+      na[word] |= bit;
+    } else if(value != 0) {
+      values[word] |= bit;
+      na[word] &= ~bit;
+    } else {
+      values[word] &= ~bit;
+      na[word] &= ~bit;
+    }
+  }
+
+  /**
+   * @return a copy of the words holding a set bit for each TRUE element
+   */
+  public long[] getValueBits() {
+    return Arrays.copyOf(values, values.length);
+  }
+
+  /**
+   * @return a copy of the words holding a set bit for each NA element
+   */
+  public long[] getNABits() {
+    return Arrays.copyOf(na, na.length);
+  }
+
+  /**
+   * @return {@code TRUE} if any element is {@code TRUE}, otherwise {@code NA}
+   * if any element is {@code NA}, otherwise {@code FALSE}
+   */
+  public Logical any() {
+    boolean sawNA = false;
+    for(int i=0; i!=values.length; ++i) {
+      if(values[i] != 0) {
+        return Logical.TRUE;
+      }
+      sawNA |= na[i] != 0;
+    }
+    return sawNA ? Logical.NA : Logical.FALSE;
+  }
+
+  /**
+   * @return {@code FALSE} if any element is {@code FALSE}, otherwise {@code NA}
+   * if any element is {@code NA}, otherwise {@code TRUE}
+   */
+  public Logical all() {
+    boolean sawNA = false;
+    for(int i=0; i!=values.length; ++i) {
+      if((values[i] | na[i]) != wordMask(i)) {
+        return Logical.FALSE;
+      }
+      sawNA |= na[i] != 0;
+    }
+    return sawNA ? Logical.NA : Logical.TRUE;
+  }
+
+  /**
+   * @return the number of {@code TRUE} elements, or {@code NA} if any
+   * element is {@code NA}
+   */
+  public double sum() {
+    int count = 0;
+    for(int i=0; i!=values.length; ++i) {
+      if(na[i] != 0) {
+        return RealExp.NA;
+      }
+      count += Long.bitCount(values[i]);
+    }
+    return count;
+  }
+
+  /**
+   * @return the 1-based indices of the {@code TRUE} elements
+   */
+  public IntExp which() {
+    int count = 0;
+    for(int i=0; i!=values.length; ++i) {
+      count += Long.bitCount(values[i]);
+    }
+    int indices[] = new int[count];
+    int next = 0;
+    for(int i=0; i!=values.length; ++i) {
+      long word = values[i];
+      while(word != 0) {
+        indices[next++] = (i << WORD_SHIFT) + Long.numberOfTrailingZeros(word) + 1;
+        word &= word - 1;
+      }
+    }
+    return IntExp.wrap(indices);
+  }
+
+  /**
+   * Element-wise {@code &}: {@code FALSE} if either element is {@code FALSE},
+   * {@code TRUE} if both are {@code TRUE}, and {@code NA} otherwise.
+   */
+  public LogicalExp and(LogicalExp y) {
+    checkSameLength(y);
+    long rv[] = new long[values.length];
+    long rna[] = new long[values.length];
+    for(int i=0; i!=values.length; ++i) {
+      long xFalse = ~values[i] & ~na[i];
+      long yFalse = ~y.values[i] & ~y.na[i];
+      rv[i] = values[i] & y.values[i];
+      rna[i] = (na[i] | y.na[i]) & ~xFalse & ~yFalse;
+    }
+    return new LogicalExp(rv, rna, length);
+  }
+
+  /**
+   * Element-wise {@code |}: {@code TRUE} if either element is {@code TRUE},
+   * {@code FALSE} if both are {@code FALSE}, and {@code NA} otherwise.
+   */
+  public LogicalExp or(LogicalExp y) {
+    checkSameLength(y);
+    long rv[] = new long[values.length];
+    long rna[] = new long[values.length];
+    for(int i=0; i!=values.length; ++i) {
+      rv[i] = values[i] | y.values[i];
+      rna[i] = (na[i] | y.na[i]) & ~rv[i];
+    }
+    return new LogicalExp(rv, rna, length);
+  }
+
+  /**
+   * Element-wise {@code !}, leaving {@code NA} elements {@code NA}
+   */
+  public LogicalExp not() {
+    long rv[] = new long[values.length];
+    for(int i=0; i!=values.length; ++i) {
+      rv[i] = ~values[i] & ~na[i] & wordMask(i);
+    }
+    return new LogicalExp(rv, Arrays.copyOf(na, na.length), length);
+  }
+
+  /**
+   * @return the mask of bits of word {@code i} which lie within the vector
+   */
+  private long wordMask(int i) {
+    int remaining = length - (i << WORD_SHIFT);
+    return remaining >= WORD_SIZE ? -1L : (1L << remaining) - 1;
+  }
+
+  private void checkSameLength(LogicalExp y) {
+    if(y.length != length) {
+      throw new IllegalArgumentException("vectors must have the same length");
+    }
+  }
+
+  @Override
+  public double getDouble(int index) {
+    int value = get(index);
+    return value == IntExp.NA ? RealExp.NA : value;
+  }
+
+  @Override
+  public double getDouble(long index) {
+    return getDouble(intIndex(index));
+  }
+
+  @Override
+  public int getInt(int index) {
+    return get(index);
+  }
+
+  @Override
+  public boolean isNA(int index) {
+    return get(index) == IntExp.NA;
+  }
+
+  @Override
+  public void copyTo(double[] array, int offset) {
+    for(int i=0; i!=length(); ++i) {
+      array[offset + i] = getDouble(i);
+    }
+  }
+
+  /**
+   * Creates a duplicate of this vector that shares its storage: the underlying
+   * arrays are only copied once either vector is written to. Callers about
+   * to modify a vector with {@code NAMED == 2} should modify a duplicate instead.
+   */
+  public LogicalExp duplicate() {
+    LogicalExp copy = new LogicalExp(this);
+    copy.copyPropertiesFrom(this);
+    copy.shared = true;
+    shared = true;
+    return copy;
+  }
+
+  /**
+   * @return the elements from {@code from} (inclusive) to {@code to} (exclusive). The
+   * bit planes are copied a word at a time rather than element by element.
+   */
+  public LogicalExp slice(int from, int to) {
+    int sliceLength = to - from;
+    long rv[] = new long[wordCount(sliceLength)];
+    long rna[] = new long[rv.length];
+    copyBits(values, from, rv, sliceLength);
+    copyBits(na, from, rna, sliceLength);
+    return new LogicalExp(rv, rna, sliceLength);
+  }
+
+  private static void copyBits(long[] source, int from, long[] target, int length) {
+    int shift = from & (WORD_SIZE - 1);
+    for(int i=0; i!=target.length; ++i) {
+      int word = (from >>> WORD_SHIFT) + i;
+      long bits = source[word] >>> shift;
+      if(shift != 0 && word + 1 < source.length) {
+        bits |= source[word + 1] << (WORD_SIZE - shift);
+      }
+      target[i] = bits;
+    }
+    int remaining = length & (WORD_SIZE - 1);
+    if(remaining != 0) {
+      target[target.length - 1] &= (1L << remaining) - 1;
+    }
+  }
+
+  @Override
+  public SEXP subset(int from, int to) {
+    if(from == 1 && to == length()) {
+      return this;
+    }
+    checkRange(from, to);
+    return slice(from - 1, to);
   }
 
   /**
@@ -81,7 +390,8 @@ public class LogicalExp extends AbstractVector implements AtomicExp, NumericExp,
    * @return
    */
   public static LogicalExp ofLength(int length) {
-    return new LogicalExp(new int[length]);
+    allocating(wordCount(length) * 16L);
+    return new LogicalExp(new long[wordCount(length)], new long[wordCount(length)], length);
   }
 
   @Override
@@ -91,15 +401,17 @@ public class LogicalExp extends AbstractVector implements AtomicExp, NumericExp,
 
   @Override
   public double[] asDoubleArray() {
-    return PrimitiveArrays.asDoubleArray(values);  
+    double array[] = new double[length()];
+    copyTo(array, 0);
+    return array;
   }
 
   @Override
   public Logical asLogical() {
-    if (values[0] == IntExp.NA) {
+    if (get(0) == IntExp.NA) {
       return Logical.NA;
     } else {
-      return values[0] == 0 ? Logical.FALSE : Logical.TRUE;
+      return get(0) == 0 ? Logical.FALSE : Logical.TRUE;
     }
   }
 
@@ -108,6 +420,43 @@ public class LogicalExp extends AbstractVector implements AtomicExp, NumericExp,
     visitor.visit(this);
   }
 
+  @Override
+  public DoubleIterator doubleIterator() {
+    return new DoubleIterator() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < length();
+      }
+
+      @Override
+      public double nextDouble() {
+        return getDouble(i++);
+      }
+    };
+  }
+
+  /**
+   * @return an iterator over the elements as unboxed ints, with missing
+   * elements as {@link IntExp#NA}
+   */
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < length();
+      }
+
+      @Override
+      public int nextInt() {
+        return get(i++);
+      }
+    };
+  }
+
   @Override
   public Iterator<Logical> iterator() {
     return new Iterator<Logical>() {
@@ -115,12 +464,12 @@ public class LogicalExp extends AbstractVector implements AtomicExp, NumericExp,
 
       @Override
       public boolean hasNext() {
-        return i<values.length;
+        return i<length();
       }
 
       @Override
       public Logical next() {
-        return Logical.valueOf(values[i++]);
+        return Logical.valueOf(get(i++));
       }
 
       @Override
@@ -130,18 +479,36 @@ public class LogicalExp extends AbstractVector implements AtomicExp, NumericExp,
     };
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof LogicalExp)) return false;
+
+    LogicalExp that = (LogicalExp) o;
+
+    return length == that.length &&
+        Arrays.equals(values, that.values) &&
+        Arrays.equals(na, that.na);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(values) + Arrays.hashCode(na);
+  }
+
   @Override
   public String toString() {
     if (length() == 1) {
-      return toString(values[0]);
+      return toString(get(0));
     } else {
-      StringBuilder sb = new StringBuilder();
-      sb.append("[");
-      for (int i = 0; i != values.length; ++i) {
-        sb.append(toString(values[i]));
+      StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i != length(); ++i) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(toString(get(i)));
       }
-      sb.append("]");
-      return sb.toString();
+      return sb.append("]").toString();
     }
   }
 
@@ -0,0 +1,299 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import r.lang.exception.EvalException;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Accounts for the memory held by the vectors of one {@link GlobalContext}, so that a
+ * single runaway script cannot exhaust the memory of a JVM hosting many sessions.
+ *
+ * <p>Vectors are accounted by their constructors, once they hold their storage, to the
+ * context which is evaluating on the current thread: primitives and closures
+ * {@link #enter() enter} the accounting of their context while they run. Vectors are
+ * watched with weak references, so that their bytes are released once the garbage
+ * collector finds them unreachable. Vectors smaller than {@link #MIN_TRACKED_BYTES}
+ * cannot by themselves exhaust memory and are not tracked.
+ *
+ * <p>Allocations which would take the live total beyond the hard limit fail with
+ * "cannot allocate vector of size ...". Crossing the soft limit logs a warning, once per
+ * crossing: the warning is re-armed when the total falls back under the limit. Neither
+ * limit runs the garbage collector, whose full collections every session of the JVM
+ * would pay for; they only release the vectors which it has already found unreachable.
+ */
+public class MemoryAccounting {
+
+  public static final long MIN_TRACKED_BYTES = 4096;
+
+  public static final long UNLIMITED = Long.MAX_VALUE;
+
+  /**
+   * The accounting of the context evaluating on each thread, if any
+   */
+  private static final ThreadLocal<MemoryAccounting> CURRENT = new ThreadLocal<MemoryAccounting>();
+
+  private long softLimit = UNLIMITED;
+  private long hardLimit = UNLIMITED;
+
+  private long liveBytes;
+  private long maxLiveBytes;
+
+  /**
+   * True once a crossing of the soft limit has been reported, until the live total
+   * falls back under it
+   */
+  private boolean aboveSoftLimit;
+
+  /**
+   * Live bytes and vector counts, by type name
+   */
+  private final Map<String, long[]> byType = new TreeMap<String, long[]>();
+
+  /**
+   * Holds the references themselves, which must stay reachable until they are enqueued
+   */
+  private final Set<TrackedVector> tracked = new HashSet<TrackedVector>();
+  private final ReferenceQueue<AbstractVector> collected = new ReferenceQueue<AbstractVector>();
+
+  private static class TrackedVector extends WeakReference<AbstractVector> {
+    private final String typeName;
+    private final long bytes;
+
+    TrackedVector(AbstractVector vector, long bytes, ReferenceQueue<AbstractVector> queue) {
+      super(vector, queue);
+      this.typeName = vector.getTypeName();
+      this.bytes = bytes;
+    }
+  }
+
+  public long getSoftLimit() {
+    return softLimit;
+  }
+
+  public void setSoftLimit(long bytes) {
+    this.softLimit = bytes;
+    this.aboveSoftLimit = false;
+  }
+
+  public long getHardLimit() {
+    return hardLimit;
+  }
+
+  public void setHardLimit(long bytes) {
+    this.hardLimit = bytes;
+  }
+
+  /**
+   * @return the bytes held by tracked vectors which were reachable when last checked
+   */
+  public long getLiveBytes() {
+    expunge();
+    return liveBytes;
+  }
+
+  public long getMaxLiveBytes() {
+    return maxLiveBytes;
+  }
+
+  public void resetMaxLiveBytes() {
+    maxLiveBytes = getLiveBytes();
+  }
+
+  /**
+   * Checks that {@code bytes} more can be allocated before a vector is created
+   *
+   * @throws EvalException if the allocation would exceed the hard limit
+   */
+  public void reserve(long bytes) {
+    if(liveBytes + bytes > hardLimit || (liveBytes + bytes > softLimit && !aboveSoftLimit)) {
+      expunge();
+      if(liveBytes + bytes > hardLimit) {
+        throw new EvalException("cannot allocate vector of size %s", formatSize(bytes));
+      }
+      if(liveBytes + bytes > softLimit && !aboveSoftLimit) {
+        aboveSoftLimit = true;
+        Warning.warning("memory in use (%s) exceeds the soft limit of %s",
+            formatSize(liveBytes + bytes), formatSize(softLimit));
+      }
+    }
+  }
+
+  /**
+   * Makes this the accounting of the vectors allocated on the current thread, until
+   * {@link #exit(MemoryAccounting)} is called with the value returned
+   *
+   * @return the accounting which was current before, or {@code null}
+   */
+  public MemoryAccounting enter() {
+    MemoryAccounting previous = CURRENT.get();
+    if(previous != this) {
+      CURRENT.set(this);
+    }
+    return previous;
+  }
+
+  /**
+   * Restores the accounting which was current before {@link #enter()}
+   */
+  public void exit(MemoryAccounting previous) {
+    if(previous != this) {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Checks that an array of {@code bytes} may be allocated for a vector, against the limits
+   * of the context evaluating on the current thread, before it is allocated
+   *
+   * @throws EvalException if the allocation would exceed the hard limit
+   */
+  static void allocating(long bytes) {
+    if(bytes >= MIN_TRACKED_BYTES) {
+      MemoryAccounting current = CURRENT.get();
+      if(current != null) {
+        current.reserve(bytes);
+      }
+    }
+  }
+
+  /**
+   * Accounts for a vector which has just allocated its storage to the context evaluating
+   * on the current thread, if any
+   *
+   * @throws EvalException if the vector takes the live total beyond the hard limit
+   */
+  static void allocated(AbstractVector vector) {
+    if(vector.getElementBytes() >= MIN_TRACKED_BYTES) {
+      MemoryAccounting current = CURRENT.get();
+      if(current != null) {
+        current.track(vector);
+      }
+    }
+  }
+
+  /**
+   * Accounts for a vector, unless it is already accounted for
+   *
+   * @throws EvalException if the vector takes the live total beyond the hard limit
+   */
+  public void track(SEXP exp) {
+    if(!(exp instanceof AbstractVector)) {
+      return;
+    }
+    AbstractVector vector = (AbstractVector) exp;
+    if(vector.accounted) {
+      return;
+    }
+    long bytes = vector.getElementBytes();
+    if(bytes < MIN_TRACKED_BYTES) {
+      return;
+    }
+    expunge();
+    reserve(bytes);
+    vector.accounted = true;
+
+    tracked.add(new TrackedVector(vector, bytes, collected));
+    liveBytes += bytes;
+    maxLiveBytes = Math.max(maxLiveBytes, liveBytes);
+    long[] totals = totals(vector.getTypeName());
+    totals[0]++;
+    totals[1] += bytes;
+  }
+
+  /**
+   * Releases the vectors which the garbage collector has found unreachable. The collector
+   * itself is not run, as it is shared by every context in the JVM.
+   */
+  public void collect() {
+    expunge();
+  }
+
+  /**
+   * @return the number of live vectors of each type
+   */
+  public Map<String, Long> getLiveCounts() {
+    expunge();
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for(Map.Entry<String, long[]> entry : byType.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue()[0]);
+    }
+    return counts;
+  }
+
+  /**
+   * @return the live bytes held by vectors of each type
+   */
+  public Map<String, Long> getLiveBytesByType() {
+    expunge();
+    Map<String, Long> bytes = new TreeMap<String, Long>();
+    for(Map.Entry<String, long[]> entry : byType.entrySet()) {
+      bytes.put(entry.getKey(), entry.getValue()[1]);
+    }
+    return bytes;
+  }
+
+  private void expunge() {
+    Reference<? extends AbstractVector> reference;
+    while((reference = collected.poll()) != null) {
+      TrackedVector vector = (TrackedVector) reference;
+      if(tracked.remove(vector)) {
+        liveBytes -= vector.bytes;
+        long[] totals = totals(vector.typeName);
+        totals[0]--;
+        totals[1] -= vector.bytes;
+      }
+    }
+    if(liveBytes <= softLimit) {
+      aboveSoftLimit = false;
+    }
+  }
+
+  private long[] totals(String typeName) {
+    long[] totals = byType.get(typeName);
+    if(totals == null) {
+      totals = new long[2];
+      byType.put(typeName, totals);
+    }
+    return totals;
+  }
+
+  /**
+   * Formats a size as R does in its allocation errors, such as "7.5 Gb"
+   */
+  public static String formatSize(long bytes) {
+    if(bytes >= 1024L * 1024 * 1024) {
+      return String.format("%.1f Gb", bytes / (1024d * 1024 * 1024));
+    } else if(bytes >= 1024L * 1024) {
+      return String.format("%.1f Mb", bytes / (1024d * 1024));
+    } else {
+      return String.format("%.1f Kb", bytes / 1024d);
+    }
+  }
+}
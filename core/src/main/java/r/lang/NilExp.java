@@ -22,6 +22,7 @@
 package r.lang;
 
 import com.google.common.collect.Iterators;
+import r.lang.exception.EvalException;
 
 import java.util.Iterator;
 
@@ -66,6 +67,13 @@ public final class NilExp extends SEXP implements NillOrListExp, AtomicExp {
     return NilExp.INSTANCE;
   }
 
+  @Override
+  public void setAttributeMap(AttributeMap attributes) {
+    if(!attributes.isEmpty()) {
+      throw new EvalException("attempt to set an attribute on NULL");
+    }
+  }
+
   @Override
   public SEXP subset(int from, int to) {
     return this;
@@ -21,8 +21,71 @@
 
 package r.lang;
 
+/**
+ * Vectors which can be treated as numbers by arithmetic.
+ *
+ * <p>The indexed accessors read elements in place, and are the preferred way
+ * for kernels to consume their operands: {@link #asDoubleArray()} may need to
+ * allocate a new array and widen every element.
+ */
 public interface NumericExp {
 
+  int length();
+
+  /**
+   * @see SEXP#longLength()
+   */
+  long longLength();
+
+  /**
+   * @return the element at {@code index} as a double, or {@link RealExp#NA} if the
+   * element is missing
+   */
+  double getDouble(int index);
+
+  /**
+   * Reads an element of a vector which may be a long vector
+   *
+   * @see #getDouble(int)
+   */
+  double getDouble(long index);
+
+  /**
+   * @return the element at {@code index} as an integer, or {@link IntExp#NA} if the
+   * element is missing or not a number
+   */
+  int getInt(int index);
+
+  boolean isNA(int index);
+
+  /**
+   * @return true if this vector is known to contain no missing elements, so that
+   * kernels may take a path without a per-element {@code NA} test. False means unknown.
+   */
+  boolean isKnownNoNA();
+
+  /**
+   * @return true if this vector is known to be sorted in non-decreasing order,
+   * without missing elements. False means unknown.
+   */
+  boolean isKnownSorted();
+
+  /**
+   * @return an iterator over the elements widened to doubles, with missing
+   * elements as {@link RealExp#NA}
+   */
+  DoubleIterator doubleIterator();
+
+  /**
+   * Copies all elements, widened to doubles, into {@code array} starting
+   * at {@code offset}
+   */
+  void copyTo(double[] array, int offset);
+
+  /**
+   * @return the elements of this vector as an array of doubles. The array may
+   * be shared with the vector and must not be modified.
+   */
   double[] asDoubleArray();
 
 }
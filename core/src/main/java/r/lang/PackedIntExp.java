@@ -0,0 +1,192 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+/**
+ * An integer vector compressed with frame-of-reference encoding, suited to
+ * sorted ids and other values which are close to their neighbours.
+ *
+ * <p>Elements are divided into blocks of {@code BLOCK_SIZE}. Each block stores
+ * its smallest value, and each element is stored as its offset from that value
+ * using only as many bits as the block's largest offset needs. Elements remain
+ * randomly accessible in constant time.
+ *
+ * <p>Like {@link IntSequence}, the vector is immutable: duplicates are materialized.
+ */
+public class PackedIntExp extends IntExp {
+
+  private static final int BLOCK_SHIFT = 7;
+  public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+  private final int length;
+
+  /**
+   * The smallest element of each block
+   */
+  private final int[] blockBases;
+
+  /**
+   * The number of bits used for each offset within the block
+   */
+  private final byte[] blockWidths;
+
+  /**
+   * The bit position at which each block's offsets start within {@code bits}
+   */
+  private final long[] blockStarts;
+
+  private final long[] bits;
+
+  private PackedIntExp(int length, int[] blockBases, byte[] blockWidths, long[] blockStarts, long[] bits) {
+    this.length = length;
+    this.blockBases = blockBases;
+    this.blockWidths = blockWidths;
+    this.blockStarts = blockStarts;
+    this.bits = bits;
+    allocated();
+  }
+
+  /**
+   * @return a packed vector containing {@code values}, or {@code null} if packing would not
+   * at least halve the memory used, or if {@code values} contains {@code NA}
+   */
+  public static PackedIntExp encode(int[] values) {
+    int blockCount = (values.length + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+    int[] blockBases = new int[blockCount];
+    byte[] blockWidths = new byte[blockCount];
+    long[] blockStarts = new long[blockCount];
+    long totalBits = 0;
+
+    for(int block=0; block!=blockCount; ++block) {
+      int start = block << BLOCK_SHIFT;
+      int end = Math.min(values.length, start + BLOCK_SIZE);
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for(int i=start; i!=end; ++i) {
+        if(values[i] == NA) {
+          return null;
+        }
+        min = Math.min(min, values[i]);
+        max = Math.max(max, values[i]);
+      }
+      long range = (long) max - (long) min;
+      blockBases[block] = min;
+      blockWidths[block] = (byte) (64 - Long.numberOfLeadingZeros(range));
+      blockStarts[block] = totalBits;
+      totalBits += (long) blockWidths[block] * (end - start);
+    }
+
+    // each block also costs an int base, a byte width and a long start
+    long packedBytes = totalBits / 8 + blockCount * 13L;
+    if(packedBytes * 2 > values.length * 4L) {
+      return null;
+    }
+
+    long[] bits = new long[(int) ((totalBits + 63) >> 6)];
+    for(int block=0; block!=blockCount; ++block) {
+      int start = block << BLOCK_SHIFT;
+      int end = Math.min(values.length, start + BLOCK_SIZE);
+      int width = blockWidths[block];
+      long position = blockStarts[block];
+      for(int i=start; i!=end; ++i) {
+        write(bits, position, width, (long) values[i] - (long) blockBases[block]);
+        position += width;
+      }
+    }
+    return new PackedIntExp(values.length, blockBases, blockWidths, blockStarts, bits);
+  }
+
+  private static void write(long[] bits, long position, int width, long value) {
+    if(width == 0) {
+      return;
+    }
+    int word = (int) (position >> 6);
+    int shift = (int) (position & 63);
+    bits[word] |= value << shift;
+    if(shift + width > 64) {
+      bits[word + 1] |= value >>> (64 - shift);
+    }
+  }
+
+  private long read(long position, int width) {
+    int word = (int) (position >> 6);
+    int shift = (int) (position & 63);
+    long value = bits[word] >>> shift;
+    if(shift + width > 64) {
+      value |= bits[word + 1] << (64 - shift);
+    }
+    return value & ((1L << width) - 1);
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public long getElementBytes() {
+    return blockBases.length * 4L + blockWidths.length + (blockStarts.length + bits.length) * 8L;
+  }
+
+  @Override
+  public int get(int i) {
+    if(i < 0 || i >= length) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+    int block = i >> BLOCK_SHIFT;
+    int width = blockWidths[block];
+    if(width == 0) {
+      return blockBases[block];
+    }
+    long offset = read(blockStarts[block] + (long) (i & (BLOCK_SIZE - 1)) * width, width);
+    return (int) (blockBases[block] + offset);
+  }
+
+  @Override
+  public void set(int i, int value) {
+    throw new UnsupportedOperationException("packed vectors are immutable");
+  }
+
+  /**
+   * Materializes the vector, as duplicates are created in order to be modified
+   */
+  @Override
+  public IntExp duplicate() {
+    int[] values = new int[length];
+    for(int i=0; i!=length; ++i) {
+      values[i] = get(i);
+    }
+    return IntExp.wrap(values);
+  }
+
+  @Override
+  public int min() {
+    if(length == 0) {
+      return NA;
+    }
+    int min = Integer.MAX_VALUE;
+    for(int base : blockBases) {
+      min = Math.min(min, base);
+    }
+    return min;
+  }
+}
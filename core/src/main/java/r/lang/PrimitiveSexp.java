@@ -42,12 +42,32 @@ public abstract class PrimitiveSexp extends SEXP implements FunExp {
     return functionEntry.arity;
   }
 
+  /**
+   * @return the name under which this primitive is installed in the base environment
+   */
+  public String getName() {
+    return functionEntry.name;
+  }
+
   @Override
   public EvalResult apply(LangExp call, NillOrListExp args, EnvExp rho) {
     checkArity(args);
-    NillOrListExp preparedArgs = prepareArguments(args, rho);
+    return applyPrepared(call, prepareArguments(args, rho), rho);
+  }
 
-    return getFunctionInstance().apply(call, rho, preparedArgs);
+  /**
+   * Applies this primitive to arguments which have already been checked and prepared,
+   * as compiled code does after evaluating the arguments of a builtin itself. The vectors
+   * which the primitive allocates are accounted to the memory limits of {@code rho}'s context.
+   */
+  public EvalResult applyPrepared(LangExp call, NillOrListExp preparedArgs, EnvExp rho) {
+    MemoryAccounting accounting = rho.getGlobalContext().getMemoryAccounting();
+    MemoryAccounting previous = accounting.enter();
+    try {
+      return getFunctionInstance().apply(call, rho, preparedArgs);
+    } finally {
+      accounting.exit(previous);
+    }
   }
 
   public final void checkArity(NillOrListExp args) {
@@ -69,7 +89,7 @@ public abstract class PrimitiveSexp extends SEXP implements FunExp {
 
   protected abstract NillOrListExp prepareArguments(NillOrListExp args, EnvExp rho);
 
-  protected PrimitiveFunction getFunctionInstance() {
+  public PrimitiveFunction getFunctionInstance() {
     if (functionInstance == null) {
 
       try {
@@ -0,0 +1,170 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A double vector whose elements are stored outside of the Java heap, either in
+ * a direct {@code DoubleBuffer} or in a file mapped into memory.
+ *
+ * <p>A single {@code MappedByteBuffer} cannot exceed 2GB, so the elements are
+ * held in a series of segments of {@code SEGMENT_SIZE} elements each. The
+ * segments may together hold more than {@code Integer.MAX_VALUE} elements.
+ */
+public class RealBufferExp extends RealExp {
+
+  static final int SEGMENT_SHIFT = 27;
+  static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+  static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  private final DoubleBuffer segments[];
+  private final long length;
+
+  public RealBufferExp(DoubleBuffer buffer) {
+    this.segments = new DoubleBuffer[] { buffer };
+    this.length = buffer.limit();
+  }
+
+  private RealBufferExp(DoubleBuffer segments[], long length) {
+    this.segments = segments;
+    this.length = length;
+  }
+
+  /**
+   * Allocates a zero-filled vector of the given length outside of the Java heap.
+   */
+  public static RealBufferExp allocateDirect(long length) {
+    DoubleBuffer segments[] = new DoubleBuffer[segmentCount(length)];
+    for(int i=0; i!=segments.length; ++i) {
+      segments[i] = ByteBuffer.allocateDirect(segmentLength(length, i) * 8)
+          .order(ByteOrder.nativeOrder())
+          .asDoubleBuffer();
+    }
+    return new RealBufferExp(segments, length);
+  }
+
+  /**
+   * Maps a file of raw, 8-byte IEEE doubles into memory, read-only. The
+   * file's contents are paged in by the operating system as they are accessed.
+   *
+   * @param file the file to map
+   * @param order the byte order in which the doubles were written
+   */
+  public static RealBufferExp map(File file, ByteOrder order) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      long length = channel.size() / 8;
+      DoubleBuffer segments[] = new DoubleBuffer[segmentCount(length)];
+      for(int i=0; i!=segments.length; ++i) {
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, ((long) i) * SEGMENT_SIZE * 8,
+            segmentLength(length, i) * 8L)
+            .order(order)
+            .asDoubleBuffer();
+      }
+      return new RealBufferExp(segments, length);
+    } finally {
+      raf.close();
+    }
+  }
+
+  static int segmentCount(long length) {
+    return (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+  }
+
+  static int segmentLength(long length, int segment) {
+    return (int) Math.min(SEGMENT_SIZE, length - ((long) segment) * SEGMENT_SIZE);
+  }
+
+  @Override
+  public int length() {
+    return intLength(length);
+  }
+
+  /**
+   * The elements are held in a memory-mapped file rather than on the heap
+   */
+  @Override
+  public long getElementBytes() {
+    return 0;
+  }
+
+  @Override
+  public long longLength() {
+    return length;
+  }
+
+  @Override
+  public double get(int i) {
+    return segments[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+  }
+
+  @Override
+  public double get(long i) {
+    return segments[(int) (i >>> SEGMENT_SHIFT)].get((int) (i & SEGMENT_MASK));
+  }
+
+  /**
+   * @throws java.nio.ReadOnlyBufferException if the vector is backed by a
+   * read-only mapping
+   */
+  @Override
+  public void set(int i, double value) {
+    segments[i >>> SEGMENT_SHIFT].put(i & SEGMENT_MASK, value);
+    elementChanged(Double.isNaN(value));
+  }
+
+  /**
+   * Copies the elements onto the heap, as duplicates are created in order to be
+   * modified and the backing file must not be.
+   */
+  @Override
+  public RealExp duplicate() {
+    if(length > Integer.MAX_VALUE) {
+      return SegmentedRealExp.copyOf(this);
+    }
+    return RealExp.wrap(asDoubleArray());
+  }
+
+  @Override
+  public void copyTo(double[] array, int offset) {
+    for(int i=0; i!=segments.length; ++i) {
+      DoubleBuffer segment = segments[i].duplicate();
+      segment.rewind();
+      segment.get(array, offset + i * SEGMENT_SIZE, segment.limit());
+    }
+  }
+
+  @Override
+  public double[] asDoubleArray() {
+    double array[] = new double[length()];
+    copyTo(array, 0);
+    return array;
+  }
+}
@@ -22,14 +22,14 @@
 package r.lang;
 
 import com.google.common.collect.ImmutableList;
-import r.util.collect.PrimitiveArrays;
+import com.google.common.collect.UnmodifiableIterator;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
-public final class RealExp extends AbstractVector implements NumericExp, Iterable<Double> {
+public class RealExp extends AbstractVector implements NumericExp, Iterable<Double> {
   public static final String TYPE_NAME = "double";
   public static final int TYPE_CODE = 14;
 
@@ -38,8 +38,53 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
 
   private double[] values;
 
+  /**
+   * True if {@code values} may also be referenced by another vector
+   * or by a caller, in which case it must be copied before it is written to.
+   */
+  private boolean shared;
+
+  /**
+   * Constructor for subclasses which provide their own storage
+   * by overriding {@link #get(int)} and {@link #length()}
+   */
+  protected RealExp() {
+  }
+
   public RealExp(double... values) {
     this.values = Arrays.copyOf(values, values.length);
+    allocated();
+  }
+
+  /**
+   * Creates a vector which takes ownership of {@code values} without copying
+   * it. The caller must not modify the array afterwards.
+   */
+  public static RealExp wrap(double[] values) {
+    RealExp vector = new RealExp();
+    vector.values = values;
+    vector.allocated();
+    return vector;
+  }
+
+  /**
+   * Creates a vector which shares {@code values} with the vector which allocated
+   * them, and copies them before it is written to
+   */
+  protected static RealExp share(double[] values) {
+    RealExp copy = new RealExp();
+    copy.values = values;
+    copy.shared = true;
+    return copy;
+  }
+
+  /**
+   * Creates a vector containing {@code values}, stored sparsely if most of them are zero.
+   * The caller must not modify {@code values} afterwards.
+   */
+  public static RealExp compress(double[] values) {
+    RealExp sparse = SparseRealExp.encode(values);
+    return sparse == null ? wrap(values) : sparse;
   }
 
   public RealExp(Collection<Double> values) {
@@ -48,6 +93,7 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
     for(Double value : values) {
       this.values[i++] = value;
     }
+    allocated();
   }
 
 
@@ -76,8 +122,62 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
     return values[i];
   }
 
+  /**
+   * Reads an element by a {@code long} index. Long vectors, whose
+   * elements cannot all be reached by an {@code int}, override this method
+   * as well as {@link #get(int)} and {@link #longLength()}.
+   */
+  public double get(long i) {
+    return get(intIndex(i));
+  }
+
   public void set(int i, double value) {
+    if(shared) {
+      values = Arrays.copyOf(values, values.length);
+      shared = false;
+    }
     values[i] = value;
+    elementChanged(Double.isNaN(value));
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return get(index);
+  }
+
+  @Override
+  public double getDouble(long index) {
+    return get(index);
+  }
+
+  @Override
+  public int getInt(int index) {
+    double value = get(index);
+    return Double.isNaN(value) ? IntExp.NA : (int) value;
+  }
+
+  @Override
+  public boolean isNA(int index) {
+    return Double.isNaN(get(index));
+  }
+
+  @Override
+  public void copyTo(double[] array, int offset) {
+    for(int i=0; i!=length(); ++i) {
+      array[offset + i] = get(i);
+    }
+  }
+
+  /**
+   * Creates a duplicate of this vector that shares its storage: the underlying
+   * array is only copied once either vector is written to. Callers about
+   * to modify a vector with {@code NAMED == 2} should modify a duplicate instead.
+   */
+  public RealExp duplicate() {
+    RealExp copy = share(values);
+    copy.copyPropertiesFrom(this);
+    shared = true;
+    return copy;
   }
 
   @Override
@@ -85,8 +185,91 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
     return values.length;
   }
 
+  @Override
+  public long getElementBytes() {
+    return longLength() * 8;
+  }
+
+  /**
+   * @return the elements from {@code from} (inclusive) to {@code to} (exclusive). Array-backed
+   * vectors return a view which shares this vector's storage until either is modified;
+   * other representations copy the elements out.
+   */
+  public RealExp slice(int from, int to) {
+    if(values == null) {
+      double copy[] = new double[to - from];
+      for(int i=0; i!=copy.length; ++i) {
+        copy[i] = get(from + i);
+      }
+      RealExp slice = wrap(copy);
+      slice.copyPropertiesFrom(this);
+      return slice;
+    }
+    shared = true;
+    RealExp slice = new RealSliceExp(values, from, to - from);
+    slice.copyPropertiesFrom(this);
+    return slice;
+  }
+
   public static RealExp ofLength(int length) {
-    return new RealExp(new double[length]);
+    allocating(length * 8L);
+    return wrap(new double[length]);
+  }
+
+  /**
+   * @return the sum of this vector's elements
+   */
+  public double sum() {
+    double sum = 0;
+    long length = longLength();
+    for(long i=0; i!=length; ++i) {
+      sum += get(i);
+    }
+    return sum;
+  }
+
+  /**
+   * @return the smallest element of this vector, {@code NA} if any element is
+   * {@code NA}, or positive infinity if the vector is empty
+   */
+  public double min() {
+    double min = Double.POSITIVE_INFINITY;
+    long length = longLength();
+    if(isKnownSorted()) {
+      return length == 0 ? min : get(0L);
+    }
+    for(long i=0; i!=length; ++i) {
+      double value = get(i);
+      if(isNaN(value)) {
+        return value;
+      }
+      if(value < min) {
+        min = value;
+      }
+    }
+    return min;
+  }
+
+  /**
+   * @return the largest element of this vector, {@code NA} if any element is
+   * {@code NA}, or negative infinity if the vector is empty
+   */
+  public double max() {
+    double max = Double.NEGATIVE_INFINITY;
+    long length = longLength();
+    if(isKnownSorted()) {
+      return length == 0 ? max : get(length - 1);
+    }
+    for(long i=0; i!=length; ++i) {
+      double value = get(i);
+      if(isNaN(value)) {
+        return value;
+      }
+      if(value > max) {
+        max = value;
+      }
+    }
+    return max;
   }
 
   @Override
@@ -96,7 +279,7 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
 
   @Override
   public Logical asLogical() {
-    double x = values[0];
+    double x = get(0);
 
     if (Double.isNaN(x)) {
       return Logical.NA;
@@ -114,7 +297,25 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
 
   @Override
   public Iterator<Double> iterator() {
-    return PrimitiveArrays.asUnmodifiableIterator(values);
+    return new ValueIterator();
+  }
+
+  @Override
+  public DoubleIterator doubleIterator() {
+    return new DoubleIterator() {
+      private final long length = longLength();
+      private long i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < length;
+      }
+
+      @Override
+      public double nextDouble() {
+        return get(i++);
+      }
+    };
   }
 
   public List<Double> asListOfDoubles() {
@@ -123,23 +324,79 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
 
   @Override
   public double[] asDoubleArray() {
-    return Arrays.copyOf(values, values.length);
+    shared = true;
+    return values;
+  }
+
+  /**
+   * @return the array backing this vector if the vector is a temporary which nothing else
+   * refers to ({@code NAMED == 0}) and whose storage is not shared, so that an element-wise
+   * operation may write its result into it instead of allocating a new array; otherwise {@code null}.
+   *
+   * <p>This relies on every primitive which returns a value that is still held elsewhere,
+   * such as a list element or an attribute, setting its {@code NAMED} to 2 first.
+   */
+  public double[] getTemporaryStorage() {
+    if(values != null && !shared && getNamed() == 0) {
+      // the caller is about to overwrite the elements
+      elementChanged(true);
+      return values;
+    } else {
+      return null;
+    }
   }
 
   public double asReal() {
-    if(values.length == 0) {
+    if(longLength() == 0) {
       return NA;
     } else {
-      return values[0];
+      return get(0);
+    }
+  }
+
+  @Override
+  public SEXP subset(int from, int to) {
+    if(from == 1 && to == length()) {
+      return this;
+    }
+    checkRange(from, to);
+    if(from == to) {
+      return new RealExp(get(from - 1));
+    }
+    return slice(from - 1, to);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof RealExp)) return false;
+
+    RealExp realExp = (RealExp) o;
+
+    if (length() != realExp.length()) return false;
+    for (int i = 0; i != length(); ++i) {
+      if (Double.doubleToLongBits(get(i)) != Double.doubleToLongBits(realExp.get(i))) return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 1;
+    for (int i = 0; i != length(); ++i) {
+      long bits = Double.doubleToLongBits(get(i));
+      hash = 31 * hash + (int) (bits ^ (bits >>> 32));
     }
+    return hash;
   }
 
   @Override
   public String toString() {
-    if (values.length == 1) {
-      return Double.toString(values[0]);
+    if (length() == 1) {
+      return Double.toString(get(0));
     } else {
-      return Arrays.toString(values);
+      return Arrays.toString(asDoubleArray());
     }
   }
 
@@ -156,5 +413,19 @@ public final class RealExp extends AbstractVector implements NumericExp, Iterabl
     return Double.isNaN(x) || x == NA;
   }
 
+  private class ValueIterator extends UnmodifiableIterator<Double> {
+    private long i = 0;
+
+    @Override
+    public boolean hasNext() {
+      return i < longLength();
+    }
+
+    @Override
+    public Double next() {
+      return get(i++);
+    }
+  }
+
 
 }
@@ -0,0 +1,137 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+/**
+ * A double vector holding an arithmetic sequence, such as the result of
+ * {@code 1.5:1e8}. Only the start, step and length are stored, so
+ * elements are computed on demand and the vector occupies constant memory
+ * regardless of its length.
+ *
+ * <p>Sequences may be long vectors, such as {@code 1:3e9}.
+ */
+public class RealSequence extends RealExp {
+
+  private final double from;
+  private final double by;
+  private final long length;
+
+  public RealSequence(double from, double by, long length) {
+    this.from = from;
+    this.by = by;
+    this.length = length;
+    if(!Double.isNaN(from) && !Double.isNaN(by)) {
+      if(by >= 0) {
+        declareSorted();
+      } else {
+        declareNoNA();
+      }
+    }
+  }
+
+  public double getFrom() {
+    return from;
+  }
+
+  public double getBy() {
+    return by;
+  }
+
+  @Override
+  public int length() {
+    return intLength(length);
+  }
+
+  @Override
+  public long getElementBytes() {
+    return 0;
+  }
+
+  @Override
+  public long longLength() {
+    return length;
+  }
+
+  @Override
+  public double get(int i) {
+    return from + i * by;
+  }
+
+  @Override
+  public double get(long i) {
+    return from + i * by;
+  }
+
+  @Override
+  public void set(int i, double value) {
+    throw new UnsupportedOperationException("sequences are immutable");
+  }
+
+  /**
+   * Materializes the sequence, as duplicates are created in order to be modified
+   */
+  @Override
+  public RealExp duplicate() {
+    if(length > Integer.MAX_VALUE) {
+      return SegmentedRealExp.copyOf(this);
+    }
+    return RealExp.wrap(asDoubleArray());
+  }
+
+  @Override
+  public RealExp slice(int from, int to) {
+    return new RealSequence(get(from), by, to - from);
+  }
+
+  @Override
+  public double sum() {
+    if(length == 0) {
+      return 0;
+    }
+    return length * (from + get(length - 1)) / 2d;
+  }
+
+  @Override
+  public double min() {
+    if(length == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return by < 0 ? get(length - 1) : from;
+  }
+
+  @Override
+  public double max() {
+    if(length == 0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    return by < 0 ? from : get(length - 1);
+  }
+
+  @Override
+  public double[] asDoubleArray() {
+    double values[] = new double[length()];
+    for(int i=0; i!=values.length; ++i) {
+      values[i] = from + i * by;
+    }
+    return values;
+  }
+}
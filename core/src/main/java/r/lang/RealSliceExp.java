@@ -0,0 +1,95 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.Arrays;
+
+/**
+ * A contiguous range of another double vector, created by {@link RealExp#slice(int, int)}.
+ * The slice refers to its parent's array rather than copying it; both are marked as
+ * shared, so whichever is written to first copies its elements out.
+ */
+public class RealSliceExp extends RealExp {
+
+  private double[] array;
+  private int offset;
+  private final int length;
+  private boolean shared = true;
+
+  RealSliceExp(double[] array, int offset, int length) {
+    this.array = array;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Until it is written to, a slice holds no elements of its own
+   */
+  @Override
+  public long getElementBytes() {
+    return shared ? 0 : length * 8L;
+  }
+
+  @Override
+  public double get(int i) {
+    return array[offset + i];
+  }
+
+  @Override
+  public void set(int i, double value) {
+    if(shared) {
+      array = Arrays.copyOfRange(array, offset, offset + length);
+      offset = 0;
+      shared = false;
+    }
+    array[i] = value;
+    elementChanged(Double.isNaN(value));
+  }
+
+  @Override
+  public RealExp slice(int from, int to) {
+    shared = true;
+    RealExp slice = new RealSliceExp(array, offset + from, to - from);
+    slice.copyPropertiesFrom(this);
+    return slice;
+  }
+
+  @Override
+  public RealExp duplicate() {
+    return slice(0, length);
+  }
+
+  @Override
+  public void copyTo(double[] target, int targetOffset) {
+    System.arraycopy(array, offset, target, targetOffset, length);
+  }
+
+  @Override
+  public double[] asDoubleArray() {
+    return Arrays.copyOfRange(array, offset, offset + length);
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.Arrays;
+
+/**
+ * An integer vector stored as runs of repeated values, such as the result
+ * of {@code rep(1:3, each=1000)} or a column of grouping keys. Each run is stored
+ * as its value and the index just past its last element, so a vector occupies
+ * memory proportional to its number of runs rather than its length.
+ *
+ * <p>Like {@link IntSequence}, the vector is immutable: duplicates are materialized.
+ */
+public class RunLengthIntExp extends IntExp {
+
+  private final int[] runValues;
+
+  /**
+   * The index just past the end of each run, in increasing order
+   */
+  private final int[] runEnds;
+
+  /**
+   * The run containing the most recently read element, which makes sequential
+   * access constant time. This is only a hint, so races on it are harmless.
+   */
+  private int lastRun;
+
+  private RunLengthIntExp(int[] runValues, int[] runEnds) {
+    this.runValues = runValues;
+    this.runEnds = runEnds;
+    allocated();
+  }
+
+  /**
+   * Creates a vector in which each {@code values[i]} is repeated {@code counts[i]} times.
+   * Runs are only used if there are substantially fewer runs than elements; otherwise
+   * a plain {@code IntExp} is returned.
+   */
+  public static IntExp fromRuns(int[] values, int[] counts) {
+    int[] runValues = new int[values.length];
+    int[] runEnds = new int[values.length];
+    int runCount = 0;
+    long length = 0;
+    for(int i=0; i!=values.length; ++i) {
+      if(counts[i] == 0) {
+        continue;
+      }
+      length += counts[i];
+      if(runCount > 0 && runValues[runCount - 1] == values[i]) {
+        runEnds[runCount - 1] = intLength(length);
+      } else {
+        runValues[runCount] = values[i];
+        runEnds[runCount] = intLength(length);
+        runCount++;
+      }
+    }
+    if(!isWorthwhile(runCount, (int) length)) {
+      int[] expanded = new int[(int) length];
+      for(int run=0, start=0; run!=runCount; ++run) {
+        Arrays.fill(expanded, start, runEnds[run], runValues[run]);
+        start = runEnds[run];
+      }
+      return IntExp.wrap(expanded);
+    }
+    return new RunLengthIntExp(Arrays.copyOf(runValues, runCount), Arrays.copyOf(runEnds, runCount));
+  }
+
+  /**
+   * @return a run-length encoded vector containing {@code values}, or {@code null}
+   * if {@code values} does not have enough repeated values for it to be worthwhile
+   */
+  public static RunLengthIntExp encode(int[] values) {
+    int runCount = 0;
+    for(int i=0; i!=values.length; ++i) {
+      if(i == 0 || values[i] != values[i - 1]) {
+        runCount++;
+      }
+    }
+    if(!isWorthwhile(runCount, values.length)) {
+      return null;
+    }
+    int[] runValues = new int[runCount];
+    int[] runEnds = new int[runCount];
+    int run = -1;
+    for(int i=0; i!=values.length; ++i) {
+      if(i == 0 || values[i] != values[i - 1]) {
+        runValues[++run] = values[i];
+      }
+      runEnds[run] = i + 1;
+    }
+    return new RunLengthIntExp(runValues, runEnds);
+  }
+
+  /**
+   * Each run costs two ints, so we require at least four elements per run
+   * to halve the memory used
+   */
+  private static boolean isWorthwhile(int runCount, int length) {
+    return runCount * 4 <= length;
+  }
+
+  public int getRunCount() {
+    return runValues.length;
+  }
+
+  public int getRunValue(int run) {
+    return runValues[run];
+  }
+
+  public int getRunStart(int run) {
+    return run == 0 ? 0 : runEnds[run - 1];
+  }
+
+  public int getRunEnd(int run) {
+    return runEnds[run];
+  }
+
+  @Override
+  public int length() {
+    return runEnds.length == 0 ? 0 : runEnds[runEnds.length - 1];
+  }
+
+  @Override
+  public long getElementBytes() {
+    return runValues.length * 8L;
+  }
+
+  @Override
+  public int get(int i) {
+    if(i < 0 || i >= length()) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+    int run = lastRun;
+    if(i >= runEnds[run] || i < getRunStart(run)) {
+      run = findRun(i);
+      lastRun = run;
+    }
+    return runValues[run];
+  }
+
+  /**
+   * @return the index of the run containing element {@code i}
+   */
+  private int findRun(int i) {
+    int run = Arrays.binarySearch(runEnds, i);
+    // runEnds are exclusive, so an exact match belongs to the next run
+    return run >= 0 ? run + 1 : -(run + 1);
+  }
+
+  @Override
+  public void set(int i, int value) {
+    throw new UnsupportedOperationException("run-length encoded vectors are immutable");
+  }
+
+  /**
+   * Materializes the vector, as duplicates are created in order to be modified
+   */
+  @Override
+  public IntExp duplicate() {
+    int[] values = new int[length()];
+    for(int run=0; run!=runValues.length; ++run) {
+      Arrays.fill(values, getRunStart(run), runEnds[run], runValues[run]);
+    }
+    return IntExp.wrap(values);
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0;
+    for(int run=0; run!=runValues.length; ++run) {
+      if(runValues[run] == NA) {
+        return RealExp.NA;
+      }
+      sum += ((double) runValues[run]) * (runEnds[run] - getRunStart(run));
+    }
+    return sum;
+  }
+
+  @Override
+  public int min() {
+    if(runValues.length == 0) {
+      return NA;
+    }
+    int min = Integer.MAX_VALUE;
+    for(int value : runValues) {
+      if(value == NA) {
+        return NA;
+      }
+      min = Math.min(min, value);
+    }
+    return min;
+  }
+
+  @Override
+  public int max() {
+    if(runValues.length == 0) {
+      return NA;
+    }
+    int max = Integer.MIN_VALUE;
+    for(int value : runValues) {
+      if(value == NA) {
+        return NA;
+      }
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+}
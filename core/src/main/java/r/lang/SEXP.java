@@ -28,7 +28,7 @@ import r.lang.exception.EvalException;
  */
 public abstract class SEXP {
 
-  private SEXP attributes = NilExp.INSTANCE;
+  private AttributeMap attributes = AttributeMap.EMPTY;
   private SEXP tag = NilExp.INSTANCE;
   private int named = 0;
 
@@ -38,8 +38,6 @@ public abstract class SEXP {
    */
   private int gp = 0;
 
-  private int obj = 0;
-
   /**
    * Bit 0 is used by macros DDVAL and SET_DDVAL.
    * This indicates that a SYMSXP is one of the symbols ..n which are
@@ -59,14 +57,55 @@ public abstract class SEXP {
     return 1;
   }
 
+  /**
+   * @return the number of elements in this expression. Unlike {@link #length()},
+   * this also works for long vectors, which have more than {@code Integer.MAX_VALUE} elements.
+   */
+  public long longLength() {
+    return length();
+  }
+
+  /**
+   * @return the attributes of this expression as a tagged pairlist, or {@code NULL}
+   * if there are none. The tags are not installed in any symbol table; use
+   * {@link AttributeMap#toPairList(SymbolTable)} where installed symbols are needed.
+   */
   public SEXP getAttributes() {
-    return attributes;
+    return attributes.toPairList(null);
   }
 
+  /**
+   * Replaces the attributes of this expression with those in the tagged
+   * pairlist {@code attributes}
+   */
   public void setAttributes(SEXP attributes) {
+    setAttributeMap(AttributeMap.fromPairList(attributes));
+  }
+
+  public AttributeMap getAttributeMap() {
+    return attributes;
+  }
+
+  /**
+   * Replaces the attributes of this expression. Maps are immutable, so the same
+   * map can be shared by any number of expressions.
+   */
+  public void setAttributeMap(AttributeMap attributes) {
     this.attributes = attributes;
   }
 
+  /**
+   * Gives this expression the same attributes as {@code source}, sharing
+   * rather than copying them.
+   */
+  public void copyAttributesFrom(SEXP source) {
+    setAttributeMap(source.getAttributeMap());
+  }
+
+  public boolean hasAttributes() {
+    return !attributes.isEmpty();
+  }
+
   public abstract int getTypeCode();
 
   public abstract String getTypeName();
@@ -162,7 +201,7 @@ public abstract class SEXP {
   }
 
   public boolean isObject() {
-    return obj != 0;
+    return attributes.getClassAttribute() != null;
   }
 
   /**
@@ -180,24 +219,39 @@ public abstract class SEXP {
     return RealExp.NA;
   }
 
+  /**
+   * @return the value of the attribute {@code name}, or {@code NULL} if it is not set
+   */
   public SEXP getAttribute(String name) {
-    // TODO: attribs
-    return null;
+    SEXP value = attributes.get(name);
+    return value == null ? NilExp.INSTANCE : value;
   }
 
-  public boolean inherits(String sClassName) {
+  public final SEXP getAttribute(SymbolExp name) {
+    return getAttribute(name.getPrintName());
+  }
+
+  /**
+   * Sets the attribute {@code name} to {@code value}, or removes it if
+   * {@code value} is {@code NULL}
+   */
+  public void setAttribute(String name, SEXP value) {
+    setAttributeMap(attributes.with(name, value));
+  }
 
+  public boolean inherits(String sClassName) {
     // TODO: S4
-//    SEXP klass;
-//    int i, nclass;
-//    if (isObject()) {
-//      klass = getAttrib(s, R_ClassSymbol);
-//      nclass = length(klass);
-//      for (i = 0; i < nclass; i++) {
-//        if (!strcmp(CHAR(STRING_ELT(klass, i)), name))
-//          return TRUE;
-//      }
-//    }
+    SEXP klass = attributes.getClassAttribute();
+    if(klass instanceof StringExp) {
+      StringExp classNames = (StringExp) klass;
+      for(int i=0; i!=classNames.length(); ++i) {
+        String className = classNames.get(i);
+        // the elements are interned, so this usually succeeds on the identity check
+        if(className == sClassName || (className != null && className.equals(sClassName))) {
+          return true;
+        }
+      }
+    }
     return false;
   }
 
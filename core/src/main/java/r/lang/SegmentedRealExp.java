@@ -0,0 +1,146 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.Arrays;
+
+/**
+ * A double vector on the heap which can hold more than {@code Integer.MAX_VALUE}
+ * elements. A Java array cannot, so the elements are held in a series of
+ * arrays of {@code SEGMENT_SIZE} elements each, like the segments of
+ * {@link RealBufferExp}.
+ */
+public class SegmentedRealExp extends RealExp {
+
+  static final int SEGMENT_SHIFT = RealBufferExp.SEGMENT_SHIFT;
+  static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+  static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  private final double segments[][];
+  private final long length;
+
+  private SegmentedRealExp(double segments[][], long length) {
+    this.segments = segments;
+    this.length = length;
+    allocated();
+  }
+
+  /**
+   * Allocates a zero-filled vector of the given length
+   */
+  public static SegmentedRealExp allocate(long length) {
+    allocating(length * 8);
+    double segments[][] = new double[segmentCount(length)][];
+    for(int i=0; i!=segments.length; ++i) {
+      segments[i] = new double[segmentLength(length, i)];
+    }
+    return new SegmentedRealExp(segments, length);
+  }
+
+  /**
+   * @return a modifiable copy of {@code x}
+   */
+  public static SegmentedRealExp copyOf(RealExp x) {
+    SegmentedRealExp copy = allocate(x.longLength());
+    for(long i=0; i!=copy.length; ++i) {
+      copy.set(i, x.get(i));
+    }
+    return copy;
+  }
+
+  static int segmentCount(long length) {
+    return (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+  }
+
+  static int segmentLength(long length, int segment) {
+    return (int) Math.min(SEGMENT_SIZE, length - ((long) segment) * SEGMENT_SIZE);
+  }
+
+  @Override
+  public int length() {
+    return intLength(length);
+  }
+
+  @Override
+  public long longLength() {
+    return length;
+  }
+
+  @Override
+  public double get(int i) {
+    return segments[i >>> SEGMENT_SHIFT][i & SEGMENT_MASK];
+  }
+
+  @Override
+  public double get(long i) {
+    return segments[(int) (i >>> SEGMENT_SHIFT)][(int) (i & SEGMENT_MASK)];
+  }
+
+  @Override
+  public void set(int i, double value) {
+    segments[i >>> SEGMENT_SHIFT][i & SEGMENT_MASK] = value;
+    elementChanged(Double.isNaN(value));
+  }
+
+  public void set(long i, double value) {
+    segments[(int) (i >>> SEGMENT_SHIFT)][(int) (i & SEGMENT_MASK)] = value;
+    elementChanged(Double.isNaN(value));
+  }
+
+  /**
+   * @return a copy of this vector. Segments are copied eagerly, as
+   * duplicates are created in order to be modified.
+   */
+  @Override
+  public RealExp duplicate() {
+    double copy[][] = new double[segments.length][];
+    for(int i=0; i!=segments.length; ++i) {
+      copy[i] = Arrays.copyOf(segments[i], segments[i].length);
+    }
+    return new SegmentedRealExp(copy, length);
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0;
+    for(double[] segment : segments) {
+      for(double value : segment) {
+        sum += value;
+      }
+    }
+    return sum;
+  }
+
+  @Override
+  public void copyTo(double[] array, int offset) {
+    for(int i=0; i!=segments.length; ++i) {
+      System.arraycopy(segments[i], 0, array, offset + i * SEGMENT_SIZE, segments[i].length);
+    }
+  }
+
+  @Override
+  public double[] asDoubleArray() {
+    double array[] = new double[length()];
+    copyTo(array, 0);
+    return array;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+/**
+ * A numeric vector which stores only its non-zero elements, as their indices in
+ * increasing order and their values. {@code NA} and {@code NaN} elements count as non-zero.
+ *
+ * <p>Operations which leave zeros unchanged, such as {@code sum} or multiplication by a
+ * scalar, can then run over the non-zero elements alone.
+ */
+public interface SparseExp extends NumericExp {
+
+  /**
+   * @return the number of elements which are stored explicitly
+   */
+  int getNonZeroCount();
+
+  /**
+   * @return the index of the {@code k}-th stored element
+   */
+  int getNonZeroIndex(int k);
+
+  /**
+   * @return the value of the {@code k}-th stored element, as a double
+   */
+  double getNonZeroDouble(int k);
+}
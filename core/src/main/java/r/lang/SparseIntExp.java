@@ -0,0 +1,210 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.Arrays;
+
+/**
+ * An integer vector which stores only its non-zero elements. See {@link SparseRealExp}.
+ *
+ * <p>The vector is immutable: duplicates are materialized.
+ */
+public class SparseIntExp extends IntExp implements SparseExp {
+
+  private final int length;
+  private final int[] indices;
+  private final int[] values;
+
+  /**
+   * The position in {@code indices} of the most recent lookup, which makes sequential
+   * access constant time. This is only a hint, so races on it are harmless.
+   */
+  private int lastPosition;
+
+  /**
+   * Creates a vector which takes ownership of {@code indices} and {@code values}.
+   *
+   * @param indices the indices of the non-zero elements, in strictly increasing order
+   * @param values the values of the non-zero elements
+   */
+  public SparseIntExp(int length, int[] indices, int[] values) {
+    this.length = length;
+    this.indices = indices;
+    this.values = values;
+    allocated();
+  }
+
+  /**
+   * @return a vector of {@code length} zeros
+   */
+  public static SparseIntExp zeros(int length) {
+    return new SparseIntExp(length, new int[0], new int[0]);
+  }
+
+  /**
+   * @return a sparse vector containing {@code values}, or {@code null} if too many
+   * of them are non-zero for it to be worthwhile
+   */
+  public static SparseIntExp encode(int[] values) {
+    int count = 0;
+    for(int i=0; i!=values.length; ++i) {
+      if(values[i] != 0) {
+        count++;
+      }
+    }
+    if(!SparseRealExp.isWorthwhile(count, values.length)) {
+      return null;
+    }
+    int[] indices = new int[count];
+    int[] nonZeros = new int[count];
+    int k = 0;
+    for(int i=0; i!=values.length; ++i) {
+      if(values[i] != 0) {
+        indices[k] = i;
+        nonZeros[k] = values[i];
+        k++;
+      }
+    }
+    return new SparseIntExp(values.length, indices, nonZeros);
+  }
+
+  @Override
+  public int getNonZeroCount() {
+    return indices.length;
+  }
+
+  @Override
+  public int getNonZeroIndex(int k) {
+    return indices[k];
+  }
+
+  @Override
+  public double getNonZeroDouble(int k) {
+    return values[k] == NA ? RealExp.NA : values[k];
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public long getElementBytes() {
+    return indices.length * 8L;
+  }
+
+  @Override
+  public int get(int i) {
+    int k = position(i);
+    return k < indices.length && indices[k] == i ? values[k] : 0;
+  }
+
+  /**
+   * @return the position in {@code indices} of the first element at or after {@code i}
+   */
+  private int position(int i) {
+    int k = lastPosition;
+    if(k <= indices.length && (k == 0 || indices[k - 1] < i) && (k == indices.length || indices[k] >= i)) {
+      return k;
+    }
+    if(k < indices.length && indices[k] < i && (k + 1 == indices.length || indices[k + 1] >= i)) {
+      k++;
+    } else {
+      k = Arrays.binarySearch(indices, i);
+      if(k < 0) {
+        k = -(k + 1);
+      }
+    }
+    lastPosition = k;
+    return k;
+  }
+
+  @Override
+  public void set(int i, int value) {
+    throw new UnsupportedOperationException("sparse vectors are immutable");
+  }
+
+  /**
+   * Materializes the vector, as duplicates are created in order to be modified
+   */
+  @Override
+  public IntExp duplicate() {
+    int[] array = new int[length];
+    for(int k=0; k!=indices.length; ++k) {
+      array[indices[k]] = values[k];
+    }
+    return IntExp.wrap(array);
+  }
+
+  @Override
+  public IntExp slice(int from, int to) {
+    int start = position(from);
+    int end = position(to);
+    int[] sliceIndices = new int[end - start];
+    for(int k=start; k!=end; ++k) {
+      sliceIndices[k - start] = indices[k] - from;
+    }
+    return new SparseIntExp(to - from, sliceIndices, Arrays.copyOfRange(values, start, end));
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0;
+    for(int k=0; k!=values.length; ++k) {
+      if(values[k] == NA) {
+        return RealExp.NA;
+      }
+      sum += values[k];
+    }
+    return sum;
+  }
+
+  @Override
+  public int min() {
+    if(length == 0) {
+      return NA;
+    }
+    int min = indices.length < length ? 0 : Integer.MAX_VALUE;
+    for(int k=0; k!=values.length; ++k) {
+      if(values[k] == NA) {
+        return NA;
+      }
+      min = Math.min(min, values[k]);
+    }
+    return min;
+  }
+
+  @Override
+  public int max() {
+    if(length == 0) {
+      return NA;
+    }
+    int max = indices.length < length ? 0 : Integer.MIN_VALUE;
+    for(int k=0; k!=values.length; ++k) {
+      if(values[k] == NA) {
+        return NA;
+      }
+      max = Math.max(max, values[k]);
+    }
+    return max;
+  }
+}
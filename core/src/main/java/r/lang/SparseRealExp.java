@@ -0,0 +1,225 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import java.util.Arrays;
+
+/**
+ * A double vector which stores only its non-zero elements, for vectors which
+ * are mostly zeros, such as {@code .Internal(vector("double", 1e6))}.
+ * Elements are found by binary search, except that sequential reads are constant time.
+ *
+ * <p>Like {@link RealSequence}, the vector is immutable: duplicates are materialized.
+ */
+public class SparseRealExp extends RealExp implements SparseExp {
+
+  /**
+   * A sparse vector is only used if at most one element in {@code MAX_DENSITY} is non-zero.
+   * Each stored element costs an int and a double, so this uses under half the memory
+   * of a dense array.
+   */
+  public static final int MAX_DENSITY = 4;
+
+  private final int length;
+  private final int[] indices;
+  private final double[] values;
+
+  /**
+   * The position in {@code indices} of the most recent lookup, which makes sequential
+   * access constant time. This is only a hint, so races on it are harmless.
+   */
+  private int lastPosition;
+
+  /**
+   * Creates a vector which takes ownership of {@code indices} and {@code values}.
+   *
+   * @param indices the indices of the non-zero elements, in strictly increasing order
+   * @param values the values of the non-zero elements
+   */
+  public SparseRealExp(int length, int[] indices, double[] values) {
+    this.length = length;
+    this.indices = indices;
+    this.values = values;
+    allocated();
+  }
+
+  /**
+   * @return a vector of {@code length} zeros
+   */
+  public static SparseRealExp zeros(int length) {
+    return new SparseRealExp(length, new int[0], new double[0]);
+  }
+
+  /**
+   * @return a sparse vector containing {@code values}, or {@code null} if too many
+   * of them are non-zero for it to be worthwhile
+   */
+  public static SparseRealExp encode(double[] values) {
+    int count = 0;
+    for(int i=0; i!=values.length; ++i) {
+      if(values[i] != 0) {
+        count++;
+      }
+    }
+    if(!isWorthwhile(count, values.length)) {
+      return null;
+    }
+    int[] indices = new int[count];
+    double[] nonZeros = new double[count];
+    int k = 0;
+    for(int i=0; i!=values.length; ++i) {
+      if(values[i] != 0) {
+        indices[k] = i;
+        nonZeros[k] = values[i];
+        k++;
+      }
+    }
+    return new SparseRealExp(values.length, indices, nonZeros);
+  }
+
+  public static boolean isWorthwhile(int nonZeroCount, int length) {
+    return (long) nonZeroCount * MAX_DENSITY <= length;
+  }
+
+  @Override
+  public int getNonZeroCount() {
+    return indices.length;
+  }
+
+  @Override
+  public int getNonZeroIndex(int k) {
+    return indices[k];
+  }
+
+  @Override
+  public double getNonZeroDouble(int k) {
+    return values[k];
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public long getElementBytes() {
+    return indices.length * 12L;
+  }
+
+  @Override
+  public double get(int i) {
+    int k = position(i);
+    return k < indices.length && indices[k] == i ? values[k] : 0;
+  }
+
+  /**
+   * @return the position in {@code indices} of the first element at or after {@code i}
+   */
+  private int position(int i) {
+    int k = lastPosition;
+    if(k <= indices.length && (k == 0 || indices[k - 1] < i) && (k == indices.length || indices[k] >= i)) {
+      return k;
+    }
+    if(k < indices.length && indices[k] < i && (k + 1 == indices.length || indices[k + 1] >= i)) {
+      k++;
+    } else {
+      k = Arrays.binarySearch(indices, i);
+      if(k < 0) {
+        k = -(k + 1);
+      }
+    }
+    lastPosition = k;
+    return k;
+  }
+
+  @Override
+  public void set(int i, double value) {
+    throw new UnsupportedOperationException("sparse vectors are immutable");
+  }
+
+  /**
+   * Materializes the vector, as duplicates are created in order to be modified
+   */
+  @Override
+  public RealExp duplicate() {
+    return RealExp.wrap(asDoubleArray());
+  }
+
+  @Override
+  public RealExp slice(int from, int to) {
+    int start = position(from);
+    int end = position(to);
+    int[] sliceIndices = new int[end - start];
+    for(int k=start; k!=end; ++k) {
+      sliceIndices[k - start] = indices[k] - from;
+    }
+    return new SparseRealExp(to - from, sliceIndices, Arrays.copyOfRange(values, start, end));
+  }
+
+  @Override
+  public void copyTo(double[] array, int offset) {
+    Arrays.fill(array, offset, offset + length, 0);
+    for(int k=0; k!=indices.length; ++k) {
+      array[offset + indices[k]] = values[k];
+    }
+  }
+
+  @Override
+  public double[] asDoubleArray() {
+    double[] array = new double[length];
+    copyTo(array, 0);
+    return array;
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0;
+    for(int k=0; k!=values.length; ++k) {
+      sum += values[k];
+    }
+    return sum;
+  }
+
+  @Override
+  public double min() {
+    double min = indices.length < length ? 0 : Double.POSITIVE_INFINITY;
+    for(int k=0; k!=values.length; ++k) {
+      if(isNaN(values[k])) {
+        return values[k];
+      }
+      min = Math.min(min, values[k]);
+    }
+    return min;
+  }
+
+  @Override
+  public double max() {
+    double max = indices.length < length ? 0 : Double.NEGATIVE_INFINITY;
+    for(int k=0; k!=values.length; ++k) {
+      if(isNaN(values[k])) {
+        return values[k];
+      }
+      max = Math.max(max, values[k]);
+    }
+    return max;
+  }
+}
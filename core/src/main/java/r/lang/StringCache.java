@@ -0,0 +1,63 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Global cache of the strings held by {@link StringExp}, playing the role of
+ * R's CHARSXP cache. Every string stored in a character vector passes through
+ * {@link #intern(String)}, so equal elements share a single instance and can be
+ * compared by identity. Entries are weakly referenced and disappear once no vector
+ * refers to them.
+ */
+public final class StringCache {
+
+  private static final Interner<String> INTERNER = Interners.newWeakInterner();
+
+  private StringCache() {
+  }
+
+  /**
+   * @return the cached instance equal to {@code value}, or {@code null} if
+   * {@code value} is {@code NA}
+   */
+  public static String intern(String value) {
+    if(value == null) {
+      return null;
+    }
+    return INTERNER.intern(value);
+  }
+
+  /**
+   * Replaces each element of {@code values} with its cached instance
+   *
+   * @return {@code values}
+   */
+  public static String[] internAll(String[] values) {
+    for(int i=0; i!=values.length; ++i) {
+      values[i] = intern(values[i]);
+    }
+    return values;
+  }
+}
@@ -22,6 +22,7 @@
 package r.lang;
 
 import com.google.common.collect.Iterators;
+import com.google.common.collect.UnmodifiableIterator;
 import r.parser.ParseUtil;
 
 import java.util.Arrays;
@@ -34,12 +35,39 @@ public class StringExp extends AbstractVector implements AtomicExp, Iterable<Str
 
   String values[];
 
+  /**
+   * True if {@code values} may also be referenced by another vector
+   * or by a caller, in which case it must be copied before it is written to.
+   */
+  private boolean shared;
+
+  /**
+   * Constructor for subclasses which provide their own storage
+   * by overriding {@link #get(int)} and {@link #length()}
+   */
+  protected StringExp() {
+  }
+
   public StringExp(String... values) {
-    this.values = Arrays.copyOf(values, values.length, String[].class);
+    this.values = StringCache.internAll(Arrays.copyOf(values, values.length, String[].class));
+    allocated();
+  }
+
+  /**
+   * Creates a vector which takes ownership of {@code values} without copying
+   * it. The caller must not modify the array afterwards. Elements are replaced
+   * in place by their {@link StringCache} instances.
+   */
+  public static StringExp wrap(String[] values) {
+    StringExp vector = new StringExp();
+    vector.values = StringCache.internAll(values);
+    vector.allocated();
+    return vector;
   }
 
   public StringExp(Collection<String> values) {
-    this.values = values.toArray(new String[values.size()]);
+    this.values = StringCache.internAll(values.toArray(new String[values.size()]));
+    allocated();
   }
 
   @Override
@@ -47,10 +75,69 @@ public class StringExp extends AbstractVector implements AtomicExp, Iterable<Str
     return values.length;
   }
 
+  @Override
+  public long getElementBytes() {
+    return length() * 8L;
+  }
+
+  /**
+   * @return the elements from {@code from} (inclusive) to {@code to} (exclusive). Array-backed
+   * vectors return a view which shares this vector's storage until either is modified;
+   * other representations copy the elements out.
+   */
+  public StringExp slice(int from, int to) {
+    if(values == null) {
+      String copy[] = new String[to - from];
+      for(int i=0; i!=copy.length; ++i) {
+        copy[i] = get(from + i);
+      }
+      return wrap(copy);
+    }
+    shared = true;
+    return new StringSliceExp(values, from, to - from);
+  }
+
+  @Override
+  public SEXP subset(int from, int to) {
+    if(from == 1 && to == length()) {
+      return this;
+    }
+    checkRange(from, to);
+    if(from == to) {
+      return new StringExp(get(from - 1));
+    }
+    return slice(from - 1, to);
+  }
+
+  /**
+   * @return the element at {@code i}, which is always the {@link StringCache}
+   * instance, so elements may be compared by identity
+   */
   public String get(int i) {
     return values[i];
   }
 
+  public void set(int i, String value) {
+    if(shared) {
+      values = Arrays.copyOf(values, values.length);
+      shared = false;
+    }
+    values[i] = StringCache.intern(value);
+  }
+
+  /**
+   * Creates a duplicate of this vector that shares its storage: the underlying
+   * array is only copied once either vector is written to. Callers about
+   * to modify a vector with {@code NAMED == 2} should modify a duplicate instead.
+   */
+  public StringExp duplicate() {
+    StringExp copy = new StringExp();
+    copy.values = values;
+    copy.shared = true;
+    shared = true;
+    return copy;
+  }
+
   @Override
   public int getTypeCode() {
     return TYPE_CODE;
@@ -63,11 +150,11 @@ public class StringExp extends AbstractVector implements AtomicExp, Iterable<Str
 
   @Override
   public double asReal() {
-    if(values.length > 0 &&
-        values[0] != null &&
-        values[0].length() > 0)
+    if(length() > 0 &&
+        get(0) != null &&
+        get(0).length() > 0)
     {
-      return ParseUtil.parseDouble(values[0]);
+      return ParseUtil.parseDouble(get(0));
     } else {
 
       return RealExp.NA;
@@ -81,36 +168,57 @@ public class StringExp extends AbstractVector implements AtomicExp, Iterable<Str
 
   @Override
   public Iterator<String> iterator() {
-    return Iterators.forArray(values);
+    return new ValueIterator();
   }
 
   @Override
   public String toString() {
-    if (values.length == 1) {
-      return values[0];
+    if (length() == 1) {
+      return get(0);
     } else {
-      return Arrays.toString(values);
+      return Iterators.toString(iterator());
     }
   }
 
   public static SEXP ofLength(int length) {
-    return new StringExp(new String[length]);
+    return wrap(new String[length]);
   }
 
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
-    if (o == null || getClass() != o.getClass()) return false;
+    if (!(o instanceof StringExp)) return false;
 
     StringExp stringExp = (StringExp) o;
 
-    if (!Arrays.equals(values, stringExp.values)) return false;
+    if (length() != stringExp.length()) return false;
+    for (int i = 0; i != length(); ++i) {
+      if (get(i) != stringExp.get(i)) return false;
+    }
 
     return true;
   }
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(values);
+    int hash = 1;
+    for (int i = 0; i != length(); ++i) {
+      hash = 31 * hash + (get(i) == null ? 0 : get(i).hashCode());
+    }
+    return hash;
+  }
+
+  private class ValueIterator extends UnmodifiableIterator<String> {
+    private int i = 0;
+
+    @Override
+    public boolean hasNext() {
+      return i < length();
+    }
+
+    @Override
+    public String next() {
+      return get(i++);
+    }
   }
 }
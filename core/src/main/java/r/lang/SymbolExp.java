@@ -36,6 +36,12 @@ public class SymbolExp extends SEXP {
   private SEXP value = UNBOUND_VALUE;
   private SEXP internal = UNBOUND_VALUE;
 
+  /**
+   * The slot of this symbol in the {@link FrameLayout} which last looked it up,
+   * or {@code null}
+   */
+  FrameLayout.SlotHint slotHint;
+
   private SymbolExp() {
   }
 
@@ -88,6 +94,9 @@ public class SymbolExp extends SEXP {
     if(value == SymbolExp.UNBOUND_VALUE) {
       throw new EvalException(String.format("object '%s' not found", printName));
     }
+    if(value.getNamed() < 1) {
+      value.setNamed(1);
+    }
     return new EvalResult(value);
   }
 
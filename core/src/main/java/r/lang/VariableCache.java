@@ -0,0 +1,108 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+/**
+ * Caches where a free variable of compiled code is bound, so that repeated lookups of a
+ * package-level helper or global from a deep call chain do not search every frame
+ * between the closure and the binding.
+ *
+ * <p>A lookup records the environments it searched, up to the one holding the binding,
+ * along with their {@link EnvExp#getModificationStamp() modification stamps}. As long as
+ * the context's {@link GlobalContext#getBindingVersion() binding version} has not moved,
+ * no symbol has been newly bound anywhere and the binding is read straight from its
+ * environment. When the version has moved, the stamps of the recorded environments show
+ * whether any of them was affected before the chain is searched again. Replacing the
+ * value of a binding changes neither, since the value is always read afresh.
+ *
+ * <p>Lookups which pass an unbound slot of a {@link ClosureEnvExp} are not cached, as
+ * slots are bound without changing the stamp of their frame.
+ */
+public final class VariableCache {
+
+  private static final EnvExp[] NO_ENVIRONMENTS = new EnvExp[0];
+
+  private EnvExp start;
+  private int version;
+  private EnvExp[] searched = NO_ENVIRONMENTS;
+  private int[] stamps = new int[0];
+
+  /**
+   * Looks up {@code symbol} starting from {@code start}, as
+   * {@link EnvExp#findVariable(SymbolExp)} does
+   */
+  public SEXP findVariable(SymbolExp symbol, EnvExp start) {
+    int currentVersion = start.getGlobalContext().getBindingVersion();
+    if (start == this.start) {
+      if (currentVersion == version || stampsUnchanged()) {
+        version = currentVersion;
+        return searched[searched.length - 1].findVariableInFrame(symbol);
+      }
+    }
+    return search(symbol, start, currentVersion);
+  }
+
+  private boolean stampsUnchanged() {
+    for (int i = 0; i != searched.length; ++i) {
+      if (searched[i].getModificationStamp() != stamps[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private SEXP search(SymbolExp symbol, EnvExp start, int currentVersion) {
+    this.start = null;
+
+    int depth = 0;
+    boolean cacheable = true;
+    for (EnvExp env = start; env != null; env = env.getEnclosingEnvironment()) {
+      depth++;
+      SEXP value = env.findVariableInFrame(symbol);
+      if (value != SymbolExp.UNBOUND_VALUE) {
+        if (cacheable) {
+          record(start, depth, currentVersion);
+        }
+        return value;
+      }
+      if (env instanceof ClosureEnvExp && ((ClosureEnvExp) env).getLayout().indexOf(symbol) != -1) {
+        cacheable = false;
+      }
+    }
+    return SymbolExp.UNBOUND_VALUE;
+  }
+
+  private void record(EnvExp start, int depth, int currentVersion) {
+    if (searched.length != depth) {
+      searched = new EnvExp[depth];
+      stamps = new int[depth];
+    }
+    EnvExp env = start;
+    for (int i = 0; i != depth; ++i) {
+      searched[i] = env;
+      stamps[i] = env.getModificationStamp();
+      env = env.getEnclosingEnvironment();
+    }
+    this.start = start;
+    this.version = currentVersion;
+  }
+}
@@ -0,0 +1,409 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import com.google.common.collect.Lists;
+import r.lang.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static r.lang.compiler.Opcodes.*;
+
+/**
+ * Translates a single closure body to {@link Code}. Every expression is compiled to
+ * instructions which leave exactly one value on the operand stack.
+ */
+class BodyCompiler {
+
+  private final EnvExp environment;
+  private final NillOrListExp formals;
+  private final FrameLayout layout;
+
+  private int[] code = new int[64];
+  private int length = 0;
+
+  private final List<SEXP> constants = Lists.newArrayList();
+  private final Map<SEXP, Integer> constantIndex = new IdentityHashMap<SEXP, Integer>();
+
+  private int depth = 0;
+  private int maxDepth = 0;
+  private int loopSlots = 0;
+  private int variableCaches = 0;
+
+  private final List<Loop> loops = Lists.newArrayList();
+  private final List<Integer> handlers = Lists.newArrayList();
+
+  private static class Loop {
+    private final int depth;
+    private final int nextTarget;
+    private final List<Integer> breakJumps = new ArrayList<Integer>();
+
+    private Loop(int depth, int nextTarget) {
+      this.depth = depth;
+      this.nextTarget = nextTarget;
+    }
+  }
+
+  /**
+   * @param layout the layout of the frames in which the code will run, or {@code null}
+   * if it may run in any environment
+   */
+  BodyCompiler(EnvExp environment, NillOrListExp formals, FrameLayout layout) {
+    this.environment = environment;
+    this.formals = formals;
+    this.layout = layout;
+  }
+
+  Code compileBody(SEXP body) {
+    compile(body);
+    emit(RETURN);
+
+    int[] instructions = new int[length];
+    System.arraycopy(code, 0, instructions, 0, length);
+
+    int[] handlerTable = new int[handlers.size()];
+    for (int i = 0; i != handlerTable.length; ++i) {
+      handlerTable[i] = handlers.get(i);
+    }
+
+    return new Code(instructions, constants.toArray(new SEXP[constants.size()]), maxDepth,
+        loopSlots, handlerTable, variableCaches);
+  }
+
+  private void compile(SEXP exp) {
+    if (exp instanceof LangExp) {
+      compileCall((LangExp) exp);
+
+    } else if (exp instanceof SymbolExp) {
+      if (isOrdinarySymbol(exp)) {
+        int local = localSlot(exp);
+        if (local == -1) {
+          // free variables of closures are looked up through a cache
+          emit(GETVAR, constant(exp), layout == null ? -1 : variableCaches++);
+        } else {
+          emit(GETLOCAL, local, constant(exp));
+        }
+        push();
+      } else {
+        compileFallback(exp);
+      }
+
+    } else if (exp instanceof ListExp || exp instanceof PromExp) {
+      compileFallback(exp);
+
+    } else if (exp == NilExp.INSTANCE) {
+      emit(LDNULL);
+      push();
+
+    } else {
+      /* constants are NAMED before being used as values: see SEXP.evaluate() */
+      if (exp.getNamed() != 2) {
+        exp.setNamed(2);
+      }
+      emit(LDCONST, constant(exp));
+      push();
+    }
+  }
+
+  private void compileFallback(SEXP exp) {
+    emit(EVAL, constant(exp));
+    push();
+  }
+
+  private void compileCall(LangExp call) {
+    if (call.getFunction() instanceof SymbolExp && compileInline(call)) {
+      return;
+    }
+
+    if (call.getFunction() instanceof SymbolExp) {
+      emit(GETFUN, constant(call));
+      push();
+    } else {
+      compile(call.getFunction());
+    }
+    int checkJump = emit(CHECKFUN, constant(call), 0) + 2;
+
+    int argCount = 0;
+    for (ListExp arg : ListExp.listNodes(call.getArguments())) {
+      compile(arg.getValue());
+      argCount++;
+    }
+    emit(CALLBUILTIN, constant(call), argCount);
+    pop(argCount);
+
+    patch(checkJump, length);
+  }
+
+  /**
+   * Compiles a call to one of the base control flow primitives to instructions.
+   *
+   * @return false if the call is not to a primitive which can be inlined, or its
+   * arguments are not of a form that the compiler understands
+   */
+  private boolean compileInline(LangExp call) {
+    SymbolExp function = (SymbolExp) call.getFunction();
+    String name = function.getPrintName();
+    if (!isBasePrimitive(function)) {
+      return false;
+    }
+    NillOrListExp args = call.getArguments();
+
+    if (name.equals("{")) {
+      compileBlock(args);
+      return true;
+
+    } else if (name.equals("if") && (args.length() == 2 || args.length() == 3)) {
+      compileIf(call, (ListExp) args);
+      return true;
+
+    } else if (name.equals("<-") && args.length() == 2 && isOrdinarySymbol(args.getFirst())) {
+      compile(((ListExp) args).getSecond());
+      int local = localSlot(args.getFirst());
+      if (local == -1) {
+        emit(SETVAR, constant(args.getFirst()));
+      } else {
+        emit(SETLOCAL, local, constant(args.getFirst()));
+      }
+      return true;
+
+    } else if (name.equals("while") && args.length() == 2) {
+      compileWhile(call, (ListExp) args);
+      return true;
+
+    } else if (name.equals("for") && args.length() == 3 && isOrdinarySymbol(args.getFirst())) {
+      compileFor((ListExp) args);
+      return true;
+
+    } else if ((name.equals("break") || name.equals("next")) && args.length() == 0) {
+      return compileLoopJump(name.equals("break"));
+    }
+    return false;
+  }
+
+  private void compileBlock(NillOrListExp statements) {
+    if (statements.length() == 0) {
+      emit(LDNULL);
+      push();
+      return;
+    }
+    boolean first = true;
+    for (ListExp statement : ListExp.listNodes(statements)) {
+      if (!first) {
+        emit(POP);
+        pop(1);
+      }
+      compile(statement.getValue());
+      first = false;
+    }
+  }
+
+  private void compileIf(LangExp call, ListExp args) {
+    compile(args.getFirst());
+    int elseJump = emit(BRIFNOT, constant(call), 0) + 2;
+    pop(1);
+
+    compile(args.getSecond());
+    emit(VISIBLE);
+    int endJump = emit(JUMP, 0) + 1;
+    pop(1);
+
+    patch(elseJump, length);
+    if (args.length() == 3) {
+      compile(args.getThird());
+      emit(VISIBLE);
+    } else {
+      emit(LDNULL);
+      emit(INVISIBLE);
+      push();
+    }
+    patch(endJump, length);
+  }
+
+  private void compileWhile(LangExp call, ListExp args) {
+    int top = length;
+    compile(args.getFirst());
+    int exitJump = emit(BRIFNOT, constant(call), 0) + 2;
+    pop(1);
+
+    Loop loop = new Loop(depth, top);
+    compileLoopBody(loop, args.getSecond(), top);
+
+    patch(exitJump, length);
+    finishLoop(loop);
+  }
+
+  private void compileFor(ListExp args) {
+    int slot = loopSlots++;
+    compile(args.getSecond());
+    emit(STARTFOR, slot);
+    pop(1);
+
+    int step = emit(STEPFOR, constant(args.getFirst()), slot, 0, localSlot(args.getFirst()));
+    Loop loop = new Loop(depth, step);
+    compileLoopBody(loop, args.getThird(), step);
+
+    patch(step + 3, length);
+    finishLoop(loop);
+  }
+
+  private void compileLoopBody(Loop loop, SEXP body, int top) {
+    int start = length;
+    loops.add(loop);
+    compile(body);
+    emit(POP);
+    pop(1);
+    emit(JUMP, top);
+    loops.remove(loops.size() - 1);
+
+    handlers.add(start);
+    handlers.add(length);
+    handlers.add(0);            // the break target is patched by finishLoop()
+    handlers.add(loop.nextTarget);
+    handlers.add(loop.depth);
+  }
+
+  /**
+   * Emits the value of a completed loop, {@code NULL}, which is also where
+   * {@code break} continues
+   */
+  private void finishLoop(Loop loop) {
+    for (int breakJump : loop.breakJumps) {
+      patch(breakJump, length);
+    }
+    handlers.set(handlers.size() - Code.HANDLER_SIZE + Code.HANDLER_BREAK, length);
+    emit(LDNULL);
+    emit(INVISIBLE);
+    push();
+  }
+
+  private boolean compileLoopJump(boolean isBreak) {
+    if (loops.isEmpty()) {
+      return false;
+    }
+    Loop loop = loops.get(loops.size() - 1);
+    if (loop.depth != depth) {
+      // values of an enclosing call are on the stack: let the exception unwind them
+      return false;
+    }
+    if (isBreak) {
+      loop.breakJumps.add(emit(JUMP, 0) + 1);
+    } else {
+      emit(JUMP, loop.nextTarget);
+    }
+    // the jump never completes, but its enclosing expression expects a value
+    push();
+    return true;
+  }
+
+  private boolean isBasePrimitive(SymbolExp symbol) {
+    return isBasePrimitive(environment, formals, symbol);
+  }
+
+  /**
+   * @return true if {@code symbol} resolves to the base primitive of the same name in
+   * {@code environment}, and is not shadowed by one of the closure's {@code formals}
+   */
+  static boolean isBasePrimitive(EnvExp environment, NillOrListExp formals, SymbolExp symbol) {
+    SEXP binding = resolve(environment, formals, symbol);
+    return binding instanceof SpecialExp &&
+        ((PrimitiveSexp) binding).getName().equals(symbol.getPrintName());
+  }
+
+  /**
+   * @return the value to which {@code symbol} is bound in {@code environment} at compile
+   * time, or {@code null} if it is shadowed by one of the closure's {@code formals}
+   */
+  static SEXP resolve(EnvExp environment, NillOrListExp formals, SymbolExp symbol) {
+    for (ListExp formal : ListExp.listNodes(formals)) {
+      if (((SymbolExp) formal.getTag()).getPrintName().equals(symbol.getPrintName())) {
+        return null;
+      }
+    }
+    return environment.findVariable(symbol);
+  }
+
+  /**
+   * @return the slot of {@code symbol} in the frames in which the code runs, or -1 if it
+   * has none
+   */
+  private int localSlot(SEXP symbol) {
+    return layout == null ? -1 : layout.indexOf((SymbolExp) symbol);
+  }
+
+  static boolean isOrdinarySymbol(SEXP exp) {
+    return exp instanceof SymbolExp &&
+        exp != SymbolExp.MISSING_ARG &&
+        exp != SymbolExp.UNBOUND_VALUE &&
+        !((SymbolExp) exp).getPrintName().equals("...");
+  }
+
+  private int constant(SEXP value) {
+    Integer index = constantIndex.get(value);
+    if (index == null) {
+      index = constants.size();
+      constants.add(value);
+      constantIndex.put(value, index);
+    }
+    return index;
+  }
+
+  /**
+   * Appends an instruction
+   *
+   * @return the position of the opcode
+   */
+  private int emit(int opcode, int... operands) {
+    ensureCapacity(1 + operands.length);
+    int position = length;
+    code[length++] = opcode;
+    for (int operand : operands) {
+      code[length++] = operand;
+    }
+    return position;
+  }
+
+  private void patch(int position, int target) {
+    code[position] = target;
+  }
+
+  private void ensureCapacity(int count) {
+    if (length + count > code.length) {
+      int[] larger = new int[Math.max(code.length * 2, length + count)];
+      System.arraycopy(code, 0, larger, 0, length);
+      code = larger;
+    }
+  }
+
+  private void push() {
+    depth++;
+    if (depth > maxDepth) {
+      maxDepth = depth;
+    }
+  }
+
+  private void pop(int count) {
+    depth -= count;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import r.lang.SEXP;
+import r.lang.VariableCache;
+
+/**
+ * A closure body compiled to instructions for the {@link Machine}.
+ *
+ * <p>Besides the instructions and their constant pool, the code records how deep its
+ * operand stack can grow, how many for loops need state in its frame, and a table of
+ * loop handlers: a {@code break} or {@code next} raised by code evaluated outside the
+ * compiled instructions, such as a call argument, unwinds to the innermost loop
+ * whose body contains the raising instruction. Code compiled for a closure also holds
+ * a {@link VariableCache} for each lookup of a free variable.
+ */
+public final class Code {
+
+  static final int HANDLER_START = 0;
+  static final int HANDLER_END = 1;
+  static final int HANDLER_BREAK = 2;
+  static final int HANDLER_NEXT = 3;
+  static final int HANDLER_DEPTH = 4;
+  static final int HANDLER_SIZE = 5;
+
+  final int[] instructions;
+  final SEXP[] constants;
+  final int maxStack;
+  final int loopSlots;
+  final int[] handlers;
+  final VariableCache[] variableCaches;
+
+  Code(int[] instructions, SEXP[] constants, int maxStack, int loopSlots, int[] handlers,
+       int variableCacheCount) {
+    this.instructions = instructions;
+    this.constants = constants;
+    this.maxStack = maxStack;
+    this.loopSlots = loopSlots;
+    this.handlers = handlers;
+    this.variableCaches = new VariableCache[variableCacheCount];
+    for (int i = 0; i != variableCacheCount; ++i) {
+      variableCaches[i] = new VariableCache();
+    }
+  }
+
+  /**
+   * @return the number of {@code int}s in the instruction array
+   */
+  public int getCodeLength() {
+    return instructions.length;
+  }
+
+  public int getConstantCount() {
+    return constants.length;
+  }
+
+  public SEXP getConstant(int index) {
+    return constants[index];
+  }
+
+  public int getMaxStack() {
+    return maxStack;
+  }
+
+  /**
+   * Finds the innermost loop whose body contains the instruction at {@code pc}
+   *
+   * @return the offset of the handler in the handler table, or -1 if {@code pc} is not
+   * within a loop body
+   */
+  int findHandler(int pc) {
+    for (int i = 0; i < handlers.length; i += HANDLER_SIZE) {
+      if (pc >= handlers[i + HANDLER_START] && pc < handlers[i + HANDLER_END]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return a listing of the instructions, one per line
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    int pc = 0;
+    while (pc < instructions.length) {
+      int opcode = instructions[pc];
+      sb.append(pc).append(": ").append(Opcodes.NAMES[opcode]);
+      for (int i = 1; i <= Opcodes.OPERAND_COUNTS[opcode]; ++i) {
+        sb.append(' ').append(instructions[pc + i]);
+      }
+      sb.append('\n');
+      pc += 1 + Opcodes.OPERAND_COUNTS[opcode];
+    }
+    return sb.toString();
+  }
+}
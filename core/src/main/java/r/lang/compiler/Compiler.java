@@ -0,0 +1,160 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import r.lang.ClosureExp;
+import r.lang.EnvExp;
+import r.lang.SEXP;
+
+import java.util.concurrent.Future;
+
+/**
+ * Compiles closure bodies to {@link Code} for the {@link Machine}, much as
+ * {@code compiler::cmpfun} does for GNU R.
+ *
+ * <p>Closures are compiled automatically once they have been called
+ * {@link #getThreshold() threshold} times, so that code run only once is never
+ * compiled. Compilation inlines the base versions of {@code {}, {@code if},
+ * {@code while}, {@code for}, {@code break}, {@code next} and {@code <-} when the
+ * closure's environment resolves them to the base primitives at compile time; like
+ * GNU R's compiler, the compiled code does not notice if they are redefined later.
+ * Every other call is compiled to a generic call sequence that looks up its function
+ * each time, and anything the compiler does not understand is left to the
+ * tree-walking interpreter.
+ *
+ * <p>Closures which are called {@link #getJitThreshold() jit threshold} times are
+ * compiled once more, to JVM classes which HotSpot can optimize further. This tier
+ * can be disabled for debugging with {@link #setJitEnabled(boolean)}, or by starting
+ * the JVM with {@code -Dr.compiler.jit=false}. The classes are compiled on a background
+ * thread unless {@link #setJitInBackground(boolean)} is turned off, and the closure stays
+ * on the {@link Machine} until they are ready.
+ */
+public class Compiler {
+
+  /**
+   * The number of calls after which a closure is compiled
+   */
+  public static final int DEFAULT_THRESHOLD = 2;
+
+  /**
+   * The number of calls after which a closure is compiled to a JVM class
+   */
+  public static final int DEFAULT_JIT_THRESHOLD = 1000;
+
+  private boolean enabled = true;
+  private int threshold = DEFAULT_THRESHOLD;
+  private boolean jitEnabled = Boolean.parseBoolean(System.getProperty("r.compiler.jit", "true"));
+  private int jitThreshold = DEFAULT_JIT_THRESHOLD;
+  private boolean jitInBackground = true;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enables or disables compilation; while disabled, closures are always evaluated by the
+   * tree-walking interpreter, even if they were compiled earlier.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  public void setThreshold(int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("threshold must be at least 1");
+    }
+    this.threshold = threshold;
+  }
+
+  public boolean isJitEnabled() {
+    return jitEnabled;
+  }
+
+  /**
+   * Enables or disables compilation to JVM classes; while disabled, closures are
+   * evaluated by the {@link Machine}, even if they were compiled to classes earlier.
+   */
+  public void setJitEnabled(boolean jitEnabled) {
+    this.jitEnabled = jitEnabled;
+  }
+
+  public int getJitThreshold() {
+    return jitThreshold;
+  }
+
+  public void setJitThreshold(int jitThreshold) {
+    if (jitThreshold < 1) {
+      throw new IllegalArgumentException("jit threshold must be at least 1");
+    }
+    this.jitThreshold = jitThreshold;
+  }
+
+  public boolean isJitInBackground() {
+    return jitInBackground;
+  }
+
+  /**
+   * Chooses whether closures are compiled to JVM classes on a background thread, or on
+   * the thread of the call which reaches the jit threshold
+   */
+  public void setJitInBackground(boolean jitInBackground) {
+    this.jitInBackground = jitInBackground;
+  }
+
+  /**
+   * Compiles the body of {@code closure}
+   */
+  public Code compile(ClosureExp closure) {
+    return new BodyCompiler(closure.getEnvironment(), closure.getFormals(), closure.getFrameLayout())
+        .compileBody(closure.getBody());
+  }
+
+  /**
+   * Compiles the body of {@code closure} to a JVM class
+   *
+   * @return the compiled body, or {@code null} if this tier is not available for the closure
+   */
+  public JitBody compileToJvm(ClosureExp closure) {
+    return JitCompiler.compile(closure);
+  }
+
+  /**
+   * Starts compiling the body of {@code closure} to a JVM class on a background thread
+   *
+   * @return the pending compiled body, which is {@code null} if this tier is not
+   * available for the closure
+   */
+  public Future<JitBody> compileToJvmInBackground(ClosureExp closure) {
+    return JitCompiler.compileInBackground(closure);
+  }
+
+  /**
+   * Compiles {@code body} for evaluation in environments enclosed by {@code environment}
+   */
+  public Code compile(SEXP body, EnvExp environment) {
+    return new BodyCompiler(environment, null, null).compileBody(body);
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import r.lang.ClosureExp;
+import r.lang.SEXP;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compiles closure bodies to JVM classes, the tier above the {@link Machine}.
+ *
+ * <p>The body is translated to Java source by the {@link JitSourceGenerator} and compiled
+ * in memory with the system Java compiler, so this tier is only available when running
+ * on a JDK; otherwise, or if compilation fails for any reason, closures simply stay
+ * with the tier below.
+ *
+ * <p>Running javac takes far longer than any single call, so by default only the source
+ * is generated on the calling thread, where the closure's environment can be read safely,
+ * and the compilation itself runs on a shared background thread while the closure
+ * continues on the {@link Machine}.
+ */
+class JitCompiler {
+
+  static final String PACKAGE_NAME = "r.lang.compiler.jit";
+
+  private static final Logger LOGGER = Logger.getLogger(JitCompiler.class.getName());
+
+  private static int nextClassId = 0;
+
+  private static ExecutorService backgroundCompiler;
+
+  private JitCompiler() {
+  }
+
+  /**
+   * @return the compiled body of {@code closure}, or {@code null} if it could not be compiled
+   */
+  static JitBody compile(ClosureExp closure) {
+    Callable<JitBody> compilation = prepare(closure);
+    if (compilation == null) {
+      return null;
+    }
+    try {
+      return compilation.call();
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Generates the source of {@code closure} and compiles it on the background thread
+   *
+   * @return the pending compiled body, which is {@code null} if it could not be compiled
+   */
+  static Future<JitBody> compileInBackground(ClosureExp closure) {
+    Callable<JitBody> compilation = prepare(closure);
+    if (compilation == null) {
+      FutureTask<JitBody> failed = new FutureTask<JitBody>(new Callable<JitBody>() {
+        @Override
+        public JitBody call() {
+          return null;
+        }
+      });
+      failed.run();
+      return failed;
+    }
+    return backgroundCompiler().submit(compilation);
+  }
+
+  /**
+   * Generates the source of {@code closure}, which reads its environment and so must
+   * run on the thread evaluating it
+   *
+   * @return the compilation of the source, which may run on any thread, or {@code null}
+   * if there is no Java compiler
+   */
+  private static Callable<JitBody> prepare(ClosureExp closure) {
+    final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    if (javac == null) {
+      LOGGER.fine("No system Java compiler is available; closures will not be compiled to JVM classes");
+      return null;
+    }
+
+    final String className = nextClassName();
+    final JitSourceGenerator generator = new JitSourceGenerator(closure.getEnvironment(), closure.getFormals(),
+        closure.getFrameLayout());
+    final String source = generator.generate(PACKAGE_NAME, className, closure.getBody());
+
+    return new Callable<JitBody>() {
+      @Override
+      public JitBody call() {
+        try {
+          Map<String, byte[]> classes = compile(javac, PACKAGE_NAME + "." + className, source);
+          if (classes == null) {
+            return null;
+          }
+          Class<?> bodyClass = new GeneratedClassLoader(classes).loadClass(PACKAGE_NAME + "." + className);
+          return (JitBody) bodyClass.getConstructor(SEXP[].class).newInstance((Object) generator.getConstants());
+
+        } catch (Exception e) {
+          LOGGER.log(Level.FINE, "Could not load compiled closure", e);
+          return null;
+        }
+      }
+    };
+  }
+
+  /**
+   * @return the single thread shared by all contexts for compiling in the background,
+   * which does not keep the JVM alive
+   */
+  private static synchronized ExecutorService backgroundCompiler() {
+    if (backgroundCompiler == null) {
+      backgroundCompiler = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "R closure compiler");
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        }
+      });
+    }
+    return backgroundCompiler;
+  }
+
+  private static synchronized String nextClassName() {
+    return "Closure" + (nextClassId++);
+  }
+
+  private static Map<String, byte[]> compile(JavaCompiler javac, String className, String source) {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    ClassOutputManager fileManager = new ClassOutputManager(javac.getStandardFileManager(diagnostics, null, null));
+
+    List<String> options = Arrays.asList("-proc:none", "-classpath", classPath());
+    JavaCompiler.CompilationTask task = javac.getTask(null, fileManager, diagnostics, options, null,
+        Arrays.asList(new SourceFile(className, source)));
+
+    if (!task.call()) {
+      LOGGER.fine("Could not compile closure: " + diagnostics.getDiagnostics() + "\n" + source);
+      return null;
+    }
+    return fileManager.getClasses();
+  }
+
+  /**
+   * @return a class path including the classes of the interpreter, which may have been loaded
+   * from somewhere other than the system class path
+   */
+  private static String classPath() {
+    String classPath = System.getProperty("java.class.path");
+    try {
+      File location = new File(SEXP.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      return location.getPath() + File.pathSeparator + classPath;
+    } catch (Exception e) {
+      return classPath;
+    }
+  }
+
+  private static class SourceFile extends SimpleJavaFileObject {
+    private final String source;
+
+    private SourceFile(String className, String source) {
+      super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+
+  private static class ClassFile extends SimpleJavaFileObject {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private ClassFile(String className) {
+      super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return bytes;
+    }
+  }
+
+  /**
+   * Keeps the compiled classes in memory
+   */
+  private static class ClassOutputManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, ClassFile> outputs = new HashMap<String, ClassFile>();
+
+    private ClassOutputManager(StandardJavaFileManager fileManager) {
+      super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                               JavaFileObject.Kind kind, FileObject sibling) {
+      ClassFile file = new ClassFile(className);
+      outputs.put(className, file);
+      return file;
+    }
+
+    private Map<String, byte[]> getClasses() {
+      Map<String, byte[]> classes = new HashMap<String, byte[]>();
+      for (Map.Entry<String, ClassFile> output : outputs.entrySet()) {
+        classes.put(output.getKey(), output.getValue().bytes.toByteArray());
+      }
+      return classes;
+    }
+  }
+
+  /**
+   * Defines the classes of one compiled closure, which can be unloaded along with it
+   */
+  private static class GeneratedClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classes;
+
+    private GeneratedClassLoader(Map<String, byte[]> classes) {
+      super(JitCompiler.class.getClassLoader());
+      this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      byte[] bytes = classes.get(name);
+      if (bytes == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import com.google.common.collect.Lists;
+import r.lang.*;
+import r.lang.primitive.math.BinaryMathFunction;
+
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates a closure body to the Java source of a {@link JitBody}.
+ *
+ * <p>The translation follows the {@link BodyCompiler}: the base control flow primitives
+ * are inlined as Java statements, with loop state in Java locals and {@code break} and
+ * {@code next} as Java jumps. Arithmetic on numeric scalars calls the
+ * {@link BinaryMathFunction} directly, through a field of its concrete class so that
+ * HotSpot can inline it, as long as the operator still resolves to the builtin found at
+ * compile time. Variables live in the slots of the {@link ClosureEnvExp}, addressed
+ * directly, rather than in Java locals, as other code can observe the frame. Everything
+ * else is left to the tree-walking interpreter.
+ */
+class JitSourceGenerator {
+
+  private final EnvExp environment;
+  private final NillOrListExp formals;
+  private final FrameLayout layout;
+
+  private final List<SEXP> constants = Lists.newArrayList();
+  private final Map<SEXP, Integer> constantIndex = new IdentityHashMap<SEXP, Integer>();
+
+  private final StringBuilder fields = new StringBuilder();
+  private final StringBuilder initializers = new StringBuilder();
+  private final StringBuilder code = new StringBuilder();
+
+  private final Map<BuiltinExp, String> functionFields = new IdentityHashMap<BuiltinExp, String>();
+  private final List<String> loops = Lists.newArrayList();
+  private int nextLocal = 0;
+  private int nextVariableCache = 0;
+
+  JitSourceGenerator(EnvExp environment, NillOrListExp formals, FrameLayout layout) {
+    this.environment = environment;
+    this.formals = formals;
+    this.layout = layout;
+  }
+
+  String generate(String packageName, String className, SEXP body) {
+    String result = compile(body);
+    line("return new EvalResult(" + result + ", visible);");
+
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(packageName).append(";\n\n");
+    source.append("import r.lang.*;\n");
+    source.append("import r.lang.compiler.*;\n");
+    source.append("import r.lang.primitive.eval.*;\n\n");
+    source.append("public final class ").append(className).append(" implements JitBody {\n");
+    source.append("private final SEXP[] k;\n");
+    source.append(fields);
+    source.append("public ").append(className).append("(SEXP[] k) {\n");
+    source.append("this.k = k;\n");
+    source.append(initializers);
+    source.append("}\n");
+    source.append("public EvalResult execute(EnvExp rho) {\n");
+    source.append("boolean visible = true;\n");
+    source.append("ClosureEnvExp frame = (ClosureEnvExp) rho;\n");
+    source.append(code);
+    source.append("}\n");
+    source.append("}\n");
+    return source.toString();
+  }
+
+  SEXP[] getConstants() {
+    return constants.toArray(new SEXP[constants.size()]);
+  }
+
+  /**
+   * Emits the statements which evaluate {@code exp}
+   *
+   * @return the name of the local holding its value
+   */
+  private String compile(SEXP exp) {
+    if (exp instanceof LangExp) {
+      return compileCall((LangExp) exp);
+
+    } else if (BodyCompiler.isOrdinarySymbol(exp)) {
+      String value = local();
+      int local = layout.indexOf((SymbolExp) exp);
+      if (local == -1) {
+        line("SEXP " + value + " = Operations.getFreeVariable(frame, " + constant(exp, "SymbolExp") +
+            ", " + variableCache() + ");");
+      } else {
+        line("SEXP " + value + " = Operations.getLocal(frame, " + local + ", " + constant(exp, "SymbolExp") + ");");
+      }
+      line("visible = true;");
+      return value;
+
+    } else if (exp instanceof SymbolExp || exp instanceof ListExp || exp instanceof PromExp) {
+      String value = declare();
+      assignResult(value, constant(exp) + ".evaluate(rho)");
+      return value;
+
+    } else if (exp == NilExp.INSTANCE) {
+      String value = local();
+      line("SEXP " + value + " = NilExp.INSTANCE;");
+      line("visible = true;");
+      return value;
+
+    } else {
+      /* constants are NAMED before being used as values: see SEXP.evaluate() */
+      if (exp.getNamed() != 2) {
+        exp.setNamed(2);
+      }
+      String value = local();
+      line("SEXP " + value + " = " + constant(exp) + ";");
+      line("visible = true;");
+      return value;
+    }
+  }
+
+  private String compileCall(LangExp call) {
+    if (call.getFunction() instanceof SymbolExp) {
+      SymbolExp function = (SymbolExp) call.getFunction();
+      if (BodyCompiler.isBasePrimitive(environment, formals, function)) {
+        String value = compileInline(call);
+        if (value != null) {
+          return value;
+        }
+      }
+      SEXP binding = BodyCompiler.resolve(environment, formals, function);
+      if (binding instanceof BuiltinExp &&
+          ((BuiltinExp) binding).getFunctionInstance() instanceof BinaryMathFunction &&
+          isBinary(call)) {
+        return compileArithmetic(call, (BuiltinExp) binding);
+      }
+    }
+    return compileGenericCall(call);
+  }
+
+  private String compileGenericCall(LangExp call) {
+    String callRef = constant(call, "LangExp");
+    String function = compileFunction(call);
+    String value = declare();
+
+    line("if (" + function + " instanceof BuiltinExp) {");
+    line("((BuiltinExp) " + function + ").checkArity(" + callRef + ".getArguments());");
+    StringBuilder args = new StringBuilder();
+    for (ListExp arg : ListExp.listNodes(call.getArguments())) {
+      args.append(", ").append(compile(arg.getValue()));
+    }
+    assignResult(value, "((BuiltinExp) " + function + ").applyPrepared(" + callRef +
+        ", Operations.arguments(" + callRef + args + "), rho)");
+    line("} else {");
+    assignResult(value, "Operations.apply(" + callRef + ", " + function + ", rho)");
+    line("}");
+    return value;
+  }
+
+  private String compileArithmetic(LangExp call, BuiltinExp builtin) {
+    String callRef = constant(call, "LangExp");
+    String function = compileFunction(call);
+    String builtinRef = constant(builtin, "BuiltinExp");
+    String value = declare();
+
+    line("if (" + function + " == " + constant(builtin) + ") {");
+    ListExp args = (ListExp) call.getArguments();
+    String x = compile(args.getFirst());
+    String y = compile(args.getSecond());
+    line("if (Operations.isNumericScalar(" + x + ") && Operations.isNumericScalar(" + y + ")) {");
+    line(value + " = new RealExp(" + functionField(builtin) + ".apply(((NumericExp) " + x +
+        ").getDouble(0), ((NumericExp) " + y + ").getDouble(0)));");
+    line("visible = true;");
+    line("} else {");
+    assignResult(value, builtinRef + ".applyPrepared(" + callRef +
+        ", Operations.arguments(" + callRef + ", " + x + ", " + y + "), rho)");
+    line("}");
+    line("} else {");
+    assignResult(value, "Operations.apply(" + callRef + ", " + function + ", rho)");
+    line("}");
+    return value;
+  }
+
+  private String compileFunction(LangExp call) {
+    if (call.getFunction() instanceof SymbolExp) {
+      String function = local();
+      line("SEXP " + function + " = " + constant(call, "LangExp") + ".findFunction(rho);");
+      return function;
+    }
+    return compile(call.getFunction());
+  }
+
+  /**
+   * @return the name of the local holding the value of the inlined call, or null if
+   * its arguments are not of a form that can be inlined
+   */
+  private String compileInline(LangExp call) {
+    String name = ((SymbolExp) call.getFunction()).getPrintName();
+    NillOrListExp args = call.getArguments();
+
+    if (name.equals("{")) {
+      return compileBlock(args);
+
+    } else if (name.equals("if") && (args.length() == 2 || args.length() == 3)) {
+      return compileIf(call, (ListExp) args);
+
+    } else if (name.equals("<-") && args.length() == 2 && BodyCompiler.isOrdinarySymbol(args.getFirst())) {
+      String value = compile(((ListExp) args).getSecond());
+      int local = layout.indexOf((SymbolExp) args.getFirst());
+      if (local == -1) {
+        line("Operations.assign(rho, " + constant(args.getFirst(), "SymbolExp") + ", " + value + ");");
+      } else {
+        line("Operations.assignLocal(frame, " + local + ", " + value + ");");
+      }
+      line("visible = false;");
+      return value;
+
+    } else if (name.equals("while") && args.length() == 2) {
+      return compileWhile(call, (ListExp) args);
+
+    } else if (name.equals("for") && args.length() == 3 && BodyCompiler.isOrdinarySymbol(args.getFirst())) {
+      return compileFor((ListExp) args);
+
+    } else if ((name.equals("break") || name.equals("next")) && args.length() == 0 && !loops.isEmpty()) {
+      String label = loops.get(loops.size() - 1);
+      // if (true) keeps the statements that follow reachable for javac
+      line("if (true) " + (name.equals("break") ? "break " : "continue ") + label + ";");
+      String value = local();
+      line("SEXP " + value + " = NilExp.INSTANCE;");
+      return value;
+    }
+    return null;
+  }
+
+  private String compileBlock(NillOrListExp statements) {
+    if (statements.length() == 0) {
+      return compile(NilExp.INSTANCE);
+    }
+    String value = null;
+    for (ListExp statement : ListExp.listNodes(statements)) {
+      value = compile(statement.getValue());
+    }
+    return value;
+  }
+
+  private String compileIf(LangExp call, ListExp args) {
+    String condition = compile(args.getFirst());
+    String value = declare();
+    line("if (EvalUtil.asLogicalNoNA(" + constant(call, "LangExp") + ", " + condition + ", rho)) {");
+    line(value + " = " + compile(args.getSecond()) + ";");
+    line("visible = true;");
+    line("} else {");
+    if (args.length() == 3) {
+      line(value + " = " + compile(args.getThird()) + ";");
+      line("visible = true;");
+    } else {
+      line(value + " = NilExp.INSTANCE;");
+      line("visible = false;");
+    }
+    line("}");
+    return value;
+  }
+
+  private String compileWhile(LangExp call, ListExp args) {
+    String label = local();
+    line(label + ": while (true) {");
+    String condition = compile(args.getFirst());
+    line("if (!EvalUtil.asLogicalNoNA(" + constant(call, "LangExp") + ", " + condition + ", rho)) {");
+    line("break " + label + ";");
+    line("}");
+    compileLoopBody(label, args.getSecond());
+    line("}");
+    return loopValue();
+  }
+
+  private String compileFor(ListExp args) {
+    String sequence = compile(args.getSecond());
+    String label = local();
+    String index = local();
+    line(label + ": for (int " + index + " = 0; " + index + " != " + sequence + ".length(); ++" + index + ") {");
+    int local = layout.indexOf((SymbolExp) args.getFirst());
+    if (local == -1) {
+      line("rho.setVariable(" + constant(args.getFirst(), "SymbolExp") + ", " + sequence + ".subset(" + index + " + 1));");
+    } else {
+      line("frame.setSlot(" + local + ", " + sequence + ".subset(" + index + " + 1));");
+    }
+    compileLoopBody(label, args.getThird());
+    line("}");
+    return loopValue();
+  }
+
+  /**
+   * Emits the body of a loop, which catches the {@code break} and {@code next} raised by
+   * code left to the interpreter
+   */
+  private void compileLoopBody(String label, SEXP body) {
+    line("try {");
+    loops.add(label);
+    compile(body);
+    loops.remove(loops.size() - 1);
+    line("} catch (BreakException e) {");
+    line("break " + label + ";");
+    line("} catch (NextException e) {");
+    line("continue " + label + ";");
+    line("}");
+  }
+
+  private String loopValue() {
+    String value = local();
+    line("SEXP " + value + " = NilExp.INSTANCE;");
+    line("visible = false;");
+    return value;
+  }
+
+  private void assignResult(String value, String resultExpression) {
+    String result = local();
+    line("EvalResult " + result + " = " + resultExpression + ";");
+    line(value + " = " + result + ".getExpression();");
+    line("visible = " + result + ".isVisible();");
+  }
+
+  /**
+   * @return the field holding the function of {@code builtin}, typed as its own class
+   * if it is public so that calls through it are monomorphic
+   */
+  private String functionField(BuiltinExp builtin) {
+    String field = functionFields.get(builtin);
+    if (field == null) {
+      field = "f" + functionFields.size();
+      String type = isPublic(builtin.getFunctionInstance().getClass()) ?
+          builtin.getFunctionInstance().getClass().getCanonicalName() :
+          BinaryMathFunction.class.getName();
+      fields.append("private final ").append(type).append(' ').append(field).append(";\n");
+      initializers.append(field).append(" = (").append(type).append(") ")
+          .append(constant(builtin, "BuiltinExp")).append(".getFunctionInstance();\n");
+      functionFields.put(builtin, field);
+    }
+    return field;
+  }
+
+  /**
+   * @return the field holding a new {@link VariableCache} for a lookup of a free variable
+   */
+  private String variableCache() {
+    String field = "v" + (nextVariableCache++);
+    fields.append("private final VariableCache ").append(field).append(" = new VariableCache();\n");
+    return field;
+  }
+
+  private static boolean isPublic(Class<?> type) {
+    for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers())) {
+        return false;
+      }
+    }
+    return type.getCanonicalName() != null;
+  }
+
+  private static boolean isBinary(LangExp call) {
+    if (call.getArguments().length() != 2) {
+      return false;
+    }
+    for (ListExp arg : ListExp.listNodes(call.getArguments())) {
+      if (arg.hasTag()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String constant(SEXP value) {
+    Integer index = constantIndex.get(value);
+    if (index == null) {
+      index = constants.size();
+      constants.add(value);
+      constantIndex.put(value, index);
+    }
+    return "k[" + index + "]";
+  }
+
+  private String constant(SEXP value, String type) {
+    return "((" + type + ") " + constant(value) + ")";
+  }
+
+  private String declare() {
+    String value = local();
+    line("SEXP " + value + " = null;");
+    return value;
+  }
+
+  private String local() {
+    return "t" + (nextLocal++);
+  }
+
+  private void line(String statement) {
+    code.append(statement).append('\n');
+  }
+}
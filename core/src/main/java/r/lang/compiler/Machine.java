@@ -0,0 +1,241 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import r.lang.*;
+import r.lang.primitive.eval.BreakException;
+import r.lang.primitive.eval.ControlFlowException;
+import r.lang.primitive.eval.EvalUtil;
+import r.lang.primitive.eval.NextException;
+
+import static r.lang.compiler.Opcodes.*;
+
+/**
+ * Executes compiled {@link Code} on an operand stack. Code compiled for a closure must
+ * be executed in a {@link ClosureEnvExp} with the closure's {@link FrameLayout}.
+ *
+ * <p>The instructions have the same semantics as the tree-walking evaluation of the
+ * expressions they were compiled from, including the visibility of the result and the
+ * {@code NAMED} bookkeeping of symbol lookup and assignment.
+ */
+public class Machine {
+
+  private Machine() {
+  }
+
+  /**
+   * Executes {@code code} in the environment {@code rho}
+   */
+  public static EvalResult execute(Code code, EnvExp rho) {
+    int[] instructions = code.instructions;
+    SEXP[] constants = code.constants;
+    SEXP[] stack = new SEXP[code.maxStack];
+    SEXP[] sequences = null;
+    int[] positions = null;
+    if (code.loopSlots > 0) {
+      sequences = new SEXP[code.loopSlots];
+      positions = new int[code.loopSlots];
+    }
+
+    ClosureEnvExp frame = rho instanceof ClosureEnvExp ? (ClosureEnvExp) rho : null;
+    int sp = 0;
+    int pc = 0;
+    int currentPc = 0;
+    boolean visible = true;
+
+    while (true) {
+      try {
+        while (true) {
+          currentPc = pc;
+          switch (instructions[pc]) {
+            case LDCONST:
+              stack[sp++] = constants[instructions[pc + 1]];
+              visible = true;
+              pc += 2;
+              break;
+
+            case LDNULL:
+              stack[sp++] = NilExp.INSTANCE;
+              visible = true;
+              pc += 1;
+              break;
+
+            case GETVAR: {
+              SymbolExp symbol = (SymbolExp) constants[instructions[pc + 1]];
+              int cache = instructions[pc + 2];
+              if (cache == -1) {
+                stack[sp++] = Operations.getVariable(rho, symbol);
+              } else {
+                stack[sp++] = Operations.getFreeVariable(frame, symbol, code.variableCaches[cache]);
+              }
+              visible = true;
+              pc += 3;
+              break;
+            }
+
+            case SETVAR:
+              Operations.assign(rho, (SymbolExp) constants[instructions[pc + 1]], stack[sp - 1]);
+              visible = false;
+              pc += 2;
+              break;
+
+            case EVAL: {
+              EvalResult result = constants[instructions[pc + 1]].evaluate(rho);
+              stack[sp++] = result.getExpression();
+              visible = result.isVisible();
+              pc += 2;
+              break;
+            }
+
+            case CHECKFUN: {
+              LangExp call = (LangExp) constants[instructions[pc + 1]];
+              SEXP function = stack[sp - 1];
+              if (function instanceof BuiltinExp) {
+                ((BuiltinExp) function).checkArity(call.getArguments());
+                pc += 3;
+              } else {
+                EvalResult result = Operations.apply(call, function, rho);
+                stack[sp - 1] = result.getExpression();
+                visible = result.isVisible();
+                pc = instructions[pc + 2];
+              }
+              break;
+            }
+
+            case CALLBUILTIN: {
+              LangExp call = (LangExp) constants[instructions[pc + 1]];
+              int argCount = instructions[pc + 2];
+              NillOrListExp args = Operations.arguments(call, stack, sp - argCount, argCount);
+              sp -= argCount;
+              for (int i = 0; i != argCount; ++i) {
+                stack[sp + i] = null;
+              }
+              EvalResult result = ((BuiltinExp) stack[sp - 1]).applyPrepared(call, args, rho);
+              stack[sp - 1] = result.getExpression();
+              visible = result.isVisible();
+              pc += 3;
+              break;
+            }
+
+            case POP:
+              stack[--sp] = null;
+              pc += 1;
+              break;
+
+            case JUMP:
+              pc = instructions[pc + 1];
+              break;
+
+            case BRIFNOT: {
+              LangExp call = (LangExp) constants[instructions[pc + 1]];
+              SEXP condition = stack[--sp];
+              stack[sp] = null;
+              if (EvalUtil.asLogicalNoNA(call, condition, rho)) {
+                pc += 3;
+              } else {
+                pc = instructions[pc + 2];
+              }
+              break;
+            }
+
+            case VISIBLE:
+              visible = true;
+              pc += 1;
+              break;
+
+            case INVISIBLE:
+              visible = false;
+              pc += 1;
+              break;
+
+            case STARTFOR: {
+              int slot = instructions[pc + 1];
+              sequences[slot] = stack[--sp];
+              stack[sp] = null;
+              positions[slot] = 0;
+              pc += 2;
+              break;
+            }
+
+            case STEPFOR: {
+              int slot = instructions[pc + 2];
+              SEXP sequence = sequences[slot];
+              int i = positions[slot];
+              if (i == sequence.length()) {
+                sequences[slot] = null;
+                pc = instructions[pc + 3];
+              } else {
+                int local = instructions[pc + 4];
+                if (local == -1) {
+                  rho.setVariable((SymbolExp) constants[instructions[pc + 1]], sequence.subset(i + 1));
+                } else {
+                  frame.setSlot(local, sequence.subset(i + 1));
+                }
+                positions[slot] = i + 1;
+                pc += 5;
+              }
+              break;
+            }
+
+            case GETLOCAL:
+              stack[sp++] = Operations.getLocal(frame, instructions[pc + 1],
+                  (SymbolExp) constants[instructions[pc + 2]]);
+              visible = true;
+              pc += 3;
+              break;
+
+            case SETLOCAL:
+              Operations.assignLocal(frame, instructions[pc + 1], stack[sp - 1]);
+              visible = false;
+              pc += 3;
+              break;
+
+            case GETFUN:
+              stack[sp++] = ((LangExp) constants[instructions[pc + 1]]).findFunction(rho);
+              visible = true;
+              pc += 2;
+              break;
+
+            case RETURN:
+              return new EvalResult(stack[sp - 1], visible);
+
+            default:
+              throw new IllegalStateException("invalid opcode " + instructions[pc] + " at " + pc);
+          }
+        }
+      } catch (ControlFlowException e) {
+        int handler = code.findHandler(currentPc);
+        if (handler == -1 || !(e instanceof BreakException || e instanceof NextException)) {
+          throw e;
+        }
+        while (sp > code.handlers[handler + Code.HANDLER_DEPTH]) {
+          stack[--sp] = null;
+        }
+        if (e instanceof BreakException) {
+          pc = code.handlers[handler + Code.HANDLER_BREAK];
+        } else {
+          pc = code.handlers[handler + Code.HANDLER_NEXT];
+        }
+      }
+    }
+  }
+}
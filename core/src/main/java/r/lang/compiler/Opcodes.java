@@ -0,0 +1,112 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+/**
+ * The instruction set of the {@link Machine}. Each instruction is an opcode followed by
+ * a fixed number of operands, all stored in the same {@code int[]}; operands named
+ * {@code k} index the constant pool, {@code t} are absolute jump targets,
+ * {@code slot} index the loop state of the frame and {@code local} index the slots of
+ * the {@link r.lang.ClosureEnvExp} in which the code runs.
+ */
+public final class Opcodes {
+
+  /** {@code LDCONST k}: pushes the constant k */
+  public static final int LDCONST = 0;
+
+  /** {@code LDNULL}: pushes {@code NULL} */
+  public static final int LDNULL = 1;
+
+  /**
+   * {@code GETVAR k cache}: pushes the value bound to the symbol k, found through the
+   * variable cache of that index if it is not -1
+   */
+  public static final int GETVAR = 2;
+
+  /** {@code SETVAR k}: binds the value on top of the stack to the symbol k, leaving it in place */
+  public static final int SETVAR = 3;
+
+  /** {@code EVAL k}: evaluates the expression k with the tree-walking interpreter */
+  public static final int EVAL = 4;
+
+  /**
+   * {@code CHECKFUN k t}: inspects the function on top of the stack. A builtin is left in
+   * place for its arguments to be pushed after it; anything else is popped and applied
+   * to the unevaluated arguments of the call k, and execution continues at t.
+   */
+  public static final int CHECKFUN = 5;
+
+  /** {@code CALLBUILTIN k n}: applies the builtin below the top n values to those values */
+  public static final int CALLBUILTIN = 6;
+
+  /** {@code POP}: discards the value on top of the stack */
+  public static final int POP = 7;
+
+  /** {@code JUMP t}: continues at t */
+  public static final int JUMP = 8;
+
+  /** {@code BRIFNOT k t}: pops a condition of the call k and continues at t if it is false */
+  public static final int BRIFNOT = 9;
+
+  /** {@code VISIBLE}: marks the current value as visible */
+  public static final int VISIBLE = 10;
+
+  /** {@code INVISIBLE}: marks the current value as invisible */
+  public static final int INVISIBLE = 11;
+
+  /** {@code STARTFOR slot}: pops the sequence of a for loop into the loop state slot */
+  public static final int STARTFOR = 12;
+
+  /**
+   * {@code STEPFOR k slot t local}: binds the symbol k, which is in the slot local or has
+   * no slot if local is -1, to the next element of the sequence in slot, or continues at t
+   * once the sequence is exhausted.
+   */
+  public static final int STEPFOR = 13;
+
+  /** {@code RETURN}: returns the value on top of the stack */
+  public static final int RETURN = 14;
+
+  /** {@code GETFUN k}: pushes the function of the call k, found through its inline cache */
+  public static final int GETFUN = 15;
+
+  /** {@code GETLOCAL local k}: pushes the value bound to the symbol k, which is in the slot local */
+  public static final int GETLOCAL = 16;
+
+  /** {@code SETLOCAL local k}: binds the value on top of the stack to the slot local, leaving it in place */
+  public static final int SETLOCAL = 17;
+
+  static final String[] NAMES = {
+      "LDCONST", "LDNULL", "GETVAR", "SETVAR", "EVAL", "CHECKFUN", "CALLBUILTIN", "POP",
+      "JUMP", "BRIFNOT", "VISIBLE", "INVISIBLE", "STARTFOR", "STEPFOR", "RETURN", "GETFUN",
+      "GETLOCAL", "SETLOCAL"
+  };
+
+  static final int[] OPERAND_COUNTS = {
+      1, 0, 2, 1, 1, 2, 2, 0,
+      1, 2, 0, 0, 1, 4, 0, 1,
+      2, 2
+  };
+
+  private Opcodes() {
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+
+/**
+ * The operations shared by the {@link Machine} and the classes generated by the
+ * {@link JitCompiler}, which must behave exactly as their tree-walking counterparts.
+ */
+public final class Operations {
+
+  private Operations() {
+  }
+
+  /**
+   * Looks up the value of {@code symbol}, as {@link SymbolExp#evaluate(EnvExp)} does
+   */
+  public static SEXP getVariable(EnvExp rho, SymbolExp symbol) {
+    SEXP value = rho.findVariable(symbol);
+    if (value == SymbolExp.UNBOUND_VALUE) {
+      throw new EvalException(String.format("object '%s' not found", symbol.getPrintName()));
+    }
+    if (value.getNamed() < 1) {
+      value.setNamed(1);
+    }
+    return value;
+  }
+
+  /**
+   * Looks up the value of {@code symbol}, which has no slot in {@code frame}, through
+   * {@code cache} once it is not found in the frame itself
+   */
+  public static SEXP getFreeVariable(ClosureEnvExp frame, SymbolExp symbol, VariableCache cache) {
+    SEXP value = frame.findVariableInFrame(symbol);
+    if (value == SymbolExp.UNBOUND_VALUE) {
+      value = cache.findVariable(symbol, frame.getEnclosingEnvironment());
+    }
+    if (value == SymbolExp.UNBOUND_VALUE) {
+      throw new EvalException(String.format("object '%s' not found", symbol.getPrintName()));
+    }
+    if (value.getNamed() < 1) {
+      value.setNamed(1);
+    }
+    return value;
+  }
+
+  /**
+   * Looks up the value of {@code symbol}, which is in {@code slot} of {@code frame}
+   */
+  public static SEXP getLocal(ClosureEnvExp frame, int slot, SymbolExp symbol) {
+    SEXP value = frame.getSlot(slot);
+    if (value == null) {
+      return getVariable(frame, symbol);
+    }
+    if (value.getNamed() < 1) {
+      value.setNamed(1);
+    }
+    return value;
+  }
+
+  /**
+   * Binds {@code value} to {@code slot} of {@code frame}, as {@code <-} does
+   */
+  public static SEXP assignLocal(ClosureEnvExp frame, int slot, SEXP value) {
+    if (value.getNamed() < 2) {
+      value.setNamed(value.getNamed() + 1);
+    }
+    frame.setSlot(slot, value);
+    return value;
+  }
+
+  /**
+   * Binds {@code value} to {@code symbol}, as {@code <-} does
+   */
+  public static SEXP assign(EnvExp rho, SymbolExp symbol, SEXP value) {
+    if (value.getNamed() < 2) {
+      value.setNamed(value.getNamed() + 1);
+    }
+    rho.setVariable(symbol, value);
+    return value;
+  }
+
+  /**
+   * @return true if {@code x} is a numeric vector of length one, on which the arithmetic
+   * builtins compute a double scalar
+   */
+  public static boolean isNumericScalar(SEXP x) {
+    return x instanceof NumericExp && x.length() == 1;
+  }
+
+  /**
+   * Applies a function which is not a builtin to the unevaluated arguments of {@code call}
+   */
+  public static EvalResult apply(LangExp call, SEXP function, EnvExp rho) {
+    return ((FunExp) function).apply(call, call.getArguments(), rho);
+  }
+
+  /**
+   * Pairs the evaluated arguments of {@code call} with their tags
+   */
+  public static NillOrListExp arguments(LangExp call, SEXP... values) {
+    return arguments(call, values, 0, values.length);
+  }
+
+  static NillOrListExp arguments(LangExp call, SEXP[] values, int offset, int count) {
+    if (count == 0) {
+      return call.getArguments();
+    }
+    ListExp.Builder builder = new ListExp.Builder();
+    int i = offset;
+    for (ListExp node : ListExp.listNodes(call.getArguments())) {
+      ListExp.Builder.Tail tail = builder.add(values[i++]);
+      if (node.hasTag()) {
+        tail.withTag((SymbolExp) node.getTag());
+      }
+    }
+    return builder.list();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.node;
+
+import r.lang.*;
+import r.lang.primitive.math.BinaryMathFunction;
+
+/**
+ * A call site of one of the {@link BinaryMathFunction}s, such as {@code x + 1}, with two
+ * untagged arguments. The node records the types of the operands it has seen and
+ * specializes itself accordingly:
+ *
+ * <ul>
+ * <li>{@link DoubleScalar}: both operands have been double scalars, the common case of
+ * loop counters and accumulators, which are computed without any allocation besides
+ * the result;</li>
+ * <li>{@link NumericScalar}: both operands have been scalars of any numeric type;</li>
+ * <li>{@link Vector}: anything else, which goes through the builtin.</li>
+ * </ul>
+ *
+ * <p>If the function bound to the operator changes, the call site falls back to
+ * {@link CallNode.Generic}.
+ */
+public abstract class ArithmeticNode extends CallNode {
+
+  protected final BuiltinExp builtin;
+  protected final BinaryMathFunction function;
+
+  protected ArithmeticNode(BuiltinExp builtin) {
+    this.builtin = builtin;
+    this.function = (BinaryMathFunction) builtin.getFunctionInstance();
+  }
+
+  @Override
+  protected final EvalResult execute(LangExp call, SEXP function, EnvExp rho) {
+    if (function != builtin) {
+      return replace(call, Generic.INSTANCE, function, rho);
+    }
+    ListExp args = (ListExp) call.getArguments();
+    SEXP x = args.getFirst().evalToExp(rho);
+    SEXP y = args.getSecond().evalToExp(rho);
+    return execute(call, x, y, rho);
+  }
+
+  protected abstract EvalResult execute(LangExp call, SEXP x, SEXP y, EnvExp rho);
+
+  /**
+   * Rewrites the call site to a node which accepts {@code x} and {@code y}, and applies it
+   */
+  protected final EvalResult generalize(LangExp call, SEXP x, SEXP y, EnvExp rho) {
+    ArithmeticNode node;
+    if (isNumericScalar(x) && isNumericScalar(y)) {
+      node = new NumericScalar(builtin);
+    } else {
+      node = new Vector(builtin);
+    }
+    call.setNode(node);
+    return node.execute(call, x, y, rho);
+  }
+
+  private static boolean isDoubleScalar(SEXP x) {
+    return x instanceof RealExp && x.length() == 1;
+  }
+
+  private static boolean isNumericScalar(SEXP x) {
+    return x instanceof NumericExp && x.length() == 1;
+  }
+
+  public static class Uninitialized extends ArithmeticNode {
+    public Uninitialized(BuiltinExp builtin) {
+      super(builtin);
+    }
+
+    @Override
+    protected EvalResult execute(LangExp call, SEXP x, SEXP y, EnvExp rho) {
+      if (isDoubleScalar(x) && isDoubleScalar(y)) {
+        DoubleScalar node = new DoubleScalar(builtin);
+        call.setNode(node);
+        return node.execute(call, x, y, rho);
+      }
+      return generalize(call, x, y, rho);
+    }
+  }
+
+  public static class DoubleScalar extends ArithmeticNode {
+    public DoubleScalar(BuiltinExp builtin) {
+      super(builtin);
+    }
+
+    @Override
+    protected EvalResult execute(LangExp call, SEXP x, SEXP y, EnvExp rho) {
+      if (isDoubleScalar(x) && isDoubleScalar(y)) {
+        return new EvalResult(new RealExp(function.apply(
+            ((RealExp) x).getDouble(0), ((RealExp) y).getDouble(0))));
+      }
+      return generalize(call, x, y, rho);
+    }
+  }
+
+  public static class NumericScalar extends ArithmeticNode {
+    public NumericScalar(BuiltinExp builtin) {
+      super(builtin);
+    }
+
+    @Override
+    protected EvalResult execute(LangExp call, SEXP x, SEXP y, EnvExp rho) {
+      if (isNumericScalar(x) && isNumericScalar(y)) {
+        return new EvalResult(new RealExp(function.apply(
+            ((NumericExp) x).getDouble(0), ((NumericExp) y).getDouble(0))));
+      }
+      Vector node = new Vector(builtin);
+      call.setNode(node);
+      return node.execute(call, x, y, rho);
+    }
+  }
+
+  public static class Vector extends ArithmeticNode {
+    public Vector(BuiltinExp builtin) {
+      super(builtin);
+    }
+
+    @Override
+    protected EvalResult execute(LangExp call, SEXP x, SEXP y, EnvExp rho) {
+      return builtin.applyPrepared(call, new ListExp(x, new ListExp(y, null)), rho);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.node;
+
+import r.lang.*;
+import r.lang.primitive.math.BinaryMathFunction;
+
+/**
+ * The execution strategy of a call site. Each {@link LangExp} starts out with the
+ * {@link #UNINITIALIZED} node, which rewrites itself on the first evaluation into a node
+ * specialized for the function it finds, and in the case of arithmetic, for the types of
+ * the operands it sees. A specialized node guards its assumptions on every execution and
+ * rewrites itself into a more general node when they no longer hold, so that a call site
+ * only ever moves towards {@link Generic} and cannot oscillate between specializations.
+ *
+ * <p>Nodes hold no state that depends on the environment in which they are evaluated,
+ * so a call site can be shared between closures and re-entered recursively.
+ */
+public abstract class CallNode {
+
+  public static final CallNode UNINITIALIZED = new Uninitialized();
+
+  /**
+   * Evaluates {@code call} in {@code rho}
+   */
+  public EvalResult execute(LangExp call, EnvExp rho) {
+    return execute(call, call.findFunction(rho), rho);
+  }
+
+  /**
+   * Applies the already evaluated {@code function} of {@code call}
+   */
+  protected abstract EvalResult execute(LangExp call, SEXP function, EnvExp rho);
+
+  /**
+   * Rewrites the call site to {@code node} and continues execution there
+   */
+  protected final EvalResult replace(LangExp call, CallNode node, SEXP function, EnvExp rho) {
+    call.setNode(node);
+    return node.execute(call, function, rho);
+  }
+
+  private static class Uninitialized extends CallNode {
+    @Override
+    protected EvalResult execute(LangExp call, SEXP function, EnvExp rho) {
+      return replace(call, specialize(call, function), function, rho);
+    }
+
+    private static CallNode specialize(LangExp call, SEXP function) {
+      if (function instanceof BuiltinExp) {
+        BuiltinExp builtin = (BuiltinExp) function;
+        if (builtin.getFunctionInstance() instanceof BinaryMathFunction && isBinary(call)) {
+          return new ArithmeticNode.Uninitialized(builtin);
+        }
+        return new Builtin(builtin);
+      }
+      return Generic.INSTANCE;
+    }
+
+    private static boolean isBinary(LangExp call) {
+      if (call.getArguments().length() != 2) {
+        return false;
+      }
+      for (ListExp arg : ListExp.listNodes(call.getArguments())) {
+        if (arg.hasTag()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Applies whatever function it finds, as the tree-walking interpreter always did
+   */
+  public static class Generic extends CallNode {
+    public static final Generic INSTANCE = new Generic();
+
+    private Generic() {
+    }
+
+    @Override
+    protected EvalResult execute(LangExp call, SEXP function, EnvExp rho) {
+      return ((FunExp) function).apply(call, call.getArguments(), rho);
+    }
+  }
+
+  /**
+   * A call site which has only ever called one builtin
+   */
+  public static class Builtin extends CallNode {
+    private final BuiltinExp builtin;
+
+    public Builtin(BuiltinExp builtin) {
+      this.builtin = builtin;
+    }
+
+    @Override
+    protected EvalResult execute(LangExp call, SEXP function, EnvExp rho) {
+      if (function != builtin) {
+        return replace(call, Generic.INSTANCE, function, rho);
+      }
+      return builtin.apply(call, call.getArguments(), rho);
+    }
+  }
+}
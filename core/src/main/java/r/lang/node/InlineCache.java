@@ -0,0 +1,61 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.node;
+
+import r.lang.EnvExp;
+import r.lang.SEXP;
+import r.lang.SymbolExp;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Caches the function found by a call site for its symbol, so that a call repeated in a
+ * loop does not search the environment chain each time.
+ *
+ * <p>The cached function is valid as long as the call is evaluated in the same
+ * environment, and no function has been bound or unbound anywhere in the context since,
+ * as recorded by its {@link r.lang.GlobalContext#getFunctionVersion() function version}.
+ * Bindings of other values cannot change the result of {@link EnvExp#findFun(SymbolExp)}
+ * and so do not invalidate the cache. The environment is held weakly so that the cache
+ * does not keep the frame of a completed call alive.
+ */
+public final class InlineCache {
+
+  private WeakReference<EnvExp> environment;
+  private int version;
+  private SEXP function;
+
+  public SEXP findFun(SymbolExp symbol, EnvExp rho) {
+    int currentVersion = rho.getGlobalContext().getFunctionVersion();
+    if (function != null && version == currentVersion && environment.get() == rho) {
+      return function;
+    }
+    function = null;
+    SEXP found = rho.findFun(symbol);
+    if (environment == null || environment.get() != rho) {
+      environment = new WeakReference<EnvExp>(rho);
+    }
+    version = currentVersion;
+    function = found;
+    return found;
+  }
+}
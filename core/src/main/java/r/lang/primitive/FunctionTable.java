@@ -23,12 +23,21 @@ package r.lang.primitive;
 
 
 import r.lang.primitive.eval.*;
+import r.lang.primitive.io.MapFile;
+import r.lang.primitive.logic.Logic;
+import r.lang.primitive.match.Matching;
+import r.lang.primitive.match.Sort;
 import r.lang.primitive.math.*;
+import r.lang.primitive.subset.Subsetting;
+import r.lang.primitive.system.Memory;
 import r.lang.primitive.system.SysTime;
 import r.lang.primitive.types.As;
+import r.lang.primitive.types.Attributes;
 import r.lang.primitive.types.CombineFunction;
 import r.lang.primitive.types.CreateList;
 import r.lang.primitive.types.Is;
+import r.lang.primitive.types.Length;
+import r.lang.primitive.types.MakeVector;
 
 import static r.lang.primitive.PPkind.*;
 import static r.lang.primitive.PPprec.*;
@@ -128,8 +137,8 @@ public class FunctionTable {
       f("(", /*paren*/ null, 0, 1, 1, PP_PAREN, PREC_FN, 0),
       f(".subset", /*subset_dflt*/ null, 1, 1, -1, PP_FUNCALL, PREC_FN, 0),
       f(".subset2", /*subset2_dflt*/ null, 2, 1, -1, PP_FUNCALL, PREC_FN, 0),
-      f("[", /*subset*/ null, 1, 0, -1, PP_SUBSET, PREC_SUBSET, 0),
-      f("[[", /*subset2*/ null, 2, 0, -1, PP_SUBSET, PREC_SUBSET, 0),
+      f("[", Subsetting.Subset.class, 1, 0, -1, PP_SUBSET, PREC_SUBSET, 0),
+      f("[[", Subsetting.Subset2.class, 2, 0, -1, PP_SUBSET, PREC_SUBSET, 0),
       f("$", /*subset3*/ null, 3, 0, 2, PP_DOLLAR, PREC_DOLLAR, 0),
       f("@", /*AT*/ null, 0, 0, 2, PP_DOLLAR, PREC_DOLLAR, 0),
       f("[<-", /*subassign*/ null, 0, 0, 3, PP_SUBASS, PREC_LEFT, 1),
@@ -173,9 +182,9 @@ public class FunctionTable {
       f("<=", /*relop*/ null, LEOP, 1, 2, PP_BINARY, PREC_COMPARE, 0),
       f(">=", /*relop*/ null, GEOP, 1, 2, PP_BINARY, PREC_COMPARE, 0),
       f(">", /*relop*/ null, GTOP, 1, 2, PP_BINARY, PREC_COMPARE, 0),
-      f("&", /*logic*/ null, 1, 1, 2, PP_BINARY, PREC_AND, 0),
-      f("|", /*logic*/ null, 2, 1, 2, PP_BINARY, PREC_OR, 0),
-      f("!", /*logic*/ null, 3, 1, 1, PP_UNARY, PREC_NOT, 0),
+      f("&", Logic.And.class, 1, 1, 2, PP_BINARY, PREC_AND, 0),
+      f("|", Logic.Or.class, 2, 1, 2, PP_BINARY, PREC_OR, 0),
+      f("!", Logic.Not.class, 3, 1, 1, PP_UNARY, PREC_NOT, 0),
 
       f("&&", /*logic2*/ null, 1, 0, 2, PP_BINARY, PREC_AND, 0),
       f("||", /*logic2*/ null, 2, 0, 2, PP_BINARY, PREC_OR, 0),
@@ -185,18 +194,18 @@ public class FunctionTable {
 
 /* Logic Related Functions */
 /* these are group generic and so need to eval args */
-      f("all", /*logic3*/ null, 1, 1, -1, PP_FUNCALL, PREC_FN, 0),
-      f("any", /*logic3*/ null, 2, 1, -1, PP_FUNCALL, PREC_FN, 0),
+      f("all", Logic.All.class, 1, 1, -1, PP_FUNCALL, PREC_FN, 0),
+      f("any", Logic.Any.class, 2, 1, -1, PP_FUNCALL, PREC_FN, 0),
 
 
 /* Vectors, Matrices and Arrays */
 
 /* printname	c-entry		offset	eval	arity	pp-kind	     precedence	rightassoc
  * ---------	-------		------	----	-----	-------      ----------	----------*/
-      f("vector", /*makevector*/ null, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
+      f("vector", MakeVector.class, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
       f("complex", /*complex*/ null, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
       f("matrix", /*matrix*/ null, 0, 11, -1, PP_FUNCALL, PREC_FN, 0),
-      f("length", /*length*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("length", Length.class, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
       f("length<-", /*lengthgets*/ null, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
       f("row", /*rowscols*/ null, 1, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("col", /*rowscols*/ null, 2, 11, 1, PP_FUNCALL, PREC_FN, 0),
@@ -205,22 +214,22 @@ public class FunctionTable {
       f("cbind", /*bind*/ null, 1, 10, -1, PP_FUNCALL, PREC_FN, 0),
       f("rbind", /*bind*/ null, 2, 10, -1, PP_FUNCALL, PREC_FN, 0),
       f("drop", /*drop*/ null, 0, 11, 1, PP_FUNCALL, PREC_FN, 0),
-      f("oldClass", /*class*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("oldClass<-", /*classgets*/ null, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
-      f("class", /*R_data_class*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("class<-", /*R_set_class*/ null, 0, 1, 2, PP_FUNCALL, PREC_FN, 0),
+      f("oldClass", Attributes.OldClass.class, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("oldClass<-", Attributes.SetOldClass.class, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
+      f("class", Attributes.DataClass.class, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("class<-", Attributes.SetDataClass.class, 0, 1, 2, PP_FUNCALL, PREC_FN, 0),
       f("unclass", /*unclass*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("names", /*names*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("names<-", /*namesgets*/ null, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
-      f("dimnames", /*dimnames*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("dimnames<-", /*dimnamesgets*/ null, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
+      f("names", Attributes.Names.class, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("names<-", Attributes.SetNames.class, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
+      f("dimnames", Attributes.DimNames.class, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("dimnames<-", Attributes.SetDimNames.class, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
       f("all.names", /*allnames*/ null, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
-      f("dim", /*dim*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("dim<-", /*dimgets*/ null, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
-      f("attributes", /*attributes*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("attributes<-", /*attributesgets*/ null, 0, 1, 1, PP_FUNCALL, PREC_LEFT, 1),
-      f("attr", /*attr*/ null, 0, 1, -1, PP_FUNCALL, PREC_FN, 0),
-      f("attr<-", /*attrgets*/ null, 0, 1, 3, PP_FUNCALL, PREC_LEFT, 1),
+      f("dim", Attributes.Dim.class, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("dim<-", Attributes.SetDim.class, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
+      f("attributes", Attributes.All.class, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("attributes<-", Attributes.SetAll.class, 0, 1, 1, PP_FUNCALL, PREC_LEFT, 1),
+      f("attr", Attributes.Attr.class, 0, 1, -1, PP_FUNCALL, PREC_FN, 0),
+      f("attr<-", Attributes.SetAttr.class, 0, 1, 3, PP_FUNCALL, PREC_LEFT, 1),
       f("comment", /*comment*/ null, 0, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("comment<-", /*commentgets*/ null, 0, 11, 2, PP_FUNCALL, PREC_LEFT, 1),
       f("levels<-", /*levelsgets*/ null, 0, 1, 2, PP_FUNCALL, PREC_LEFT, 1),
@@ -229,14 +238,15 @@ public class FunctionTable {
       f("exists", /*get*/ null, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
       f("assign", /*assign*/ null, 0, 111, 4, PP_FUNCALL, PREC_FN, 0),
       f("remove", /*remove*/ null, 0, 111, 3, PP_FUNCALL, PREC_FN, 0),
-      f("duplicated", /*duplicated*/ null, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
-      f("unique", /*duplicated*/ null, 1, 11, 3, PP_FUNCALL, PREC_FN, 0),
-      f("anyDuplicated", /*duplicated*/ null, 2, 11, 3, PP_FUNCALL, PREC_FN, 0),
+      f("duplicated", Matching.Duplicated.class, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
+      f("unique", Matching.Unique.class, 1, 11, 3, PP_FUNCALL, PREC_FN, 0),
+      f("anyDuplicated", Matching.AnyDuplicated.class, 2, 11, 3, PP_FUNCALL, PREC_FN, 0),
+      f("which", Logic.Which.class, 0, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("which.min", /*first_min*/ null, 0, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("pmin", /*pmin*/ null, 0, 11, -1, PP_FUNCALL, PREC_FN, 0),
       f("pmax", /*pmin*/ null, 1, 11, -1, PP_FUNCALL, PREC_FN, 0),
       f("which.max", /*first_min*/ null, 1, 11, 1, PP_FUNCALL, PREC_FN, 0),
-      f("match", /*match*/ null, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
+      f("match", Matching.Match.class, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
       f("pmatch", /*pmatch*/ null, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
       f("charmatch", /*charmatch*/ null, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
       f("match.call", /*matchcall*/ null, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
@@ -254,7 +264,7 @@ public class FunctionTable {
       f("round", /*Math2*/ null, 10001, 0, -1, PP_FUNCALL, PREC_FN, 0),
       f("signif", /*Math2*/ null, 10004, 0, -1, PP_FUNCALL, PREC_FN, 0),
       f("atan", Trig.Atan.class, 10002, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("log", /*log*/ null, 10003, 0, -1, PP_FUNCALL, PREC_FN, 0),
+      f("log", Log.class, 10003, 0, -1, PP_FUNCALL, PREC_FN, 0),
       f("log10", /*log1arg*/ null, 10, 1, 1, PP_FUNCALL, PREC_FN, 0),
       f("log2", /*log1arg*/ null, 2, 1, 1, PP_FUNCALL, PREC_FN, 0),
       f("abs", /*AbsFunction*/ null, 6, 1, 1, PP_FUNCALL, PREC_FN, 0),
@@ -330,11 +340,11 @@ public class FunctionTable {
 /* Mathematical Functions of a Complex Argument */
 /* these are group generic and so need to eval args */
 
-      f("Re", /*cmathfuns*/ null, 1, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("Im", /*cmathfuns*/ null, 2, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("Mod", /*cmathfuns*/ null, 3, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("Arg", /*cmathfuns*/ null, 4, 1, 1, PP_FUNCALL, PREC_FN, 0),
-      f("Conj", /*cmathfuns*/ null, 5, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("Re", ComplexFunctions.Re.class, 1, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("Im", ComplexFunctions.Im.class, 2, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("Mod", ComplexFunctions.Mod.class, 3, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("Arg", ComplexFunctions.Arg.class, 4, 1, 1, PP_FUNCALL, PREC_FN, 0),
+      f("Conj", ComplexFunctions.Conj.class, 5, 1, 1, PP_FUNCALL, PREC_FN, 0),
 
 
 /* Mathematical Functions of Three Numeric (+ 1-2 int) Variables */
@@ -455,12 +465,12 @@ public class FunctionTable {
 
 /* Data Summaries */
 /* sum, min, max, prod, range are group generic and so need to eval args */
-      f("sum", /*summary*/ null, 0, 1, -1, PP_FUNCALL, PREC_FN, 0),
+      f("sum", Summary.Sum.class, 0, 1, -1, PP_FUNCALL, PREC_FN, 0),
       f("mean", /*summary*/ null, 1, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("min", /*summary*/ null, 2, 1, -1, PP_FUNCALL, PREC_FN, 0),
       f("max", /*summary*/ null, 3, 1, -1, PP_FUNCALL, PREC_FN, 0),
       f("prod", /*summary*/ null, 4, 1, -1, PP_FUNCALL, PREC_FN, 0),
-      f("range", /*range*/ null, 0, 1, -1, PP_FUNCALL, PREC_FN, 0),
+      f("range", Summary.Range.class, 0, 1, -1, PP_FUNCALL, PREC_FN, 0),
       f("cov", /*cov*/ null, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
       f("cor", /*cov*/ null, 1, 11, 4, PP_FUNCALL, PREC_FN, 0),
 
@@ -594,11 +604,11 @@ public class FunctionTable {
       f("print.function", /*printfunction*/ null, 0, 111, 3, PP_FUNCALL, PREC_FN, 0),
       f("prmatrix", /*prmatrix*/ null, 0, 111, 6, PP_FUNCALL, PREC_FN, 0),
       f("invisible", /*invisible*/ null, 0, 101, 1, PP_FUNCALL, PREC_FN, 0),
-      f("gc", /*gc*/ null, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
+      f("gc", Memory.Gc.class, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
       f("gcinfo", /*gcinfo*/ null, 0, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("gctorture", /*gctorture*/ null, 0, 11, 1, PP_FUNCALL, PREC_FN, 0),
-      f("memory.profile", /*memoryprofile*/ null, 0, 11, 0, PP_FUNCALL, PREC_FN, 0),
-      f("rep", /*rep*/ null, 0, 0, -1, PP_FUNCALL, PREC_FN, 0),
+      f("memory.profile", Memory.Profile.class, 0, 11, 0, PP_FUNCALL, PREC_FN, 0),
+      f("rep", Rep.class, 0, 0, -1, PP_FUNCALL, PREC_FN, 0),
       f("rep.int", /*rep_int*/ null, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
       f("seq.int", /*seq*/ null, 0, 0, -1, PP_FUNCALL, PREC_FN, 0),
       f("seq_len", /*seq_len*/ null, 0, 1, 1, PP_FUNCALL, PREC_FN, 0),
@@ -634,7 +644,7 @@ public class FunctionTable {
       f("browserCondition", /*sysbrowser*/ null, 2, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("browserSetDebug", /*sysbrowser*/ null, 3, 111, 1, PP_FUNCALL, PREC_FN, 0),
       f("parent.frame", /*parentframe*/ null, 0, 11, -1, PP_FUNCALL, PREC_FN, 0),
-      f("sort", /*sort*/ null, 1, 11, 2, PP_FUNCALL, PREC_FN, 0),
+      f("sort", Sort.class, 1, 11, 2, PP_FUNCALL, PREC_FN, 0),
       f("is.unsorted", /*isunsorted*/ null, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
       f("psort", /*psort*/ null, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
       f("qsort", /*qsort*/ null, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
@@ -684,7 +694,7 @@ public class FunctionTable {
       f("untracemem", /*memuntrace*/ null, 0, 101, 1, PP_FUNCALL, PREC_FN, 0),
       f("object.size", /*objectsize*/ null, 0, 11, 1, PP_FUNCALL, PREC_FN, 0),
       f("inspect", /*inspect*/ null, 0, 111, 1, PP_FUNCALL, PREC_FN, 0),
-      f("mem.limits", /*memlimits*/ null, 0, 11, 2, PP_FUNCALL, PREC_FN, 0),
+      f("mem.limits", Memory.Limits.class, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
       f("merge", /*merge*/ null, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
       f("capabilities", /*capabilities*/ null, 0, 11, 0, PP_FUNCALL, PREC_FN, 0),
       f("capabilitiesX11", /*capabilitiesX11*/ null, 0, 11, 0, PP_FUNCALL, PREC_FN, 0),
@@ -808,7 +818,7 @@ public class FunctionTable {
       f("grconvertY", /*convertXY*/ null, 1, 11, 3, PP_FUNCALL, PREC_FN, 0),
 
 /* Objects */
-      f("inherits", /*inherits*/ null, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
+      f("inherits", Attributes.Inherits.class, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
       f("UseMethod", /*usemethod*/ null, 0, 200, -1, PP_FUNCALL, PREC_FN, 0),
       f("NextMethod", /*nextmethod*/ null, 0, 210, -1, PP_FUNCALL, PREC_FN, 0),
       f("standardGeneric", /*standardGeneric*/ null, 0, 201, -1, PP_FUNCALL, PREC_FN, 0),
@@ -851,6 +861,7 @@ public class FunctionTable {
       f("readLines", /*readLines*/ null, 0, 11, 5, PP_FUNCALL, PREC_FN, 0),
       f("writeLines", /*writelines*/ null, 0, 11, 4, PP_FUNCALL, PREC_FN, 0),
       f("readBin", /*readbin*/ null, 0, 11, 6, PP_FUNCALL, PREC_FN, 0),
+      f("mmap", MapFile.class, 0, 1, -1, PP_FUNCALL, PREC_FN, 0),
       f("writeBin", /*writebin*/ null, 0, 211, 5, PP_FUNCALL, PREC_FN, 0),
       f("readChar", /*readchar*/ null, 0, 11, 3, PP_FUNCALL, PREC_FN, 0),
       f("writeChar", /*writechar*/ null, 0, 211, 5, PP_FUNCALL, PREC_FN, 0),
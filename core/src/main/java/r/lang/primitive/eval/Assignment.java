@@ -30,6 +30,11 @@ public class Assignment extends PrimitiveFunction {
     SymbolExp symbol = (SymbolExp) args.getFirst();
     SEXP newValue = args.getSecond().evalToExp(rho);
 
+    /* the value is now referenced by the binding, and possibly by whatever
+       it was evaluated from: see INCREMENT_NAMED */
+    if(newValue.getNamed() < 2) {
+      newValue.setNamed(newValue.getNamed() + 1);
+    }
     rho.setVariable(symbol, newValue);
 
     return new EvalResult(newValue, false);
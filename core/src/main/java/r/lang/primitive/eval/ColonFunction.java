@@ -75,6 +75,11 @@ public class ColonFunction extends BinaryFunction {
     }
   }
 
+  /**
+   * Sequences longer than this cannot be indexed exactly by a double
+   */
+  static final double MAX_LENGTH = 4503599627370496d;
+
   @VisibleForTesting
   static class Range {
     boolean useInteger;
@@ -93,8 +98,11 @@ public class ColonFunction extends BinaryFunction {
     }
 
     private void determineType() {
+      if(count >= MAX_LENGTH) {
+        throw new EvalException("result would be too long a vector");
+      }
       int in1 = (int)(n1);
-      useInteger = (n1 == in1);
+      useInteger = (n1 == in1) && count <= Integer.MAX_VALUE;
       if(useInteger) {
         if(n1 <= Integer.MIN_VALUE || n1 > Integer.MAX_VALUE) {
           useInteger = false;
@@ -112,35 +120,11 @@ public class ColonFunction extends BinaryFunction {
     }
 
     private SEXP intVector() {
-      int values[] = new int[(int) count];
-      int index = 0;
-
-      if(n1 <= n2) {
-        for(int n=(int)n1; n<=n2; n++) {
-          values[index++] = n;
-        }
-      } else {
-        for(int n=(int)n1; n>=n2; n--) {
-          values[index++] = n;
-        }
-      }
-      return new IntExp(values);
+      return new IntSequence((int) n1, n1 <= n2 ? 1 : -1, (int) count);
     }
 
     private SEXP realVector() {
-      double[] values = new double[(int) count];
-      int index = 0;
-
-      if(n1 <= n2) {
-        for(double n=n1; n<=n2; n+=1d) {
-          values[index++] = n;
-        }
-      } else {
-        for(double n=n1; n>=n2; n-=1d) {
-          values[index++] = n;
-        }
-      }
-      return new RealExp(values);
+      return new RealSequence(n1, n1 <= n2 ? 1d : -1d, (long) count);
     }
   }
 }
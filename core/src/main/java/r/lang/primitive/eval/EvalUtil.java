@@ -27,7 +27,7 @@ import r.lang.Logical;
 import r.lang.SEXP;
 import r.lang.exception.EvalException;
 
-class EvalUtil {
+public class EvalUtil {
 
   public static boolean asLogicalNoNA(LangExp call, SEXP s, EnvExp rho) {
 
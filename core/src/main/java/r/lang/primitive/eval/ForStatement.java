@@ -33,8 +33,17 @@ public class ForStatement extends PrimitiveFunction {
     SEXP statement = args.getThird();
 
     for(int i=0; i!=elements.length(); ++i) {
-      rho.setVariable(symbol, elements.subset(1));
-      statement.evaluate(rho);
+      rho.setVariable(symbol, elements.subset(i+1));
+
+      try {
+
+        statement.evaluate(rho);
+
+      } catch(BreakException e) {
+        break;
+      } catch(NextException e) {
+        // continue with the next element
+      }
     }
 
     return EvalResult.NON_PRINTING_NULL;
@@ -0,0 +1,245 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.eval;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PrimitiveFunction;
+
+import java.util.Arrays;
+
+/**
+ * {@code rep(x, times = 1, length.out = NA, each = 1)}. Like R's {@code rep}, this is a
+ * special which evaluates its own arguments.
+ *
+ * <p>The result is built as a list of runs, each of which repeats a single element
+ * of {@code x}, so that integer results of {@code each} or a vector of {@code times}
+ * can be returned as a {@link RunLengthIntExp} without expanding them.
+ */
+public class Rep extends PrimitiveFunction {
+
+  private static final String[] FORMALS = { "x", "times", "length.out", "each" };
+
+  /**
+   * The index passed to {@link #expand(SEXP, int[])} for an {@code NA} element, used
+   * when {@code length.out} asks for elements of an empty {@code x}
+   */
+  private static final int NA_ELEMENT = -1;
+
+  @Override
+  public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+    SEXP[] actuals = matchArguments(rho, args);
+    SEXP x = actuals[0];
+    if(x == null) {
+      throw new EvalException("attempt to replicate an object of type 'NULL'");
+    }
+    if(!(x instanceof NumericExp) && !(x instanceof StringExp)) {
+      throw new EvalException("attempt to replicate an object of type '%s'", x.getTypeName());
+    }
+
+    int each = actuals[3] == null ? 1 : count(actuals[3], "each");
+    int length = checkLength((long) x.length() * each);
+
+    if(actuals[2] != null && !isNA(actuals[2])) {
+      int lengthOut = count(actuals[2], "length.out");
+      if(length == 0 && x.length() != 0) {
+        lengthOut = 0;
+      }
+      int[] elements = new int[lengthOut];
+      for(int i=0; i!=lengthOut; ++i) {
+        elements[i] = length == 0 ? NA_ELEMENT : (i % length) / each;
+      }
+      return new EvalResult(expand(x, elements));
+    }
+
+    // one run for each element of x
+    int[] runElements = new int[x.length()];
+    int[] runCounts = new int[x.length()];
+    for(int i=0; i!=runElements.length; ++i) {
+      runElements[i] = i;
+      runCounts[i] = each;
+    }
+
+    if(actuals[1] != null) {
+      SEXP times = actuals[1];
+      if(times.length() == 1) {
+        int n = count(times, "times");
+        checkLength((long) length * n);
+        if(runElements.length == 1) {
+          runCounts[0] *= n;
+        } else {
+          int[] elements = new int[runElements.length * n];
+          int[] counts = new int[runElements.length * n];
+          for(int i=0; i!=elements.length; ++i) {
+            elements[i] = runElements[i % runElements.length];
+            counts[i] = runCounts[i % runElements.length];
+          }
+          runElements = elements;
+          runCounts = counts;
+        }
+      } else if(times.length() == length && times instanceof NumericExp) {
+        // each element of the result of each is repeated separately
+        runElements = new int[length];
+        runCounts = new int[length];
+        long total = 0;
+        for(int i=0; i!=length; ++i) {
+          runElements[i] = i / each;
+          runCounts[i] = count(((NumericExp) times).getDouble(i), "times");
+          total += runCounts[i];
+        }
+        checkLength(total);
+      } else {
+        throw new EvalException("invalid '%s' argument", "times");
+      }
+    }
+    return new EvalResult(build(x, runElements, runCounts));
+  }
+
+  /**
+   * Matches arguments to {@code FORMALS}, first by exact tag and then by position,
+   * and evaluates them
+   */
+  private SEXP[] matchArguments(EnvExp rho, NillOrListExp args) {
+    SEXP[] actuals = new SEXP[FORMALS.length];
+    for(ListExp node : ListExp.listNodes(args)) {
+      if(node.hasTag()) {
+        String name = ((SymbolExp) node.getTag()).getPrintName();
+        int formal = Arrays.asList(FORMALS).indexOf(name);
+        if(formal == -1) {
+          throw new EvalException("unused argument(s) (%s)", name);
+        }
+        actuals[formal] = node.getValue();
+      }
+    }
+    int formal = 0;
+    for(ListExp node : ListExp.listNodes(args)) {
+      if(!node.hasTag()) {
+        while(formal < FORMALS.length && actuals[formal] != null) {
+          formal++;
+        }
+        if(formal == FORMALS.length) {
+          throw new EvalException("unused argument(s)");
+        }
+        actuals[formal] = node.getValue();
+      }
+    }
+    for(int i=0; i!=actuals.length; ++i) {
+      if(actuals[i] != null) {
+        actuals[i] = actuals[i].evalToExp(rho);
+      }
+    }
+    return actuals;
+  }
+
+  /**
+   * @throws EvalException if the result would be longer than a vector can be
+   */
+  private static int checkLength(long length) {
+    if(length > Integer.MAX_VALUE) {
+      throw new EvalException("result would be too long a vector");
+    }
+    return (int) length;
+  }
+
+  private boolean isNA(SEXP exp) {
+    return exp instanceof NumericExp && exp.length() == 1 && ((NumericExp) exp).isNA(0);
+  }
+
+  private int count(SEXP exp, String argumentName) {
+    return count(exp.length() == 1 ? exp.asReal() : RealExp.NA, argumentName);
+  }
+
+  private int count(double value, String argumentName) {
+    if(Double.isNaN(value) || value < 0) {
+      throw new EvalException("invalid '%s' argument", argumentName);
+    }
+    return (int) value;
+  }
+
+  private SEXP build(SEXP x, int[] runElements, int[] runCounts) {
+    if(x instanceof IntExp) {
+      int[] values = new int[runElements.length];
+      for(int i=0; i!=values.length; ++i) {
+        values[i] = ((IntExp) x).get(runElements[i]);
+      }
+      return withNoNA((NumericExp) x, RunLengthIntExp.fromRuns(values, runCounts));
+    }
+    long length = 0;
+    for(int count : runCounts) {
+      length += count;
+    }
+    int[] elements = new int[checkLength(length)];
+    for(int run=0, i=0; run!=runElements.length; ++run) {
+      Arrays.fill(elements, i, i + runCounts[run], runElements[run]);
+      i += runCounts[run];
+    }
+    return expand(x, elements);
+  }
+
+  /**
+   * @return a vector of the same type as {@code x} containing
+   * the elements of {@code x} at the given (zero-based) indices, or {@code NA} where
+   * the index is {@code NA_ELEMENT}
+   */
+  private SEXP expand(SEXP x, int[] elements) {
+    if(x instanceof StringExp) {
+      String[] values = new String[elements.length];
+      for(int i=0; i!=values.length; ++i) {
+        values[i] = elements[i] == NA_ELEMENT ? null : ((StringExp) x).get(elements[i]);
+      }
+      return DictionaryStringExp.encode(values);
+
+    } else if(x instanceof RealExp) {
+      double[] values = new double[elements.length];
+      for(int i=0; i!=values.length; ++i) {
+        values[i] = elements[i] == NA_ELEMENT ? RealExp.NA : ((RealExp) x).get(elements[i]);
+      }
+      return withNoNA((NumericExp) x, RealExp.compress(values));
+
+    } else {
+      int[] values = new int[elements.length];
+      for(int i=0; i!=values.length; ++i) {
+        values[i] = elements[i] == NA_ELEMENT ? IntExp.NA : ((NumericExp) x).getInt(elements[i]);
+      }
+      return x instanceof LogicalExp ? new LogicalExp(values) : withNoNA((NumericExp) x, IntExp.compress(values));
+    }
+  }
+
+  /**
+   * Repeating elements introduces no {@code NA}s, so a result built from a vector
+   * known to have none has none either. An empty vector may be known to have no
+   * {@code NA}s, but the {@code NA}s padding it to {@code length.out} are not elements of it.
+   */
+  private static RealExp withNoNA(NumericExp x, RealExp result) {
+    if(x.isKnownNoNA() && x.length() != 0) {
+      result.declareNoNA();
+    }
+    return result;
+  }
+
+  private static IntExp withNoNA(NumericExp x, IntExp result) {
+    if(x.isKnownNoNA() && x.length() != 0) {
+      result.declareNoNA();
+    }
+    return result;
+  }
+}
@@ -39,6 +39,8 @@ public class WhileStatement extends PrimitiveFunction {
 
       } catch(BreakException e) {
         break;
+      } catch(NextException e) {
+        // continue with the condition
       }
     }
     return EvalResult.NON_PRINTING_NULL;
@@ -0,0 +1,99 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.io;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PrimitiveFunction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+/**
+ * Maps a file of raw binary numbers into memory as a vector:
+ * {@code mmap(file, what = "double", endian = "little")}.
+ *
+ * <p>The vector is backed by the mapped file rather than the Java heap,
+ * so files larger than the heap can be used in arithmetic.
+ */
+public class MapFile extends PrimitiveFunction {
+
+  private static final String FORMALS[] = { "file", "what", "endian" };
+
+  @Override
+  public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+    String actuals[] = new String[] { null, "double", "little" };
+
+    int position = 0;
+    for(ListExp node : ListExp.listNodes(args)) {
+      int index = node.hasTag() ? indexOfFormal((SymbolExp) node.getTag()) : position++;
+      if(index >= FORMALS.length) {
+        throw new EvalException("unused argument(s)");
+      }
+      actuals[index] = stringArgument(FORMALS[index], node.getValue());
+    }
+    if(actuals[0] == null) {
+      throw new EvalException("argument \"file\" is missing, with no default");
+    }
+
+    File file = new File(actuals[0]);
+    ByteOrder order = byteOrder(actuals[2]);
+    try {
+      if(actuals[1].equals("double") || actuals[1].equals("numeric")) {
+        return new EvalResult(RealBufferExp.map(file, order));
+      } else if(actuals[1].equals("integer") || actuals[1].equals("int")) {
+        return new EvalResult(IntBufferExp.map(file, order));
+      } else {
+        throw new EvalException("invalid 'what' argument");
+      }
+    } catch (IOException e) {
+      throw new EvalException(call, e, "cannot open file '%s': %s", actuals[0], e.getMessage());
+    }
+  }
+
+  private int indexOfFormal(SymbolExp tag) {
+    for(int i=0; i!=FORMALS.length; ++i) {
+      if(FORMALS[i].equals(tag.getPrintName())) {
+        return i;
+      }
+    }
+    throw new EvalException("unused argument(s) (%s)", tag.getPrintName());
+  }
+
+  private String stringArgument(String name, SEXP value) {
+    if(!(value instanceof StringExp) || value.length() != 1) {
+      throw new EvalException("invalid '%s' argument", name);
+    }
+    return ((StringExp) value).get(0);
+  }
+
+  private ByteOrder byteOrder(String endian) {
+    if(endian.equals("little")) {
+      return ByteOrder.LITTLE_ENDIAN;
+    } else if(endian.equals("big")) {
+      return ByteOrder.BIG_ENDIAN;
+    } else {
+      throw new EvalException("invalid 'endian' argument");
+    }
+  }
+}
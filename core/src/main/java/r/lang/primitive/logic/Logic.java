@@ -0,0 +1,190 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.logic;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PrimitiveFunction;
+import r.lang.primitive.PureBinaryFunction;
+import r.lang.primitive.PureUnaryFunction;
+
+/**
+ * The logical operators and reductions. These work on the bit planes of
+ * {@link LogicalExp}, 64 elements at a time.
+ */
+public class Logic {
+
+  protected Logic() {
+  }
+
+  /**
+   * Coerces the operand of a logical operator to a {@code LogicalExp}
+   */
+  static LogicalExp asLogicalVector(SEXP exp) {
+    if(exp instanceof LogicalExp) {
+      return (LogicalExp) exp;
+    } else if(exp instanceof NumericExp) {
+      NumericExp x = (NumericExp) exp;
+      LogicalExp result = LogicalExp.ofLength(x.length());
+      for(int i=0; i!=x.length(); ++i) {
+        if(x.isNA(i)) {
+          result.set(i, IntExp.NA);
+        } else {
+          result.set(i, x.getDouble(i) == 0 ? 0 : 1);
+        }
+      }
+      return result;
+    } else {
+      throw new EvalException("operations are possible only for numeric, logical or complex types");
+    }
+  }
+
+  /**
+   * @return a vector of length {@code length} containing the elements of {@code x} recycled
+   */
+  static LogicalExp recycle(LogicalExp x, int length) {
+    if(x.length() == length) {
+      return x;
+    }
+    LogicalExp result = LogicalExp.ofLength(length);
+    for(int i=0; i!=length; ++i) {
+      result.set(i, x.get(i % x.length()));
+    }
+    return result;
+  }
+
+  private static abstract class BinaryLogicalOperator extends PureBinaryFunction {
+
+    @Override
+    public final EvalResult apply(SEXP arg0, SEXP arg1) {
+      LogicalExp x = asLogicalVector(arg0);
+      LogicalExp y = asLogicalVector(arg1);
+      if(x.length() == 0 || y.length() == 0) {
+        return new EvalResult(LogicalExp.ofLength(0));
+      }
+      int length = Math.max(x.length(), y.length());
+      if(length % x.length() != 0 || length % y.length() != 0) {
+        Warning.warning("longer object length is not a multiple of shorter object length");
+      }
+      return new EvalResult(apply(recycle(x, length), recycle(y, length)));
+    }
+
+    protected abstract LogicalExp apply(LogicalExp x, LogicalExp y);
+  }
+
+  public static class And extends BinaryLogicalOperator {
+    @Override
+    protected LogicalExp apply(LogicalExp x, LogicalExp y) {
+      return x.and(y);
+    }
+  }
+
+  public static class Or extends BinaryLogicalOperator {
+    @Override
+    protected LogicalExp apply(LogicalExp x, LogicalExp y) {
+      return x.or(y);
+    }
+  }
+
+  public static class Not extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP argument) {
+      return new EvalResult(asLogicalVector(argument).not());
+    }
+  }
+
+  private static abstract class Reduction extends PrimitiveFunction {
+
+    @Override
+    public final EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+      boolean naRm = false;
+      for(ListExp node : ListExp.listNodes(args)) {
+        if(isNaRm(node)) {
+          naRm = node.getValue().asLogical() == Logical.TRUE;
+        }
+      }
+
+      Logical result = identity();
+      for(ListExp node : ListExp.listNodes(args)) {
+        if(!isNaRm(node) && node.getValue() != NilExp.INSTANCE) {
+          Logical x = reduce(asLogicalVector(node.getValue()));
+          if(x == Logical.NA && naRm) {
+            continue;
+          }
+          if(x != identity()) {
+            if(x == Logical.NA) {
+              result = Logical.NA;
+            } else {
+              return new EvalResult(new LogicalExp(x));
+            }
+          }
+        }
+      }
+      return new EvalResult(new LogicalExp(result));
+    }
+
+    private boolean isNaRm(ListExp node) {
+      return node.hasTag() && ((SymbolExp) node.getTag()).getPrintName().equals("na.rm");
+    }
+
+    /**
+     * @return the result of reducing no arguments
+     */
+    protected abstract Logical identity();
+
+    protected abstract Logical reduce(LogicalExp x);
+  }
+
+  public static class All extends Reduction {
+    @Override
+    protected Logical identity() {
+      return Logical.TRUE;
+    }
+
+    @Override
+    protected Logical reduce(LogicalExp x) {
+      return x.all();
+    }
+  }
+
+  public static class Any extends Reduction {
+    @Override
+    protected Logical identity() {
+      return Logical.FALSE;
+    }
+
+    @Override
+    protected Logical reduce(LogicalExp x) {
+      return x.any();
+    }
+  }
+
+  public static class Which extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP argument) {
+      if(!(argument instanceof LogicalExp)) {
+        throw new EvalException("argument to 'which' is not logical");
+      }
+      return new EvalResult(((LogicalExp) argument).which());
+    }
+  }
+}
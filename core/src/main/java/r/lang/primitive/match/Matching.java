@@ -0,0 +1,333 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.match;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PrimitiveFunction;
+import r.lang.primitive.TenaryFunction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash-based matching of vector elements: {@code match}, {@code duplicated},
+ * {@code unique} and {@code anyDuplicated}.
+ *
+ * <p>Elements of character vectors are {@link StringCache} instances, so they
+ * are hashed and compared by identity rather than by their contents. Dictionary-encoded
+ * vectors are matched once per distinct value and then expanded through their codes.
+ */
+public class Matching {
+
+  protected Matching() {
+  }
+
+  /**
+   * The key of {@code NaN} elements, which R keeps distinct from {@code NA}
+   */
+  private static final Object NAN_KEY = new Object();
+
+  /**
+   * @return the element of {@code x} at {@code i} in a form suitable as a hash key:
+   * the cached string itself for character vectors, a {@code Double} for numeric vectors,
+   * {@code NAN_KEY} for {@code NaN} or {@code null} for {@code NA}
+   */
+  static Object key(SEXP x, int i) {
+    if(x instanceof StringExp) {
+      return ((StringExp) x).get(i);
+    } else {
+      NumericExp numeric = (NumericExp) x;
+      if(numeric.isNA(i)) {
+        return x instanceof RealExp && !isNA(((RealExp) x).get(i)) ? NAN_KEY : null;
+      }
+      // Double.equals() compares bits, so -0 is folded into 0 by adding 0
+      return numeric.getDouble(i) + 0.0;
+    }
+  }
+
+  /**
+   * @return true if {@code value} is R's {@code NA_real_} rather than another {@code NaN}:
+   * like R, we only check the low word, which arithmetic preserves
+   */
+  private static boolean isNA(double value) {
+    return (int) Double.doubleToRawLongBits(value) == (int) Double.doubleToRawLongBits(RealExp.NA);
+  }
+
+  static <V> Map<Object, V> newMap(SEXP x) {
+    if(x instanceof StringExp) {
+      return new IdentityHashMap<Object, V>();
+    } else {
+      return new HashMap<Object, V>();
+    }
+  }
+
+  static void checkVector(SEXP x, String functionName) {
+    if(!(x instanceof StringExp) && !(x instanceof NumericExp)) {
+      throw new EvalException("%s() applies only to vectors", functionName);
+    }
+  }
+
+  static void checkComparable(SEXP x, SEXP table) {
+    if((x instanceof StringExp) != (table instanceof StringExp)) {
+      throw new EvalException("matching character and non-character vectors is not yet implemented");
+    }
+  }
+
+  /**
+   * @return the keys of the elements of {@code incomparables}, which are never matched,
+   * or an empty set if {@code incomparables} is {@code NULL} or {@code FALSE}
+   */
+  static Set<Object> incomparables(SEXP x, SEXP incomparables) {
+    Set<Object> keys = new HashSet<Object>();
+    if(incomparables == NilExp.INSTANCE ||
+        (incomparables instanceof LogicalExp && incomparables.length() == 1 &&
+            incomparables.asLogical() == Logical.FALSE)) {
+      return keys;
+    }
+    checkVector(incomparables, "incomparables");
+    checkComparable(x, incomparables);
+    for(int i=0; i!=incomparables.length(); ++i) {
+      keys.add(key(incomparables, i));
+    }
+    return keys;
+  }
+
+  /**
+   * @return for each element of {@code x}, whether an equal element occurs earlier
+   * (or later, if {@code fromLast} is true) in the vector
+   */
+  static boolean[] duplicated(SEXP x, SEXP incomparables, boolean fromLast) {
+    checkVector(x, "duplicated");
+    Set<Object> excluded = incomparables(x, incomparables);
+    if(x instanceof DictionaryStringExp) {
+      return duplicatedCodes((DictionaryStringExp) x, excluded, fromLast);
+    }
+    if(x instanceof RunLengthIntExp) {
+      return duplicatedRuns((RunLengthIntExp) x, excluded, fromLast);
+    }
+    Map<Object, Boolean> seen = newMap(x);
+    boolean[] result = new boolean[x.length()];
+    for(int n=0; n!=x.length(); ++n) {
+      int i = fromLast ? x.length() - n - 1 : n;
+      Object key = key(x, i);
+      if(!excluded.contains(key)) {
+        result[i] = seen.put(key, Boolean.TRUE) != null;
+      }
+    }
+    return result;
+  }
+
+  private static boolean[] duplicatedCodes(DictionaryStringExp x, Set<Object> excluded, boolean fromLast) {
+    boolean[] seen = new boolean[x.getDictionarySize()];
+    for(int code=0; code!=seen.length; ++code) {
+      if(excluded.contains(x.getDictionaryEntry(code))) {
+        seen[code] = true;
+      }
+    }
+    boolean[] comparable = new boolean[seen.length];
+    for(int code=0; code!=seen.length; ++code) {
+      comparable[code] = !seen[code];
+    }
+    boolean[] result = new boolean[x.length()];
+    for(int n=0; n!=x.length(); ++n) {
+      int i = fromLast ? x.length() - n - 1 : n;
+      int code = x.getCode(i);
+      if(comparable[code]) {
+        result[i] = seen[code];
+        seen[code] = true;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Only the first element of each run (or the last, if {@code fromLast} is true)
+   * needs to be looked up: the rest are always duplicates.
+   */
+  private static boolean[] duplicatedRuns(RunLengthIntExp x, Set<Object> excluded, boolean fromLast) {
+    Set<Object> seen = new HashSet<Object>();
+    boolean[] result = new boolean[x.length()];
+    for(int n=0; n!=x.getRunCount(); ++n) {
+      int run = fromLast ? x.getRunCount() - n - 1 : n;
+      Object key = key(x, x.getRunStart(run));
+      if(!excluded.contains(key)) {
+        Arrays.fill(result, x.getRunStart(run), x.getRunEnd(run), true);
+        result[fromLast ? x.getRunEnd(run) - 1 : x.getRunStart(run)] = !seen.add(key);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the elements of {@code x} for which {@code keep} is true,
+   * as a vector of the same type
+   */
+  static SEXP select(SEXP x, boolean[] keep) {
+    int count = 0;
+    for(boolean k : keep) {
+      if(k) {
+        count++;
+      }
+    }
+    if(x instanceof StringExp) {
+      String[] values = new String[count];
+      for(int i=0, j=0; i!=keep.length; ++i) {
+        if(keep[i]) {
+          values[j++] = ((StringExp) x).get(i);
+        }
+      }
+      return StringExp.wrap(values);
+    } else if(x instanceof RealExp) {
+      double[] values = new double[count];
+      for(int i=0, j=0; i!=keep.length; ++i) {
+        if(keep[i]) {
+          values[j++] = ((RealExp) x).get(i);
+        }
+      }
+      return RealExp.wrap(values);
+    } else {
+      int[] values = new int[count];
+      for(int i=0, j=0; i!=keep.length; ++i) {
+        if(keep[i]) {
+          values[j++] = ((NumericExp) x).getInt(i);
+        }
+      }
+      return x instanceof LogicalExp ? new LogicalExp(values) : IntExp.wrap(values);
+    }
+  }
+
+  public static class Match extends PrimitiveFunction {
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+      return new EvalResult(match(args.get(0), args.get(1), nomatch(args.get(2)), args.get(3)));
+    }
+
+    private int nomatch(SEXP exp) {
+      if(exp instanceof NumericExp && exp.length() > 0 && !((NumericExp) exp).isNA(0)) {
+        return ((NumericExp) exp).getInt(0);
+      }
+      return IntExp.NA;
+    }
+
+    static IntExp match(SEXP x, SEXP table, int nomatch, SEXP incomparables) {
+      checkVector(x, "match");
+      checkVector(table, "match");
+      checkComparable(x, table);
+
+      Set<Object> excluded = incomparables(x, incomparables);
+      Map<Object, Integer> positions = positions(table, excluded);
+      if(x instanceof DictionaryStringExp) {
+        return matchCodes((DictionaryStringExp) x, positions, nomatch);
+      }
+
+      int[] result = new int[x.length()];
+      for(int i=0; i!=x.length(); ++i) {
+        Integer position = positions.get(key(x, i));
+        result[i] = position == null ? nomatch : position;
+      }
+      return IntExp.wrap(result);
+    }
+
+    /**
+     * @return the 1-based position of the first occurrence of each distinct value in {@code table}
+     */
+    private static Map<Object, Integer> positions(SEXP table, Set<Object> excluded) {
+      Map<Object, Integer> positions = newMap(table);
+      if(table instanceof DictionaryStringExp) {
+        DictionaryStringExp encoded = (DictionaryStringExp) table;
+        int remaining = encoded.getDictionarySize();
+        boolean[] found = new boolean[remaining];
+        for(int i=0; i!=encoded.length() && remaining > 0; ++i) {
+          int code = encoded.getCode(i);
+          if(!found[code]) {
+            found[code] = true;
+            remaining--;
+            String key = encoded.getDictionaryEntry(code);
+            if(!excluded.contains(key)) {
+              positions.put(key, i + 1);
+            }
+          }
+        }
+      } else {
+        for(int i=table.length()-1; i>=0; --i) {
+          Object key = key(table, i);
+          if(!excluded.contains(key)) {
+            positions.put(key, i + 1);
+          }
+        }
+      }
+      return positions;
+    }
+
+    private static IntExp matchCodes(DictionaryStringExp x, Map<Object, Integer> positions, int nomatch) {
+      int[] codePositions = new int[x.getDictionarySize()];
+      for(int code=0; code!=codePositions.length; ++code) {
+        Integer position = positions.get(x.getDictionaryEntry(code));
+        codePositions[code] = position == null ? nomatch : position;
+      }
+      int[] result = new int[x.length()];
+      for(int i=0; i!=result.length; ++i) {
+        result[i] = codePositions[x.getCode(i)];
+      }
+      return IntExp.wrap(result);
+    }
+  }
+
+  public static class Duplicated extends TenaryFunction {
+    @Override
+    protected EvalResult apply(LangExp call, EnvExp rho, SEXP x, SEXP incomparables, SEXP fromLast) {
+      return new EvalResult(new LogicalExp(
+          duplicated(x, incomparables, fromLast.asLogical() == Logical.TRUE)));
+    }
+  }
+
+  public static class Unique extends TenaryFunction {
+    @Override
+    protected EvalResult apply(LangExp call, EnvExp rho, SEXP x, SEXP incomparables, SEXP fromLast) {
+      boolean[] keep = duplicated(x, incomparables, fromLast.asLogical() == Logical.TRUE);
+      for(int i=0; i!=keep.length; ++i) {
+        keep[i] = !keep[i];
+      }
+      return new EvalResult(select(x, keep));
+    }
+  }
+
+  public static class AnyDuplicated extends TenaryFunction {
+    @Override
+    protected EvalResult apply(LangExp call, EnvExp rho, SEXP x, SEXP incomparables, SEXP fromLast) {
+      boolean reverse = fromLast.asLogical() == Logical.TRUE;
+      boolean[] duplicated = duplicated(x, incomparables, reverse);
+      for(int n=0; n!=duplicated.length; ++n) {
+        int i = reverse ? duplicated.length - n - 1 : n;
+        if(duplicated[i]) {
+          return new EvalResult(new IntExp(i + 1));
+        }
+      }
+      return new EvalResult(new IntExp(0));
+    }
+  }
+}
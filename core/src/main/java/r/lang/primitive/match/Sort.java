@@ -0,0 +1,174 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.match;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PureBinaryFunction;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * {@code .Internal(sort(x, decreasing))}. Dictionary-encoded character vectors are
+ * sorted by ordering their dictionary and then counting the codes, so the
+ * result keeps the encoding of {@code x}.
+ */
+public class Sort extends PureBinaryFunction {
+
+  /**
+   * Orders strings with {@code NA} last
+   */
+  private static final Comparator<String> STRING_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String a, String b) {
+      if(a == b) {
+        return 0;
+      } else if(a == null) {
+        return 1;
+      } else if(b == null) {
+        return -1;
+      } else {
+        return a.compareTo(b);
+      }
+    }
+  };
+
+  @Override
+  public EvalResult apply(SEXP x, SEXP decreasingArgument) {
+    boolean decreasing = decreasingArgument.asLogical() == Logical.TRUE;
+    if(x instanceof DictionaryStringExp) {
+      return new EvalResult(sortCodes((DictionaryStringExp) x, decreasing));
+
+    } else if(x instanceof StringExp) {
+      String[] values = new String[x.length()];
+      for(int i=0; i!=values.length; ++i) {
+        values[i] = ((StringExp) x).get(i);
+      }
+      Arrays.sort(values, STRING_ORDER);
+      if(decreasing) {
+        reverse(values);
+      }
+      return new EvalResult(StringExp.wrap(values));
+
+    } else if(x instanceof RealExp) {
+      if(((RealExp) x).isKnownSorted() && !decreasing && !x.hasAttributes()) {
+        return new EvalResult(x);
+      }
+      double[] values = new double[x.length()];
+      ((RealExp) x).copyTo(values, 0);
+      Arrays.sort(values);
+      // NaNs are sorted to the end, so the result is free of them if its last element is
+      boolean noNA = values.length == 0 || !Double.isNaN(values[values.length - 1]);
+      if(decreasing) {
+        for(int i=0, j=values.length-1; i<j; ++i, --j) {
+          double tmp = values[i];
+          values[i] = values[j];
+          values[j] = tmp;
+        }
+      }
+      RealExp result = RealExp.wrap(values);
+      if(noNA && !decreasing) {
+        result.declareSorted();
+      } else if(noNA) {
+        result.declareNoNA();
+      }
+      return new EvalResult(result);
+
+    } else if(x instanceof IntExp || x instanceof LogicalExp) {
+      NumericExp numeric = (NumericExp) x;
+      if(x instanceof IntExp && numeric.isKnownSorted() && !decreasing && !x.hasAttributes()) {
+        return new EvalResult(x);
+      }
+      int[] values = new int[numeric.length()];
+      for(int i=0; i!=values.length; ++i) {
+        values[i] = numeric.getInt(i);
+      }
+      Arrays.sort(values);
+      // NA is the smallest int, so the result is free of them if its first element is
+      boolean noNA = values.length == 0 || values[0] != IntExp.NA;
+      if(decreasing) {
+        for(int i=0, j=values.length-1; i<j; ++i, --j) {
+          int tmp = values[i];
+          values[i] = values[j];
+          values[j] = tmp;
+        }
+      }
+      if(x instanceof LogicalExp) {
+        return new EvalResult(new LogicalExp(values));
+      }
+      IntExp result = IntExp.compress(values);
+      if(noNA && !decreasing) {
+        result.declareSorted();
+      } else if(noNA) {
+        result.declareNoNA();
+      }
+      return new EvalResult(result);
+
+    } else {
+      throw new EvalException("only atomic vectors can be sorted");
+    }
+  }
+
+  private static DictionaryStringExp sortCodes(DictionaryStringExp x, boolean decreasing) {
+    int dictionarySize = x.getDictionarySize();
+    String[] dictionary = new String[dictionarySize];
+    for(int code=0; code!=dictionarySize; ++code) {
+      dictionary[code] = x.getDictionaryEntry(code);
+    }
+
+    Integer[] order = new Integer[dictionarySize];
+    for(int code=0; code!=dictionarySize; ++code) {
+      order[code] = code;
+    }
+    final String[] entries = dictionary;
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return STRING_ORDER.compare(entries[a], entries[b]);
+      }
+    });
+    if(decreasing) {
+      reverse(order);
+    }
+
+    int[] counts = new int[dictionarySize];
+    for(int i=0; i!=x.length(); ++i) {
+      counts[x.getCode(i)]++;
+    }
+    int[] codes = new int[x.length()];
+    int offset = 0;
+    for(Integer code : order) {
+      Arrays.fill(codes, offset, offset + counts[code], code);
+      offset += counts[code];
+    }
+    return new DictionaryStringExp(dictionary, codes);
+  }
+
+  private static <T> void reverse(T[] values) {
+    for(int i=0, j=values.length-1; i<j; ++i, --j) {
+      T tmp = values[i];
+      values[i] = values[j];
+      values[j] = tmp;
+    }
+  }
+}
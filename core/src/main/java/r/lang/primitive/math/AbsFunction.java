@@ -27,4 +27,9 @@ public class AbsFunction extends UnaryMathFunction {
   public double apply(double value) {
     return Math.abs(value);
   }
+
+  @Override
+  protected boolean preservesNoNA() {
+    return true;
+  }
 }
@@ -21,46 +21,164 @@
 
 package r.lang.primitive.math;
 
-import r.lang.EvalResult;
-import r.lang.NumericExp;
-import r.lang.RealExp;
-import r.lang.SEXP;
+import r.lang.*;
 import r.lang.exception.EvalException;
-import r.lang.primitive.PureBinaryFunction;
+import r.lang.primitive.BinaryFunction;
 
-public abstract class BinaryMathFunction extends PureBinaryFunction {
+/**
+ * Element-wise arithmetic. Results are allocated from the evaluation's {@link BufferPool}.
+ * Operands are never returned to the pool, even when they are temporaries: an operand
+ * with {@code NAMED == 0} may still be held by a value which has not marked it.
+ */
+public abstract class BinaryMathFunction extends BinaryFunction {
 
   @Override
+  public final EvalResult apply(LangExp call, EnvExp rho, SEXP arg0, SEXP arg1) {
+    return apply(arg0, arg1, rho.getGlobalContext().getBufferPool());
+  }
+
   public EvalResult apply(SEXP arg0, SEXP arg1) {
-    double x[] = checkedCastToNumeric(arg0);
-    double y[] = checkedCastToNumeric(arg1);
-    int xlen = x.length;
-    int ylen = y.length;
-    int maxlen = Math.max(xlen, ylen);
-    int minlen = Math.min(xlen, ylen);
-    
-    if( maxlen % minlen != 0) {
+    return apply(arg0, arg1, BufferPool.UNPOOLED);
+  }
+
+  public EvalResult apply(SEXP arg0, SEXP arg1, BufferPool pool) {
+    if(arg0 instanceof ComplexExp || arg1 instanceof ComplexExp) {
+      return new EvalResult(applyComplex(checkedCastToComplex(arg0), checkedCastToComplex(arg1)));
+    }
+    NumericExp x = checkedCastToNumeric(arg0);
+    NumericExp y = checkedCastToNumeric(arg1);
+    long xlength = x.longLength();
+    long ylength = y.longLength();
+    long maxlength = Math.max(xlength, ylength);
+    long minlength = Math.min(xlength, ylength);
+
+    if( minlength == 0 ) {
+      return new EvalResult(RealExp.ofLength(0));
+    }
+    if( maxlength % minlength != 0) {
       throw new EvalException("longer object length is not a multiple of shorter object length");
     }
+    if( maxlength > Integer.MAX_VALUE ) {
+      return new EvalResult(applyLong(x, y, xlength, ylength, maxlength));
+    }
+    if(x instanceof SparseExp || y instanceof SparseExp) {
+      RealExp sparse = SparseMath.apply(this, x, y, (int) maxlength);
+      if(sparse != null) {
+        return new EvalResult(sparse);
+      }
+    }
 
-    RealExp result = RealExp.ofLength(Math.max(xlen, ylen));
-    for(int i=0; i!=result.length(); i++) {
+    int xlen = (int) xlength;
+    int ylen = (int) ylength;
+    int maxlen = (int) maxlength;
 
-      double xi = x[ i % xlen ];
-      double yi = y[ i % ylen ];
+    if(maxlen >= DeferredRealExp.MIN_DEFERRED_LENGTH) {
+      return new EvalResult(new DeferredRealExp.Binary(pool, this,
+          DeferredRealExp.capture(x), DeferredRealExp.capture(y), maxlen));
+    }
 
-      result.set(i, apply(xi, yi));
+    // Reuse the storage of a temporary operand, such as the result of
+    // x * 2 in x * 2 + 1. Each element is read before it is overwritten.
+    RealExp target = temporaryOperand(x, maxlen);
+    if(target == null) {
+      target = temporaryOperand(y, maxlen);
     }
+    double result[] = target == null ? pool.allocateDoubles(maxlen) : target.getTemporaryStorage();
+    if(xlen == ylen) {
+      for(int i=0; i!=maxlen; i++) {
+        result[i] = apply(x.getDouble(i), y.getDouble(i));
+      }
+    } else if(ylen == 1) {
+      double yi = y.getDouble(0);
+      for(int i=0; i!=maxlen; i++) {
+        result[i] = apply(x.getDouble(i), yi);
+      }
+    } else if(xlen == 1) {
+      double xi = x.getDouble(0);
+      for(int i=0; i!=maxlen; i++) {
+        result[i] = apply(xi, y.getDouble(i));
+      }
+    } else {
+      for(int i=0; i!=maxlen; i++) {
+        result[i] = apply(x.getDouble(i % xlen), y.getDouble(i % ylen));
+      }
+    }
+    return new EvalResult(target == null ? RealExp.wrap(result) : target);
+  }
 
-    return new EvalResult(result);
+  /**
+   * @return {@code operand} if its storage can be overwritten with the result
+   */
+  static RealExp temporaryOperand(NumericExp operand, int length) {
+    if(operand instanceof RealExp && operand.length() == length &&
+        ((RealExp) operand).getTemporaryStorage() != null) {
+      return (RealExp) operand;
+    }
+    return null;
+  }
+
+  /**
+   * Applies the function over operands of which at least one is a long vector,
+   * so the result cannot be held in a single array
+   */
+  private RealExp applyLong(NumericExp x, NumericExp y, long xlength, long ylength, long maxlength) {
+    SegmentedRealExp result = SegmentedRealExp.allocate(maxlength);
+    if(ylength == 1) {
+      double yi = y.getDouble(0);
+      for(long i=0; i!=maxlength; i++) {
+        result.set(i, apply(x.getDouble(i), yi));
+      }
+    } else if(xlength == 1) {
+      double xi = x.getDouble(0);
+      for(long i=0; i!=maxlength; i++) {
+        result.set(i, apply(xi, y.getDouble(i)));
+      }
+    } else {
+      for(long i=0; i!=maxlength; i++) {
+        result.set(i, apply(x.getDouble(i % xlength), y.getDouble(i % ylength)));
+      }
+    }
+    return result;
   }
 
   public abstract double apply(double x, double y);
 
-  private double[] checkedCastToNumeric(SEXP x) {
+  private ComplexExp applyComplex(ComplexExp x, ComplexExp y) {
+    int xlength = x.length();
+    int ylength = y.length();
+    int length = Math.max(xlength, ylength);
+    if(Math.min(xlength, ylength) == 0) {
+      return ComplexExp.ofLength(0);
+    }
+    if(length % Math.min(xlength, ylength) != 0) {
+      throw new EvalException("longer object length is not a multiple of shorter object length");
+    }
+    double result[] = new double[length * 2];
+    applyComplex(x.getInterleavedValues(), y.getInterleavedValues(), result);
+    return ComplexExp.wrap(result);
+  }
+
+  /**
+   * Applies this function element-wise to complex operands stored as interleaved
+   * (real, imaginary) pairs. The shorter operand is recycled to the length of {@code result}.
+   *
+   * @throws EvalException if this function is not defined for complex numbers
+   */
+  protected void applyComplex(double x[], double y[], double result[]) {
+    throw new EvalException("invalid operation on complex numbers");
+  }
+
+  private ComplexExp checkedCastToComplex(SEXP x) {
+    if(x instanceof ComplexExp) {
+      return (ComplexExp) x;
+    }
+    return ComplexExp.coerce(checkedCastToNumeric(x));
+  }
+
+  private NumericExp checkedCastToNumeric(SEXP x) {
     if(! (x instanceof NumericExp)) {
       throw new EvalException("non-numeric argument to binary operator");
     }
-    return ((NumericExp)x).asDoubleArray();
+    return (NumericExp)x;
   }
 }
@@ -26,4 +26,14 @@ public class Ceiling extends UnaryMathFunction {
   public double apply(double value) {
     return Math.ceil(value);
   }
+
+  @Override
+  protected boolean preservesNoNA() {
+    return true;
+  }
+
+  @Override
+  protected boolean isNonDecreasing() {
+    return true;
+  }
 }
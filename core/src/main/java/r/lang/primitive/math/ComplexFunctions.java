@@ -0,0 +1,131 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import r.lang.ComplexExp;
+import r.lang.EvalResult;
+import r.lang.NumericExp;
+import r.lang.RealExp;
+import r.lang.SEXP;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PureUnaryFunction;
+
+/**
+ * The complex number functions {@code Re}, {@code Im}, {@code Mod}, {@code Arg}
+ * and {@code Conj}. Each runs directly over the interleaved (real, imaginary) storage
+ * of a {@link ComplexExp}; numeric arguments are treated as having a zero imaginary part.
+ */
+public class ComplexFunctions {
+
+  private abstract static class ComplexFunction extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP argument) {
+      SEXP result;
+      if(argument instanceof ComplexExp) {
+        result = apply(((ComplexExp) argument).getInterleavedValues());
+      } else if(argument instanceof NumericExp) {
+        result = apply((NumericExp) argument);
+      } else {
+        throw new EvalException("non-numeric argument to function");
+      }
+      if(result != argument && argument.hasAttributes()) {
+        result.copyAttributesFrom(argument);
+      }
+      return new EvalResult(result);
+    }
+
+    protected abstract SEXP apply(double z[]);
+
+    protected abstract SEXP apply(NumericExp x);
+  }
+
+  /**
+   * Base for the functions which map each complex element to a double
+   */
+  private abstract static class ToRealFunction extends ComplexFunction {
+    @Override
+    protected SEXP apply(double[] z) {
+      double result[] = new double[z.length / 2];
+      for(int i=0; i!=result.length; ++i) {
+        result[i] = apply(z[2 * i], z[2 * i + 1]);
+      }
+      return RealExp.wrap(result);
+    }
+
+    @Override
+    protected SEXP apply(NumericExp x) {
+      double result[] = new double[x.length()];
+      for(int i=0; i!=result.length; ++i) {
+        double value = x.getDouble(i);
+        result[i] = Double.isNaN(value) ? value : apply(value, 0);
+      }
+      return RealExp.wrap(result);
+    }
+
+    protected abstract double apply(double real, double imaginary);
+  }
+
+  public static class Re extends ToRealFunction {
+    @Override
+    protected double apply(double real, double imaginary) {
+      return real;
+    }
+  }
+
+  public static class Im extends ToRealFunction {
+    @Override
+    protected double apply(double real, double imaginary) {
+      return imaginary;
+    }
+  }
+
+  public static class Mod extends ToRealFunction {
+    @Override
+    protected double apply(double real, double imaginary) {
+      return Math.hypot(real, imaginary);
+    }
+  }
+
+  public static class Arg extends ToRealFunction {
+    @Override
+    protected double apply(double real, double imaginary) {
+      return Math.atan2(imaginary, real);
+    }
+  }
+
+  public static class Conj extends ComplexFunction {
+    @Override
+    protected SEXP apply(double[] z) {
+      double result[] = new double[z.length];
+      for(int i=0; i!=z.length; i+=2) {
+        result[i] = z[i];
+        result[i+1] = -z[i+1];
+      }
+      return ComplexExp.wrap(result);
+    }
+
+    @Override
+    protected SEXP apply(NumericExp x) {
+      return (SEXP) x;
+    }
+  }
+}
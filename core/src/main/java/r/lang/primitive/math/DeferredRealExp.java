@@ -0,0 +1,258 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import r.lang.BufferPool;
+import r.lang.NumericExp;
+import r.lang.RealExp;
+import r.lang.SEXP;
+
+/**
+ * The deferred result of element-wise arithmetic on large vectors.
+ *
+ * <p>Rather than computing {@code (a - m) / s * w} one operator at a time, each
+ * pass allocating and filling a full vector, the math functions return nodes of a
+ * small expression DAG whose leaves are the operands. The first time an element
+ * is read, the whole DAG is evaluated in a single loop into one array, after which
+ * the node behaves as an ordinary {@code RealExp}.
+ *
+ * <p>Operands which are themselves deferred and unforced are evaluated inline,
+ * element by element. Deferred operands which are bound to a variable ({@code NAMED > 0})
+ * are forced before being used, so that they are only computed once.
+ */
+public abstract class DeferredRealExp extends RealExp {
+
+  /**
+   * Operations on shorter vectors are computed immediately
+   */
+  public static final int MIN_DEFERRED_LENGTH = 4096;
+
+  /**
+   * Operands nested more deeply than this are forced, bounding the recursion
+   * needed to compute an element
+   */
+  static final int MAX_DEPTH = 32;
+
+  private final int length;
+  private final int depth;
+
+  /**
+   * The pool from which the computed elements are allocated
+   */
+  private final BufferPool pool;
+
+  /**
+   * The computed elements, or {@code null} until the node is forced
+   */
+  private double[] values;
+
+  /**
+   * True if {@code values} may also be referenced by another vector
+   */
+  private boolean shared;
+
+  protected DeferredRealExp(BufferPool pool, int length, NumericExp... operands) {
+    this.pool = pool;
+    this.length = length;
+    int maxDepth = 0;
+    for(NumericExp operand : operands) {
+      maxDepth = Math.max(maxDepth, depthOf(operand));
+    }
+    this.depth = maxDepth + 1;
+    // accounted now for the elements it will hold once forced
+    allocated();
+  }
+
+  /**
+   * Prepares {@code operand} to be captured by a new node
+   *
+   * @return {@code operand}, forced first if it is a deferred node which should not
+   * be evaluated inline
+   */
+  static NumericExp capture(NumericExp operand) {
+    if(operand instanceof DeferredRealExp) {
+      DeferredRealExp deferred = (DeferredRealExp) operand;
+      if(deferred.getNamed() > 0 || deferred.depth >= MAX_DEPTH) {
+        deferred.force();
+      }
+    }
+    if(!isInline(operand)) {
+      // the node now holds a second reference to the operand, which
+      // must therefore no longer be modified in place
+      ((SEXP) operand).setNamed(2);
+    }
+    return operand;
+  }
+
+  private static boolean isInline(NumericExp operand) {
+    return operand instanceof DeferredRealExp && !((DeferredRealExp) operand).isForced();
+  }
+
+  private static int depthOf(NumericExp operand) {
+    return isInline(operand) ? ((DeferredRealExp) operand).depth : 0;
+  }
+
+  /**
+   * Reads element {@code i} of an operand, computing it inline
+   * if the operand is an unforced node
+   */
+  static double element(NumericExp operand, int i) {
+    if(isInline(operand)) {
+      return ((DeferredRealExp) operand).compute(i);
+    } else {
+      return operand.getDouble(i);
+    }
+  }
+
+  /**
+   * Computes element {@code i} from the operands
+   */
+  protected abstract double compute(int i);
+
+  /**
+   * Drops the references to the operands once the node has been forced
+   */
+  protected abstract void releaseOperands();
+
+  public boolean isForced() {
+    return values != null;
+  }
+
+  /**
+   * Evaluates all elements of the DAG rooted at this node in a single pass
+   */
+  public void force() {
+    if(values == null) {
+      double[] result = pool.allocateDoubles(length);
+      for(int i=0; i!=length; ++i) {
+        result[i] = compute(i);
+      }
+      values = result;
+      releaseOperands();
+    }
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public double get(int i) {
+    force();
+    return values[i];
+  }
+
+  @Override
+  public void set(int i, double value) {
+    force();
+    if(shared) {
+      values = values.clone();
+      shared = false;
+    }
+    values[i] = value;
+    elementChanged(Double.isNaN(value));
+  }
+
+  @Override
+  public RealExp duplicate() {
+    force();
+    shared = true;
+    RealExp copy = share(values);
+    copy.copyPropertiesFrom(this);
+    return copy;
+  }
+
+  @Override
+  public double[] asDoubleArray() {
+    force();
+    shared = true;
+    return values;
+  }
+
+  @Override
+  public double[] getTemporaryStorage() {
+    if(values != null && !shared && getNamed() == 0) {
+      // the caller is about to overwrite the elements
+      elementChanged(true);
+      return values;
+    } else {
+      return null;
+    }
+  }
+
+  static class Binary extends DeferredRealExp {
+    private final BinaryMathFunction function;
+    private NumericExp x;
+    private NumericExp y;
+    private final int xlen;
+    private final int ylen;
+
+    Binary(BufferPool pool, BinaryMathFunction function, NumericExp x, NumericExp y, int length) {
+      super(pool, length, x, y);
+      this.function = function;
+      this.x = x;
+      this.y = y;
+      this.xlen = x.length();
+      this.ylen = y.length();
+    }
+
+    @Override
+    protected double compute(int i) {
+      return function.apply(
+          element(x, xlen == length() ? i : i % xlen),
+          element(y, ylen == length() ? i : i % ylen));
+    }
+
+    @Override
+    protected void releaseOperands() {
+      x = null;
+      y = null;
+    }
+  }
+
+  static class Unary extends DeferredRealExp {
+    private final UnaryMathFunction function;
+    private NumericExp x;
+
+    private final boolean noNA;
+
+    Unary(BufferPool pool, UnaryMathFunction function, NumericExp x) {
+      super(pool, x.length(), x);
+      this.function = function;
+      this.x = x;
+      this.noNA = x.isKnownNoNA();
+      function.declareResultProperties(x, this);
+    }
+
+    @Override
+    protected double compute(int i) {
+      double value = element(x, i);
+      return noNA || !Double.isNaN(value) ? function.apply(value) : value;
+    }
+
+    @Override
+    protected void releaseOperands() {
+      x = null;
+    }
+  }
+}
@@ -27,4 +27,28 @@ public class Divide extends BinaryMathFunction {
   public double apply(double x, double y) {
     return x / y;
   }
+
+  /**
+   * Uses Smith's algorithm, which avoids the overflow of computing {@code |y|^2} directly
+   */
+  @Override
+  protected void applyComplex(double[] x, double[] y, double[] result) {
+    for(int i=0, xi=0, yi=0; i!=result.length; i+=2) {
+      double a = x[xi], b = x[xi+1];
+      double c = y[yi], d = y[yi+1];
+      if(Math.abs(c) >= Math.abs(d)) {
+        double ratio = d / c;
+        double denominator = c + d * ratio;
+        result[i] = (a + b * ratio) / denominator;
+        result[i+1] = (b - a * ratio) / denominator;
+      } else {
+        double ratio = c / d;
+        double denominator = d + c * ratio;
+        result[i] = (a * ratio + b) / denominator;
+        result[i+1] = (b * ratio - a) / denominator;
+      }
+      xi += 2; if(xi == x.length) { xi = 0; }
+      yi += 2; if(yi == y.length) { yi = 0; }
+    }
+  }
 }
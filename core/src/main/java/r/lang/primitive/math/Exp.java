@@ -26,4 +26,26 @@ public class Exp extends UnaryMathFunction {
   public double apply(double value) {
     return Math.exp(value);
   }
+
+  /**
+   * exp(a + bi) = exp(a) * (cos(b) + i sin(b))
+   */
+  @Override
+  protected void applyComplex(double[] x, double[] result) {
+    for(int i=0; i!=x.length; i+=2) {
+      double modulus = Math.exp(x[i]);
+      result[i] = modulus * Math.cos(x[i+1]);
+      result[i+1] = modulus * Math.sin(x[i+1]);
+    }
+  }
+
+  @Override
+  protected boolean preservesNoNA() {
+    return true;
+  }
+
+  @Override
+  protected boolean isNonDecreasing() {
+    return true;
+  }
 }
@@ -26,4 +26,14 @@ public class Floor extends UnaryMathFunction {
   public double apply(double value) {
     return Math.floor(value);
   }
+
+  @Override
+  protected boolean preservesNoNA() {
+    return true;
+  }
+
+  @Override
+  protected boolean isNonDecreasing() {
+    return true;
+  }
 }
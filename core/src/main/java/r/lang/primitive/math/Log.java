@@ -0,0 +1,86 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PrimitiveFunction;
+
+/**
+ * {@code log(x, base = exp(1))}, for both numeric and complex {@code x}.
+ *
+ * <p>This is a special so that {@code base} can be matched by name; the logarithm
+ * itself is computed as the natural logarithm divided by {@code log(base)}.
+ */
+public class Log extends PrimitiveFunction {
+
+  private static final NaturalLog NATURAL_LOG = new NaturalLog();
+  private static final Divide DIVIDE = new Divide();
+
+  @Override
+  public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+    SEXP x = null;
+    SEXP base = null;
+    for(ListExp node : ListExp.listNodes(args)) {
+      SEXP value = node.getValue().evalToExp(rho);
+      String name = node.hasTag() ? ((SymbolExp) node.getTag()).getPrintName() : null;
+      if("x".equals(name) || (name == null && x == null)) {
+        x = value;
+      } else if("base".equals(name) || (name == null && base == null)) {
+        base = value;
+      } else {
+        throw new EvalException("unused argument(s) (%s)", name == null ? value.toString() : name);
+      }
+    }
+    if(x == null) {
+      throw new EvalException("argument \"x\" is missing, with no default");
+    }
+    BufferPool pool = rho.getGlobalContext().getBufferPool();
+    SEXP result = NATURAL_LOG.apply(x, pool).getExpression();
+    if(base != null) {
+      SEXP logBase = NATURAL_LOG.apply(base, pool).getExpression();
+      result = DIVIDE.apply(result, logBase, pool).getExpression();
+      if(x.hasAttributes()) {
+        result.copyAttributesFrom(x);
+      }
+    }
+    return new EvalResult(result);
+  }
+
+  public static class NaturalLog extends UnaryMathFunction {
+    @Override
+    public double apply(double value) {
+      return Math.log(value);
+    }
+
+    /**
+     * log(z) = ln|z| + i arg(z)
+     */
+    @Override
+    protected void applyComplex(double[] x, double[] result) {
+      for(int i=0; i!=x.length; i+=2) {
+        result[i] = Math.log(Math.hypot(x[i], x[i+1]));
+        result[i+1] = Math.atan2(x[i+1], x[i]);
+      }
+    }
+  }
+}
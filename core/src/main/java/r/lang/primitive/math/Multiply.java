@@ -26,4 +26,16 @@ public class Multiply extends BinaryMathFunction {
   public double apply(double x, double y) {
     return x * y;
   }
+
+  @Override
+  protected void applyComplex(double[] x, double[] y, double[] result) {
+    for(int i=0, xi=0, yi=0; i!=result.length; i+=2) {
+      double a = x[xi], b = x[xi+1];
+      double c = y[yi], d = y[yi+1];
+      result[i] = a * c - b * d;
+      result[i+1] = a * d + b * c;
+      xi += 2; if(xi == x.length) { xi = 0; }
+      yi += 2; if(yi == y.length) { yi = 0; }
+    }
+  }
 }
@@ -26,4 +26,23 @@ public class Plus extends BinaryMathFunction {
   public double apply(double x, double y) {
     return x + y;
   }
+
+  /**
+   * Equal lengths, the common case, reduce to a single loop over the interleaved parts
+   */
+  @Override
+  protected void applyComplex(double[] x, double[] y, double[] result) {
+    if(x.length == result.length && y.length == result.length) {
+      for(int i=0; i!=result.length; ++i) {
+        result[i] = x[i] + y[i];
+      }
+      return;
+    }
+    for(int i=0, xi=0, yi=0; i!=result.length; i+=2) {
+      result[i] = x[xi] + y[yi];
+      result[i+1] = x[xi+1] + y[yi+1];
+      xi += 2; if(xi == x.length) { xi = 0; }
+      yi += 2; if(yi == y.length) { yi = 0; }
+    }
+  }
 }
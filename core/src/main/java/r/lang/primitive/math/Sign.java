@@ -26,4 +26,14 @@ public class Sign extends UnaryMathFunction {
   public double apply(double value) {
     return Math.signum(value);
   }
+
+  @Override
+  protected boolean preservesNoNA() {
+    return true;
+  }
+
+  @Override
+  protected boolean isNonDecreasing() {
+    return true;
+  }
 }
@@ -0,0 +1,173 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import cern.colt.list.DoubleArrayList;
+import cern.colt.list.IntArrayList;
+import r.lang.NumericExp;
+import r.lang.RealExp;
+import r.lang.SparseExp;
+import r.lang.SparseRealExp;
+
+/**
+ * Element-wise functions over {@link SparseExp} operands which touch only
+ * the stored elements where the function maps zeros to zero.
+ *
+ * <p>Whether a function preserves zeros is found by applying it to zero, so
+ * {@code sparse * 2} stays sparse while {@code sparse + 1} does not. A result of
+ * {@code -0} counts as zero.
+ */
+class SparseMath {
+
+  private SparseMath() {
+  }
+
+  /**
+   * @return {@code function(x, y)}, or {@code null} if the operands cannot be
+   * handled sparsely and should be treated as dense
+   */
+  static RealExp apply(BinaryMathFunction function, NumericExp x, NumericExp y, int length) {
+    int xlength = x.length();
+    int ylength = y.length();
+    if(x instanceof SparseExp && ylength == 1) {
+      double yi = y.getDouble(0);
+      if(function.apply(0, yi) != 0) {
+        return null;
+      }
+      return map(function, (SparseExp) x, yi, false);
+
+    } else if(y instanceof SparseExp && xlength == 1) {
+      double xi = x.getDouble(0);
+      if(function.apply(xi, 0) != 0) {
+        return null;
+      }
+      return map(function, (SparseExp) y, xi, true);
+
+    } else if(x instanceof SparseExp && y instanceof SparseExp && xlength == ylength) {
+      if(function.apply(0, 0) != 0) {
+        return null;
+      }
+      return merge(function, (SparseExp) x, (SparseExp) y, length);
+
+    } else if(xlength == ylength) {
+      return applyDense(function, x, y, length);
+
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @return {@code function(x)}, or {@code null} if {@code function} does not map zero to zero
+   */
+  static RealExp apply(UnaryMathFunction function, SparseExp x) {
+    if(function.apply(0) != 0) {
+      return null;
+    }
+    int count = x.getNonZeroCount();
+    IntArrayList indices = new IntArrayList(count);
+    DoubleArrayList values = new DoubleArrayList(count);
+    for(int k=0; k!=count; ++k) {
+      double value = function.apply(x.getNonZeroDouble(k));
+      if(value != 0) {
+        indices.add(x.getNonZeroIndex(k));
+        values.add(value);
+      }
+    }
+    return toSparse(x.length(), indices, values);
+  }
+
+  private static RealExp map(BinaryMathFunction function, SparseExp sparse, double scalar, boolean scalarFirst) {
+    int count = sparse.getNonZeroCount();
+    IntArrayList indices = new IntArrayList(count);
+    DoubleArrayList values = new DoubleArrayList(count);
+    for(int k=0; k!=count; ++k) {
+      double element = sparse.getNonZeroDouble(k);
+      double value = scalarFirst ? function.apply(scalar, element) : function.apply(element, scalar);
+      if(value != 0) {
+        indices.add(sparse.getNonZeroIndex(k));
+        values.add(value);
+      }
+    }
+    return toSparse(sparse.length(), indices, values);
+  }
+
+  /**
+   * Applies {@code function} over the union of the stored elements of {@code x} and {@code y}
+   */
+  private static RealExp merge(BinaryMathFunction function, SparseExp x, SparseExp y, int length) {
+    int xcount = x.getNonZeroCount();
+    int ycount = y.getNonZeroCount();
+    IntArrayList indices = new IntArrayList(xcount + ycount);
+    DoubleArrayList values = new DoubleArrayList(xcount + ycount);
+    int j = 0;
+    int k = 0;
+    while(j < xcount || k < ycount) {
+      int xi = j < xcount ? x.getNonZeroIndex(j) : Integer.MAX_VALUE;
+      int yi = k < ycount ? y.getNonZeroIndex(k) : Integer.MAX_VALUE;
+      int index;
+      double value;
+      if(xi == yi) {
+        index = xi;
+        value = function.apply(x.getNonZeroDouble(j++), y.getNonZeroDouble(k++));
+      } else if(xi < yi) {
+        index = xi;
+        value = function.apply(x.getNonZeroDouble(j++), 0);
+      } else {
+        index = yi;
+        value = function.apply(0, y.getNonZeroDouble(k++));
+      }
+      if(value != 0) {
+        indices.add(index);
+        values.add(value);
+      }
+    }
+    return toSparse(length, indices, values);
+  }
+
+  /**
+   * Applies {@code function} where one operand is sparse and the other dense, reading the
+   * sparse operand sequentially. The result is stored sparsely if it is mostly zeros,
+   * as it is for {@code sparse * dense}.
+   */
+  private static RealExp applyDense(BinaryMathFunction function, NumericExp x, NumericExp y, int length) {
+    double result[] = new double[length];
+    if(x instanceof SparseExp) {
+      ((SparseExp) x).copyTo(result, 0);
+      for(int i=0; i!=length; ++i) {
+        result[i] = function.apply(result[i], y.getDouble(i));
+      }
+    } else {
+      ((SparseExp) y).copyTo(result, 0);
+      for(int i=0; i!=length; ++i) {
+        result[i] = function.apply(x.getDouble(i), result[i]);
+      }
+    }
+    return RealExp.compress(result);
+  }
+
+  private static RealExp toSparse(int length, IntArrayList indices, DoubleArrayList values) {
+    indices.trimToSize();
+    values.trimToSize();
+    return new SparseRealExp(length, indices.elements(), values.elements());
+  }
+}
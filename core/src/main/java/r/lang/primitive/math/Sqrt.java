@@ -26,4 +26,27 @@ public class Sqrt extends UnaryMathFunction {
   public double apply(double value) {
     return Math.sqrt(value);
   }
+
+  /**
+   * Computes the principal square root, with a non-negative real part
+   */
+  @Override
+  protected void applyComplex(double[] x, double[] result) {
+    for(int i=0; i!=x.length; i+=2) {
+      double a = x[i], b = x[i+1];
+      if(a == 0 && b == 0) {
+        result[i] = 0;
+        result[i+1] = b;
+        continue;
+      }
+      double t = Math.sqrt((Math.abs(a) + Math.hypot(a, b)) / 2);
+      if(a >= 0) {
+        result[i] = t;
+        result[i+1] = b / (2 * t);
+      } else {
+        result[i] = Math.abs(b) / (2 * t);
+        result[i+1] = Math.copySign(t, b);
+      }
+    }
+  }
 }
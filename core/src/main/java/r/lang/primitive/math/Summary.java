@@ -0,0 +1,229 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PrimitiveFunction;
+
+/**
+ * The "summary" group of primitives, which reduce all of their
+ * arguments to a single value.
+ *
+ * <p>Reductions are delegated to the vectors themselves wherever possible,
+ * so that compact representations such as {@link IntSequence} can answer
+ * them without visiting each element.
+ */
+public class Summary {
+
+  protected Summary() {
+  }
+
+  private static boolean isNaRm(ListExp node) {
+    return node.hasTag() && ((SymbolExp) node.getTag()).getPrintName().equals("na.rm");
+  }
+
+  private static boolean naRm(NillOrListExp args) {
+    for(ListExp node : ListExp.listNodes(args)) {
+      if(isNaRm(node)) {
+        return node.getValue().asLogical() == Logical.TRUE;
+      }
+    }
+    return false;
+  }
+
+  private static void checkSummaryArgument(SEXP arg) {
+    if(!(arg instanceof IntExp || arg instanceof RealExp || arg instanceof LogicalExp || arg instanceof NilExp)) {
+      throw new EvalException("invalid 'type' (%s) of argument", arg.getTypeName());
+    }
+  }
+
+  public static class Sum extends PrimitiveFunction {
+
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+      boolean naRm = naRm(args);
+      boolean real = false;
+      double sum = 0;
+
+      for(ListExp node : ListExp.listNodes(args)) {
+        if(isNaRm(node)) {
+          continue;
+        }
+        SEXP arg = node.getValue();
+        checkSummaryArgument(arg);
+
+        if(arg instanceof RealExp) {
+          real = true;
+          sum += sum((RealExp) arg, naRm);
+        } else if(arg instanceof IntExp) {
+          sum += sum((IntExp) arg, naRm);
+        } else if(arg instanceof LogicalExp) {
+          sum += sum((LogicalExp) arg, naRm);
+        }
+      }
+
+      if(real) {
+        return new EvalResult(new RealExp(sum));
+      } else if(RealExp.isNaN(sum)) {
+        return new EvalResult(new IntExp(IntExp.NA));
+      } else if(sum > Integer.MAX_VALUE || sum <= Integer.MIN_VALUE) {
+        Warning.warning("Integer overflow - use sum(as.numeric(.))");
+        return new EvalResult(new IntExp(IntExp.NA));
+      } else {
+        return new EvalResult(new IntExp((int) sum));
+      }
+    }
+
+    private double sum(RealExp x, boolean naRm) {
+      if(!naRm || x.isKnownNoNA()) {
+        return x.sum();
+      }
+      if(x instanceof SparseExp) {
+        return sum((SparseExp) x);
+      }
+      double sum = 0;
+      long length = x.longLength();
+      for(long i=0; i!=length; ++i) {
+        double value = x.get(i);
+        if(!Double.isNaN(value)) {
+          sum += value;
+        }
+      }
+      return sum;
+    }
+
+    private double sum(IntExp x, boolean naRm) {
+      if(!naRm || x.isKnownNoNA()) {
+        return x.sum();
+      }
+      if(x instanceof SparseExp) {
+        return sum((SparseExp) x);
+      }
+      double sum = 0;
+      for(int i=0; i!=x.length(); ++i) {
+        if(x.get(i) != IntExp.NA) {
+          sum += x.get(i);
+        }
+      }
+      return sum;
+    }
+
+    /**
+     * Sums the stored elements of a sparse vector, skipping {@code NA}s
+     */
+    private double sum(SparseExp x) {
+      double sum = 0;
+      for(int k=0; k!=x.getNonZeroCount(); ++k) {
+        double value = x.getNonZeroDouble(k);
+        if(!Double.isNaN(value)) {
+          sum += value;
+        }
+      }
+      return sum;
+    }
+
+    private double sum(LogicalExp x, boolean naRm) {
+      if(!naRm) {
+        return x.sum();
+      }
+      double sum = 0;
+      for(int i=0; i!=x.length(); ++i) {
+        if(x.get(i) != IntExp.NA) {
+          sum += x.get(i);
+        }
+      }
+      return sum;
+    }
+  }
+
+  public static class Range extends PrimitiveFunction {
+
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+      boolean naRm = naRm(args);
+      boolean real = false;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      boolean na = false;
+
+      for(ListExp node : ListExp.listNodes(args)) {
+        if(isNaRm(node)) {
+          continue;
+        }
+        SEXP arg = node.getValue();
+        checkSummaryArgument(arg);
+        if(arg instanceof RealExp) {
+          real = true;
+        }
+        if(arg.longLength() == 0) {
+          continue;
+        }
+
+        // na.rm makes no difference to vectors known to have no NAs
+        boolean noNA = ((NumericExp) arg).isKnownNoNA();
+        if((!naRm || noNA) && arg instanceof RealExp) {
+          RealExp x = (RealExp) arg;
+          double xmin = x.min();
+          if(RealExp.isNaN(xmin)) {
+            na = true;
+          } else {
+            min = Math.min(min, xmin);
+            max = Math.max(max, x.max());
+          }
+        } else if((!naRm || noNA) && arg instanceof IntExp) {
+          IntExp x = (IntExp) arg;
+          int xmin = x.min();
+          if(xmin == IntExp.NA) {
+            na = true;
+          } else {
+            min = Math.min(min, xmin);
+            max = Math.max(max, x.max());
+          }
+        } else {
+          NumericExp x = (NumericExp) arg;
+          long length = x.longLength();
+          for(long i=0; i!=length; ++i) {
+            double value = x.getDouble(i);
+            if(Double.isNaN(value)) {
+              na |= !naRm;
+            } else {
+              min = Math.min(min, value);
+              max = Math.max(max, value);
+            }
+          }
+        }
+      }
+
+      if(real) {
+        return new EvalResult(na ? new RealExp(RealExp.NA, RealExp.NA) : new RealExp(min, max));
+      } else if(na) {
+        return new EvalResult(new IntExp(IntExp.NA, IntExp.NA));
+      } else if(Double.isInfinite(min)) {
+        Warning.warning("no non-missing arguments to range; returning -Inf");
+        return new EvalResult(new RealExp(min, max));
+      } else {
+        return new EvalResult(new IntExp((int) min, (int) max));
+      }
+    }
+  }
+}
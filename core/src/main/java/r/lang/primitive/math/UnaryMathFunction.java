@@ -21,48 +21,143 @@
 
 package r.lang.primitive.math;
 
-import r.lang.EvalResult;
-import r.lang.NumericExp;
-import r.lang.RealExp;
-import r.lang.SEXP;
+import r.lang.*;
 import r.lang.exception.EvalException;
-import r.lang.primitive.PureUnaryFunction;
+import r.lang.primitive.UnaryFunction;
 
-public abstract class UnaryMathFunction extends PureUnaryFunction {
+public abstract class UnaryMathFunction extends UnaryFunction {
 
   @Override
+  protected final EvalResult apply(LangExp call, EnvExp rho, SEXP argument) {
+    return apply(argument, rho.getGlobalContext().getBufferPool());
+  }
+
   public final EvalResult apply(SEXP argument) {
+    return apply(argument, BufferPool.UNPOOLED);
+  }
+
+  public final EvalResult apply(SEXP argument, BufferPool pool) {
 
-    if (!(argument instanceof NumericExp)) {
+    SEXP result;
+    if (argument instanceof ComplexExp) {
+      result = applyComplex((ComplexExp) argument);
+    } else if (argument instanceof NumericExp) {
+      result = applyReal((NumericExp) argument, pool);
+    } else {
       throw new EvalException("Non-numeric argument to mathematical function");
     }
 
-    double x[] = ((NumericExp)argument).asDoubleArray();
-
-    return new EvalResult(applyReal(x));
+    if (result != argument && argument.hasAttributes()) {
+      result.copyAttributesFrom(argument);
+    }
+    return new EvalResult(result);
   }
 
-  private RealExp applyReal(double sa[]) {
-    RealExp sy = RealExp.ofLength(sa.length);
+  private RealExp applyReal(NumericExp sa, BufferPool pool) {
+    if (sa.longLength() > Integer.MAX_VALUE) {
+      return applyLong(sa);
+    }
+    if (sa instanceof SparseExp) {
+      RealExp sparse = SparseMath.apply(this, (SparseExp) sa);
+      if (sparse != null) {
+        return sparse;
+      }
+    }
+    int n = sa.length();
+    if (n >= DeferredRealExp.MIN_DEFERRED_LENGTH) {
+      return new DeferredRealExp.Unary(pool, this, DeferredRealExp.capture(sa));
+    }
+    // read before the operand's storage is possibly reused for the result
+    boolean noNA = sa.isKnownNoNA();
+    boolean sorted = sa.isKnownSorted();
+
+    RealExp target = BinaryMathFunction.temporaryOperand(sa, n);
+    double sy[] = target == null ? pool.allocateDoubles(n) : target.getTemporaryStorage();
 
-    boolean naflag = false;
-    int i;
+    if (noNA) {
+      for (int i = 0; i < n; i++) {
+        sy[i] = apply(sa.getDouble(i));
+      }
+    } else {
+      boolean naflag = false;
+      int i;
 
-    for (i = 0; i < sa.length; i++) {
-      if (Double.isNaN(sa[i])) {
-        sy.set(i, sa[i]);
-      } else {
-        sy.set(i, apply(sa[i]));
-        if (Double.isNaN(sy.get(i))) {
-          naflag = true;
+      for (i = 0; i < n; i++) {
+        double x = sa.getDouble(i);
+        if (Double.isNaN(x)) {
+          sy[i] = x;
+        } else {
+          sy[i] = apply(x);
+          if (Double.isNaN(sy[i])) {
+            naflag = true;
+          }
         }
       }
+      if (naflag) {
+        //warningcall(lcall, R_MSG_NA);
+      }
     }
-    if (naflag) {
-      //warningcall(lcall, R_MSG_NA);
+
+    RealExp result = target == null ? RealExp.wrap(sy) : target;
+    declareResultProperties(noNA, sorted, result);
+    return result;
+  }
+
+  /**
+   * @return true if this function maps every number, including the infinities, to a
+   * number, so that its result contains no {@code NaN}s when its argument contains none
+   */
+  protected boolean preservesNoNA() {
+    return false;
+  }
+
+  /**
+   * @return true if this function is non-decreasing, so that it maps sorted
+   * vectors to sorted vectors
+   */
+  protected boolean isNonDecreasing() {
+    return false;
+  }
+
+  void declareResultProperties(NumericExp x, RealExp result) {
+    declareResultProperties(x.isKnownNoNA(), x.isKnownSorted(), result);
+  }
+
+  private void declareResultProperties(boolean noNA, boolean sorted, RealExp result) {
+    if (noNA && preservesNoNA()) {
+      if (sorted && isNonDecreasing()) {
+        result.declareSorted();
+      } else {
+        result.declareNoNA();
+      }
     }
+  }
+
+  private ComplexExp applyComplex(ComplexExp z) {
+    double x[] = z.getInterleavedValues();
+    double result[] = new double[x.length];
+    applyComplex(x, result);
+    return ComplexExp.wrap(result);
+  }
 
-    // todo: attribs DUPLICATE_ATTRIB(sy, sa);
+  /**
+   * Applies this function element-wise to complex numbers stored as interleaved
+   * (real, imaginary) pairs.
+   *
+   * @throws EvalException if this function is not defined for complex numbers
+   */
+  protected void applyComplex(double x[], double result[]) {
+    throw new EvalException("unimplemented complex function");
+  }
+
+  private RealExp applyLong(NumericExp sa) {
+    long n = sa.longLength();
+    SegmentedRealExp sy = SegmentedRealExp.allocate(n);
+    for (long i = 0; i < n; i++) {
+      double x = sa.getDouble(i);
+      sy.set(i, Double.isNaN(x) ? x : apply(x));
+    }
+    declareResultProperties(sa, sy);
     return sy;
   }
 
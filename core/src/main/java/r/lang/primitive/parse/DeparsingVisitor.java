@@ -44,7 +44,13 @@ public class DeparsingVisitor extends SexpVisitor<String> {
 
   @Override
   public void visit(ComplexExp complexExp) {
-    throw new UnsupportedOperationException();
+    ParseUtil.ComplexPrinter printer = new ParseUtil.ComplexPrinter();
+    for(int i=0; i!=complexExp.length(); ++i) {
+      if(i > 0) {
+        deparsed.append(", ");
+      }
+      deparsed.append(printer.apply(complexExp.getReal(i), complexExp.getImaginary(i)));
+    }
   }
 
   @Override
@@ -65,7 +71,14 @@ public class DeparsingVisitor extends SexpVisitor<String> {
 
   @Override
   public void visit(IntExp intExp) {
-    appendVector(intExp, new ParseUtil.IntDeparser());
+    ParseUtil.IntDeparser deparser = new ParseUtil.IntDeparser();
+    IntIterator it = intExp.intIterator();
+    while(it.hasNext()) {
+      deparsed.append(deparser.apply(it.nextInt()));
+      if(it.hasNext()) {
+        deparsed.append(", ");
+      }
+    }
   }
 
   @Override
@@ -100,7 +113,14 @@ public class DeparsingVisitor extends SexpVisitor<String> {
 
   @Override
   public void visit(RealExp realExp) {
-    appendVector(realExp, new ParseUtil.RealDeparser());
+    ParseUtil.RealDeparser deparser = new ParseUtil.RealDeparser();
+    DoubleIterator it = realExp.doubleIterator();
+    while(it.hasNext()) {
+      deparsed.append(deparser.apply(it.nextDouble()));
+      if(it.hasNext()) {
+        deparsed.append(", ");
+      }
+    }
   }
 
   @Override
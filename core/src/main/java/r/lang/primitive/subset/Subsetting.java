@@ -0,0 +1,551 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.subset;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PrimitiveFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements {@code [} and {@code [[} for atomic vectors and lists.
+ *
+ * <p>A subscript is first resolved into the 0-based positions of the selected elements,
+ * using {@link #NA_POSITION} for elements which are out of range or selected by an
+ * {@code NA} subscript. The elements are then gathered by a loop specialized
+ * for each vector type. Subscripts which select a contiguous range, such as {@code x[10:20]},
+ * skip both steps and return a view sharing the storage of {@code x}.
+ */
+public class Subsetting {
+
+  /**
+   * The position of an element which is out of range or selected by an {@code NA} subscript
+   */
+  public static final int NA_POSITION = -1;
+
+  /**
+   * Ranges shorter than this are copied rather than viewed, as a view keeps
+   * its parent's storage alive and forces the parent to copy before it is modified.
+   */
+  static final int MIN_VIEW_LENGTH = 2;
+
+  protected Subsetting() {
+  }
+
+  /**
+   * @return {@code x[subscript]}
+   */
+  public static SEXP subset(SEXP x, SEXP subscript) {
+    if(x == NilExp.INSTANCE) {
+      return x;
+    }
+    checkSubsettable(x);
+    StringExp names = names(x);
+
+    int range[] = contiguousRange(subscript, x.length());
+    if(range != null) {
+      SEXP result = slice(x, range[0], range[1]);
+      if(names != null && !(x instanceof ListExp)) {
+        result.setAttribute(AttributeMap.NAMES, names.slice(range[0], range[1]));
+      }
+      return result;
+    }
+
+    int positions[] = positions(x, names, subscript);
+    SEXP result = select(x, positions);
+    if(names != null && !(x instanceof ListExp)) {
+      result.setAttribute(AttributeMap.NAMES, select(names, positions));
+    }
+    return result;
+  }
+
+  /**
+   * @return {@code x[[subscript]]}
+   */
+  public static SEXP getElement(SEXP x, SEXP subscript) {
+    if(x == NilExp.INSTANCE) {
+      return x;
+    }
+    checkSubsettable(x);
+    if(subscript.length() == 0) {
+      throw new EvalException("attempt to select less than one element");
+    }
+    if(subscript.length() > 1) {
+      throw new EvalException("attempt to select more than one element");
+    }
+
+    int position;
+    if(subscript instanceof StringExp) {
+      position = namePosition(names(x), ((StringExp) subscript).get(0));
+      if(position == NA_POSITION) {
+        if(x instanceof ListExp) {
+          return NilExp.INSTANCE;
+        }
+        throw new EvalException("subscript out of bounds");
+      }
+    } else if(subscript instanceof NumericExp) {
+      int index = ((NumericExp) subscript).getInt(0);
+      if(index == IntExp.NA || index > x.length()) {
+        throw new EvalException("subscript out of bounds");
+      } else if(index == 0) {
+        throw new EvalException("attempt to select less than one element");
+      } else if(index < 0) {
+        int positions[] = positions(x, null, subscript);
+        if(positions.length != 1) {
+          throw new EvalException("attempt to select %s than one element",
+              positions.length == 0 ? "less" : "more");
+        }
+        position = positions[0];
+      } else {
+        position = index - 1;
+      }
+    } else {
+      throw new EvalException("invalid subscript type '%s'", subscript.getTypeName());
+    }
+
+    if(x instanceof ListExp) {
+      // the element is still held by the list, so it must not be modified in place
+      SEXP element = ((ListExp) x).get(position);
+      element.setNamed(2);
+      return element;
+    } else {
+      return select(x, new int[] { position });
+    }
+  }
+
+  private static void checkSubsettable(SEXP x) {
+    if(!(x instanceof AtomicExp || x instanceof RealExp || x.getClass() == ListExp.class)) {
+      throw new EvalException("object of type '%s' is not subsettable", x.getTypeName());
+    }
+  }
+
+  /**
+   * @return the names of the elements of {@code x}: its {@code names} attribute, or
+   * for pairlists, their tags. {@code null} if the elements are not named.
+   */
+  static StringExp names(SEXP x) {
+    if(x instanceof ListExp) {
+      boolean tagged = false;
+      List<String> tags = new ArrayList<String>();
+      for(ListExp node : ((ListExp) x).listNodes()) {
+        if(node.hasTag()) {
+          tags.add(((SymbolExp) node.getTag()).getPrintName());
+          tagged = true;
+        } else {
+          tags.add("");
+        }
+      }
+      return tagged ? new StringExp(tags) : null;
+    }
+    SEXP names = x.getAttributeMap().getNames();
+    return names instanceof StringExp ? (StringExp) names : null;
+  }
+
+  /**
+   * @return the 0-based range {@code [from, to)} selected by {@code subscript} if it is a
+   * sequence of consecutive, in-range positive indices; otherwise {@code null}
+   */
+  static int[] contiguousRange(SEXP subscript, int length) {
+    int from;
+    int count;
+    if(subscript instanceof IntSequence) {
+      IntSequence sequence = (IntSequence) subscript;
+      if(sequence.getBy() != 1) {
+        return null;
+      }
+      from = sequence.getFrom();
+      count = sequence.length();
+    } else if(subscript instanceof RealSequence) {
+      RealSequence sequence = (RealSequence) subscript;
+      if(sequence.getBy() != 1 || sequence.getFrom() != Math.floor(sequence.getFrom()) ||
+          sequence.longLength() > length) {
+        return null;
+      }
+      from = (int) sequence.getFrom();
+      count = sequence.length();
+    } else {
+      return null;
+    }
+    if(count < MIN_VIEW_LENGTH || from < 1 || (long) from - 1 + count > length) {
+      return null;
+    }
+    return new int[] { from - 1, from - 1 + count };
+  }
+
+  /**
+   * Resolves a subscript of {@code [} into the positions of the elements it selects
+   *
+   * @param names the names of the elements of {@code x}, or {@code null}
+   */
+  public static int[] positions(SEXP x, StringExp names, SEXP subscript) {
+    if(subscript == NilExp.INSTANCE) {
+      return new int[0];
+    } else if(subscript instanceof LogicalExp) {
+      return maskPositions(x.length(), (LogicalExp) subscript);
+    } else if(subscript instanceof StringExp) {
+      return namePositions(names, (StringExp) subscript);
+    } else if(subscript instanceof NumericExp) {
+      return indexPositions(x.length(), (NumericExp) subscript);
+    } else {
+      throw new EvalException("invalid subscript type '%s'", subscript.getTypeName());
+    }
+  }
+
+  private static int[] indexPositions(int length, NumericExp subscript) {
+    int n = subscript.length();
+    int indices[] = new int[n];
+    int count = 0;
+    boolean negative = false;
+    boolean positive = false;
+    for(int i=0; i!=n; ++i) {
+      int index = subscript.getInt(i);
+      if(index == IntExp.NA || index > 0) {
+        indices[count++] = index;
+        positive = true;
+      } else if(index < 0) {
+        indices[count++] = index;
+        negative = true;
+      }
+    }
+    if(negative && positive) {
+      throw new EvalException("only 0's may be mixed with negative subscripts");
+    }
+
+    if(negative) {
+      boolean excluded[] = new boolean[length];
+      int remaining = length;
+      for(int i=0; i!=count; ++i) {
+        int position = -indices[i] - 1;
+        if(position < length && !excluded[position]) {
+          excluded[position] = true;
+          remaining--;
+        }
+      }
+      int positions[] = new int[remaining];
+      int next = 0;
+      for(int i=0; i!=length; ++i) {
+        if(!excluded[i]) {
+          positions[next++] = i;
+        }
+      }
+      return positions;
+    }
+
+    int positions[] = new int[count];
+    for(int i=0; i!=count; ++i) {
+      int index = indices[i];
+      positions[i] = index == IntExp.NA || index > length ? NA_POSITION : index - 1;
+    }
+    return positions;
+  }
+
+  private static int[] maskPositions(int length, LogicalExp mask) {
+    int maskLength = mask.length();
+    if(maskLength == length) {
+      // walk the set bits of the TRUE and NA planes a word at a time
+      long values[] = mask.getValueBits();
+      long na[] = mask.getNABits();
+      int count = 0;
+      for(int i=0; i!=values.length; ++i) {
+        count += Long.bitCount(values[i] | na[i]);
+      }
+      int positions[] = new int[count];
+      int next = 0;
+      for(int i=0; i!=values.length; ++i) {
+        long word = values[i] | na[i];
+        while(word != 0) {
+          int bit = Long.numberOfTrailingZeros(word);
+          positions[next++] = (na[i] & (1L << bit)) != 0 ? NA_POSITION : (i << 6) + bit;
+          word &= word - 1;
+        }
+      }
+      return positions;
+    }
+
+    if(maskLength == 0) {
+      return new int[0];
+    }
+    int extent = Math.max(length, maskLength);
+    int selected[] = new int[extent];
+    int count = 0;
+    for(int i=0; i!=extent; ++i) {
+      int value = mask.get(i % maskLength);
+      if(value == IntExp.NA) {
+        selected[count++] = NA_POSITION;
+      } else if(value != 0) {
+        selected[count++] = i < length ? i : NA_POSITION;
+      }
+    }
+    int positions[] = new int[count];
+    System.arraycopy(selected, 0, positions, 0, count);
+    return positions;
+  }
+
+  /**
+   * Subscripts which name fewer elements than this are found by a linear scan of the
+   * names; otherwise the first position of each name is hashed.
+   */
+  private static final int MAX_SCANNED_NAMES = 8;
+
+  private static int[] namePositions(StringExp names, StringExp subscript) {
+    int positions[] = new int[subscript.length()];
+    if(names == null) {
+      for(int i=0; i!=positions.length; ++i) {
+        positions[i] = NA_POSITION;
+      }
+    } else if(positions.length < MAX_SCANNED_NAMES) {
+      for(int i=0; i!=positions.length; ++i) {
+        positions[i] = namePosition(names, subscript.get(i));
+      }
+    } else {
+      // the elements of both vectors are interned, so an identity map suffices
+      Map<String, Integer> firstPositions = new IdentityHashMap<String, Integer>();
+      for(int i=names.length()-1; i>=0; --i) {
+        firstPositions.put(names.get(i), i);
+      }
+      for(int i=0; i!=positions.length; ++i) {
+        String name = subscript.get(i);
+        Integer position = name == null || name.length() == 0 ? null : firstPositions.get(name);
+        positions[i] = position == null ? NA_POSITION : position;
+      }
+    }
+    return positions;
+  }
+
+  private static int namePosition(StringExp names, String name) {
+    if(names != null && name != null && name.length() != 0) {
+      for(int i=0; i!=names.length(); ++i) {
+        if(names.get(i) == name) {
+          return i;
+        }
+      }
+    }
+    return NA_POSITION;
+  }
+
+  /**
+   * @return the elements of {@code x} from {@code from} (inclusive) to {@code to} (exclusive),
+   * without attributes
+   */
+  static SEXP slice(SEXP x, int from, int to) {
+    if(x instanceof RealExp) {
+      return ((RealExp) x).slice(from, to);
+    } else if(x instanceof IntExp) {
+      return ((IntExp) x).slice(from, to);
+    } else if(x instanceof LogicalExp) {
+      return ((LogicalExp) x).slice(from, to);
+    } else if(x instanceof StringExp) {
+      return ((StringExp) x).slice(from, to);
+    } else {
+      int positions[] = new int[to - from];
+      for(int i=0; i!=positions.length; ++i) {
+        positions[i] = from + i;
+      }
+      return select(x, positions);
+    }
+  }
+
+  /**
+   * Gathers the elements of {@code x} at {@code positions} into a new vector of the same type,
+   * without attributes. Elements at {@link #NA_POSITION} are {@code NA}, or {@code NULL} for lists.
+   */
+  public static SEXP select(SEXP x, int positions[]) {
+    int n = positions.length;
+    if(x instanceof RealExp) {
+      RealExp source = (RealExp) x;
+      double values[] = new double[n];
+      for(int i=0; i!=n; ++i) {
+        int p = positions[i];
+        values[i] = p == NA_POSITION ? RealExp.NA : source.get(p);
+      }
+      return RealExp.wrap(values);
+
+    } else if(x instanceof IntExp) {
+      IntExp source = (IntExp) x;
+      int values[] = new int[n];
+      for(int i=0; i!=n; ++i) {
+        int p = positions[i];
+        values[i] = p == NA_POSITION ? IntExp.NA : source.get(p);
+      }
+      return IntExp.wrap(values);
+
+    } else if(x instanceof LogicalExp) {
+      LogicalExp source = (LogicalExp) x;
+      long values[] = new long[LogicalExp.wordCount(n)];
+      long na[] = new long[values.length];
+      for(int i=0; i!=n; ++i) {
+        int p = positions[i];
+        int value = p == NA_POSITION ? IntExp.NA : source.get(p);
+        if(value == IntExp.NA) {
+          na[i >>> 6] |= 1L << i;
+        } else if(value != 0) {
+          values[i >>> 6] |= 1L << i;
+        }
+      }
+      return LogicalExp.fromBits(values, na, n);
+
+    } else if(x instanceof DictionaryStringExp) {
+      return selectCodes((DictionaryStringExp) x, positions);
+
+    } else if(x instanceof StringExp) {
+      StringExp source = (StringExp) x;
+      String values[] = new String[n];
+      for(int i=0; i!=n; ++i) {
+        int p = positions[i];
+        values[i] = p == NA_POSITION ? null : source.get(p);
+      }
+      return StringExp.wrap(values);
+
+    } else if(x instanceof ListExp) {
+      if(n == 0) {
+        return NilExp.INSTANCE;
+      }
+      ListExp source = (ListExp) x;
+      List<ListExp> nodes = new ArrayList<ListExp>();
+      for(ListExp node : source.listNodes()) {
+        nodes.add(node);
+      }
+      ListExp.Builder builder = new ListExp.Builder();
+      for(int i=0; i!=n; ++i) {
+        int p = positions[i];
+        if(p == NA_POSITION) {
+          builder.add(NilExp.INSTANCE);
+        } else {
+          ListExp node = nodes.get(p);
+          node.getValue().setNamed(2);
+          ListExp.Builder.Tail tail = builder.add(node.getValue());
+          if(node.hasTag()) {
+            tail.withTag((SymbolExp) node.getTag());
+          }
+        }
+      }
+      return builder.list();
+
+    } else {
+      throw new EvalException("object of type '%s' is not subsettable", x.getTypeName());
+    }
+  }
+
+  /**
+   * Gathers the codes of a dictionary-encoded vector, so that the result shares its dictionary
+   */
+  private static SEXP selectCodes(DictionaryStringExp source, int positions[]) {
+    String dictionary[] = new String[source.getDictionarySize()];
+    int naCode = NA_POSITION;
+    for(int code=0; code!=dictionary.length; ++code) {
+      dictionary[code] = source.getDictionaryEntry(code);
+      if(dictionary[code] == null) {
+        naCode = code;
+      }
+    }
+    int codes[] = new int[positions.length];
+    for(int i=0; i!=codes.length; ++i) {
+      int p = positions[i];
+      if(p == NA_POSITION) {
+        if(naCode == NA_POSITION) {
+          dictionary = Arrays.copyOf(dictionary, dictionary.length + 1);
+          naCode = dictionary.length - 1;
+        }
+        codes[i] = naCode;
+      } else {
+        codes[i] = source.getCode(p);
+      }
+    }
+    return new DictionaryStringExp(dictionary, codes);
+  }
+
+  /**
+   * The arguments of a call to {@code [} or {@code [[}, evaluated
+   */
+  private static class Arguments {
+    private SEXP x;
+    private final List<SEXP> subscripts = new ArrayList<SEXP>();
+
+    Arguments(EnvExp rho, NillOrListExp args) {
+      for(ListExp node : ListExp.listNodes(args)) {
+        SEXP value = node.getValue();
+        if(x == null) {
+          x = value.evalToExp(rho);
+        } else if(node.hasTag()) {
+          String name = ((SymbolExp) node.getTag()).getPrintName();
+          if(!name.equals("drop") && !name.equals("exact")) {
+            throw new EvalException("unused argument(s) (%s)", name);
+          }
+          // these only affect arrays and partial matching, which are not yet supported
+          value.evalToExp(rho);
+        } else if(value == SymbolExp.MISSING_ARG) {
+          subscripts.add(value);
+        } else {
+          subscripts.add(value.evalToExp(rho));
+        }
+      }
+      if(x == null) {
+        x = NilExp.INSTANCE;
+      }
+    }
+
+    SEXP subscript() {
+      if(subscripts.size() > 1) {
+        if(x.getAttributeMap().getDim() != null) {
+          throw new EvalException("matrix subscripts are not yet implemented");
+        }
+        throw new EvalException("incorrect number of dimensions");
+      }
+      return subscripts.isEmpty() ? SymbolExp.MISSING_ARG : subscripts.get(0);
+    }
+  }
+
+  /**
+   * {@code x[i]}
+   */
+  public static class Subset extends PrimitiveFunction {
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+      Arguments arguments = new Arguments(rho, args);
+      SEXP subscript = arguments.subscript();
+      if(subscript == SymbolExp.MISSING_ARG) {
+        return new EvalResult(arguments.x);
+      }
+      return new EvalResult(subset(arguments.x, subscript));
+    }
+  }
+
+  /**
+   * {@code x[[i]]}
+   */
+  public static class Subset2 extends PrimitiveFunction {
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+      Arguments arguments = new Arguments(rho, args);
+      SEXP subscript = arguments.subscript();
+      if(subscript == SymbolExp.MISSING_ARG) {
+        throw new EvalException("subscript out of bounds");
+      }
+      return new EvalResult(getElement(arguments.x, subscript));
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.system;
+
+import r.lang.*;
+import r.lang.primitive.BinaryFunction;
+import r.lang.primitive.NullaryFunction;
+import r.lang.primitive.TenaryFunction;
+
+import java.util.Map;
+
+/**
+ * Reporting and limits of the memory held by a context's vectors, as accounted
+ * by its {@link MemoryAccounting}
+ */
+public class Memory {
+
+  private static final double MB = 1024d * 1024d;
+
+  private static double megabytes(long bytes) {
+    return bytes == MemoryAccounting.UNLIMITED ? RealExp.NA : bytes / MB;
+  }
+
+  private static <T extends SEXP> T named(T vector, String... names) {
+    vector.setAttribute(AttributeMap.NAMES, new StringExp(names));
+    return vector;
+  }
+
+  private static boolean isSet(SEXP limit) {
+    return !RealExp.isNaN(limit.asReal());
+  }
+
+  private static long bytes(SEXP limit) {
+    double value = limit.asReal();
+    return Double.isInfinite(value) ? MemoryAccounting.UNLIMITED : (long) value;
+  }
+
+  private static double reported(long limit) {
+    return limit == MemoryAccounting.UNLIMITED ? RealExp.NA : limit;
+  }
+
+  /**
+   * {@code .Internal(gc(verbose, reset))}: releases the vectors which the garbage collector
+   * has found unreachable, without running it, and reports the memory held by live vectors,
+   * its maximum, and the soft and hard limits, in Mb
+   */
+  public static class Gc extends BinaryFunction {
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, SEXP verbose, SEXP reset) {
+      MemoryAccounting accounting = rho.getGlobalContext().getMemoryAccounting();
+      accounting.collect();
+      if(reset.asLogical() == Logical.TRUE) {
+        accounting.resetMaxLiveBytes();
+      }
+      return new EvalResult(named(new RealExp(
+          megabytes(accounting.getLiveBytes()),
+          megabytes(accounting.getMaxLiveBytes()),
+          megabytes(accounting.getSoftLimit()),
+          megabytes(accounting.getHardLimit())),
+          "used", "max used", "soft limit", "hard limit"));
+    }
+  }
+
+  /**
+   * {@code .Internal(memory.profile())}: the number of live vectors of each type
+   */
+  public static class Profile extends NullaryFunction {
+    @Override
+    protected EvalResult apply(EnvExp rho) {
+      Map<String, Long> counts = rho.getGlobalContext().getMemoryAccounting().getLiveCounts();
+      int values[] = new int[counts.size()];
+      String names[] = new String[counts.size()];
+      int i = 0;
+      for(Map.Entry<String, Long> entry : counts.entrySet()) {
+        names[i] = entry.getKey();
+        values[i] = entry.getValue().intValue();
+        i++;
+      }
+      return new EvalResult(named(IntExp.wrap(values), names));
+    }
+  }
+
+  /**
+   * {@code .Internal(mem.limits(nsize, vsize, soft))}: sets the hard and soft limits on the
+   * memory held by vectors to {@code vsize} and {@code soft} bytes, unless they are {@code NA},
+   * and returns the limits. There is no separate limit on cons cells, so {@code nsize} is
+   * always {@code NA}.
+   */
+  public static class Limits extends TenaryFunction {
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, SEXP nsize, SEXP vsize, SEXP soft) {
+      MemoryAccounting accounting = rho.getGlobalContext().getMemoryAccounting();
+      if(isSet(vsize)) {
+        accounting.setHardLimit(bytes(vsize));
+      }
+      if(isSet(soft)) {
+        accounting.setSoftLimit(bytes(soft));
+      }
+      return new EvalResult(named(new RealExp(RealExp.NA,
+          reported(accounting.getHardLimit()),
+          reported(accounting.getSoftLimit())),
+          "nsize", "vsize", "soft"));
+    }
+  }
+}
@@ -81,6 +81,6 @@ public class AbstractCoerceToString extends SexpVisitor implements CoercingVisit
 
   @Override
   public SEXP coerce() {
-    return new StringExp(values);
+    return DictionaryStringExp.encode(values.toArray(new String[values.size()]));
   }
 }
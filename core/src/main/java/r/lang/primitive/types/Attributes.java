@@ -0,0 +1,391 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.types;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.BinaryFunction;
+import r.lang.primitive.PrimitiveFunction;
+import r.lang.primitive.PureBinaryFunction;
+import r.lang.primitive.PureUnaryFunction;
+import r.lang.primitive.TenaryFunction;
+import r.lang.primitive.UnaryFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primitives which get and set the attributes of an object:
+ * {@code attr}, {@code attributes}, {@code names}, {@code dim}, {@code dimnames},
+ * {@code class}, {@code oldClass} and {@code inherits}, with their replacement forms.
+ *
+ * <p>The replacement forms modify their argument in place only when it is a
+ * temporary; otherwise they modify a copy, which shares its data and attributes
+ * with the original until either is changed.
+ */
+public class Attributes {
+
+  /**
+   * @return {@code x} if it is a temporary that can be modified in place, or otherwise
+   * a copy of {@code x} that can be
+   */
+  static SEXP modifiable(SEXP x) {
+    if(x.getNamed() == 0) {
+      return x;
+    }
+    SEXP copy;
+    if(x instanceof RealExp) {
+      copy = ((RealExp) x).duplicate();
+    } else if(x instanceof IntExp) {
+      copy = ((IntExp) x).duplicate();
+    } else if(x instanceof LogicalExp) {
+      copy = ((LogicalExp) x).duplicate();
+    } else if(x instanceof StringExp) {
+      copy = ((StringExp) x).duplicate();
+    } else if(x.getClass() == ListExp.class) {
+      copy = ((ListExp) x).clone();
+    } else {
+      throw new EvalException("cannot set attributes on an object of type '%s'", x.getTypeName());
+    }
+    copy.copyAttributesFrom(x);
+    return copy;
+  }
+
+  /**
+   * @return the class of {@code x}: its {@code class} attribute if it has one, and
+   * otherwise the implicit class derived from its dimensions or type
+   */
+  public static StringExp dataClass(SEXP x) {
+    SEXP klass = x.getAttributeMap().getClassAttribute();
+    if(klass instanceof StringExp) {
+      return shared((StringExp) klass);
+    }
+    SEXP dim = x.getAttributeMap().getDim();
+    if(dim != null) {
+      return new StringExp(dim.length() == 2 ? "matrix" : "array");
+    }
+    if(x instanceof FunExp) {
+      return new StringExp("function");
+    } else if(x instanceof RealExp) {
+      return new StringExp("numeric");
+    } else if(x instanceof SymbolExp) {
+      return new StringExp("name");
+    } else if(x instanceof LangExp) {
+      return new StringExp("call");
+    } else {
+      return new StringExp(x.getTypeName());
+    }
+  }
+
+  /**
+   * @return {@code value}, which is still held as an attribute and so must not be
+   * modified in place by whoever it is returned to
+   */
+  private static <T extends SEXP> T shared(T value) {
+    value.setNamed(2);
+    return value;
+  }
+
+  private static String attributeName(SEXP which) {
+    if(!(which instanceof StringExp) || which.length() != 1) {
+      throw new EvalException("exactly one attribute 'which' must be given");
+    }
+    String name = ((StringExp) which).get(0);
+    if(name == null) {
+      throw new EvalException("attribute 'which' must not be NA");
+    }
+    return name;
+  }
+
+  private static StringExp coerceNames(SEXP x, SEXP names) {
+    SEXP coerced = names instanceof StringExp ? names : new CoerceArgToString(names).coerce();
+    StringExp values = (StringExp) coerced;
+    if(values.length() > x.length()) {
+      throw new EvalException("'names' attribute [%d] must be the same length as the vector [%d]",
+          values.length(), x.length());
+    }
+    if(values.length() < x.length()) {
+      String padded[] = new String[x.length()];
+      for(int i=0; i!=values.length(); ++i) {
+        padded[i] = values.get(i);
+      }
+      return StringExp.wrap(padded);
+    }
+    return values;
+  }
+
+  private static IntExp coerceDim(SEXP x, SEXP dim) {
+    if(!(dim instanceof NumericExp) || dim.length() == 0) {
+      throw new EvalException("length-0 dimension vector is invalid");
+    }
+    NumericExp values = (NumericExp) dim;
+    int extents[] = new int[values.length()];
+    long product = 1;
+    for(int i=0; i!=extents.length; ++i) {
+      if(values.isNA(i)) {
+        throw new EvalException("the dims contain missing or negative values");
+      }
+      extents[i] = values.getInt(i);
+      if(extents[i] < 0) {
+        throw new EvalException("the dims contain missing or negative values");
+      }
+      product *= extents[i];
+    }
+    if(product != x.longLength()) {
+      throw new EvalException("dims [product %d] do not match the length of object [%d]",
+          product, x.longLength());
+    }
+    return new IntExp(extents);
+  }
+
+  /**
+   * Sets the attribute {@code name} of {@code x}, validating the hot attributes
+   * as R does.
+   */
+  static SEXP setAttribute(SEXP x, String name, SEXP value) {
+    if(x == NilExp.INSTANCE && value == NilExp.INSTANCE) {
+      return x;
+    }
+    SEXP target = modifiable(x);
+    if(value != NilExp.INSTANCE) {
+      if(AttributeMap.NAMES.equals(name)) {
+        value = coerceNames(target, value);
+      } else if(AttributeMap.DIM.equals(name)) {
+        value = coerceDim(target, value);
+        // like R, setting the dimensions drops any names
+        target.setAttributeMap(target.getAttributeMap().without(AttributeMap.NAMES));
+      } else if(AttributeMap.CLASS.equals(name) && !(value instanceof StringExp)) {
+        value = new CoerceArgToString(value).coerce();
+      }
+    }
+    target.setAttribute(name, value);
+    return target;
+  }
+
+  /**
+   * {@code attr(x, which, exact = FALSE)}. Unless {@code exact} is {@code TRUE},
+   * {@code which} may be a unique prefix of an attribute name.
+   */
+  public static class Attr extends PrimitiveFunction {
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, NillOrListExp args) {
+      if(args.length() < 2 || args.length() > 3) {
+        throw new EvalException("either 2 or 3 arguments are required");
+      }
+      boolean exact = args.length() == 3 && args.getThird().asLogical() == Logical.TRUE;
+      return new EvalResult(shared(attr(args.getFirst(), attributeName(args.getSecond()), exact)));
+    }
+
+    public static SEXP attr(SEXP x, String name, boolean exact) {
+      SEXP value = x.getAttribute(name);
+      if(value != NilExp.INSTANCE || exact) {
+        return value;
+      }
+      String match = null;
+      for(String candidate : x.getAttributeMap().getAttributeNames()) {
+        if(candidate.startsWith(name)) {
+          if(match != null) {
+            return NilExp.INSTANCE;
+          }
+          match = candidate;
+        }
+      }
+      return match == null ? NilExp.INSTANCE : x.getAttribute(match);
+    }
+  }
+
+  /**
+   * {@code `attr<-`(x, which, value)}
+   */
+  public static class SetAttr extends TenaryFunction {
+    @Override
+    protected EvalResult apply(LangExp call, EnvExp rho, SEXP x, SEXP which, SEXP value) {
+      return new EvalResult(setAttribute(x, attributeName(which), value));
+    }
+  }
+
+  /**
+   * {@code attributes(x)}: all of the attributes of {@code x} as a tagged list,
+   * or {@code NULL}
+   */
+  public static class All extends UnaryFunction {
+    @Override
+    protected EvalResult apply(LangExp call, EnvExp rho, SEXP x) {
+      SEXP attributes = x.getAttributeMap().toPairList(rho.getGlobalContext().getSymbolTable());
+      for(ListExp node : ListExp.listNodes((NillOrListExp) attributes)) {
+        shared(node.getValue());
+      }
+      return new EvalResult(attributes);
+    }
+  }
+
+  /**
+   * {@code `attributes<-`(x, value)}: replaces all of the attributes of {@code x}
+   */
+  public static class SetAll extends BinaryFunction {
+    @Override
+    public EvalResult apply(LangExp call, EnvExp rho, SEXP x, SEXP value) {
+      if(value != NilExp.INSTANCE && !(value instanceof ListExp)) {
+        throw new EvalException("attributes must be a list or NULL");
+      }
+      SEXP target = modifiable(x);
+      target.setAttributeMap(AttributeMap.EMPTY);
+      // dim must be set first so that the names can be checked against it
+      List<ListExp> nodes = new ArrayList<ListExp>();
+      for(ListExp node : ListExp.listNodes((NillOrListExp) value)) {
+        if(!node.hasTag()) {
+          throw new EvalException("attributes must be named");
+        }
+        String name = ((SymbolExp) node.getTag()).getPrintName();
+        if(AttributeMap.DIM.equals(name)) {
+          target = setAttribute(target, name, node.getValue());
+        } else {
+          nodes.add(node);
+        }
+      }
+      for(ListExp node : nodes) {
+        target = setAttribute(target, ((SymbolExp) node.getTag()).getPrintName(), node.getValue());
+      }
+      return new EvalResult(target);
+    }
+  }
+
+  public static class Names extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP x) {
+      return new EvalResult(shared(x.getAttribute(AttributeMap.NAMES)));
+    }
+  }
+
+  public static class SetNames extends PureBinaryFunction {
+    @Override
+    public EvalResult apply(SEXP x, SEXP value) {
+      return new EvalResult(setAttribute(x, AttributeMap.NAMES, value));
+    }
+  }
+
+  public static class Dim extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP x) {
+      return new EvalResult(shared(x.getAttribute(AttributeMap.DIM)));
+    }
+  }
+
+  public static class SetDim extends PureBinaryFunction {
+    @Override
+    public EvalResult apply(SEXP x, SEXP value) {
+      return new EvalResult(setAttribute(x, AttributeMap.DIM, value));
+    }
+  }
+
+  public static class DimNames extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP x) {
+      return new EvalResult(shared(x.getAttribute(AttributeMap.DIMNAMES)));
+    }
+  }
+
+  public static class SetDimNames extends PureBinaryFunction {
+    @Override
+    public EvalResult apply(SEXP x, SEXP value) {
+      return new EvalResult(setAttribute(x, AttributeMap.DIMNAMES, value));
+    }
+  }
+
+  /**
+   * {@code oldClass(x)}: the {@code class} attribute, without any implicit class
+   */
+  public static class OldClass extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP x) {
+      return new EvalResult(x.getAttribute(AttributeMap.CLASS));
+    }
+  }
+
+  public static class SetOldClass extends PureBinaryFunction {
+    @Override
+    public EvalResult apply(SEXP x, SEXP value) {
+      return new EvalResult(setAttribute(x, AttributeMap.CLASS, value));
+    }
+  }
+
+  /**
+   * {@code class(x)}: the {@code class} attribute, or the implicit class
+   */
+  public static class DataClass extends PureUnaryFunction {
+    @Override
+    public EvalResult apply(SEXP x) {
+      return new EvalResult(dataClass(x));
+    }
+  }
+
+  /**
+   * {@code class<-}: as {@code oldClass<-}, except that setting the implicit
+   * class of an object removes its {@code class} attribute.
+   */
+  public static class SetDataClass extends PureBinaryFunction {
+    @Override
+    public EvalResult apply(SEXP x, SEXP value) {
+      if(value instanceof StringExp && value.length() == 1 &&
+          x.getAttributeMap().getClassAttribute() == null) {
+        if(dataClass(x).get(0).equals(((StringExp) value).get(0))) {
+          return new EvalResult(x);
+        }
+      }
+      return new EvalResult(setAttribute(x, AttributeMap.CLASS, value));
+    }
+  }
+
+  /**
+   * {@code .Internal(inherits(x, what, which))}
+   */
+  public static class Inherits extends TenaryFunction {
+    @Override
+    protected EvalResult apply(LangExp call, EnvExp rho, SEXP x, SEXP what, SEXP which) {
+      if(!(what instanceof StringExp)) {
+        throw new EvalException("'what' must be a character vector");
+      }
+      if(which.length() != 1 || !(which instanceof LogicalExp)) {
+        throw new EvalException("'which' must be a length 1 logical vector");
+      }
+      return new EvalResult(inherits(x, (StringExp) what, which.asLogical() == Logical.TRUE));
+    }
+
+    public static SEXP inherits(SEXP x, StringExp what, boolean which) {
+      StringExp klass = dataClass(x);
+      int positions[] = new int[what.length()];
+      boolean any = false;
+      for(int i=0; i!=what.length(); ++i) {
+        String name = what.get(i);
+        for(int j=0; j!=klass.length(); ++j) {
+          // both sides are interned
+          if(klass.get(j) == name) {
+            positions[i] = j + 1;
+            any = true;
+            break;
+          }
+        }
+      }
+      return which ? new IntExp(positions) : new LogicalExp(any);
+    }
+  }
+}
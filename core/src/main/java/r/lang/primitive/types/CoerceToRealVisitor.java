@@ -24,39 +24,60 @@ package r.lang.primitive.types;
 import r.lang.*;
 import r.parser.ParseUtil;
 
-import java.util.ArrayList;
-
 public class CoerceToRealVisitor extends SexpVisitor implements CoercingVisitor {
 
-  private ArrayList<Double> values = new ArrayList<Double>();
+  private final double[] values;
+  private int size = 0;
 
+  /**
+   * The result is sized exactly before it is filled, so that no intermediate
+   * buffer is grown and then copied
+   */
   public CoerceToRealVisitor(SEXP exp) {
+    values = new double[countElements(exp)];
     exp.accept(this);
   }
 
+  private static int countElements(SEXP exp) {
+    if(exp instanceof ListExp) {
+      int count = 0;
+      for(SEXP element : (ListExp) exp) {
+        count += countElements(element);
+      }
+      return count;
+    } else if(exp instanceof RealExp || exp instanceof IntExp ||
+        exp instanceof StringExp || exp instanceof LogicalExp) {
+      return exp.length();
+    } else {
+      return 0;
+    }
+  }
+
   @Override
   public void visit(RealExp realExp) {
-    values.addAll(realExp.asListOfDoubles());
+    addAll(realExp.doubleIterator());
   }
 
   @Override
   public void visit(IntExp intExp) {
-    for(Integer i : intExp) {
-      values.add(i.doubleValue());
-    }
+    addAll(intExp.doubleIterator());
   }
 
   @Override
   public void visit(StringExp stringExp) {
     for(String s : stringExp) {
-      values.add(ParseUtil.parseDouble(s));
+      values[size++] = ParseUtil.parseDouble(s);
     }
   }
 
   @Override
   public void visit(LogicalExp logicalExp) {
-    for(Logical logical : logicalExp) {
-      values.add(toDouble(logical));
+    addAll(logicalExp.doubleIterator());
+  }
+
+  private void addAll(DoubleIterator it) {
+    while(it.hasNext()) {
+      values[size++] = it.nextDouble();
     }
   }
 
@@ -72,20 +93,8 @@ public class CoerceToRealVisitor extends SexpVisitor implements CoercingVisitor
     // Ignore
   }
 
-  private Double toDouble(Logical logical) {
-    switch (logical) {
-      case TRUE:
-        return 1d;
-      case FALSE:
-        return 0d;
-      case NA:
-        return RealExp.NA;
-    }
-    throw new IllegalArgumentException();
-  }
-
   @Override
   public SEXP coerce() {
-    return new RealExp(values);
+    return RealExp.wrap(values);
   }
 }
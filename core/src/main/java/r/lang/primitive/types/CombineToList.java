@@ -40,8 +40,8 @@ class CombineToList extends SexpVisitor implements CoercingVisitor {
 
   @Override
   public void visit(RealExp realExp) {
-    for(Double d : realExp) {
-      addElement(new RealExp(d));
+    for(int i=0; i!=realExp.length(); ++i) {
+      addElement(new RealExp(realExp.get(i)));
     }
   }
 
@@ -54,8 +54,8 @@ class CombineToList extends SexpVisitor implements CoercingVisitor {
 
   @Override
   public void visit(IntExp intExp) {
-    for(Integer i : intExp) {
-      addElement(new IntExp(i));
+    for(int i=0; i!=intExp.length(); ++i) {
+      addElement(new IntExp(intExp.get(i)));
     }
   }
 
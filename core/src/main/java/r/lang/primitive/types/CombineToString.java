@@ -21,11 +21,23 @@
 
 package r.lang.primitive.types;
 
+import r.lang.DictionaryStringExp;
 import r.lang.ListExp;
 import r.lang.SEXP;
+import r.lang.StringExp;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class CombineToString extends AbstractCoerceToString {
 
+  /**
+   * The dictionary-encoded vectors visited so far. If all of the elements
+   * come from encoded vectors, the result is encoded with the union of their dictionaries.
+   */
+  private final List<DictionaryStringExp> encoded = new ArrayList<DictionaryStringExp>();
+  private int encodedLength = 0;
+
   public CombineToString(SEXP s) {
     s.accept(this);
   }
@@ -37,4 +49,21 @@ public class CombineToString extends AbstractCoerceToString {
     }
   }
 
+  @Override
+  public void visit(StringExp stringExp) {
+    if(stringExp instanceof DictionaryStringExp) {
+      encoded.add((DictionaryStringExp) stringExp);
+      encodedLength += stringExp.length();
+    }
+    super.visit(stringExp);
+  }
+
+  @Override
+  public SEXP coerce() {
+    if(!encoded.isEmpty() && encodedLength == values.size()) {
+      return DictionaryStringExp.concat(encoded);
+    }
+    return super.coerce();
+  }
+
 }
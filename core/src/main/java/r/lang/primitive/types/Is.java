@@ -47,7 +47,7 @@ public class Is {
     }
 
     protected boolean apply(SEXP exp) {
-      return exp.getClass().equals(expectedClass);
+      return expectedClass.isInstance(exp);
     }
   }
 
@@ -0,0 +1,65 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.types;
+
+import r.lang.*;
+import r.lang.exception.EvalException;
+import r.lang.primitive.PureBinaryFunction;
+
+import java.util.Arrays;
+
+/**
+ * {@code .Internal(vector(mode, length))}. Numeric vectors start out as zeros, so they
+ * are created as sparse vectors which occupy constant memory until they are modified.
+ */
+public class MakeVector extends PureBinaryFunction {
+
+  @Override
+  public EvalResult apply(SEXP mode, SEXP length) {
+    if(!(mode instanceof StringExp) || mode.length() != 1) {
+      throw new EvalException("vector: cannot make a vector of mode '%s'.", mode);
+    }
+    if(!(length instanceof NumericExp) || length.length() != 1 ||
+        ((NumericExp) length).isNA(0) || ((NumericExp) length).getDouble(0) < 0) {
+      throw new EvalException("invalid 'length' argument");
+    }
+    return new EvalResult(makeVector(((StringExp) mode).get(0), ((NumericExp) length).getInt(0)));
+  }
+
+  public static SEXP makeVector(String mode, int length) {
+    if(mode.equals("logical")) {
+      return LogicalExp.ofLength(length);
+    } else if(mode.equals("integer")) {
+      return SparseIntExp.zeros(length);
+    } else if(mode.equals("numeric") || mode.equals("double")) {
+      return SparseRealExp.zeros(length);
+    } else if(mode.equals("character")) {
+      String values[] = new String[length];
+      Arrays.fill(values, "");
+      return DictionaryStringExp.encode(values);
+    } else if(mode.equals("list")) {
+      return length == 0 ? NilExp.INSTANCE : ListExp.ofLength(length);
+    } else {
+      throw new EvalException("vector: cannot make a vector of mode '%s'.", mode);
+    }
+  }
+}
@@ -232,7 +232,11 @@ public class ParseUtil {
   public static class RealPrinter implements Function<Double, String> {
     @Override
     public String apply(Double aDouble) {
-      return ParseUtil.toString(aDouble);
+      return apply(aDouble.doubleValue());
+    }
+
+    public String apply(double value) {
+      return ParseUtil.toString(value);
     }
   }
 
@@ -240,10 +244,24 @@ public class ParseUtil {
 
   }
 
+  public static class ComplexPrinter {
+    public String apply(double real, double imaginary) {
+      if(Double.isNaN(real) || Double.isNaN(imaginary)) {
+        return "NA";
+      }
+      return ParseUtil.toString(real) + (imaginary < 0 ? "-" : "+") +
+          ParseUtil.toString(Math.abs(imaginary)) + "i";
+    }
+  }
+
   public static class IntPrinter implements Function<Integer, String> {
     @Override
     public String apply(Integer integer) {
-      return ParseUtil.toString(integer);
+      return apply(integer.intValue());
+    }
+
+    public String apply(int value) {
+      return ParseUtil.toString(value);
     }
   }
 
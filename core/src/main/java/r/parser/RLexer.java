@@ -857,21 +857,7 @@ an ANSI digit or not */
   }
 
   private SEXP mkComplex(String s) {
-      throw new UnsupportedOperationException("not quite implemented yet.");
-    //return new ComplexExp(ComplexNumber.parseComplex(s));
-//    SEXP t = context.getSymbolTable().getNilValue();
-//    double f;
-//    f = R_atof(s); /* FIXME: make certain the value is legitimate. */
-//
-//    if(GenerateCode) {
-////      t = allocVector(CPLXSXP, 1);
-////      COMPLEX(t)[0].r = 0;
-////      COMPLEX(t)[0].i = f;
-//    }
-//
-//    return t;
-
-    //   return R_NilValue;
+    return ComplexExp.of(0, ParseUtil.parseDouble(s));
   }
 
 
@@ -25,6 +25,7 @@ import org.junit.Test;
 import r.lang.IntExp;
 import r.lang.ListExp;
 import r.lang.RealExp;
+import r.lang.RealSequence;
 import r.lang.StringExp;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -38,6 +39,13 @@ public class PrintingVisitorTest {
         equalTo("[1]  1 99  3\n"));                                                
   }
 
+  @Test
+  public void longVectorIsTruncated() {
+    String result = new PrintingVisitor(new RealSequence(1, 1, 3000000000L), 80).getResult();
+    assertThat(result.substring(result.lastIndexOf('\n', result.length() - 2) + 1),
+        equalTo(" [ reached getOption(\"max.print\") -- omitted 2999900001 entries ]\n"));
+  }
+
   @Test
   public void stringVector() {
     assertThat(new PrintingVisitor(new StringExp("abcdef", "a", "b"), 80).getResult(),
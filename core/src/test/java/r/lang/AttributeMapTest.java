@@ -0,0 +1,101 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AttributeMapTest {
+
+  @Test
+  public void hotAttributesHaveSlots() {
+    StringExp names = new StringExp("a", "b");
+    AttributeMap map = AttributeMap.EMPTY
+        .with(new String("names"), names)
+        .with("foo", new IntExp(1));
+
+    assertThat(map.getNames(), sameInstance((SEXP) names));
+    assertThat(map.get("names"), sameInstance((SEXP) names));
+    assertThat(map.get("foo"), equalTo((SEXP) new IntExp(1)));
+    assertThat(map.get("bar"), nullValue());
+    assertThat(map.size(), equalTo(2));
+    assertThat(map.getAttributeNames().get(0), equalTo("names"));
+  }
+
+  @Test
+  public void modificationLeavesOriginalUnchanged() {
+    AttributeMap original = AttributeMap.EMPTY.with("dim", new IntExp(2, 2)).with("foo", new IntExp(1));
+    AttributeMap modified = original.with("foo", new IntExp(2)).without("dim");
+
+    assertThat(original.get("foo"), equalTo((SEXP) new IntExp(1)));
+    assertThat(original.getDim(), equalTo((SEXP) new IntExp(2, 2)));
+    assertThat(modified.get("foo"), equalTo((SEXP) new IntExp(2)));
+    assertThat(modified.getDim(), nullValue());
+  }
+
+  @Test
+  public void removingTheLastAttribute() {
+    AttributeMap map = AttributeMap.EMPTY.with("foo", new IntExp(1)).with("foo", NilExp.INSTANCE);
+
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void copiedAttributesAreShared() {
+    RealExp x = new RealExp(1, 2);
+    x.setAttribute("names", new StringExp("a", "b"));
+    RealExp y = x.duplicate();
+    y.copyAttributesFrom(x);
+
+    assertThat(y.getAttributeMap(), sameInstance(x.getAttributeMap()));
+
+    y.setAttribute("names", new StringExp("c", "d"));
+    assertThat(x.getAttribute("names"), equalTo((SEXP) new StringExp("a", "b")));
+  }
+
+  @Test
+  public void inherits() {
+    IntExp x = new IntExp(1, 2);
+    x.setAttribute("class", new StringExp("factor"));
+
+    assertTrue(x.isObject());
+    assertTrue(x.inherits("factor"));
+    assertThat(x.inherits("data.frame"), equalTo(false));
+    assertThat(x.isNumeric(), equalTo(false));
+  }
+
+  @Test
+  public void pairListRoundTrip() {
+    SEXP x = new RealExp(1);
+    x.setAttribute("foo", new StringExp("bar"));
+    x.setAttribute("dim", new IntExp(1));
+
+    SEXP y = new RealExp(2);
+    y.setAttributes(x.getAttributes());
+
+    assertThat(y.getAttribute("foo"), equalTo((SEXP) new StringExp("bar")));
+    assertThat(y.getAttribute("dim"), equalTo((SEXP) new IntExp(1)));
+  }
+}
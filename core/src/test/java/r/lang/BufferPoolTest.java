@@ -0,0 +1,82 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class BufferPoolTest {
+
+  private static final int N = BufferPool.MIN_POOLED_LENGTH * 2;
+
+  @Test
+  public void arraysAreReusedWithinAnEvaluation() {
+    BufferPool pool = new BufferPool();
+    pool.open();
+
+    double array[] = pool.allocateDoubles(N);
+    pool.release(array);
+
+    assertThat(pool.getPooledBytes(), equalTo(N * 8L));
+    assertThat(pool.allocateDoubles(N), sameInstance(array));
+    assertThat(pool.allocateDoubles(N), not(sameInstance(array)));
+    assertThat(pool.getPooledBytes(), equalTo(0L));
+  }
+
+  @Test
+  public void closingEmptiesThePool() {
+    BufferPool pool = new BufferPool();
+    pool.open();
+    pool.open();
+    pool.release(new int[N]);
+
+    pool.close();
+    assertThat(pool.getPooledBytes(), equalTo(N * 4L));
+
+    pool.close();
+    assertThat(pool.getPooledBytes(), equalTo(0L));
+
+    pool.release(new int[N]);
+    assertThat(pool.getPooledBytes(), equalTo(0L));
+  }
+
+  @Test
+  public void smallArraysAreNotPooled() {
+    BufferPool pool = new BufferPool();
+    pool.open();
+    pool.release(new double[BufferPool.MIN_POOLED_LENGTH - 1]);
+
+    assertThat(pool.getPooledBytes(), equalTo(0L));
+  }
+
+  @Test
+  public void unpooledNeverRetains() {
+    BufferPool.UNPOOLED.open();
+    BufferPool.UNPOOLED.release(new double[N]);
+
+    assertThat(BufferPool.UNPOOLED.getPooledBytes(), equalTo(0L));
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class ClosureEnvExpTest extends EvalTestCase {
+
+  @Test
+  public void layoutHasFormalsThenAssignedSymbols() throws IOException {
+    evaluate("f <- function(a, b) { x <- a; for(i in b) y = i; g <- function() z <- 1 }");
+    FrameLayout layout = closure("f").getFrameLayout();
+
+    assertThat(layout.size(), equalTo(6));
+    assertThat(layout.getName(0), equalTo("a"));
+    assertThat(layout.getName(1), equalTo("b"));
+    assertThat(layout.indexOf(new SymbolExp("x")), equalTo(2));
+    assertThat(layout.indexOf(new SymbolExp("i")), equalTo(3));
+    assertThat(layout.indexOf(new SymbolExp("y")), equalTo(4));
+    assertThat(layout.indexOf(new SymbolExp("g")), equalTo(5));
+    assertThat(layout.indexOf(new SymbolExp("z")), equalTo(-1));
+  }
+
+  @Test
+  public void symbolsRememberTheirSlotPerLayout() throws IOException {
+    evaluate("f <- function(a) { x <- a }");
+    evaluate("g <- function(x) { a <- x }");
+    FrameLayout f = closure("f").getFrameLayout();
+    FrameLayout g = closure("g").getFrameLayout();
+    SymbolExp x = new SymbolExp("x");
+
+    assertThat(f.indexOf(x), equalTo(1));
+    assertThat(f.indexOf(x), equalTo(1));
+    assertThat(g.indexOf(x), equalTo(0));
+    assertThat(f.indexOf(x), equalTo(1));
+    assertThat(g.indexOf(new SymbolExp("z")), equalTo(-1));
+  }
+
+  @Test
+  public void slotsAndOverflow() throws IOException {
+    evaluate("f <- function(a) { x <- a }");
+    FrameLayout layout = closure("f").getFrameLayout();
+    ClosureEnvExp frame = new ClosureEnvExp(context.getGlobalEnvironment(), layout);
+    SEXP one = new RealExp(1);
+    SEXP two = new RealExp(2);
+
+    frame.setVariable(new SymbolExp("x"), one);
+    frame.setVariable(new SymbolExp("other"), two);
+
+    assertThat(frame.getSlot(layout.indexOf(new SymbolExp("x"))), sameInstance(one));
+    assertThat(frame.findVariable(new SymbolExp("x")), sameInstance(one));
+    assertThat(frame.findVariable(new SymbolExp("other")), sameInstance(two));
+    assertThat(frame.findVariableInFrame(new SymbolExp("a")), sameInstance((SEXP) SymbolExp.UNBOUND_VALUE));
+    assertThat(frame.getSymbolNames().size(), equalTo(2));
+  }
+
+  @Test
+  public void unboundSlotsFallThroughToParent() throws IOException {
+    evaluate("x <- 1");
+    evaluate("f <- function() { y <- x; x <- 2; y + x }");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(3));
+    assertThat(evaluateToExpression("x"), realVectorEqualTo(1));
+  }
+}
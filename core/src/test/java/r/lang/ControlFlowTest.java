@@ -28,6 +28,7 @@ import java.io.IOException;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.intVectorOf;
 import static r.ExpMatchers.logicalVectorOf;
 import static r.ExpMatchers.realVectorEqualTo;
 
@@ -94,6 +95,24 @@ public class ControlFlowTest extends EvalTestCase {
     assertThat(evaluateToExpression("y"), realVectorEqualTo(1));
   }
 
+  @Test
+  public void assignmentIncrementsNamed() throws IOException {
+    evaluateToExpression("x<-sqrt(4)");
+    assertThat(evaluateToExpression("x").getNamed(), equalTo(1));
+
+    evaluateToExpression("y<-x");
+    assertThat(evaluateToExpression("x").getNamed(), equalTo(2));
+  }
+
+  @Test
+  public void arithmeticDoesNotOverwriteVariables() throws IOException {
+    evaluateToExpression("x<-c(1,2)");
+    evaluateToExpression("y<-sqrt(x * 4) + 1");
+
+    assertThat(evaluateToExpression("x"), equalTo((SEXP) new RealExp(1, 2)));
+    assertThat(evaluateToExpression("y"), equalTo((SEXP) new RealExp(3, Math.sqrt(8) + 1)));
+  }
+
   @Test
   public void whileLoop() throws IOException {
     evaluateToExpression("x<-TRUE");
@@ -118,6 +137,15 @@ public class ControlFlowTest extends EvalTestCase {
     assertThat(evaluateToExpression("y"), realVectorEqualTo(99));
   }
 
+  @Test
+  public void forStatementOverSequence() throws IOException {
+    evaluateToExpression("y <- 0");
+    evaluateToExpression("for( x in 1:100 ) { y <- y + x } ");
+
+    assertThat(evaluateToExpression("x"), intVectorOf(100));
+    assertThat(evaluateToExpression("y"), realVectorEqualTo(5050));
+  }
+
   @Test
   public void function() throws IOException {
     evaluateToExpression("f <- function(x) { x }");
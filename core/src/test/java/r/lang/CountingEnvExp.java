@@ -0,0 +1,63 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+/**
+ * An environment which counts the lookups made in it, to test the caches which
+ * are meant to avoid them
+ */
+public class CountingEnvExp extends EnvExp {
+
+  private int functionLookups;
+  private int frameLookups;
+
+  public CountingEnvExp(EnvExp enclosing) {
+    super(enclosing);
+  }
+
+  @Override
+  public SEXP findFun(SymbolExp symbol) {
+    functionLookups++;
+    return super.findFun(symbol);
+  }
+
+  @Override
+  public SEXP findVariableInFrame(SymbolExp symbol) {
+    frameLookups++;
+    return super.findVariableInFrame(symbol);
+  }
+
+  /**
+   * @return the number of calls to {@link #findFun(SymbolExp)}
+   */
+  public int getFunctionLookups() {
+    return functionLookups;
+  }
+
+  /**
+   * @return the number of calls to {@link #findVariableInFrame(SymbolExp)}, including
+   * those made by {@link #findFun(SymbolExp)}
+   */
+  public int getFrameLookups() {
+    return frameLookups;
+  }
+}
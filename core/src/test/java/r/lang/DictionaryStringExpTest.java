@@ -0,0 +1,90 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+import r.lang.primitive.match.Sort;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class DictionaryStringExpTest {
+
+  @Test
+  public void lowCardinalityIsEncoded() {
+    StringExp x = DictionaryStringExp.encode(repeat("a", "b", null, "b"));
+
+    assertThat(x, instanceOf(DictionaryStringExp.class));
+    assertThat(((DictionaryStringExp) x).getDictionarySize(), equalTo(3));
+    assertThat(x, equalTo(StringExp.wrap(repeat("a", "b", null, "b"))));
+  }
+
+  @Test
+  public void highCardinalityIsNotEncoded() {
+    String[] values = new String[100];
+    for(int i=0; i!=values.length; ++i) {
+      values[i] = Integer.toString(i);
+    }
+    assertThat(DictionaryStringExp.encode(values), not(instanceOf(DictionaryStringExp.class)));
+  }
+
+  @Test
+  public void setExtendsDictionary() {
+    DictionaryStringExp x = new DictionaryStringExp(new String[] { "a" }, new int[] { 0, 0 });
+    DictionaryStringExp y = x.duplicate();
+    y.set(1, "z");
+
+    assertThat(y, equalTo((StringExp) new StringExp("a", "z")));
+    assertThat(x, equalTo((StringExp) new StringExp("a", "a")));
+  }
+
+  @Test
+  public void concatMergesDictionaries() {
+    DictionaryStringExp x = new DictionaryStringExp(new String[] { "a", "b" }, new int[] { 1, 0 });
+    DictionaryStringExp y = new DictionaryStringExp(new String[] { "c", "b" }, new int[] { 0, 1 });
+    DictionaryStringExp xy = DictionaryStringExp.concat(Arrays.asList(x, y));
+
+    assertThat(xy.getDictionarySize(), equalTo(3));
+    assertThat(xy, equalTo((StringExp) new StringExp("b", "a", "c", "b")));
+  }
+
+  @Test
+  public void sortKeepsEncoding() {
+    DictionaryStringExp x = new DictionaryStringExp(new String[] { "b", "a", "c" }, new int[] { 0, 2, 1, 0 });
+    SEXP sorted = new Sort().apply(x, new LogicalExp(true)).getExpression();
+
+    assertThat(sorted, instanceOf(DictionaryStringExp.class));
+    assertThat(sorted, equalTo((SEXP) new StringExp("c", "b", "b", "a")));
+  }
+
+  private static String[] repeat(String... values) {
+    String[] repeated = new String[DictionaryStringExp.MIN_ENCODED_LENGTH * values.length];
+    for(int i=0; i!=repeated.length; ++i) {
+      repeated[i] = values[i % values.length];
+    }
+    return repeated;
+  }
+}
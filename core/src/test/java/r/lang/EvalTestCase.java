@@ -54,6 +54,12 @@ public abstract class EvalTestCase {
     return exp.evaluate(context.getGlobalEnvironment());
   }
 
+  /**
+   * @return the closure bound to {@code name} in the global environment
+   */
+  protected ClosureExp closure(String name) {
+    return (ClosureExp) context.getGlobalEnvironment().findVariable(new SymbolExp(name));
+  }
 
 
   private SEXP parse(String source) throws IOException {
@@ -0,0 +1,88 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LogicalExpTest {
+
+  @Test
+  public void elementsAcrossWords() {
+    LogicalExp x = LogicalExp.ofLength(130);
+    x.set(0, 1);
+    x.set(63, IntExp.NA);
+    x.set(64, 1);
+    x.set(129, 1);
+
+    assertThat(x.get(0), equalTo(1));
+    assertThat(x.get(1), equalTo(0));
+    assertThat(x.get(63), equalTo(IntExp.NA));
+    assertThat(x.get(64), equalTo(1));
+    assertThat(x.get(129), equalTo(1));
+    assertThat(x.which(), equalTo((SEXP) new IntExp(1, 65, 130)));
+  }
+
+  @Test
+  public void reductions() {
+    LogicalExp x = new LogicalExp(Logical.TRUE, Logical.NA, Logical.TRUE);
+
+    assertThat(x.any(), equalTo(Logical.TRUE));
+    assertThat(x.all(), equalTo(Logical.NA));
+    assertThat(new LogicalExp(true, false).all(), equalTo(Logical.FALSE));
+    assertThat(new LogicalExp(true, true).all(), equalTo(Logical.TRUE));
+    assertThat(new LogicalExp(false, false).any(), equalTo(Logical.FALSE));
+  }
+
+  @Test
+  public void operatorsFollowThreeValuedLogic() {
+    LogicalExp x = new LogicalExp(Logical.TRUE, Logical.TRUE, Logical.TRUE, Logical.FALSE, Logical.FALSE, Logical.NA);
+    LogicalExp y = new LogicalExp(Logical.TRUE, Logical.FALSE, Logical.NA, Logical.FALSE, Logical.NA, Logical.NA);
+
+    assertThat(x.and(y), equalTo(new LogicalExp(Logical.TRUE, Logical.FALSE, Logical.NA, Logical.FALSE, Logical.FALSE, Logical.NA)));
+    assertThat(x.or(y), equalTo(new LogicalExp(Logical.TRUE, Logical.TRUE, Logical.TRUE, Logical.FALSE, Logical.NA, Logical.NA)));
+    assertThat(x.not(), equalTo(new LogicalExp(Logical.FALSE, Logical.FALSE, Logical.FALSE, Logical.TRUE, Logical.TRUE, Logical.NA)));
+    assertThat(x.not().all(), equalTo(Logical.FALSE));
+  }
+
+  @Test
+  public void sliceAcrossWords() {
+    boolean values[] = new boolean[200];
+    for(int i=0; i<values.length; i+=3) {
+      values[i] = true;
+    }
+    LogicalExp x = new LogicalExp(values);
+    LogicalExp slice = x.slice(61, 190);
+
+    assertThat(slice.length(), equalTo(129));
+    for(int i=0; i!=slice.length(); ++i) {
+      assertThat(slice.get(i), equalTo(values[61 + i] ? 1 : 0));
+    }
+  }
+
+  @Test
+  public void elementsAreSeparatedInToString() {
+    assertThat(new LogicalExp(Logical.TRUE, Logical.FALSE, Logical.NA).toString(), equalTo("[TRUE, FALSE, NA]"));
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+import r.lang.exception.EvalException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MemoryAccountingTest extends EvalTestCase {
+
+  @Test
+  public void vectorsAreAccountedOnce() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    RealExp x = RealExp.ofLength(1000);
+
+    accounting.track(x);
+    accounting.track(x);
+    accounting.track(new RealExp(1, 2, 3));
+
+    assertThat(accounting.getLiveBytes(), equalTo(8000L));
+    assertThat(accounting.getLiveCounts().get("double"), equalTo(1L));
+  }
+
+  @Test
+  public void vectorsAreAccountedWhenAllocated() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    RealExp before = RealExp.ofLength(1000);
+
+    MemoryAccounting previous = accounting.enter();
+    try {
+      RealExp x = RealExp.ofLength(1000);
+      IntExp y = new IntExp(new int[2000]);
+      x.duplicate();
+    } finally {
+      accounting.exit(previous);
+    }
+    RealExp after = RealExp.ofLength(1000);
+
+    assertThat(accounting.getLiveBytes(), equalTo(16000L));
+    assertThat(accounting.getLiveCounts().get("integer"), equalTo(1L));
+  }
+
+  @Test
+  public void hardLimitFailsAllocationBeforeItIsMade() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    accounting.setHardLimit(10000);
+
+    MemoryAccounting previous = accounting.enter();
+    try {
+      LogicalExp.ofLength(1000000);
+      fail();
+    } catch(EvalException e) {
+      assertThat(e.getMessage(), equalTo("cannot allocate vector of size 244.1 Kb"));
+    } finally {
+      accounting.exit(previous);
+    }
+    assertThat(accounting.getLiveBytes(), equalTo(0L));
+  }
+
+  @Test
+  public void viewsAndCompactVectorsHoldLittle() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    RealExp x = RealExp.ofLength(1000);
+    x.setNamed(1);
+
+    accounting.track(x.slice(0, 999));
+    accounting.track(new RealSequence(1, 1, 1000000));
+
+    assertThat(accounting.getLiveBytes(), equalTo(0L));
+  }
+
+  @Test
+  public void hardLimitFailsAllocation() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    accounting.setHardLimit(10000);
+
+    try {
+      accounting.track(RealExp.ofLength(2000));
+      fail();
+    } catch(EvalException e) {
+      assertThat(e.getMessage(), equalTo("cannot allocate vector of size 15.6 Kb"));
+    }
+  }
+
+  @Test
+  public void failedAllocationIsNotAccounted() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    accounting.setHardLimit(10000);
+    RealExp x = RealExp.ofLength(2000);
+
+    try {
+      accounting.track(x);
+      fail();
+    } catch(EvalException e) {
+    }
+    accounting.setHardLimit(MemoryAccounting.UNLIMITED);
+    accounting.track(x);
+
+    assertThat(accounting.getLiveBytes(), equalTo(16000L));
+  }
+
+  @Test
+  public void softLimitWarnsOncePerCrossing() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    accounting.setSoftLimit(10000);
+    final List<LogRecord> warnings = new ArrayList<LogRecord>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        warnings.add(record);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    Logger logger = Logger.getLogger("R.warnings");
+    logger.addHandler(handler);
+    try {
+      List<RealExp> held = new ArrayList<RealExp>();
+      for(int i=0; i!=5; ++i) {
+        RealExp x = RealExp.ofLength(1000);
+        held.add(x);
+        accounting.track(x);
+      }
+      assertThat(warnings.size(), equalTo(1));
+    } finally {
+      logger.removeHandler(handler);
+    }
+  }
+
+  @Test
+  public void memLimitsApplyToEvaluation() throws IOException {
+    evaluateToExpression(".Internal(mem.limits(NA, 100000, NA))");
+    evaluateToExpression("x <- 1:1000 * 2");
+
+    try {
+      evaluateToExpression("y <- 1:100000 * 2");
+      fail();
+    } catch(EvalException e) {
+      assertThat(e.getMessage(), equalTo("cannot allocate vector of size 781.3 Kb"));
+    }
+    assertThat(context.getMemoryAccounting().getLiveCounts().get("double"), equalTo(1L));
+  }
+
+  @Test
+  public void memLimitsSetsTheSoftLimit() throws IOException {
+    SEXP limits = evaluateToExpression(".Internal(mem.limits(NA, NA, 50000))");
+
+    assertThat(context.getMemoryAccounting().getSoftLimit(), equalTo(50000L));
+    assertThat(context.getMemoryAccounting().getHardLimit(), equalTo(MemoryAccounting.UNLIMITED));
+    assertThat(limits, equalTo((SEXP) new RealExp(RealExp.NA, RealExp.NA, 50000)));
+    assertThat(limits.getAttribute(AttributeMap.NAMES), equalTo((SEXP) new StringExp("nsize", "vsize", "soft")));
+  }
+
+  @Test
+  public void memoryProfile() throws IOException {
+    evaluateToExpression("x <- 1:10000 * 2");
+
+    SEXP profile = evaluateToExpression(".Internal(memory.profile())");
+    assertThat(profile, equalTo((SEXP) new IntExp(1)));
+    assertThat(profile.getAttribute(AttributeMap.NAMES), equalTo((SEXP) new StringExp("double")));
+  }
+}
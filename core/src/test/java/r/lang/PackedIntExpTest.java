@@ -0,0 +1,61 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class PackedIntExpTest {
+
+  @Test
+  public void sortedIds() {
+    int[] ids = new int[1000];
+    for(int i=0; i!=ids.length; ++i) {
+      ids[i] = 1000000 + i * 3 + (i % 2);
+    }
+    PackedIntExp x = PackedIntExp.encode(ids.clone());
+
+    assertThat(x, notNullValue());
+    assertThat(x, equalTo(IntExp.wrap(ids)));
+    assertThat(x.min(), equalTo(1000000));
+  }
+
+  @Test
+  public void fullRange() {
+    int[] values = new int[512];
+    for(int i=0; i!=values.length; ++i) {
+      values[i] = i < 256 ? i : Integer.MAX_VALUE - i;
+    }
+    values[0] = Integer.MIN_VALUE + 1;
+    assertThat(IntExp.compress(values.clone()), equalTo(IntExp.wrap(values)));
+  }
+
+  @Test
+  public void compressPrefersRuns() {
+    int[] values = new int[256];
+    assertThat(IntExp.compress(values), instanceOf(RunLengthIntExp.class));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RealExpTest {
+
+  @Test
+  public void duplicateIsCopiedOnWrite() {
+    RealExp x = new RealExp(1, 2, 3);
+    RealExp y = x.duplicate();
+
+    y.set(0, 99);
+
+    assertThat(x.get(0), equalTo(1d));
+    assertThat(y.get(0), equalTo(99d));
+
+    x.set(1, 42);
+    assertThat(y.get(1), equalTo(2d));
+  }
+
+  @Test
+  public void arraysHandedOutAreNotModified() {
+    RealExp x = RealExp.ofLength(2);
+    double values[] = x.asDoubleArray();
+
+    x.set(0, 1);
+
+    assertThat(values[0], equalTo(0d));
+    assertThat(x.get(0), equalTo(1d));
+  }
+
+  @Test
+  public void sequenceDuplicateIsModifiable() {
+    RealExp x = new RealSequence(1, 1, 3).duplicate();
+    x.set(2, 0);
+
+    assertThat(x, equalTo((SEXP) new RealExp(1, 2, 0)));
+  }
+
+  @Test
+  public void doubleIterator() {
+    DoubleIterator it = new IntExp(3, IntExp.NA).doubleIterator();
+
+    assertThat(it.nextDouble(), equalTo(3d));
+    assertTrue(RealExp.isNaN(it.nextDouble()));
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void sequencesAreKnownSorted() {
+    RealExp x = new RealSequence(1, 1, 5);
+
+    assertTrue(x.isKnownSorted());
+    assertTrue(x.slice(1, 3).isKnownSorted());
+    assertThat(x.max(), equalTo(5d));
+  }
+
+  @Test
+  public void settingAnElementWithdrawsProperties() {
+    RealExp x = new RealExp(1, 2, 3);
+    x.declareSorted();
+    RealExp y = x.duplicate();
+
+    y.set(0, 5);
+    assertTrue(y.isKnownNoNA());
+    assertFalse(y.isKnownSorted());
+
+    y.set(1, RealExp.NA);
+    assertFalse(y.isKnownNoNA());
+    assertTrue(x.isKnownSorted());
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class RunLengthIntExpTest {
+
+  @Test
+  public void fromRuns() {
+    IntExp x = RunLengthIntExp.fromRuns(new int[] { 3, 3, 7, 1 }, new int[] { 4, 2, 0, 10 });
+
+    assertThat(x, instanceOf(RunLengthIntExp.class));
+    assertThat(((RunLengthIntExp) x).getRunCount(), equalTo(2));
+    assertThat(x.length(), equalTo(16));
+    assertThat(x.get(5), equalTo(3));
+    assertThat(x.get(6), equalTo(1));
+    assertThat(x.get(0), equalTo(3));
+    assertThat(x.get(15), equalTo(1));
+    assertThat(x.sum(), equalTo(28d));
+    assertThat(x.min(), equalTo(1));
+  }
+
+  @Test
+  public void fewRepeatsAreNotEncoded() {
+    assertThat(RunLengthIntExp.encode(new int[] { 1, 1, 2, 3 }), equalTo(null));
+  }
+
+  @Test
+  public void duplicateIsModifiable() {
+    IntExp x = RunLengthIntExp.encode(new int[] { 5, 5, 5, 5, 5, 5, 5, 5 });
+    IntExp y = x.duplicate();
+    y.set(0, 1);
+
+    assertThat(y, equalTo(new IntExp(1, 5, 5, 5, 5, 5, 5, 5)));
+    assertThat(x.sum(), equalTo(40d));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SegmentedRealExpTest {
+
+  @Test
+  public void readAndWrite() {
+    SegmentedRealExp x = SegmentedRealExp.allocate(3);
+    x.set(0L, 1.5);
+    x.set(2L, 3);
+
+    assertThat(x.get(0), equalTo(1.5));
+    assertThat(x.get(2L), equalTo(3d));
+    assertThat(x.sum(), equalTo(4.5));
+    assertThat((RealExp) x, equalTo(new RealExp(1.5, 0, 3)));
+  }
+
+  @Test
+  public void duplicateIsIndependent() {
+    SegmentedRealExp x = SegmentedRealExp.allocate(2);
+    RealExp y = x.duplicate();
+    y.set(0, 42);
+
+    assertThat(x.get(0), equalTo(0d));
+    assertThat(y.get(0), equalTo(42d));
+  }
+
+  @Test
+  public void segmentCount() {
+    assertThat(SegmentedRealExp.segmentCount(3000000000L), equalTo(23));
+    assertThat(SegmentedRealExp.segmentLength(3000000000L, 22), equalTo((int) (3000000000L - 22L * (1 << 27))));
+  }
+}
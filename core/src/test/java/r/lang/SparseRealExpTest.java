@@ -0,0 +1,73 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class SparseRealExpTest {
+
+  @Test
+  public void elements() {
+    SparseRealExp x = new SparseRealExp(10, new int[] { 2, 7 }, new double[] { 1.5, -3 });
+
+    assertThat(x.get(0), equalTo(0d));
+    assertThat(x.get(2), equalTo(1.5));
+    assertThat(x.get(9), equalTo(0d));
+    assertThat(x.get(7), equalTo(-3d));
+    assertThat(x.get(3), equalTo(0d));
+    assertThat(x, equalTo((RealExp) new RealExp(0, 0, 1.5, 0, 0, 0, 0, -3, 0, 0)));
+  }
+
+  @Test
+  public void reductions() {
+    SparseRealExp x = new SparseRealExp(10, new int[] { 2, 7 }, new double[] { 1.5, 3 });
+
+    assertThat(x.sum(), equalTo(4.5));
+    assertThat(x.min(), equalTo(0d));
+    assertThat(x.max(), equalTo(3d));
+  }
+
+  @Test
+  public void encodeOnlyMostlyZeros() {
+    assertThat(SparseRealExp.encode(new double[] { 0, 0, 0, 1 }), notNullValue());
+    assertThat(SparseRealExp.encode(new double[] { 0, 0, 1, 1 }), nullValue());
+  }
+
+  @Test
+  public void slice() {
+    SparseRealExp x = new SparseRealExp(10, new int[] { 2, 7 }, new double[] { 1.5, 3 });
+
+    assertThat(x.slice(5, 9), equalTo((RealExp) new RealExp(0, 0, 3, 0)));
+    assertThat(x.slice(5, 9), instanceOf(SparseRealExp.class));
+  }
+
+  @Test
+  public void duplicateIsDense() {
+    RealExp copy = new SparseRealExp(3, new int[] { 1 }, new double[] { 1 }).duplicate();
+    copy.set(0, 4);
+
+    assertThat(copy, equalTo((RealExp) new RealExp(4, 1, 0)));
+  }
+}
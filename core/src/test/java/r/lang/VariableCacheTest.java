@@ -0,0 +1,116 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class VariableCacheTest extends EvalTestCase {
+
+  private final SymbolExp x = new SymbolExp("x");
+  private final SEXP one = new RealExp(1);
+  private final SEXP two = new RealExp(2);
+
+  @Test
+  public void repeatedLookupSkipsIntermediateFrames() {
+    EnvExp global = context.getGlobalEnvironment();
+    CountingEnvExp intermediate = new CountingEnvExp(global);
+    EnvExp start = new EnvExp(intermediate);
+    VariableCache cache = new VariableCache();
+    global.setVariable(x, one);
+
+    assertThat(cache.findVariable(x, start), sameInstance(one));
+    assertThat(cache.findVariable(x, start), sameInstance(one));
+    assertThat(intermediate.getFrameLookups(), equalTo(1));
+  }
+
+  @Test
+  public void replacedValueIsReadAfresh() {
+    EnvExp global = context.getGlobalEnvironment();
+    CountingEnvExp intermediate = new CountingEnvExp(global);
+    VariableCache cache = new VariableCache();
+    global.setVariable(x, one);
+    cache.findVariable(x, intermediate);
+
+    global.setVariable(x, two);
+    assertThat(cache.findVariable(x, intermediate), sameInstance(two));
+    assertThat(intermediate.getFrameLookups(), equalTo(1));
+  }
+
+  @Test
+  public void unrelatedBindingsDoNotInvalidate() {
+    EnvExp global = context.getGlobalEnvironment();
+    CountingEnvExp intermediate = new CountingEnvExp(global);
+    VariableCache cache = new VariableCache();
+    global.setVariable(x, one);
+    cache.findVariable(x, intermediate);
+
+    new EnvExp(global).setVariable(new SymbolExp("y"), two);
+    assertThat(cache.findVariable(x, intermediate), sameInstance(one));
+    assertThat(intermediate.getFrameLookups(), equalTo(1));
+  }
+
+  @Test
+  public void bindingInIntermediateFrameInvalidates() {
+    EnvExp global = context.getGlobalEnvironment();
+    EnvExp intermediate = new EnvExp(global);
+    EnvExp start = new EnvExp(intermediate);
+    VariableCache cache = new VariableCache();
+    global.setVariable(x, one);
+    cache.findVariable(x, start);
+
+    intermediate.setVariable(x, two);
+    assertThat(cache.findVariable(x, start), sameInstance(two));
+  }
+
+  @Test
+  public void unboundSlotIsNotCached() throws IOException {
+    evaluate("f <- function(x) 1");
+    ClosureExp f = closure("f");
+    ClosureEnvExp frame = new ClosureEnvExp(context.getGlobalEnvironment(), f.getFrameLayout());
+    EnvExp start = new EnvExp(frame);
+    VariableCache cache = new VariableCache();
+    context.getGlobalEnvironment().setVariable(x, one);
+
+    assertThat(cache.findVariable(x, start), sameInstance(one));
+
+    frame.setSlot(f.getFrameLayout().indexOf(x), two);
+    assertThat(cache.findVariable(x, start), sameInstance(two));
+  }
+
+  @Test
+  public void compiledClosureSeesGlobalChanges() throws IOException {
+    context.getCompiler().setThreshold(1);
+    evaluate("f <- function() x");
+    evaluate("x <- 1");
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(1));
+
+    evaluate("x <- 2");
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(2));
+  }
+}
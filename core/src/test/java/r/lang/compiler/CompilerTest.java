@@ -0,0 +1,169 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import org.junit.Before;
+import org.junit.Test;
+import r.lang.EvalTestCase;
+import r.lang.Logical;
+import r.lang.NilExp;
+import r.lang.SEXP;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.logicalVectorOf;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class CompilerTest extends EvalTestCase {
+
+  @Before
+  public void compileOnFirstCall() {
+    context.getCompiler().setThreshold(1);
+  }
+
+  @Test
+  public void closureIsCompiledAfterThreshold() throws IOException {
+    context.getCompiler().setThreshold(2);
+    evaluate("f <- function(x) x");
+
+    assertThat(evaluateToExpression("f(1)"), realVectorEqualTo(1));
+    assertThat(closure("f").getCode(), nullValue());
+
+    assertThat(evaluateToExpression("f(2)"), realVectorEqualTo(2));
+    assertThat(closure("f").getCode(), notNullValue());
+  }
+
+  @Test
+  public void disabledCompilerLeavesClosuresInterpreted() throws IOException {
+    context.getCompiler().setEnabled(false);
+    evaluate("f <- function(x) x");
+    evaluate("f(1)");
+
+    assertThat(closure("f").getCode(), nullValue());
+  }
+
+  @Test
+  public void forLoop() throws IOException {
+    evaluate("f <- function(n) { y <- 0; for(i in 1:n) y <- y + i; y }");
+
+    assertThat(evaluateToExpression("f(100)"), realVectorEqualTo(5050));
+    assertThat(closure("f").getCode().toString().contains("STEPFOR"), equalTo(true));
+    assertThat(closure("f").getCode().toString().contains("GETLOCAL"), equalTo(true));
+    assertThat(closure("f").getCode().toString().contains("SETLOCAL"), equalTo(true));
+  }
+
+  @Test
+  public void nestedLoops() throws IOException {
+    evaluate("f <- function() { y <- 0; for(i in 1:3) for(j in 1:4) y <- y + 1; y }");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(12));
+  }
+
+  @Test
+  public void next() throws IOException {
+    evaluate("f <- function(skip) { s <- 0; for(i in 1:10) { if(skip) next; s <- s + i }; s }");
+
+    assertThat(evaluateToExpression("f(TRUE)"), realVectorEqualTo(0));
+    assertThat(evaluateToExpression("f(FALSE)"), realVectorEqualTo(55));
+  }
+
+  @Test
+  public void loopJumpsBehaveAlikeInterpretedAndCompiled() throws IOException {
+    context.getCompiler().setThreshold(3);
+    evaluate("f <- function(stop) { s <- 0; for(i in 1:10) { if(stop) break; s <- s + i; next; s <- 99 }; " +
+        "n <- 0; while(!n) { n <- 1; next; n <- 99 }; s + n }");
+
+    assertThat(evaluateToExpression("f(TRUE)"), realVectorEqualTo(1));
+    assertThat(evaluateToExpression("f(FALSE)"), realVectorEqualTo(56));
+    assertThat(closure("f").getCode(), nullValue());
+    assertThat(evaluateToExpression("f(TRUE)"), realVectorEqualTo(1));
+    assertThat(evaluateToExpression("f(FALSE)"), realVectorEqualTo(56));
+    assertThat(closure("f").getCode(), notNullValue());
+  }
+
+  @Test
+  public void whileWithBreak() throws IOException {
+    evaluate("f <- function() { n <- 0; while(TRUE) { n <- n + 1; break; n <- 99 }; n }");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(1));
+  }
+
+  @Test
+  public void breakFromWithinCallArgument() throws IOException {
+    evaluate("f <- function() { s <- 0; for(i in 1:10) { s <- s + sqrt(break) }; s }");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(0));
+  }
+
+  @Test
+  public void ifElse() throws IOException {
+    evaluate("f <- function(x) if(x) 1 else 2");
+
+    assertThat(evaluateToExpression("f(TRUE)"), realVectorEqualTo(1));
+    assertThat(evaluateToExpression("f(FALSE)"), realVectorEqualTo(2));
+  }
+
+  @Test
+  public void visibility() throws IOException {
+    evaluate("f <- function() x <- 1");
+    evaluate("g <- function(x) if(x) 1");
+    evaluate("h <- function() for(i in 1) i");
+
+    assertThat(evaluate("f()").isVisible(), equalTo(false));
+    assertThat(evaluate("g(TRUE)").isVisible(), equalTo(true));
+    assertThat(evaluate("g(FALSE)").isVisible(), equalTo(false));
+    assertThat(evaluate("g(FALSE)").getExpression(), equalTo((SEXP) NilExp.INSTANCE));
+    assertThat(evaluate("h()").isVisible(), equalTo(false));
+  }
+
+  @Test
+  public void emptyBody() throws IOException {
+    evaluate("f <- function() {}");
+
+    assertThat(evaluateToExpression("f()"), equalTo((SEXP) NilExp.INSTANCE));
+  }
+
+  @Test
+  public void assignmentIncrementsNamed() throws IOException {
+    evaluate("f <- function() { x <- sqrt(4); x }");
+
+    assertThat(evaluateToExpression("f()").getNamed(), equalTo(1));
+  }
+
+  @Test
+  public void closureCalls() throws IOException {
+    evaluate("two <- function() 2");
+    evaluate("f <- function(n) { s <- 0; for(i in 1:n) s <- s + two(); s }");
+
+    assertThat(evaluateToExpression("f(3)"), realVectorEqualTo(6));
+  }
+
+  @Test
+  public void specialsAreAppliedToUnevaluatedArguments() throws IOException {
+    evaluate("f <- function(x) missing(x)");
+
+    assertThat(evaluateToExpression("f()"), logicalVectorOf(Logical.TRUE));
+    assertThat(evaluateToExpression("f(1)"), logicalVectorOf(Logical.FALSE));
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.compiler;
+
+import org.junit.Before;
+import org.junit.Test;
+import r.lang.*;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+import static r.ExpMatchers.logicalVectorOf;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class JitCompilerTest extends EvalTestCase {
+
+  @Before
+  public void compileToJvmOnFirstCall() {
+    assumeThat(ToolProvider.getSystemJavaCompiler(), notNullValue());
+    context.getCompiler().setJitThreshold(1);
+    context.getCompiler().setJitInBackground(false);
+  }
+
+  @Test
+  public void compilesInBackground() throws Exception {
+    context.getCompiler().setJitInBackground(true);
+    evaluate("f <- function(x) x");
+
+    assertThat(evaluateToExpression("f(1)"), realVectorEqualTo(1));
+
+    long deadline = System.currentTimeMillis() + 60000;
+    while (closure("f").getJitBody() == null && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      assertThat(evaluateToExpression("f(2)"), realVectorEqualTo(2));
+    }
+    assertThat(closure("f").getJitBody(), notNullValue());
+    assertThat(evaluateToExpression("f(3)"), realVectorEqualTo(3));
+  }
+
+  @Test
+  public void closureIsCompiledAfterThreshold() throws IOException {
+    context.getCompiler().setJitThreshold(3);
+    evaluate("f <- function(x) x");
+    evaluate("f(1)");
+    evaluate("f(2)");
+
+    assertThat(closure("f").getCode(), notNullValue());
+    assertThat(closure("f").getJitBody(), nullValue());
+
+    assertThat(evaluateToExpression("f(3)"), realVectorEqualTo(3));
+    assertThat(closure("f").getJitBody(), notNullValue());
+  }
+
+  @Test
+  public void disabledTierLeavesClosuresOnMachine() throws IOException {
+    context.getCompiler().setJitEnabled(false);
+    evaluate("f <- function(x) x");
+
+    assertThat(evaluateToExpression("f(1)"), realVectorEqualTo(1));
+    assertThat(closure("f").getJitBody(), nullValue());
+  }
+
+  @Test
+  public void forLoopWithScalarArithmetic() throws IOException {
+    evaluate("f <- function(n) { y <- 0; for(i in 1:n) y <- y * 1 + i; y }");
+
+    assertThat(evaluateToExpression("f(100)"), realVectorEqualTo(5050));
+    assertThat(closure("f").getJitBody(), notNullValue());
+  }
+
+  @Test
+  public void vectorArithmetic() throws IOException {
+    evaluate("x <- 1:3");
+    evaluate("f <- function() x * 2");
+
+    assertThat(evaluateToExpression("f()"), equalTo((SEXP) new RealExp(2, 4, 6)));
+  }
+
+  @Test
+  public void redefinedOperator() throws IOException {
+    evaluate("f <- function() 2 + 3");
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(5));
+
+    evaluate("`+` <- function(x, y) 42");
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(42));
+  }
+
+  @Test
+  public void nextAndBreak() throws IOException {
+    evaluate("f <- function(skip) { s <- 0; for(i in 1:10) { if(skip) next; s <- s + i }; s }");
+    evaluate("g <- function() { n <- 0; while(TRUE) { n <- n + 1; break; n <- 99 }; n }");
+
+    assertThat(evaluateToExpression("f(TRUE)"), realVectorEqualTo(0));
+    assertThat(evaluateToExpression("f(FALSE)"), realVectorEqualTo(55));
+    assertThat(evaluateToExpression("g()"), realVectorEqualTo(1));
+  }
+
+  @Test
+  public void breakFromWithinCallArgument() throws IOException {
+    evaluate("f <- function() { s <- 0; for(i in 1:10) { s <- s + sqrt(break) }; s }");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(0));
+  }
+
+  @Test
+  public void visibility() throws IOException {
+    evaluate("f <- function() x <- 1");
+    evaluate("g <- function(x) if(x) 1");
+
+    assertThat(evaluate("f()").isVisible(), equalTo(false));
+    assertThat(evaluate("g(TRUE)").isVisible(), equalTo(true));
+    assertThat(evaluate("g(FALSE)").isVisible(), equalTo(false));
+  }
+
+  @Test
+  public void specialsAndClosures() throws IOException {
+    evaluate("two <- function() 2");
+    evaluate("f <- function(x) if(missing(x)) two() else x");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(2));
+    assertThat(evaluateToExpression("f(5)"), realVectorEqualTo(5));
+  }
+
+  @Test
+  public void missingArguments() throws IOException {
+    evaluate("f <- function(x) missing(x)");
+
+    assertThat(evaluateToExpression("f()"), logicalVectorOf(Logical.TRUE));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.node;
+
+import org.junit.Before;
+import org.junit.Test;
+import r.lang.*;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class CallNodeTest extends EvalTestCase {
+
+  @Before
+  public void interpretClosures() {
+    context.getCompiler().setEnabled(false);
+  }
+
+  @Test
+  public void specializesOnDoubleScalars() throws IOException {
+    evaluate("f <- function() x + y");
+    evaluate("x <- 1");
+    evaluate("y <- 2");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(3));
+    assertThat(body("f").getNode(), instanceOf(ArithmeticNode.DoubleScalar.class));
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(3));
+  }
+
+  @Test
+  public void generalizesOnTypeChange() throws IOException {
+    evaluate("f <- function() x * y");
+    evaluate("x <- 3");
+    evaluate("y <- 2");
+    evaluate("f()");
+
+    evaluate("x <- 1:1");
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(2));
+    assertThat(body("f").getNode(), instanceOf(ArithmeticNode.NumericScalar.class));
+
+    evaluate("x <- 1:2");
+    assertThat(evaluateToExpression("f()"), equalTo((SEXP) new RealExp(2, 4)));
+    assertThat(body("f").getNode(), instanceOf(ArithmeticNode.Vector.class));
+
+    evaluate("x <- 4");
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(8));
+    assertThat(body("f").getNode(), instanceOf(ArithmeticNode.Vector.class));
+  }
+
+  @Test
+  public void deoptimizesWhenFunctionChanges() throws IOException {
+    evaluate("f <- function() g(4)");
+    evaluate("g <- sqrt");
+
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(2));
+    assertThat(body("f").getNode(), instanceOf(CallNode.Builtin.class));
+
+    evaluate("g <- function(x) 1");
+    assertThat(evaluateToExpression("f()"), realVectorEqualTo(1));
+    assertThat(body("f").getNode(), instanceOf(CallNode.Generic.class));
+  }
+
+  private LangExp body(String name) {
+    return (LangExp) closure(name).getBody();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.node;
+
+import org.junit.Test;
+import r.lang.*;
+import r.lang.exception.EvalException;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class InlineCacheTest extends EvalTestCase {
+
+  @Test
+  public void findFunSkipsOtherValues() throws IOException {
+    evaluate("sqrt <- 4");
+
+    assertThat(evaluateToExpression("sqrt(16)"), realVectorEqualTo(4));
+  }
+
+  @Test(expected = EvalException.class)
+  public void couldNotFindFunction() throws IOException {
+    evaluate("f <- 1");
+    evaluate("f(1)");
+  }
+
+  @Test
+  public void repeatedLookupsAreCached() {
+    CountingEnvExp env = new CountingEnvExp(context.getGlobalEnvironment());
+    SymbolExp sqrt = context.getSymbolTable().install("sqrt");
+    InlineCache cache = new InlineCache();
+
+    SEXP function = cache.findFun(sqrt, env);
+    assertThat(cache.findFun(sqrt, env), sameInstance(function));
+    assertThat(env.getFunctionLookups(), equalTo(1));
+
+    env.setVariable(new SymbolExp("x"), new RealExp(1));
+    assertThat(cache.findFun(sqrt, env), sameInstance(function));
+    assertThat(env.getFunctionLookups(), equalTo(1));
+  }
+
+  @Test
+  public void bindingAFunctionInvalidatesCache() {
+    CountingEnvExp env = new CountingEnvExp(context.getGlobalEnvironment());
+    SymbolExp f = new SymbolExp("f");
+    InlineCache cache = new InlineCache();
+    ClosureExp first = new ClosureExp(env, NilExp.INSTANCE, new RealExp(1));
+    ClosureExp second = new ClosureExp(env, NilExp.INSTANCE, new RealExp(2));
+
+    context.getGlobalEnvironment().setVariable(f, first);
+    assertThat(cache.findFun(f, env), sameInstance((SEXP) first));
+
+    context.getGlobalEnvironment().setVariable(f, second);
+    assertThat(cache.findFun(f, env), sameInstance((SEXP) second));
+    assertThat(env.getFunctionLookups(), equalTo(2));
+  }
+
+  @Test
+  public void otherEnvironmentMisses() {
+    SymbolExp sqrt = context.getSymbolTable().install("sqrt");
+    InlineCache cache = new InlineCache();
+    cache.findFun(sqrt, new EnvExp(context.getGlobalEnvironment()));
+
+    CountingEnvExp env = new CountingEnvExp(context.getGlobalEnvironment());
+    cache.findFun(sqrt, env);
+    assertThat(env.getFunctionLookups(), equalTo(1));
+  }
+}
@@ -23,11 +23,14 @@ package r.lang.primitive.eval;
 
 import org.junit.Test;
 import r.lang.IntExp;
+import r.lang.IntSequence;
 import r.lang.RealExp;
+import r.lang.RealSequence;
 import r.lang.SEXP;
 
 import static junit.framework.Assert.assertTrue;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
 public class ColonFunctionTest {
@@ -74,6 +77,31 @@ public class ColonFunctionTest {
   }
 
 
+  @Test
+  public void longVectorRange() {
+    SEXP seq = colon(1, 3e9);
+    assertThat(seq, instanceOf(RealSequence.class));
+    assertThat(seq.longLength(), equalTo(3000000000L));
+    assertThat(((RealExp) seq).get(2999999999L), equalTo(3e9));
+    assertThat(((RealExp) seq).sum(), equalTo(4500000001500000000d));
+  }
+
+  @Test
+  public void largeRangeIsCompact() {
+    SEXP seq = colon(1, 1e9);
+    assertThat(seq, instanceOf(IntSequence.class));
+    assertThat(seq.length(), equalTo(1000000000));
+    assertThat(((IntExp) seq).get(999999999), equalTo(1000000000));
+    assertThat(((IntExp) seq).sum(), equalTo(500000000500000000d));
+  }
+
+  @Test
+  public void descendingRealRange() {
+    RealExp seq = (RealExp) colon(9.5, 1);
+    assertThat(seq.min(), equalTo(1.5));
+    assertThat(seq.max(), equalTo(9.5));
+  }
+
   private SEXP colon(double n1, double n2) {
     ColonFunction fn = new ColonFunction();
     return fn.colonSequence(new RealExp(n1), new RealExp(n2));
@@ -0,0 +1,82 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.eval;
+
+import org.junit.Test;
+import r.lang.*;
+import r.lang.exception.EvalException;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class RepTest extends EvalTestCase {
+
+  @Test
+  public void each() throws IOException {
+    SEXP x = evaluateToExpression("rep(1:3, each=100)");
+
+    assertThat(x, instanceOf(RunLengthIntExp.class));
+    assertThat(x.length(), equalTo(300));
+    assertThat(((IntExp) x).get(150), equalTo(2));
+  }
+
+  @Test
+  public void times() throws IOException {
+    assertThat(evaluateToExpression("rep(1:2, 2)"), equalTo((SEXP) new IntExp(1, 2, 1, 2)));
+    assertThat(evaluateToExpression("rep(1:2, c(1, 3))"), equalTo((SEXP) new IntExp(1, 2, 2, 2)));
+  }
+
+  @Test
+  public void lengthOut() throws IOException {
+    assertThat(evaluateToExpression("rep(c(1.5, 2), length.out=3)"), equalTo((SEXP) new RealExp(1.5, 2, 1.5)));
+  }
+
+  @Test
+  public void lengthOutOfEmpty() throws IOException {
+    assertThat(evaluateToExpression("rep(.Internal(vector(\"integer\",0)), length.out=3)"),
+        equalTo((SEXP) new IntExp(IntExp.NA, IntExp.NA, IntExp.NA)));
+    assertThat(evaluateToExpression("rep(1:2, each=0, length.out=2)").length(), equalTo(0));
+  }
+
+  @Test
+  public void scalarTimesIsASingleRun() throws IOException {
+    SEXP x = evaluateToExpression("rep(0L, 1e8)");
+
+    assertThat(x, instanceOf(RunLengthIntExp.class));
+    assertThat(x.length(), equalTo(100000000));
+    assertThat(((IntExp) x).get(99999999), equalTo(0));
+  }
+
+  @Test(expected = EvalException.class)
+  public void tooLong() throws IOException {
+    evaluateToExpression("rep(1:2, 2e9)");
+  }
+
+  @Test
+  public void uniqueOfRuns() throws IOException {
+    assertThat(evaluateToExpression(".Internal(unique(rep(rep(2:1, 2), each=10), FALSE, FALSE))"),
+        equalTo((SEXP) new IntExp(2, 1)));
+  }
+}
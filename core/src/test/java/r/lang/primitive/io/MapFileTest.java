@@ -0,0 +1,67 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.io;
+
+import org.junit.After;
+import org.junit.Test;
+import r.lang.EvalTestCase;
+import r.lang.RealBufferExp;
+import r.lang.SEXP;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class MapFileTest extends EvalTestCase {
+
+  private File file;
+
+  @Test
+  public void mapDoubles() throws IOException {
+    file = File.createTempFile("renjin", ".bin");
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+    for(int i=1; i<=1000; ++i) {
+      out.writeDouble(i);
+    }
+    out.close();
+
+    evaluate("x <- mmap('" + file.getAbsolutePath() + "', endian='big')");
+
+    SEXP x = evaluateToExpression("x");
+    assertThat(x, instanceOf(RealBufferExp.class));
+    assertThat(x.length(), equalTo(1000));
+    assertThat(evaluateToExpression("sum(x * 2)"), realVectorEqualTo(1001000));
+  }
+
+  @After
+  public void deleteFile() {
+    if(file != null) {
+      file.delete();
+    }
+  }
+}
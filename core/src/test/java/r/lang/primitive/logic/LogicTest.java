@@ -0,0 +1,58 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.logic;
+
+import org.junit.Test;
+import r.lang.EvalTestCase;
+import r.lang.IntExp;
+import r.lang.Logical;
+import r.lang.SEXP;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static r.ExpMatchers.logicalVectorOf;
+
+public class LogicTest extends EvalTestCase {
+
+  @Test
+  public void and() throws IOException {
+    assertThat(evaluateToExpression("TRUE & FALSE"), logicalVectorOf(Logical.FALSE));
+  }
+
+  @Test
+  public void notOfNumeric() throws IOException {
+    assertThat(evaluateToExpression("!0"), logicalVectorOf(Logical.TRUE));
+  }
+
+  @Test
+  public void anyAndAll() throws IOException {
+    assertThat(evaluateToExpression("any(FALSE, TRUE)"), logicalVectorOf(Logical.TRUE));
+    assertThat(evaluateToExpression("all(TRUE, FALSE)"), logicalVectorOf(Logical.FALSE));
+  }
+
+  @Test
+  public void which() throws IOException {
+    assertThat(evaluateToExpression(".Internal(which(!2:0))"), equalTo((SEXP) new IntExp(3)));
+  }
+}
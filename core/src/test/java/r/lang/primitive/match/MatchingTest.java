@@ -0,0 +1,96 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.match;
+
+import org.junit.Test;
+import r.lang.DictionaryStringExp;
+import r.lang.EvalTestCase;
+import r.lang.IntExp;
+import r.lang.NilExp;
+import r.lang.RealExp;
+import r.lang.SEXP;
+import r.lang.StringExp;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MatchingTest extends EvalTestCase {
+
+  @Test
+  public void matchStrings() throws IOException {
+    assertThat(evaluateToExpression(".Internal(match(c('b', 'z', 'a'), c('a', 'b', 'a'), NA, NULL))"),
+        equalTo((SEXP) new IntExp(2, IntExp.NA, 1)));
+  }
+
+  @Test
+  public void matchNumbers() throws IOException {
+    assertThat(evaluateToExpression(".Internal(match(2:4, c(4, 3), 0L, NULL))"),
+        equalTo((SEXP) new IntExp(0, 2, 1)));
+  }
+
+  @Test
+  public void matchNegativeZero() {
+    assertThat(Matching.Match.match(new RealExp(-0.0), new RealExp(0), 0, NilExp.INSTANCE),
+        equalTo((SEXP) new IntExp(1)));
+    assertThat(Matching.duplicated(new RealExp(0, -0.0), NilExp.INSTANCE, false),
+        equalTo(new boolean[] { false, true }));
+  }
+
+  @Test
+  public void matchNaNAndNA() {
+    RealExp x = new RealExp(RealExp.NA, Double.NaN);
+    RealExp table = new RealExp(Double.NaN, RealExp.NA);
+
+    assertThat(Matching.Match.match(x, table, IntExp.NA, NilExp.INSTANCE),
+        equalTo((SEXP) new IntExp(2, 1)));
+  }
+
+  @Test
+  public void unique() throws IOException {
+    assertThat(evaluateToExpression(".Internal(unique(c('a', 'b', 'a', 'c', 'b'), FALSE, FALSE))"),
+        equalTo((SEXP) new StringExp("a", "b", "c")));
+  }
+
+  @Test
+  public void anyDuplicated() throws IOException {
+    assertThat(evaluateToExpression(".Internal(anyDuplicated(c(1, 2, 3, 2), FALSE, FALSE))"),
+        equalTo((SEXP) new IntExp(4)));
+  }
+
+  @Test
+  public void matchEncoded() {
+    DictionaryStringExp x = new DictionaryStringExp(new String[] { "b", "z" }, new int[] { 0, 1, 0 });
+    DictionaryStringExp table = new DictionaryStringExp(new String[] { "a", "b" }, new int[] { 0, 1, 1 });
+
+    assertThat(Matching.Match.match(x, table, IntExp.NA, NilExp.INSTANCE),
+        equalTo((SEXP) new IntExp(2, IntExp.NA, 2)));
+  }
+
+  @Test
+  public void duplicatedEncoded() {
+    DictionaryStringExp x = new DictionaryStringExp(new String[] { "b", "z" }, new int[] { 0, 1, 0, 0 });
+
+    assertThat(Matching.duplicated(x, NilExp.INSTANCE, true), equalTo(new boolean[] { true, false, true, false }));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import org.junit.Test;
+import r.lang.*;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryMathFunctionTest extends EvalTestCase {
+
+  @Test
+  public void recycling() {
+    SEXP result = new Plus().apply(new IntSequence(1, 1, 4), new RealExp(10, 20)).getExpression();
+
+    assertThat(result, equalTo((SEXP) new RealExp(11, 22, 13, 24)));
+  }
+
+  @Test
+  public void integerNAIsPropagated() {
+    RealExp result = (RealExp) new Multiply().apply(new IntExp(1, IntExp.NA), new RealExp(2)).getExpression();
+
+    assertThat(result.get(0), equalTo(2d));
+    assertTrue(RealExp.isNaN(result.get(1)));
+  }
+
+  @Test
+  public void zeroLengthOperand() {
+    SEXP result = new Minus().apply(RealExp.ofLength(0), new RealExp(1)).getExpression();
+
+    assertThat(result.length(), equalTo(0));
+  }
+
+  @Test
+  public void temporaryOperandIsReused() {
+    RealExp temporary = new RealExp(1, 2, 3);
+    SEXP result = new Plus().apply(new RealExp(1), temporary).getExpression();
+
+    assertThat(result, sameInstance((SEXP) temporary));
+    assertThat(result, equalTo((SEXP) new RealExp(2, 3, 4)));
+  }
+
+  @Test
+  public void namedOperandIsNotOverwritten() {
+    RealExp x = new RealExp(1, 2, 3);
+    x.setNamed(1);
+    SEXP result = new Multiply().apply(x, new RealExp(2)).getExpression();
+
+    assertThat(result, not(sameInstance((SEXP) x)));
+    assertThat(x, equalTo(new RealExp(1, 2, 3)));
+  }
+
+  @Test
+  public void sharedOperandIsNotOverwritten() {
+    RealExp x = new RealExp(1, 2, 3);
+    RealExp copy = x.duplicate();
+    new Multiply().apply(copy, new RealExp(2));
+
+    assertThat(x, equalTo(new RealExp(1, 2, 3)));
+  }
+
+  @Test
+  public void listElementOperandIsNotOverwritten() throws IOException {
+    evaluateToExpression("l <- list(c(1, 2, 3) * 2)");
+    evaluateToExpression("y <- l[[1]] + 1");
+    evaluateToExpression("z <- sqrt(l[[1]])");
+
+    assertThat(evaluateToExpression("l[[1]]"), equalTo((SEXP) new RealExp(2, 4, 6)));
+  }
+
+  @Test
+  public void attributeOperandIsNotOverwritten() throws IOException {
+    evaluateToExpression("x <- `attr<-`(c(1, 2), 'a', c(1, 2) * 2)");
+    evaluateToExpression("y <- attr(x, 'a') + 1");
+    evaluateToExpression("z <- sqrt(attr(x, 'a'))");
+
+    assertThat(evaluateToExpression("attr(x, 'a')"), equalTo((SEXP) new RealExp(2, 4)));
+  }
+
+  @Test
+  public void consumedOperandIsNotRecycled() {
+    int n = BufferPool.MIN_POOLED_LENGTH * 2;
+    BufferPool pool = new BufferPool();
+    pool.open();
+    RealExp x = (RealExp) new Plus().apply(new RealSequence(0, 1, n), new RealExp(1), pool).getExpression();
+    RealExp y = (RealExp) new Plus().apply(new RealSequence(0, 1, n), new RealExp(2), pool).getExpression();
+
+    RealExp sum = (RealExp) new Plus().apply(x, y, pool).getExpression();
+
+    assertThat(sum, sameInstance(x));
+    assertThat(sum.get(3), equalTo(9d));
+    assertThat(y.get(3), equalTo(5d));
+    assertThat(pool.getPooledBytes(), equalTo(0L));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import org.junit.Test;
+import r.lang.*;
+import r.lang.primitive.parse.DeparsingVisitor;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class ComplexMathTest extends EvalTestCase {
+
+  private static final double DELTA = 1e-12;
+
+  @Test
+  public void parseImaginaryLiteral() throws IOException {
+    assertThat(evaluateToExpression("2i"), equalTo((SEXP) ComplexExp.of(0, 2)));
+  }
+
+  @Test
+  public void arithmetic() throws IOException {
+    evaluateToExpression("z <- 1+2i");
+    evaluateToExpression("w <- 3-1i");
+
+    assertThat(evaluateToExpression("z + w"), equalTo((SEXP) ComplexExp.of(4, 1)));
+    assertThat(evaluateToExpression("z - w"), equalTo((SEXP) ComplexExp.of(-2, 3)));
+    assertThat(evaluateToExpression("z * w"), equalTo((SEXP) ComplexExp.of(5, 5)));
+    assertComplex(evaluateToExpression("z / w"), 0.1, 0.7);
+  }
+
+  @Test
+  public void recyclesAndCoercesNumericOperands() {
+    ComplexExp z = ComplexExp.wrap(new double[] { 1, 2, 3, 4 });
+    SEXP result = new Multiply().apply(z, new RealExp(2)).getExpression();
+
+    assertThat(result, equalTo((SEXP) ComplexExp.wrap(new double[] { 2, 4, 6, 8 })));
+    assertThat(new Plus().apply(new IntExp(1), z).getExpression(),
+        equalTo((SEXP) ComplexExp.wrap(new double[] { 2, 2, 4, 4 })));
+  }
+
+  @Test
+  public void divisionByLargeImaginaryPart() {
+    SEXP result = new Divide().apply(ComplexExp.of(1e300, 1e300), ComplexExp.of(0, 1e300)).getExpression();
+
+    assertComplex(result, 1, -1);
+  }
+
+  @Test
+  public void modArgConj() throws IOException {
+    evaluateToExpression("z <- 3+4i");
+
+    assertThat(evaluateToExpression("Mod(z)"), equalTo((SEXP) new RealExp(5)));
+    assertEquals(Math.atan2(4, 3), evaluateToExpression("Arg(z)").asReal(), DELTA);
+    assertThat(evaluateToExpression("Conj(z)"), equalTo((SEXP) ComplexExp.of(3, -4)));
+    assertThat(evaluateToExpression("Re(z)"), equalTo((SEXP) new RealExp(3)));
+    assertThat(evaluateToExpression("Im(z)"), equalTo((SEXP) new RealExp(4)));
+    assertThat(evaluateToExpression("Arg(0-2)"), equalTo((SEXP) new RealExp(Math.PI)));
+  }
+
+  @Test
+  public void expAndLog() throws IOException {
+    evaluateToExpression("z <- 1+1i");
+
+    assertComplex(evaluateToExpression("log(exp(z))"), 1, 1);
+    assertComplex(evaluateToExpression("log(0i-1)"), 0, Math.PI);
+    assertThat(evaluateToExpression("log(0-1)"), equalTo((SEXP) new RealExp(Double.NaN)));
+    assertEquals(3, evaluateToExpression("log(8, base=2)").asReal(), DELTA);
+    assertEquals(2, evaluateToExpression("log(100, 10)").asReal(), DELTA);
+  }
+
+  @Test
+  public void complexSqrt() {
+    SEXP result = new Sqrt().apply(ComplexExp.of(-4, 0)).getExpression();
+
+    assertComplex(result, 0, 2);
+  }
+
+  @Test
+  public void deparse() {
+    assertThat(new DeparsingVisitor(ComplexExp.of(1, -2)).getResult(), equalTo("1-2i"));
+  }
+
+  private void assertComplex(SEXP result, double real, double imaginary) {
+    assertThat(result, instanceOf(ComplexExp.class));
+    assertEquals(real, ((ComplexExp) result).getReal(0), DELTA);
+    assertEquals(imaginary, ((ComplexExp) result).getImaginary(0), DELTA);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import org.junit.Test;
+import r.lang.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredRealExpTest {
+
+  private static final int N = DeferredRealExp.MIN_DEFERRED_LENGTH * 2;
+
+  @Test
+  public void chainIsFused() {
+    RealExp x = new RealSequence(0, 1, N);
+    SEXP scaled = new Multiply().apply(new Minus().apply(x, new RealExp(1)).getExpression(), new RealExp(2))
+        .getExpression();
+    SEXP result = new Sqrt().apply(scaled).getExpression();
+
+    assertThat(result, instanceOf(DeferredRealExp.class));
+    assertFalse(((DeferredRealExp) scaled).isForced());
+    assertFalse(((DeferredRealExp) result).isForced());
+
+    assertThat(((RealExp) result).get(5), equalTo(Math.sqrt(8)));
+    assertTrue(((DeferredRealExp) result).isForced());
+    assertFalse(((DeferredRealExp) scaled).isForced());
+  }
+
+  @Test
+  public void recycledOperand() {
+    SEXP result = new Plus().apply(new RealSequence(0, 1, N), new RealExp(10, 20)).getExpression();
+
+    assertThat(((RealExp) result).get(3), equalTo(23d));
+    assertThat(((RealExp) result).sum(), equalTo(N * (N - 1) / 2d + 15d * N));
+  }
+
+  @Test
+  public void namedOperandIsForced() {
+    SEXP y = new Multiply().apply(new RealSequence(0, 1, N), new RealExp(2)).getExpression();
+    y.setNamed(1);
+    new Plus().apply(y, new RealExp(1));
+
+    assertTrue(((DeferredRealExp) y).isForced());
+  }
+
+  @Test
+  public void capturedLeafIsNoLongerModifiedInPlace() {
+    RealExp x = RealExp.wrap(new double[N]);
+    SEXP y = new Plus().apply(x, new RealExp(1)).getExpression();
+
+    assertThat(x.getNamed(), equalTo(2));
+    assertThat(((RealExp) y).get(0), equalTo(1d));
+  }
+
+  @Test
+  public void monotoneFunctionsKeepSequencesSorted() {
+    RealExp small = (RealExp) new Floor().apply(new RealSequence(0.5, 1, 10)).getExpression();
+    RealExp large = (RealExp) new Exp().apply(new RealSequence(0, 1, N)).getExpression();
+    RealExp sqrt = (RealExp) new Sqrt().apply(new RealSequence(0, 1, 10)).getExpression();
+
+    assertTrue(small.isKnownSorted());
+    assertTrue(large.isKnownSorted());
+    assertFalse(sqrt.isKnownNoNA());
+    assertThat(small.min(), equalTo(0d));
+  }
+}
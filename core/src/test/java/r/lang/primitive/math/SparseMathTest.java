@@ -0,0 +1,104 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import org.junit.Test;
+import r.lang.*;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class SparseMathTest extends EvalTestCase {
+
+  private final SparseRealExp x = new SparseRealExp(8, new int[] { 1, 5 }, new double[] { 2, 4 });
+  private final SparseRealExp y = new SparseRealExp(8, new int[] { 5, 6 }, new double[] { 1, 3 });
+
+  @Test
+  public void scalarMultiplicationStaysSparse() {
+    SEXP result = new Multiply().apply(x, new RealExp(3)).getExpression();
+
+    assertThat(result, instanceOf(SparseRealExp.class));
+    assertThat(((SparseRealExp) result).getNonZeroCount(), equalTo(2));
+    assertThat(result, equalTo((SEXP) new RealExp(0, 6, 0, 0, 0, 12, 0, 0)));
+  }
+
+  @Test
+  public void scalarAdditionIsDense() {
+    SEXP result = new Plus().apply(x, new RealExp(1)).getExpression();
+
+    assertThat(result, equalTo((SEXP) new RealExp(1, 3, 1, 1, 1, 5, 1, 1)));
+  }
+
+  @Test
+  public void additionMergesIndices() {
+    SEXP result = new Plus().apply(x, y).getExpression();
+
+    assertThat(result, instanceOf(SparseRealExp.class));
+    assertThat(((SparseRealExp) result).getNonZeroCount(), equalTo(3));
+    assertThat(result, equalTo((SEXP) new RealExp(0, 2, 0, 0, 0, 5, 3, 0)));
+  }
+
+  @Test
+  public void cancellationDropsElements() {
+    SEXP result = new Minus().apply(x, x).getExpression();
+
+    assertThat(((SparseRealExp) result).getNonZeroCount(), equalTo(0));
+  }
+
+  @Test
+  public void divisionByZeroIsDense() {
+    SEXP result = new Divide().apply(x, y).getExpression();
+
+    assertThat(((RealExp) result).get(0), equalTo(Double.NaN));
+    assertThat(((RealExp) result).get(1), equalTo(Double.POSITIVE_INFINITY));
+  }
+
+  @Test
+  public void denseTimesSparseIsSparse() {
+    SEXP result = new Multiply().apply(new RealExp(1, 2, 3, 4, 5, 6, 7, 8), x).getExpression();
+
+    assertThat(result, instanceOf(SparseRealExp.class));
+    assertThat(result, equalTo((SEXP) new RealExp(0, 4, 0, 0, 0, 24, 0, 0)));
+  }
+
+  @Test
+  public void sqrt() {
+    SEXP result = new Sqrt().apply(x).getExpression();
+
+    assertThat(result, instanceOf(SparseRealExp.class));
+    assertThat(((RealExp) result).get(5), equalTo(2d));
+  }
+
+  @Test
+  public void fromR() throws IOException {
+    evaluateToExpression("x <- rep(c(0, 0, 0, 0, 5), 2000)");
+    evaluateToExpression("y <- x * 2");
+
+    assertThat(evaluateToExpression("y"), instanceOf(SparseRealExp.class));
+    assertThat(evaluateToExpression("sum(y)"), equalTo((SEXP) new RealExp(20000)));
+    assertThat(evaluateToExpression("sum(.Internal(vector('integer', 1000000)), na.rm=TRUE)"),
+        equalTo((SEXP) new IntExp(0)));
+  }
+}
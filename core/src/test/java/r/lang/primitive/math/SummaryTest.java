@@ -0,0 +1,68 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.math;
+
+import org.junit.Test;
+import r.lang.EvalTestCase;
+import r.lang.IntExp;
+import r.lang.RealExp;
+import r.lang.SEXP;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static r.ExpMatchers.intVectorOf;
+import static r.ExpMatchers.realVectorEqualTo;
+
+public class SummaryTest extends EvalTestCase {
+
+  @Test
+  public void sumOfSequence() throws IOException {
+    assertThat(evaluateToExpression("sum(1:100)"), intVectorOf(5050));
+  }
+
+  @Test
+  public void sumOfReals() throws IOException {
+    assertThat(evaluateToExpression("sum(1, 2.5, 1:2)"), realVectorEqualTo(6.5));
+  }
+
+  @Test
+  public void integerOverflowIsNA() throws IOException {
+    assertThat(evaluateToExpression("sum(1:1e9)"), intVectorOf(IntExp.NA));
+  }
+
+  @Test
+  public void argumentsAreNotReleased() throws IOException {
+    evaluateToExpression("l <- list(c(1, 2, 3) * 2)");
+    evaluateToExpression("s <- sum(l[[1]])");
+    evaluateToExpression("r <- range(l[[1]])");
+    evaluateToExpression("t <- sum(c(1, 2, 3) * 2)");
+
+    assertThat(evaluateToExpression("l[[1]]"), equalTo((SEXP) new RealExp(2, 4, 6)));
+  }
+
+  @Test
+  public void rangeOfSequence() throws IOException {
+    assertThat(evaluateToExpression("range(10:1)"), intVectorOf(1));
+  }
+}
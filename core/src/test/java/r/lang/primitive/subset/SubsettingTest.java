@@ -0,0 +1,170 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.subset;
+
+import org.junit.Test;
+import r.lang.*;
+import r.lang.exception.EvalException;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class SubsettingTest extends EvalTestCase {
+
+  @Test
+  public void positiveIndices() throws IOException {
+    assertThat(evaluateToExpression("c(10, 20, 30)[3]"), equalTo((SEXP) new RealExp(30)));
+    assertThat(evaluateToExpression("c(10, 20, 30)[c(3, 1, 5)]"),
+        equalTo((SEXP) new RealExp(30, 10, RealExp.NA)));
+    evaluateToExpression("x <- 1:5");
+    assertThat(evaluateToExpression("x[c(0, 2)]"), equalTo((SEXP) new IntExp(2)));
+  }
+
+  @Test
+  public void negativeIndices() throws IOException {
+    assertThat(evaluateToExpression("c('a', 'b', 'c')[0-2]"), equalTo((SEXP) new StringExp("a", "c")));
+    evaluateToExpression("i <- 0 - c(1, 3, 10)");
+    assertThat(evaluateToExpression("c('a', 'b', 'c')[i]"), equalTo((SEXP) new StringExp("b")));
+  }
+
+  @Test(expected = EvalException.class)
+  public void mixedSigns() {
+    Subsetting.subset(new RealExp(1, 2, 3), new RealExp(-1, 2));
+  }
+
+  @Test(expected = EvalException.class)
+  public void matrixSubscripts() throws IOException {
+    IntExp x = new IntExp(1, 2, 3, 4);
+    x.setAttribute("dim", new IntExp(2, 2));
+    context.getGlobalEnvironment().setVariable(context.getSymbolTable().install("x"), x);
+    evaluateToExpression("x[1, 2]");
+  }
+
+  @Test
+  public void extractedElementsAreNotModifiedInPlace() throws IOException {
+    evaluateToExpression("l <- list(c(1, 2, 3) * 2)");
+    evaluateToExpression("y <- l[[1]] + 1");
+    evaluateToExpression("z <- l[1][[1]] + 1");
+    assertThat(evaluateToExpression("l[[1]]"), equalTo((SEXP) new RealExp(2, 4, 6)));
+  }
+
+  @Test
+  public void logicalMask() throws IOException {
+    evaluateToExpression("x <- 1:4");
+    assertThat(evaluateToExpression("x[!c(0, 1, 0, 1)]"), equalTo((SEXP) new IntExp(1, 3)));
+  }
+
+  @Test
+  public void recycledMask() throws IOException {
+    assertThat(Subsetting.subset(new IntExp(1, 2, 3, 4, 5), new LogicalExp(true, false)),
+        equalTo((SEXP) new IntExp(1, 3, 5)));
+    assertThat(Subsetting.subset(new IntExp(1, 2), new LogicalExp(new Logical[] {Logical.NA, Logical.TRUE, Logical.TRUE})),
+        equalTo((SEXP) new IntExp(IntExp.NA, 2, IntExp.NA)));
+  }
+
+  @Test
+  public void maskAcrossWords() {
+    boolean mask[] = new boolean[130];
+    mask[0] = mask[64] = mask[129] = true;
+    IntExp x = IntExp.wrap(new int[130]);
+    for(int i=0; i!=130; ++i) {
+      x.set(i, i);
+    }
+    assertThat(Subsetting.subset(x, new LogicalExp(mask)), equalTo((SEXP) new IntExp(0, 64, 129)));
+  }
+
+  @Test
+  public void byName() throws IOException {
+    evaluateToExpression("x <- `names<-`(c(1, 2, 3), c('a', 'b', 'c'))");
+
+    SEXP result = evaluateToExpression("x[c('c', 'a', 'z')]");
+    assertThat(result, equalTo((SEXP) new RealExp(3, 1, RealExp.NA)));
+    assertThat(result.getAttribute("names"), equalTo((SEXP) new StringExp("c", "a", null)));
+
+    assertThat(evaluateToExpression("x[['b']]"), equalTo((SEXP) new RealExp(2)));
+    assertThat(evaluateToExpression("names(x[['b']])"), equalTo((SEXP) NilExp.INSTANCE));
+  }
+
+  @Test
+  public void rangeIsView() throws IOException {
+    evaluateToExpression("x <- c(1, 2, 3, 4, 5)");
+    SEXP y = evaluateToExpression("x[2:4]");
+
+    assertThat(y, instanceOf(RealSliceExp.class));
+    assertThat(y, equalTo((SEXP) new RealExp(2, 3, 4)));
+
+    ((RealExp) y).set(0, 99);
+    assertThat(evaluateToExpression("x"), equalTo((SEXP) new RealExp(1, 2, 3, 4, 5)));
+  }
+
+  @Test
+  public void rangeOfStringsKeepsNames() throws IOException {
+    evaluateToExpression("x <- `names<-`(c('p', 'q', 'r'), c('a', 'b', 'c'))");
+    SEXP y = evaluateToExpression("x[2:3]");
+
+    assertThat(y, instanceOf(StringSliceExp.class));
+    assertThat(y.getAttribute("names"), equalTo((SEXP) new StringExp("b", "c")));
+  }
+
+  @Test
+  public void sequenceRangeStaysSequence() throws IOException {
+    evaluateToExpression("x <- 1:1000");
+    SEXP y = evaluateToExpression("x[101:200]");
+
+    assertThat(y, instanceOf(IntSequence.class));
+    assertThat(y.length(), equalTo(100));
+    assertThat(((IntExp) y).get(0), equalTo(101));
+  }
+
+  @Test
+  public void pairLists() throws IOException {
+    ListExp list = ListExp.fromArray(new RealExp(1), new StringExp("a"), new IntExp(3));
+    list.getNode(1).setTag(context.getSymbolTable().install("b"));
+
+    assertThat(Subsetting.getElement(list, new RealExp(2)), equalTo((SEXP) new StringExp("a")));
+    assertThat(Subsetting.getElement(list, new StringExp("b")), equalTo((SEXP) new StringExp("a")));
+    assertThat(Subsetting.getElement(list, new StringExp("z")), equalTo((SEXP) NilExp.INSTANCE));
+    assertThat(Subsetting.subset(list, new IntExp(-1)).length(), equalTo(2));
+  }
+
+  @Test(expected = EvalException.class)
+  public void elementOutOfBounds() throws IOException {
+    evaluateToExpression("x <- 1:3");
+    evaluateToExpression("x[[4]]");
+  }
+
+  @Test
+  public void dictionaryEncodedVectorsStayEncoded() {
+    String values[] = new String[100];
+    for(int i=0; i!=values.length; ++i) {
+      values[i] = i % 2 == 0 ? "even" : "odd";
+    }
+    StringExp x = DictionaryStringExp.encode(values);
+    SEXP y = Subsetting.subset(x, new IntExp(1, 2, 200));
+
+    assertThat(y, instanceOf(DictionaryStringExp.class));
+    assertThat(y, equalTo((SEXP) new StringExp("even", "odd", null)));
+  }
+}
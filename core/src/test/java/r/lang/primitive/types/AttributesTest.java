@@ -0,0 +1,100 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997-2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package r.lang.primitive.types;
+
+import org.junit.Test;
+import r.lang.*;
+import r.lang.exception.EvalException;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class AttributesTest extends EvalTestCase {
+
+  @Test
+  public void setAndGet() throws IOException {
+    evaluateToExpression("x <- `attr<-`(1:3, 'foo', 'bar')");
+
+    assertThat(evaluateToExpression("attr(x, 'foo')"), equalTo((SEXP) new StringExp("bar")));
+    assertThat(evaluateToExpression("attr(x, 'fo')"), equalTo((SEXP) new StringExp("bar")));
+    assertThat(evaluateToExpression("attr(x, 'fo', TRUE)"), equalTo((SEXP) NilExp.INSTANCE));
+  }
+
+  @Test
+  public void variablesAreNotModified() throws IOException {
+    evaluateToExpression("x <- c(1, 2)");
+    evaluateToExpression("y <- `names<-`(x, c('a', 'b'))");
+
+    assertThat(evaluateToExpression("names(x)"), equalTo((SEXP) NilExp.INSTANCE));
+    assertThat(evaluateToExpression("names(y)"), equalTo((SEXP) new StringExp("a", "b")));
+  }
+
+  @Test
+  public void returnedAttributesAreNotModifiedInPlace() throws IOException {
+    evaluateToExpression("x <- `attr<-`(1:3, 'a', c(1, 2) * 2)");
+    evaluateToExpression("y <- attr(x, 'a') * 3");
+    evaluateToExpression("z <- sqrt(attr(x, 'a'))");
+
+    assertThat(evaluateToExpression("attr(x, 'a')"), equalTo((SEXP) new RealExp(2, 4)));
+  }
+
+  @Test
+  public void namesArePadded() throws IOException {
+    assertThat(evaluateToExpression("names(`names<-`(c(1,2,3), 'a'))"),
+        equalTo((SEXP) new StringExp("a", null, null)));
+  }
+
+  @Test
+  public void dim() throws IOException {
+    evaluateToExpression("x <- `dim<-`(1:6, c(2, 3))");
+
+    assertThat(evaluateToExpression("dim(x)"), equalTo((SEXP) new IntExp(2, 3)));
+    assertThat(evaluateToExpression("class(x)"), equalTo((SEXP) new StringExp("matrix")));
+  }
+
+  @Test(expected = EvalException.class)
+  public void dimMustMatchLength() throws IOException {
+    evaluateToExpression("`dim<-`(1:6, c(4, 2))");
+  }
+
+  @Test
+  public void classAndInherits() throws IOException {
+    evaluateToExpression("x <- `class<-`(1:2, c('foo', 'bar'))");
+
+    assertThat(evaluateToExpression("oldClass(x)"), equalTo((SEXP) new StringExp("foo", "bar")));
+    assertThat(evaluateToExpression(".Internal(inherits(x, c('baz', 'bar'), TRUE))"),
+        equalTo((SEXP) new IntExp(0, 2)));
+    assertThat(evaluateToExpression(".Internal(inherits(x, 'baz', FALSE))"),
+        equalTo((SEXP) new LogicalExp(false)));
+    assertThat(evaluateToExpression("class(1.5)"), equalTo((SEXP) new StringExp("numeric")));
+  }
+
+  @Test
+  public void attributesAsList() throws IOException {
+    SEXP list = evaluateToExpression("attributes(`attr<-`(`names<-`(1:2, c('a','b')), 'foo', 1))");
+
+    assertThat(list.length(), equalTo(2));
+    assertThat(list.getTag(), equalTo((SEXP) context.getSymbolTable().install("names")));
+  }
+}